@@ -0,0 +1,46 @@
+package ime.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class runs the benchmarks with the JMH command line, adding the GC profiler unless the
+ * arguments already ask for it, so that every result reports the allocation rate next to the
+ * throughput.
+ */
+public final class BenchmarkMain {
+  private BenchmarkMain() {}
+
+  /**
+   * Run the benchmarks.
+   *
+   * @param args the JMH command line arguments, such as a benchmark regex or -p size=1024.
+   * @throws Exception if JMH fails.
+   */
+  public static void main(String[] args) throws Exception {
+    List<String> arguments = new ArrayList<>(Arrays.asList(args));
+    boolean listing = arguments.contains("-l") || arguments.contains("-h")
+        || arguments.contains("-lp") || arguments.contains("-lprof");
+    if (!listing && !hasGcProfiler(arguments)) {
+      arguments.add(0, "gc");
+      arguments.add(0, "-prof");
+    }
+    org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+  }
+
+  /**
+   * Check whether the arguments already add the GC profiler.
+   *
+   * @param arguments the arguments.
+   * @return true if they do.
+   */
+  private static boolean hasGcProfiler(List<String> arguments) {
+    for (int i = 0; i + 1 < arguments.size(); i++) {
+      if (arguments.get(i).equals("-prof") && arguments.get(i + 1).startsWith("gc")) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,136 @@
+package ime.benchmarks;
+
+import ime.controller.io.BinaryPpmImageReader;
+import ime.controller.io.BinaryPpmImageWriter;
+import ime.controller.io.BufferedImageReader;
+import ime.controller.io.BufferedImageWriter;
+import ime.controller.io.BufferedPpmImageWriter;
+import ime.controller.io.ImageWriter;
+import ime.controller.io.PpmImageReader;
+import ime.controller.io.PpmImageWriter;
+import ime.controller.io.WaveletImageReader;
+import ime.controller.io.WaveletImageWriter;
+import ime.model.image.ReadOnlyImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of every image reader and writer, as images per second on square images of every
+ * size. Readers read from bytes in memory that were written once by the matching writer, and
+ * writers write to a stream that discards everything, so that no benchmark measures the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class CodecBenchmark {
+  @Param({"256", "1024", "2048", "4096", "8192"})
+  public int size;
+
+  private ReadOnlyImage image;
+  private byte[] ppm;
+  private byte[] binaryPpm;
+  private byte[] png;
+  private byte[] jpeg;
+  private byte[] wavelet;
+
+  /** Generate the image, and write it once in every format for the readers. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    image = SyntheticImages.photo(size, size, 1);
+    ppm = encode(new BufferedPpmImageWriter());
+    binaryPpm = encode(new BinaryPpmImageWriter());
+    png = encode(new BufferedImageWriter("png"));
+    jpeg = encode(new BufferedImageWriter("jpeg"));
+    wavelet = encode(new WaveletImageWriter());
+  }
+
+  /**
+   * Write the image into bytes.
+   *
+   * @param writer the writer.
+   * @return the bytes.
+   */
+  private byte[] encode(ImageWriter writer) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    writer.write(output, image);
+    return output.toByteArray();
+  }
+
+  @Benchmark
+  public ReadOnlyImage readPpm() {
+    return new PpmImageReader().read(new ByteArrayInputStream(ppm));
+  }
+
+  @Benchmark
+  public ReadOnlyImage readBinaryPpmWithPpmReader() {
+    return new PpmImageReader().read(new ByteArrayInputStream(binaryPpm));
+  }
+
+  @Benchmark
+  public ReadOnlyImage readBinaryPpm() {
+    return new BinaryPpmImageReader().read(new ByteArrayInputStream(binaryPpm));
+  }
+
+  @Benchmark
+  public ReadOnlyImage readPng() {
+    return new BufferedImageReader().read(new ByteArrayInputStream(png));
+  }
+
+  @Benchmark
+  public ReadOnlyImage readJpeg() {
+    return new BufferedImageReader().read(new ByteArrayInputStream(jpeg));
+  }
+
+  @Benchmark
+  public ReadOnlyImage readWavelet() {
+    return new WaveletImageReader().read(new ByteArrayInputStream(wavelet));
+  }
+
+  @Benchmark
+  public void writePpm() {
+    new PpmImageWriter().write(OutputStream.nullOutputStream(), image);
+  }
+
+  @Benchmark
+  public void writeBufferedPpm() {
+    new BufferedPpmImageWriter().write(OutputStream.nullOutputStream(), image);
+  }
+
+  @Benchmark
+  public void writeBinaryPpm() {
+    new BinaryPpmImageWriter().write(OutputStream.nullOutputStream(), image);
+  }
+
+  @Benchmark
+  public void writePng() {
+    new BufferedImageWriter("png").write(OutputStream.nullOutputStream(), image);
+  }
+
+  @Benchmark
+  public void writeJpeg() {
+    new BufferedImageWriter("jpeg").write(OutputStream.nullOutputStream(), image);
+  }
+
+  @Benchmark
+  public void writeWavelet() {
+    new WaveletImageWriter().write(OutputStream.nullOutputStream(), image);
+  }
+}
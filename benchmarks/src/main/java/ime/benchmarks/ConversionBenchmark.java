@@ -0,0 +1,66 @@
+package ime.benchmarks;
+
+import ime.model.image.ReadOnlyImage;
+import ime.util.Images;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the conversions between images of the model and BufferedImages, which the view
+ * and the PNG and JPEG codecs do on every image, as conversions per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class ConversionBenchmark {
+  @Param({"256", "1024", "2048", "4096", "8192"})
+  public int size;
+
+  private ReadOnlyImage image;
+  private BufferedImage intRgb;
+  private BufferedImage threeByteBgr;
+
+  /** Generate the image, and convert it once into every type of BufferedImage. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    image = SyntheticImages.photo(size, size, 1);
+    intRgb = Images.fromReadOnlyImage(image);
+    threeByteBgr = Images.fromReadOnlyImage(image, BufferedImage.TYPE_3BYTE_BGR);
+  }
+
+  @Benchmark
+  public BufferedImage toIntRgb() {
+    return Images.fromReadOnlyImage(image);
+  }
+
+  @Benchmark
+  public BufferedImage toThreeByteBgr() {
+    return Images.fromReadOnlyImage(image, BufferedImage.TYPE_3BYTE_BGR);
+  }
+
+  @Benchmark
+  public ReadOnlyImage fromIntRgb() {
+    return Images.fromBufferedImage(intRgb);
+  }
+
+  @Benchmark
+  public ReadOnlyImage fromThreeByteBgr() {
+    return Images.fromBufferedImage(threeByteBgr);
+  }
+}
@@ -0,0 +1,248 @@
+package ime.benchmarks;
+
+import ime.model.image.ChannelHistogram;
+import ime.model.image.ReadOnlyImage;
+import ime.model.operations.Blur;
+import ime.model.operations.BrightenDarken;
+import ime.model.operations.ColorCorrect;
+import ime.model.operations.Dither;
+import ime.model.operations.ExtractBlueComponent;
+import ime.model.operations.ExtractGreenComponent;
+import ime.model.operations.ExtractIntensityComponent;
+import ime.model.operations.ExtractLumaComponent;
+import ime.model.operations.ExtractRedComponent;
+import ime.model.operations.ExtractValueComponent;
+import ime.model.operations.GaussianBlur;
+import ime.model.operations.GenerateHistogram;
+import ime.model.operations.HaarWaveletCompression;
+import ime.model.operations.HaarWaveletTransform;
+import ime.model.operations.HorizontalFlip;
+import ime.model.operations.LevelsAdjustment;
+import ime.model.operations.LookupTable;
+import ime.model.operations.PixelPipeline;
+import ime.model.operations.PreviewSplitOperation;
+import ime.model.operations.RGBCombine;
+import ime.model.operations.SepiaTone;
+import ime.model.operations.Sharpen;
+import ime.model.operations.VerticalFlip;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of every operation of the model, as operations per second on square images of every
+ * size. The abstract operations are measured through their subclasses: AbstractFilter through
+ * Blur, Sharpen and GaussianBlur, AbstractLinearTransformation through the components, Histogram
+ * through GenerateHistogram and ColorCorrect, and MatrixMultiplication through SepiaTone.
+ *
+ * <p>The flips and the red, green and blue components return views of their input, so they are
+ * measured together with reading every row of the view, which is where a view does its work.
+ * Operations that cache work on their input image run on an {@link UncachedImage} every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class OperationBenchmark {
+  @Param({"256", "1024", "2048", "4096", "8192"})
+  public int size;
+
+  private ReadOnlyImage image;
+  private ReadOnlyImage green;
+  private ReadOnlyImage blue;
+  private double[][] channels;
+  private HaarWaveletTransform transform;
+  private int[] row;
+
+  /** Generate the images, and the channels of the wavelet transform. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    image = SyntheticImages.photo(size, size, 1);
+    green = SyntheticImages.photo(size, size, 2);
+    blue = SyntheticImages.photo(size, size, 3);
+
+    channels = new double[3][size * size];
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        int pixel = image.getPixel(i, j);
+        channels[0][i * size + j] = pixel >> 16 & 0xFF;
+        channels[1][i * size + j] = pixel >> 8 & 0xFF;
+        channels[2][i * size + j] = pixel & 0xFF;
+      }
+    }
+    transform = new HaarWaveletTransform();
+    row = new int[size];
+  }
+
+  /**
+   * Read every row of a view, as anything that saves or displays it would.
+   *
+   * @param view the view.
+   * @param blackhole the blackhole that consumes the rows.
+   */
+  private void readRows(ReadOnlyImage view, Blackhole blackhole) {
+    for (int i = 0; i < view.getHeight(); i++) {
+      view.copyRow(i, row, 0);
+      blackhole.consume(row);
+    }
+  }
+
+  @Benchmark
+  public ReadOnlyImage blur() {
+    return new Blur().apply(image);
+  }
+
+  @Benchmark
+  public ReadOnlyImage sharpen() {
+    return new Sharpen().apply(image);
+  }
+
+  @Benchmark
+  public ReadOnlyImage gaussianBlur() {
+    return new GaussianBlur(3, 1.5).apply(image);
+  }
+
+  @Benchmark
+  public ReadOnlyImage brightenDarken() {
+    return new BrightenDarken(20).apply(image);
+  }
+
+  @Benchmark
+  public ReadOnlyImage sepiaTone() {
+    return new SepiaTone().apply(image);
+  }
+
+  @Benchmark
+  public ReadOnlyImage levelsAdjustment() {
+    return new LevelsAdjustment(20, 128, 235).apply(image);
+  }
+
+  @Benchmark
+  public ReadOnlyImage lookupTable() {
+    return LookupTable.compose(List.of(new BrightenDarken(20), new LevelsAdjustment(20, 128, 235)))
+        .apply(image);
+  }
+
+  @Benchmark
+  public ReadOnlyImage pixelPipeline() {
+    return new PixelPipeline(
+            List.of(new SepiaTone(), new BrightenDarken(20), new ExtractLumaComponent()))
+        .apply(image);
+  }
+
+  @Benchmark
+  public void extractRedComponent(Blackhole blackhole) {
+    readRows(new ExtractRedComponent().apply(image), blackhole);
+  }
+
+  @Benchmark
+  public void extractGreenComponent(Blackhole blackhole) {
+    readRows(new ExtractGreenComponent().apply(image), blackhole);
+  }
+
+  @Benchmark
+  public void extractBlueComponent(Blackhole blackhole) {
+    readRows(new ExtractBlueComponent().apply(image), blackhole);
+  }
+
+  @Benchmark
+  public ReadOnlyImage extractValueComponent() {
+    return new ExtractValueComponent().apply(image);
+  }
+
+  @Benchmark
+  public ReadOnlyImage extractIntensityComponent() {
+    return new ExtractIntensityComponent().apply(image);
+  }
+
+  @Benchmark
+  public ReadOnlyImage extractLumaComponent() {
+    return new ExtractLumaComponent().apply(image);
+  }
+
+  @Benchmark
+  public void horizontalFlip(Blackhole blackhole) {
+    readRows(new HorizontalFlip().apply(image), blackhole);
+  }
+
+  @Benchmark
+  public void verticalFlip(Blackhole blackhole) {
+    readRows(new VerticalFlip().apply(image), blackhole);
+  }
+
+  @Benchmark
+  public ReadOnlyImage dither() {
+    return new Dither().apply(image);
+  }
+
+  @Benchmark
+  public ReadOnlyImage rgbCombine() {
+    return new RGBCombine().apply(image, green, blue);
+  }
+
+  @Benchmark
+  public ReadOnlyImage previewSplitOperation() {
+    return new PreviewSplitOperation(new SepiaTone(), 50).apply(image);
+  }
+
+  @Benchmark
+  public ChannelHistogram channelHistogram() {
+    return ChannelHistogram.of(image);
+  }
+
+  @Benchmark
+  public ReadOnlyImage generateHistogram() {
+    return new GenerateHistogram().apply(new UncachedImage(image));
+  }
+
+  @Benchmark
+  public ReadOnlyImage colorCorrect() {
+    return new ColorCorrect().apply(new UncachedImage(image));
+  }
+
+  @Benchmark
+  public ReadOnlyImage haarWaveletCompressionSquare() {
+    return new HaarWaveletCompression(90, HaarWaveletCompression.Layout.SQUARE)
+        .apply(new UncachedImage(image));
+  }
+
+  @Benchmark
+  public ReadOnlyImage haarWaveletCompressionRectangular() {
+    return new HaarWaveletCompression(90, HaarWaveletCompression.Layout.RECTANGULAR)
+        .apply(new UncachedImage(image));
+  }
+
+  @Benchmark
+  public ReadOnlyImage haarWaveletCompressionTiled() {
+    return new HaarWaveletCompression(90, HaarWaveletCompression.Layout.TILED)
+        .apply(new UncachedImage(image));
+  }
+
+  /**
+   * Transform the channels forward and back, which leaves them as they were up to rounding, so
+   * that every invocation transforms the same values.
+   *
+   * @return the channels.
+   */
+  @Benchmark
+  public double[][] haarWaveletTransform() {
+    transform.forward(size, size, channels);
+    transform.inverse(size, size, channels);
+    return channels;
+  }
+}
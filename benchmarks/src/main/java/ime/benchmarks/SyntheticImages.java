@@ -0,0 +1,71 @@
+package ime.benchmarks;
+
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+
+/**
+ * This class generates the images the benchmarks run on, so that no image files need to be kept
+ * in the repository. An image only depends on its size and seed, so every run of a benchmark sees
+ * the same pixels.
+ */
+public final class SyntheticImages {
+  private SyntheticImages() {}
+
+  /**
+   * Generate an image that looks somewhat like a photo: smooth gradients and waves in every
+   * channel, with a little noise, so that codecs and histograms see realistic values.
+   *
+   * @param height the height of the image.
+   * @param width the width of the image.
+   * @param seed the seed, which shifts the waves and the noise.
+   * @return the image.
+   */
+  public static ReadOnlyImage photo(int height, int width, int seed) {
+    PackedReadOnlyImage.PackedImageBuilder builder =
+        new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    int[] row = new int[width];
+    double phase = seed * 0.7;
+    for (int i = 0; i < height; i++) {
+      double y = (double) i / height;
+      for (int j = 0; j < width; j++) {
+        double x = (double) j / width;
+        int noise = hash(i, j, seed);
+        int red = channel(160 * x + 60 * Math.sin(6 * y + phase) + 40, noise);
+        int green = channel(120 * y + 50 * Math.sin(9 * x * y + phase) + 60, noise >> 8);
+        int blue = channel(90 * (1 - x) + 70 * Math.cos(5 * (x + y) + phase) + 80, noise >> 16);
+        row[j] = red << 16 | green << 8 | blue;
+      }
+      builder.setRow(i, row, 0);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Add up to 15 of noise to a channel value, and clamp it to [0, 255].
+   *
+   * @param value the smooth value.
+   * @param noise the noise, of which the lowest 5 bits are used.
+   * @return the channel value.
+   */
+  private static int channel(double value, int noise) {
+    int result = (int) value + (noise & 31) - 15;
+    return Math.max(0, Math.min(255, result));
+  }
+
+  /**
+   * Hash a position and a seed into pseudo-random bits.
+   *
+   * @param i the row.
+   * @param j the column.
+   * @param seed the seed.
+   * @return the bits.
+   */
+  private static int hash(int i, int j, int seed) {
+    int h = i * 0x9E3779B1 ^ j * 0x85EBCA77 ^ seed * 0xC2B2AE3D;
+    h ^= h >>> 15;
+    h *= 0x2C1B3C6D;
+    h ^= h >>> 12;
+    h *= 0x297A2D39;
+    return h ^ h >>> 15;
+  }
+}
@@ -0,0 +1,54 @@
+package ime.benchmarks;
+
+import ime.model.color.Color;
+import ime.model.image.ReadOnlyImage;
+
+/**
+ * This class reads the pixels of another image without keeping anything the image caches, such
+ * as its statistics. Operations that reuse work done on the same image, like histograms and
+ * compression, are benchmarked on a new one of these every time, so that every invocation does
+ * the work again.
+ */
+final class UncachedImage implements ReadOnlyImage {
+  private final ReadOnlyImage image;
+
+  /**
+   * Construct a new view of the image.
+   *
+   * @param image the image.
+   */
+  UncachedImage(ReadOnlyImage image) {
+    this.image = image;
+  }
+
+  @Override
+  public int getWidth() {
+    return image.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return image.getHeight();
+  }
+
+  @Override
+  public Color getColor(int i, int j) throws IllegalArgumentException {
+    return image.getColor(i, j);
+  }
+
+  @Override
+  public int getPixel(int i, int j) throws IllegalArgumentException {
+    return image.getPixel(i, j);
+  }
+
+  @Override
+  public void copyRow(int i, int[] dest, int offset) throws IllegalArgumentException {
+    image.copyRow(i, dest, offset);
+  }
+
+  @Override
+  public void copyRegion(int i, int j, int regionHeight, int regionWidth, int[] dest, int offset)
+      throws IllegalArgumentException {
+    image.copyRegion(i, j, regionHeight, regionWidth, dest, offset);
+  }
+}
@@ -2,14 +2,29 @@ package ime;
 
 import ime.controller.Controller;
 import ime.controller.ExtendedTextController;
+import ime.controller.ScriptClient;
+import ime.controller.ScriptServer;
 import ime.controller.ViewControllerImpl;
+import ime.controller.command.BatchCommand;
+import ime.controller.command.Command;
+import ime.model.session.BoundedSession;
 import ime.model.session.Session;
 import ime.model.session.SessionImpl;
 import ime.view.GraphicalView;
 import ime.view.View;
 
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Supplier;
 
 /** This class represents the main entry-point for the IME program. */
 public final class Main {
@@ -23,27 +38,190 @@ public final class Main {
    * <p>Can optionally provide the "-text" command line argument. If entered, the script program
    * will execute in text mode. By default, the program executes in GUI mode.
    *
+   * <p>Can optionally provide the "-batch [templatePath] [glob]" command line arguments, followed
+   * by an optional limit of image operations to run at the same time. If entered, the script
+   * template is run once for every file that matches the glob, each in a session of its own, a
+   * summary is printed, and the program exits. With "-memory", every file gets its own memory
+   * budget of that many megabytes.
+   *
+   * <p>Can optionally provide the "-serve [port or socket path]" command line arguments. If
+   * entered, the program keeps running and runs the scripts sent to it on that port of the
+   * loopback address, or on that Unix-domain socket, each against a session of its own (see
+   * {@link ScriptServer}). A server on a port writes a new token to ".ime/server-[port].token" in
+   * the home directory, readable by its owner only, and deletes it when it stops. The "-connect
+   * [port or socket path]" command line arguments, optionally followed by a script path, send a
+   * script, or standard input, to such a server, with the token from that file for a port, and
+   * print its log. The program exits with status 1 if a command of the script failed.
+   *
+   * <p>Can optionally start with the "-memory [megabytes]" command line argument, before any of
+   * the others. If entered, the session keeps at most that many megabytes of images in memory, and
+   * spills the least recently used ones to a temporary file. Otherwise, every image stays in
+   * memory.
+   *
+   * <p>Can optionally provide the "-parallel [commands]" command line argument next, before
+   * "-text" or "-file". If entered, scripts run that many independent commands at the same time
+   * (see {@link ime.controller.ScriptScheduler}), and log every command they executed once the
+   * whole script has finished. Otherwise, scripts run their commands in order.
+   *
    * @param args optional command line arguments.
    */
   public static void main(String[] args) {
+    Supplier<Session> sessions;
+    if (args.length >= 2 && args[0].equals("-memory")) {
+      long megabytes;
+      try {
+        megabytes = Long.parseLong(args[1]);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Memory budget must be a number of megabytes.");
+      }
+      if (megabytes <= 0 || megabytes > Long.MAX_VALUE >> 20) {
+        throw new IllegalArgumentException("Memory budget must be a positive number.");
+      }
+      long budget = megabytes << 20;
+      sessions = () -> new BoundedSession(budget);
+      args = Arrays.copyOfRange(args, 2, args.length);
+    } else {
+      sessions = SessionImpl::new;
+    }
+
+    int parallelism = 1;
+    if (args.length >= 2 && args[0].equals("-parallel")) {
+      try {
+        parallelism = Integer.parseInt(args[1]);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Parallelism must be a number of commands.");
+      }
+      if (parallelism < 1) {
+        throw new IllegalArgumentException("Parallelism must be a positive number.");
+      }
+      args = Arrays.copyOfRange(args, 2, args.length);
+    }
+
+    if (args.length == 2 && args[0].equals("-serve")) {
+      serve(args[1], sessions);
+      return;
+    } else if ((args.length == 2 || args.length == 3) && args[0].equals("-connect")) {
+      int failures = connect(args[1], args.length == 3 ? args[2] : null);
+      if (failures > 0) {
+        System.exit(1);
+      }
+      return;
+    }
+
     Controller controller;
     if (args.length == 0) {
       // no arguments, run in graphics mode
       View view = new GraphicalView("IME");
       controller = new ViewControllerImpl(view);
     } else if (args.length == 1 && args[0].equals("-text")) {
-      // run in interactive text mode
-      controller = new ExtendedTextController(new InputStreamReader(System.in));
+      // run in interactive text mode, logging and reporting to standard output
+      controller =
+          new ExtendedTextController(
+              new InputStreamReader(System.in), System.out, false, parallelism);
     } else if (args.length == 2 && args[0].equals("-file")) {
-      // run from a script file
+      // run from a script file, logging and reporting to standard output
       String scriptPath = args[1];
       controller =
-          new ExtendedTextController(new StringReader(String.format("run %s", scriptPath)));
+          new ExtendedTextController(
+              new StringReader(String.format("run %s", scriptPath)),
+              System.out,
+              false,
+              parallelism);
+    } else if ((args.length == 3 || args.length == 4) && args[0].equals("-batch")) {
+      // run a script template for every file matching a glob, each in a session from the supplier
+      Command batch =
+          new BatchCommand.Supplier(System.out, sessions)
+              .get(Arrays.copyOfRange(args, 1, args.length));
+      batch.execute(new SessionImpl());
+      return;
     } else {
       throw new IllegalArgumentException("Program arguments not recognized.");
     }
 
-    Session session = new SessionImpl();
-    controller.run(session);
+    controller.run(sessions.get());
+  }
+
+  /**
+   * Serve scripts on the given port or socket until the program is stopped.
+   *
+   * @param address the port or socket path.
+   * @param sessions the supplier of the session of every connection.
+   */
+  private static void serve(String address, Supplier<Session> sessions) {
+    SocketAddress socket = ScriptServer.parseAddress(address);
+    String token = socket instanceof InetSocketAddress ? ScriptServer.newToken() : null;
+    try (ScriptServer server =
+        new ScriptServer(socket, Runtime.getRuntime().availableProcessors(), sessions, token)) {
+      Path tokenPath = token == null ? null : writeToken(server.getAddress(), token);
+      try {
+        server.warmUp();
+        System.out.printf("listening on %s%n", server.getAddress());
+        if (tokenPath != null) {
+          System.out.printf("token written to %s%n", tokenPath);
+        }
+        server.serve();
+      } finally {
+        if (tokenPath != null) {
+          Files.deleteIfExists(tokenPath);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Get the path of the token file of a server on a port.
+   *
+   * @param address the loopback address and port of the server.
+   * @return the path of the token file.
+   */
+  private static Path tokenPath(SocketAddress address) {
+    int port = ((InetSocketAddress) address).getPort();
+    return Path.of(System.getProperty("user.home"), ".ime", "server-" + port + ".token");
+  }
+
+  /**
+   * Write the token of a server on a port to its token file, readable by its owner only.
+   *
+   * @param address the loopback address and port of the server.
+   * @param token the token.
+   * @return the path of the token file.
+   * @throws IOException if the file could not be written.
+   */
+  private static Path writeToken(SocketAddress address, String token) throws IOException {
+    Path path = tokenPath(address);
+    Files.createDirectories(path.getParent());
+    ScriptServer.restrictToOwner(path.getParent());
+    // the file is restricted while it is still empty, so the token is never readable by others
+    Files.deleteIfExists(path);
+    Files.createFile(path);
+    ScriptServer.restrictToOwner(path);
+    Files.writeString(path, token);
+    // a server stopped by a signal skips its finally blocks, but not its shutdown hooks
+    path.toFile().deleteOnExit();
+    return path;
+  }
+
+  /**
+   * Send a script file, or standard input, to the server on the given port or socket, and print
+   * its log.
+   *
+   * @param address the port or socket path.
+   * @param scriptPath the path of the script, or null to read standard input.
+   * @return the number of commands that could not be parsed or executed.
+   */
+  private static int connect(String address, String scriptPath) {
+    try (Reader script =
+        scriptPath == null
+            ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+            : Files.newBufferedReader(Path.of(scriptPath))) {
+      SocketAddress socket = ScriptServer.parseAddress(address);
+      String token =
+          socket instanceof InetSocketAddress ? Files.readString(tokenPath(socket)).trim() : null;
+      return ScriptClient.send(socket, token, script, System.out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 }
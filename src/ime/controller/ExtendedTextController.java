@@ -1,9 +1,15 @@
 package ime.controller;
 
+import ime.controller.command.BatchCommand;
+import ime.controller.command.CompressLevelsCommand;
 import ime.controller.command.ExtendedRunCommand;
 import ime.controller.command.MapCommand;
+import ime.controller.command.StatsCommand;
+import ime.controller.io.BufferedPpmImageWriter;
+import ime.controller.io.ImageWriter;
 import ime.controller.supplier.CommandSupplier;
 import ime.controller.supplier.CompressCommandSupplier;
+import ime.controller.supplier.GaussianBlurCommandSupplier;
 import ime.controller.supplier.LevelsCommandSupplier;
 import ime.controller.supplier.PreviewSplitMapCommandSupplier;
 import ime.model.operations.Blur;
@@ -17,6 +23,7 @@ import ime.model.operations.ExtractValueComponent;
 import ime.model.operations.SepiaTone;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 /** This class extends the existing controller to add more features. */
 public class ExtendedTextController extends TextController {
@@ -41,17 +48,46 @@ public class ExtendedTextController extends TextController {
     super(input);
   }
 
+  /**
+   * Construct a new extended text controller with no output. Suitable for production.
+   *
+   * @param input the input stream.
+   * @param script whether the input is a whole script rather than interactive commands.
+   */
+  public ExtendedTextController(Readable input, boolean script) {
+    super(input, script);
+  }
+
+  /**
+   * Construct a new extended text controller with the extended commands.
+   *
+   * @param input the input stream.
+   * @param output the output log stream, or null for no output.
+   * @param script whether the input is a whole script rather than interactive commands.
+   * @param parallelism the maximum number of script commands to run at the same time.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public ExtendedTextController(
+      Readable input, Appendable output, boolean script, int parallelism)
+      throws IllegalArgumentException {
+    super(input, output, script, parallelism);
+  }
+
   @Override
   protected Map<String, CommandSupplier> getDefaultCommands() {
     Map<String, CommandSupplier> commands = super.getDefaultCommands();
     commands.put("compress", new CompressCommandSupplier());
+    commands.put("compress-levels", new CompressLevelsCommand.Supplier());
     commands.put("histogram", new MapCommand.MapCommandSupplier(GenerateHistogram::new));
     commands.put("color-correct", new PreviewSplitMapCommandSupplier(ColorCorrect::new));
     commands.put("levels", new LevelsCommandSupplier());
     commands.put("dither", new MapCommand.MapCommandSupplier(Dither::new));
+    commands.put("gaussian-blur", new GaussianBlurCommandSupplier());
+    commands.put("stats", new StatsCommand.Supplier(getOutput()));
+    commands.put("batch", new BatchCommand.Supplier(getOutput()));
 
     // replace some old commands with new and improved split preview options
-    commands.put("run", new ExtendedRunCommand.Supplier());
+    commands.put("run", new ExtendedRunCommand.Supplier(getOutput(), getParallelism()));
     commands.put("blur", new PreviewSplitMapCommandSupplier(Blur::new));
     commands.put("sharpen", new PreviewSplitMapCommandSupplier(Sharpen::new));
     commands.put("sepia", new PreviewSplitMapCommandSupplier(SepiaTone::new));
@@ -62,4 +98,12 @@ public class ExtendedTextController extends TextController {
 
     return commands;
   }
+
+  @Override
+  protected Map<String, Supplier<ImageWriter>> getDefaultImageWriters() {
+    Map<String, Supplier<ImageWriter>> writers = super.getDefaultImageWriters();
+    // write plain PPM files with the buffered writer, which packs several values on a line
+    writers.put("ppm", BufferedPpmImageWriter::new);
+    return writers;
+  }
 }
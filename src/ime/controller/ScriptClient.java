@@ -0,0 +1,79 @@
+package ime.controller;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * This class sends a script to a {@link ScriptServer}, and copies the log it answers with to an
+ * output as it arrives.
+ */
+public final class ScriptClient {
+  private static final String FAILURES = "failures: ";
+
+  private ScriptClient() {}
+
+  /**
+   * Send a script to the server at the given address, which needs no token, and copy its log to
+   * the output.
+   *
+   * @param address the address of the server.
+   * @param script the script.
+   * @param output the output the log is appended to.
+   * @return the number of commands of the script that could not be parsed or executed.
+   * @throws IOException if the server could not be reached, or did not answer in full.
+   */
+  public static int send(SocketAddress address, Reader script, Appendable output)
+      throws IOException {
+    return send(address, null, script, output);
+  }
+
+  /**
+   * Send the token and a script to the server at the given address, and copy its log to the
+   * output.
+   *
+   * @param address the address of the server.
+   * @param token the token of the server, or null if it needs none.
+   * @param script the script.
+   * @param output the output the log is appended to.
+   * @return the number of commands of the script that could not be parsed or executed.
+   * @throws IOException if the server could not be reached, or did not answer in full.
+   */
+  public static int send(SocketAddress address, String token, Reader script, Appendable output)
+      throws IOException {
+    Objects.requireNonNull(script);
+    Objects.requireNonNull(output);
+
+    try (SocketChannel channel = SocketChannel.open(Objects.requireNonNull(address))) {
+      Writer request =
+          new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+      if (token != null) {
+        request.write(token);
+        request.write('\n');
+      }
+      script.transferTo(request);
+      request.flush();
+      channel.shutdownOutput();
+
+      BufferedReader response =
+          new BufferedReader(
+              new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+      String line;
+      while ((line = response.readLine()) != null) {
+        if (line.startsWith(FAILURES)) {
+          return Integer.parseInt(line.substring(FAILURES.length()));
+        }
+        output.append(line).append('\n');
+      }
+    }
+    throw new IOException("the server closed the connection before the script finished");
+  }
+}
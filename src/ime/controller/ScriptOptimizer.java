@@ -0,0 +1,149 @@
+package ime.controller;
+
+import ime.controller.command.Command;
+import ime.controller.command.MapCommand;
+import ime.model.operations.ImageOperation;
+import ime.model.operations.PerPixel;
+import ime.model.operations.PixelOperation;
+import ime.model.operations.PixelPipeline;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * This class rewrites a parsed script so that chains of per-pixel map commands run as a single pass
+ * over the pixels. A chain such as "sepia a b", "brighten 10 b c", "luma-component c d" becomes one
+ * command from a to d, as long as the script never reads b or c again. Images that a later command
+ * of the script reads are always materialized, so the script produces the same results.
+ */
+public final class ScriptOptimizer {
+  private ScriptOptimizer() {}
+
+  /**
+   * Fuse every chain of consecutive per-pixel map commands whose intermediate images are dead.
+   *
+   * @param commands the commands of the script, in order.
+   * @return the commands to execute instead, in order.
+   */
+  public static List<Command> fuse(List<Command> commands) {
+    List<Liveness> liveAfter = computeLiveness(commands);
+
+    List<Command> result = new ArrayList<>();
+    int k = 0;
+    while (k < commands.size()) {
+      if (!isPixelMap(commands.get(k))) {
+        result.add(commands.get(k));
+        k += 1;
+        continue;
+      }
+
+      List<PixelOperation> operations = new ArrayList<>();
+      MapCommand first = (MapCommand) commands.get(k);
+      MapCommand last = first;
+      operations.add((PixelOperation) first.getOperation());
+      while (k + 1 < commands.size() && isPixelMap(commands.get(k + 1))) {
+        MapCommand next = (MapCommand) commands.get(k + 1);
+        String intermediate = last.getOutputName();
+        if (!next.getInputName().equals(intermediate)) {
+          break;
+        }
+        // the intermediate image is skipped, unless a later command still reads it
+        if (!next.getOutputName().equals(intermediate)
+            && liveAfter.get(k + 1).contains(intermediate)) {
+          break;
+        }
+        operations.add((PixelOperation) next.getOperation());
+        last = next;
+        k += 1;
+      }
+
+      if (operations.size() == 1) {
+        result.add(first);
+      } else {
+        result.add(
+            new MapCommand(
+                first.getInputName(), last.getOutputName(), new PixelPipeline(operations)));
+      }
+      k += 1;
+    }
+
+    return result;
+  }
+
+  /**
+   * Check if the command maps one image to another with a per-pixel operation. The operation has
+   * to be marked {@link PerPixel} by its own class, since a subclass that only inherits
+   * applyToPixel may apply something else to the whole image.
+   *
+   * @param command the command.
+   * @return true if the command can be fused, false otherwise.
+   */
+  private static boolean isPixelMap(Command command) {
+    if (!(command instanceof MapCommand)) {
+      return false;
+    }
+    ImageOperation operation = ((MapCommand) command).getOperation();
+    return operation instanceof PixelOperation
+        && operation.getClass().isAnnotationPresent(PerPixel.class);
+  }
+
+  /**
+   * Compute, for every command, the image names that are read by a later command before being
+   * overwritten.
+   *
+   * @param commands the commands of the script, in order.
+   * @return the live image names after each command.
+   */
+  private static List<Liveness> computeLiveness(List<Command> commands) {
+    List<Liveness> liveAfter = new ArrayList<>();
+    for (int k = 0; k < commands.size(); k++) {
+      liveAfter.add(null);
+    }
+
+    Liveness live = new Liveness(new HashSet<>(), false);
+    for (int k = commands.size() - 1; k >= 0; k--) {
+      liveAfter.set(k, live);
+      Command command = commands.get(k);
+      Optional<Set<String>> reads = command.getReadNames();
+      Optional<Set<String>> writes = command.getWriteNames();
+
+      Set<String> names = new HashSet<>(live.names);
+      writes.ifPresent(names::removeAll);
+      reads.ifPresent(names::addAll);
+      // a command that may read anything keeps every earlier image alive
+      live = new Liveness(names, live.all || reads.isEmpty());
+    }
+
+    return liveAfter;
+  }
+
+  /** The set of live image names at one point of a script. */
+  private static final class Liveness {
+    private final Set<String> names;
+    private final boolean all;
+
+    /**
+     * Construct a new liveness set.
+     *
+     * @param names the live image names.
+     * @param all whether every image name is live.
+     */
+    private Liveness(Set<String> names, boolean all) {
+      this.names = names;
+      this.all = all;
+    }
+
+    /**
+     * Check if the image name is live.
+     *
+     * @param name the image name.
+     * @return true if a later command may read the image, false otherwise.
+     */
+    private boolean contains(String name) {
+      return all || names.contains(name);
+    }
+  }
+}
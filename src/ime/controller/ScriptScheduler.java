@@ -0,0 +1,385 @@
+package ime.controller;
+
+import ime.controller.command.Command;
+import ime.model.image.ReadOnlyImage;
+import ime.model.session.ConcurrentSession;
+import ime.model.session.Session;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * This class runs the commands of a parsed script on several threads, while keeping the results
+ * of running them one after another. Two commands depend on each other when one of them writes an
+ * image the other reads or writes, or when both use the same file. The commands form a directed
+ * acyclic graph, from every command to the later ones that depend on it, and a command starts as
+ * soon as every earlier command it depends on has finished. A script that loads and processes
+ * three photos under different names runs as three independent chains.
+ *
+ * <p>A command that cannot tell which images it uses depends on every command before it, and
+ * every command after it depends on it. A command that fails depends, and is depended on, like one
+ * that succeeds, so the commands after it see the same session as they would in order.
+ *
+ * <p>Commands run on threads that every script shares, which are started as they are needed and
+ * kept for later scripts, and the parallelism only caps how many commands of a script run at once.
+ * Ready commands start in the order of the script. The operations the commands apply split their
+ * own work on the common fork-join pool, so running commands at the same time does not multiply
+ * the threads that compute.
+ */
+public final class ScriptScheduler {
+  /** The threads that run script commands, which may block on files, for every script. */
+  private static final ExecutorService WORKERS =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            Thread thread = new Thread(runnable, "script-command");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private ScriptScheduler() {}
+
+  /**
+   * Get, for every command, the earlier commands it depends on.
+   *
+   * @param commands the commands of the script, in order.
+   * @return the indices of the earlier commands each command depends on, in increasing order.
+   */
+  public static List<List<Integer>> getDependencies(List<Command> commands) {
+    List<Footprint> footprints = new ArrayList<>();
+    for (Command command : commands) {
+      footprints.add(new Footprint(command));
+    }
+
+    List<List<Integer>> dependencies = new ArrayList<>();
+    for (int k = 0; k < footprints.size(); k++) {
+      List<Integer> earlier = new ArrayList<>();
+      for (int j = 0; j < k; j++) {
+        if (footprints.get(j).conflicts(footprints.get(k))) {
+          earlier.add(j);
+        }
+      }
+      dependencies.add(earlier);
+    }
+    return dependencies;
+  }
+
+  /**
+   * Execute the commands against the session, running independent commands at the same time.
+   * Commands that fail with an IllegalArgumentException are ignored, like they would be in order.
+   * A parallelism level of 1 runs every command in order on the calling thread.
+   *
+   * @param commands the commands of the script, in order.
+   * @param session the session.
+   * @param parallelism the maximum number of commands to run at the same time.
+   * @return whether each command was executed successfully.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public static boolean[] execute(List<Command> commands, Session session, int parallelism)
+      throws IllegalArgumentException {
+    return execute(commands, session, parallelism, Command::execute);
+  }
+
+  /**
+   * Execute the commands against the session, running independent commands at the same time, and
+   * running every command through the given executor.
+   *
+   * @param commands the commands of the script, in order.
+   * @param session the session.
+   * @param parallelism the maximum number of commands to run at the same time.
+   * @param executor what runs a command against a session, from any thread.
+   * @return whether each command was executed successfully.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public static boolean[] execute(
+      List<Command> commands,
+      Session session,
+      int parallelism,
+      BiConsumer<Command, Session> executor)
+      throws IllegalArgumentException {
+    Objects.requireNonNull(commands);
+    Objects.requireNonNull(executor);
+    Objects.requireNonNull(session);
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism has to be at least 1!");
+    }
+
+    boolean[] executed = new boolean[commands.size()];
+    if (parallelism == 1 || commands.size() <= 1) {
+      for (int k = 0; k < commands.size(); k++) {
+        executed[k] = executeOne(executor, commands.get(k), session);
+      }
+      return executed;
+    }
+
+    Session shared =
+        session instanceof ConcurrentSession ? session : new SynchronizedSession(session);
+    new Graph(commands, shared, executor, executed, parallelism).run();
+    return executed;
+  }
+
+  /**
+   * Execute a single command, ignoring it if it fails.
+   *
+   * @param executor what runs the command.
+   * @param command the command.
+   * @param session the session.
+   * @return true if the command was executed, false if it failed.
+   */
+  private static boolean executeOne(
+      BiConsumer<Command, Session> executor, Command command, Session session) {
+    try {
+      executor.accept(command, session);
+      return true;
+    } catch (IllegalArgumentException e) {
+      // failure to execute command, ignore it and move on to the next command
+      return false;
+    }
+  }
+
+  /** The commands of a script, and the later commands that wait for each of them. */
+  private static final class Graph {
+    private final List<Command> commands;
+    private final Session session;
+    private final BiConsumer<Command, Session> executor;
+    private final boolean[] executed;
+    private final List<List<Integer>> successors;
+    private final int[] waiting;
+    private final Queue<Integer> ready;
+    private final int parallelism;
+    private final CountDownLatch finished;
+    private final AtomicReference<RuntimeException> failure;
+    private int running;
+
+    /**
+     * Construct the graph of a script.
+     *
+     * @param commands the commands of the script, in order.
+     * @param session the session, safe to use from many threads.
+     * @param executor what runs a command against the session.
+     * @param executed whether each command was executed, filled in as they finish.
+     * @param parallelism the maximum number of commands to run at the same time.
+     */
+    private Graph(
+        List<Command> commands,
+        Session session,
+        BiConsumer<Command, Session> executor,
+        boolean[] executed,
+        int parallelism) {
+      this.commands = commands;
+      this.session = session;
+      this.executor = executor;
+      this.executed = executed;
+      this.parallelism = parallelism;
+      this.successors = new ArrayList<>();
+      this.waiting = new int[commands.size()];
+      this.ready = new PriorityQueue<>();
+      this.finished = new CountDownLatch(commands.size());
+      this.failure = new AtomicReference<>();
+
+      List<List<Integer>> dependencies = getDependencies(commands);
+      for (int k = 0; k < commands.size(); k++) {
+        successors.add(new ArrayList<>());
+        waiting[k] = dependencies.get(k).size();
+        for (int j : dependencies.get(k)) {
+          successors.get(j).add(k);
+        }
+      }
+    }
+
+    /**
+     * Run every command on the workers, and wait until all of them have finished. A command that
+     * fails with any other exception stops the commands that have not started yet, and the
+     * exception is thrown once the running ones have finished.
+     */
+    private void run() {
+      synchronized (this) {
+        for (int k = 0; k < commands.size(); k++) {
+          if (waiting[k] == 0) {
+            ready.add(k);
+          }
+        }
+      }
+      startReady();
+
+      boolean interrupted = false;
+      try {
+        while (true) {
+          try {
+            // a script may be waited for on a fork-join worker, which may then add a spare
+            ForkJoinPool.managedBlock(
+                new ForkJoinPool.ManagedBlocker() {
+                  @Override
+                  public boolean block() throws InterruptedException {
+                    finished.await();
+                    return true;
+                  }
+
+                  @Override
+                  public boolean isReleasable() {
+                    return finished.getCount() == 0;
+                  }
+                });
+            break;
+          } catch (InterruptedException e) {
+            // keep waiting, since the commands that are running cannot be abandoned halfway
+            interrupted = true;
+          }
+        }
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      RuntimeException exception = failure.get();
+      if (exception != null) {
+        throw exception;
+      }
+    }
+
+    /** Start the earliest ready commands, as long as fewer than parallelism are running. */
+    private void startReady() {
+      List<Integer> starting = new ArrayList<>();
+      synchronized (this) {
+        while (running < parallelism && !ready.isEmpty()) {
+          running++;
+          starting.add(ready.remove());
+        }
+      }
+      for (int k : starting) {
+        WORKERS.execute(() -> runCommand(k));
+      }
+    }
+
+    /**
+     * Run a command, then release the commands that only waited for it.
+     *
+     * @param k the index of the command.
+     */
+    private void runCommand(int k) {
+      try {
+        if (failure.get() == null) {
+          executed[k] = executeOne(executor, commands.get(k), session);
+        }
+      } catch (RuntimeException e) {
+        failure.compareAndSet(null, e);
+      } finally {
+        synchronized (this) {
+          running--;
+          for (int next : successors.get(k)) {
+            waiting[next]--;
+            if (waiting[next] == 0) {
+              ready.add(next);
+            }
+          }
+        }
+        startReady();
+        finished.countDown();
+      }
+    }
+  }
+
+  /** The images and files a command uses, or nothing if it may use any of them. */
+  private static final class Footprint {
+    private final Set<String> reads;
+    private final Set<String> writes;
+    private final Set<String> files;
+
+    /**
+     * Construct the footprint of a command.
+     *
+     * @param command the command.
+     */
+    private Footprint(Command command) {
+      Optional<Set<String>> readNames = command.getReadNames();
+      Optional<Set<String>> writeNames = command.getWriteNames();
+      this.reads = readNames.orElse(null);
+      this.writes = writeNames.orElse(null);
+      this.files = command.getFileNames().map(Footprint::normalize).orElse(null);
+    }
+
+    /**
+     * Normalize file paths, so that two spellings of the same path are the same file.
+     *
+     * @param paths the paths.
+     * @return the normalized paths.
+     */
+    private static Set<String> normalize(Set<String> paths) {
+      Set<String> normalized = new HashSet<>();
+      for (String path : paths) {
+        try {
+          normalized.add(Path.of(path).toAbsolutePath().normalize().toString());
+        } catch (InvalidPathException e) {
+          normalized.add(path);
+        }
+      }
+      return normalized;
+    }
+
+    /**
+     * Check if two commands have to run in the order of the script.
+     *
+     * @param other the footprint of the other command.
+     * @return true if the commands depend on each other, false otherwise.
+     */
+    private boolean conflicts(Footprint other) {
+      if (reads == null || writes == null || other.reads == null || other.writes == null) {
+        return true;
+      }
+      if (overlap(writes, other.reads) || overlap(writes, other.writes)
+          || overlap(reads, other.writes)) {
+        return true;
+      }
+      // a command that may use any file only depends on commands that use files
+      if (files == null) {
+        return other.files == null || !other.files.isEmpty();
+      }
+      if (other.files == null) {
+        return !files.isEmpty();
+      }
+      return overlap(files, other.files);
+    }
+
+    private static boolean overlap(Set<String> first, Set<String> second) {
+      for (String name : first) {
+        if (second.contains(name)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /** A session that lets one thread at a time use the session it wraps. */
+  private static final class SynchronizedSession implements Session {
+    private final Session session;
+
+    private SynchronizedSession(Session session) {
+      this.session = session;
+    }
+
+    @Override
+    public synchronized ReadOnlyImage getImage(String name) throws IllegalArgumentException {
+      return session.getImage(name);
+    }
+
+    @Override
+    public synchronized void insertOrReplaceImage(String name, ReadOnlyImage image) {
+      session.insertOrReplaceImage(name, image);
+    }
+  }
+}
@@ -0,0 +1,407 @@
+package ime.controller;
+
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.session.Session;
+import ime.model.session.SessionImpl;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * This class keeps one JVM running and runs scripts sent to it over a local socket, so a script
+ * does not pay for starting the JVM, loading classes and compiling hot code again. The server
+ * listens on a TCP port of the loopback address, or on a Unix-domain socket, and never accepts
+ * connections from other machines.
+ *
+ * <p>Other users of the machine can reach a loopback port too, so a server on a TCP port needs a
+ * token, and every connection has to send it as the first line of its script. A Unix-domain socket
+ * is only readable and writable by the owner of the server, where the file system allows it, and
+ * needs no token.
+ *
+ * <p>Every connection sends one script and then shuts down its output. A connection that sends
+ * more than a maximum number of bytes, or does not finish sending within a timeout, gets an error
+ * and nothing of its script runs. The script runs like a
+ * script given to {@code run}, against a session of its own, and the server answers with the log
+ * of the script, followed by a last line "failures: N" with the number of commands that could not
+ * be parsed or executed. Reports of {@code stats} and {@code batch} are sent back as part of the
+ * log. Several connections are served at the same time.
+ */
+public final class ScriptServer implements Closeable {
+  /** The most bytes of script a connection may send by default. */
+  public static final int MAX_SCRIPT_BYTES = 1 << 20;
+
+  /** How long a connection may take to send its script by default, in milliseconds. */
+  public static final long READ_TIMEOUT_MILLIS = 30_000;
+
+  private final ServerSocketChannel channel;
+  private final SocketAddress address;
+  private final Supplier<Session> sessions;
+  private final byte[] token;
+  private final long readTimeoutMillis;
+  private final int maxScriptBytes;
+  private final ExecutorService connections;
+  private final ScheduledExecutorService timeouts;
+
+  /**
+   * Construct a new server, and start listening on the given Unix-domain socket.
+   *
+   * @param address the Unix-domain socket to listen on.
+   * @param connections the maximum number of connections to serve at the same time.
+   * @param sessions the supplier of the session of every connection.
+   * @throws IllegalArgumentException if the address is not a Unix-domain socket, or connections is
+   *     less than 1.
+   * @throws IOException if the server could not listen on the address.
+   */
+  public ScriptServer(SocketAddress address, int connections, Supplier<Session> sessions)
+      throws IllegalArgumentException, IOException {
+    this(address, connections, sessions, null);
+  }
+
+  /**
+   * Construct a new server, and start listening on the given address.
+   *
+   * @param address the loopback address and port, or the Unix-domain socket to listen on.
+   * @param connections the maximum number of connections to serve at the same time.
+   * @param sessions the supplier of the session of every connection.
+   * @param token the token every connection has to send first, or null for none. Required on a
+   *     TCP port.
+   * @throws IllegalArgumentException if the address is not local, there is no token for a TCP
+   *     port, or connections is less than 1.
+   * @throws IOException if the server could not listen on the address.
+   */
+  public ScriptServer(
+      SocketAddress address, int connections, Supplier<Session> sessions, String token)
+      throws IllegalArgumentException, IOException {
+    this(address, connections, sessions, token, READ_TIMEOUT_MILLIS, MAX_SCRIPT_BYTES);
+  }
+
+  /**
+   * Construct a new server with the given limits, and start listening on the given address.
+   *
+   * @param address the loopback address and port, or the Unix-domain socket to listen on.
+   * @param connections the maximum number of connections to serve at the same time.
+   * @param sessions the supplier of the session of every connection.
+   * @param token the token every connection has to send first, or null for none. Required on a
+   *     TCP port.
+   * @param readTimeoutMillis how long a connection may take to send its script, in milliseconds.
+   * @param maxScriptBytes the most bytes of script a connection may send.
+   * @throws IllegalArgumentException if the address is not local, there is no token for a TCP
+   *     port, or connections, the timeout or the maximum size is less than 1.
+   * @throws IOException if the server could not listen on the address.
+   */
+  public ScriptServer(
+      SocketAddress address,
+      int connections,
+      Supplier<Session> sessions,
+      String token,
+      long readTimeoutMillis,
+      int maxScriptBytes)
+      throws IllegalArgumentException, IOException {
+    Objects.requireNonNull(address);
+    this.sessions = Objects.requireNonNull(sessions);
+    if (connections < 1) {
+      throw new IllegalArgumentException("at least one connection is required");
+    }
+    if (readTimeoutMillis < 1 || maxScriptBytes < 1) {
+      throw new IllegalArgumentException("the timeout and the script size must be positive");
+    }
+    if (token != null && (token.isEmpty() || token.contains("\n"))) {
+      throw new IllegalArgumentException("the token must be one line that is not empty");
+    }
+    if (token == null && !(address instanceof UnixDomainSocketAddress)) {
+      throw new IllegalArgumentException("a token is required on a TCP port");
+    }
+    this.token = token == null ? null : token.getBytes(StandardCharsets.UTF_8);
+    this.readTimeoutMillis = readTimeoutMillis;
+    this.maxScriptBytes = maxScriptBytes;
+
+    if (address instanceof UnixDomainSocketAddress) {
+      // a socket file left behind by a server that did not close would refuse the bind
+      Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+      this.channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    } else if (address instanceof InetSocketAddress
+        && ((InetSocketAddress) address).getAddress() != null
+        && ((InetSocketAddress) address).getAddress().isLoopbackAddress()) {
+      this.channel = ServerSocketChannel.open();
+    } else {
+      throw new IllegalArgumentException("the server only listens on the loopback address");
+    }
+    this.channel.bind(address);
+    this.address = channel.getLocalAddress();
+    if (address instanceof UnixDomainSocketAddress) {
+      restrictToOwner(((UnixDomainSocketAddress) address).getPath());
+    }
+    this.connections = Executors.newFixedThreadPool(connections);
+    this.timeouts =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "script-server-timeouts");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /**
+   * Make a file readable and writable by its owner only, where the file system has POSIX
+   * permissions. Elsewhere the file is left as it is.
+   *
+   * @param path the path of the file.
+   * @throws IOException if the permissions could not be changed.
+   */
+  public static void restrictToOwner(Path path) throws IOException {
+    if (Files.getFileAttributeView(path, PosixFileAttributeView.class) == null) {
+      return;
+    }
+    Set<PosixFilePermission> permissions =
+        EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+    if (Files.isDirectory(path)) {
+      permissions.add(PosixFilePermission.OWNER_EXECUTE);
+    }
+    Files.setPosixFilePermissions(path, permissions);
+  }
+
+  /**
+   * Make a new random token for a server on a TCP port.
+   *
+   * @return the token, as 32 hexadecimal digits.
+   */
+  public static String newToken() {
+    byte[] bytes = new byte[16];
+    new SecureRandom().nextBytes(bytes);
+    StringBuilder token = new StringBuilder();
+    for (byte b : bytes) {
+      token.append(String.format("%02x", b));
+    }
+    return token.toString();
+  }
+
+  /**
+   * Parse an address given on the command line: a port number of the loopback address, or the
+   * path of a Unix-domain socket.
+   *
+   * @param address the port or path.
+   * @return the socket address.
+   * @throws IllegalArgumentException if the port is not valid.
+   */
+  public static SocketAddress parseAddress(String address) throws IllegalArgumentException {
+    if (!address.isEmpty() && address.chars().allMatch(Character::isDigit)) {
+      int port = Integer.parseInt(address);
+      if (port > 65535) {
+        throw new IllegalArgumentException("port must be at most 65535");
+      }
+      return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+    return UnixDomainSocketAddress.of(address);
+  }
+
+  /**
+   * Get the address the server listens on, with the actual port if it was given as 0.
+   *
+   * @return the address.
+   */
+  public SocketAddress getAddress() {
+    return address;
+  }
+
+  /**
+   * Run every command of the extended controller once on a small image, so that the first scripts
+   * sent to the server run compiled code.
+   */
+  public void warmUp() {
+    PackedReadOnlyImage.PackedImageBuilder builder =
+        new PackedReadOnlyImage.PackedImageBuilder(64, 64);
+    for (int i = 0; i < 64; i++) {
+      for (int j = 0; j < 64; j++) {
+        builder.setPixel(i, j, (i * 4) << 16 | (j * 4) << 8 | (i + j));
+      }
+    }
+    Session session = new SessionImpl();
+    session.insertOrReplaceImage("warm", builder.build());
+    String script =
+        "blur warm a\nsharpen a a\nsepia a a\nbrighten 10 a a\nhorizontal-flip a a\n"
+            + "vertical-flip a a\nluma-component a a\nvalue-component warm b\n"
+            + "intensity-component b b\nrgb-split warm r g bl\nrgb-combine c r g bl\n"
+            + "levels c c 10 128 240\ncolor-correct c c\ncompress 50 c c\ndither c c\n"
+            + "gaussian-blur 2 1.5 c c\nhistogram c h\n";
+    for (int k = 0; k < 3; k++) {
+      new ExtendedTextController(new StringReader(script), null, true, 1).run(session);
+    }
+  }
+
+  /**
+   * Accept and serve connections until the server is closed.
+   *
+   * @throws IOException if a connection could not be accepted.
+   */
+  public void serve() throws IOException {
+    while (true) {
+      SocketChannel client;
+      try {
+        client = channel.accept();
+      } catch (ClosedChannelException e) {
+        return;
+      }
+      connections.execute(() -> handle(client));
+    }
+  }
+
+  /**
+   * Read the script of one connection, closing the connection if it takes longer than the timeout.
+   *
+   * @param client the connection.
+   * @return the bytes of the script, one more than the maximum if it sent more than that.
+   * @throws IOException if the script could not be read, or the timeout closed the connection.
+   */
+  private byte[] readScript(SocketChannel client) throws IOException {
+    ScheduledFuture<?> timeout =
+        timeouts.schedule(
+            () -> {
+              try {
+                client.close();
+              } catch (IOException e) {
+                // the connection is gone either way
+              }
+            },
+            readTimeoutMillis,
+            TimeUnit.MILLISECONDS);
+    try {
+      // the controller closes its input, which would close the connection before the answer
+      InputStream input = Channels.newInputStream(client);
+      byte[] script = input.readNBytes(maxScriptBytes + 1);
+      if (script.length > maxScriptBytes) {
+        // closing a connection with unread bytes resets it, and the client would miss the error
+        input.transferTo(OutputStream.nullOutputStream());
+      }
+      return script;
+    } finally {
+      timeout.cancel(false);
+    }
+  }
+
+  /**
+   * Check the first line of a script against the token, and remove it.
+   *
+   * @param script the script.
+   * @return the rest of the script, or null if the token does not match.
+   */
+  private byte[] checkToken(byte[] script) {
+    int newline = 0;
+    while (newline < script.length && script[newline] != '\n') {
+      newline += 1;
+    }
+    int end = newline > 0 && script[newline - 1] == '\r' ? newline - 1 : newline;
+    if (!MessageDigest.isEqual(token, Arrays.copyOf(script, end))) {
+      return null;
+    }
+    return Arrays.copyOfRange(script, Math.min(script.length, newline + 1), script.length);
+  }
+
+  /**
+   * Run the script of one connection, and send its log back.
+   *
+   * @param client the connection.
+   */
+  private void handle(SocketChannel client) {
+    Session session = null;
+    try (client) {
+      byte[] script = readScript(client);
+      Writer output =
+          new BufferedWriter(
+              new OutputStreamWriter(Channels.newOutputStream(client), StandardCharsets.UTF_8));
+      if (script.length > maxScriptBytes) {
+        output.append(String.format("error: the script is over %d bytes\n", maxScriptBytes));
+        output.append("failures: 1\n");
+        output.flush();
+        return;
+      }
+      if (token != null) {
+        script = checkToken(script);
+        if (script == null) {
+          output.append("error: invalid token\nfailures: 1\n");
+          output.flush();
+          return;
+        }
+      }
+      Reader input = new StringReader(new String(script, StandardCharsets.UTF_8));
+      session = sessions.get();
+      // the log, and the reports of stats, batch and run scripts, go back to the client
+      TextController controller =
+          new ExtendedTextController(
+              input, output, true, Runtime.getRuntime().availableProcessors());
+      int failures;
+      try {
+        controller.run(session);
+        failures = controller.getFailureCount();
+      } catch (RuntimeException e) {
+        output.append(String.format("error: %s\n", e));
+        failures = controller.getFailureCount() + 1;
+      }
+      output.append(String.format("failures: %d\n", failures));
+      output.flush();
+    } catch (IOException e) {
+      // the client went away, and there is nobody left to tell
+    } finally {
+      if (session instanceof Closeable) {
+        try {
+          ((Closeable) session).close();
+        } catch (IOException e) {
+          // the session is gone either way
+        }
+      }
+    }
+  }
+
+  /**
+   * Stop accepting connections, and wait for the ones being served. A Unix-domain socket file is
+   * deleted.
+   *
+   * @throws IOException if the socket could not be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+    connections.shutdown();
+    timeouts.shutdown();
+    if (address instanceof UnixDomainSocketAddress) {
+      Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("<ScriptServer address=\"%s\">", address);
+  }
+}
@@ -6,12 +6,15 @@ import ime.controller.command.Command;
 import ime.controller.command.MapCommand;
 import ime.controller.command.RunCommand;
 import ime.controller.command.SplitCommand;
+import ime.controller.io.BinaryPpmImageWriter;
 import ime.controller.io.BufferedImageReader;
 import ime.controller.io.BufferedImageWriter;
 import ime.controller.io.ImageReader;
 import ime.controller.io.ImageWriter;
 import ime.controller.io.PpmImageReader;
 import ime.controller.io.PpmImageWriter;
+import ime.controller.io.WaveletImageReader;
+import ime.controller.io.WaveletImageWriter;
 import ime.controller.supplier.CommandSupplier;
 import ime.controller.supplier.io.LoadCommandSupplier;
 import ime.controller.supplier.io.SaveCommandSupplier;
@@ -29,8 +32,10 @@ import ime.model.operations.SepiaTone;
 import ime.model.session.Session;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
@@ -40,6 +45,9 @@ import java.util.function.Supplier;
 public class TextController implements Controller {
   private final Readable input;
   private final Appendable output;
+  private final boolean script;
+  private final int parallelism;
+  private int failureCount;
   protected Map<String, CommandSupplier> commands;
 
   /**
@@ -50,19 +58,100 @@ public class TextController implements Controller {
    * @param commands the map of supported commands
    */
   public TextController(Readable input, Appendable output, Map<String, CommandSupplier> commands) {
+    this(input, output, commands, false);
+  }
+
+  /**
+   * Construct a new text controller. Suitable for testing. A script controller reads and parses
+   * all of its input before executing anything, so that consecutive per-pixel operations can be
+   * fused into one pass (see {@link ScriptOptimizer}), and then runs the commands in order.
+   *
+   * @param input the input stream.
+   * @param output the output log stream.
+   * @param commands the map of supported commands
+   * @param script whether the input is a whole script rather than interactive commands.
+   */
+  public TextController(
+      Readable input, Appendable output, Map<String, CommandSupplier> commands, boolean script) {
+    this(input, output, commands, script, 1);
+  }
+
+  /**
+   * Construct a new text controller. Suitable for testing. A script controller runs at most the
+   * given number of independent commands at the same time (see {@link ScriptScheduler}), and a
+   * parallelism level of 1 runs them in order. Scripts started with the run command get the same
+   * parallelism.
+   *
+   * @param input the input stream.
+   * @param output the output log stream.
+   * @param commands the map of supported commands
+   * @param script whether the input is a whole script rather than interactive commands.
+   * @param parallelism the maximum number of script commands to run at the same time.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public TextController(
+      Readable input,
+      Appendable output,
+      Map<String, CommandSupplier> commands,
+      boolean script,
+      int parallelism)
+      throws IllegalArgumentException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism has to be at least 1!");
+    }
     this.input = Objects.requireNonNull(input);
     this.output = output;
+    this.script = script;
+    this.parallelism = parallelism;
     this.commands = new HashMap<>(Objects.requireNonNull(commands));
   }
 
+  /**
+   * Construct a new text controller with the default commands. A script controller runs at most
+   * the given number of independent commands at the same time, and a parallelism level of 1 runs
+   * them in order. Scripts started with the run command get the same parallelism.
+   *
+   * @param input the input stream.
+   * @param output the output log stream, or null for no output.
+   * @param script whether the input is a whole script rather than interactive commands.
+   * @param parallelism the maximum number of script commands to run at the same time.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public TextController(Readable input, Appendable output, boolean script, int parallelism)
+      throws IllegalArgumentException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism has to be at least 1!");
+    }
+    this.input = Objects.requireNonNull(input);
+    this.output = output;
+    this.script = script;
+    this.parallelism = parallelism;
+    this.commands = getDefaultCommands();
+  }
+
   /**
    * Construct a new text controller with no output. Suitable for production.
    *
    * @param input the input stream.
    */
   public TextController(Readable input) {
+    this(input, false);
+  }
+
+  /**
+   * Construct a new text controller with no output. Suitable for production. A script controller
+   * reads and parses all of its input before executing anything, so that consecutive per-pixel
+   * operations can be fused into one pass (see {@link ScriptOptimizer}), and then runs the
+   * commands in order.
+   *
+   * @param input the input stream.
+   * @param script whether the input is a whole script rather than interactive commands.
+   */
+  public TextController(Readable input, boolean script) {
     this.input = Objects.requireNonNull(input);
     this.output = null;
+    this.script = script;
+    this.parallelism = 1;
     this.commands = getDefaultCommands();
   }
 
@@ -84,7 +173,7 @@ public class TextController implements Controller {
    */
   protected Map<String, CommandSupplier> getDefaultCommands() {
     Map<String, CommandSupplier> commands = new HashMap<>();
-    commands.put("run", new RunCommand.Supplier());
+    commands.put("run", new RunCommand.Supplier(parallelism));
     commands.put("rgb-combine", new CombineCommand.Supplier());
     commands.put("rgb-split", new SplitCommand.Supplier());
     commands.put("save", new SaveCommandSupplier(getDefaultImageWriters()));
@@ -114,9 +203,11 @@ public class TextController implements Controller {
   protected Map<String, Supplier<ImageReader>> getDefaultImageReaders() {
     Map<String, Supplier<ImageReader>> readers = new HashMap<>();
     readers.put("ppm", PpmImageReader::new);
+    readers.put("pnm", PpmImageReader::new);
     readers.put("jpeg", BufferedImageReader::new);
     readers.put("jpg", BufferedImageReader::new);
     readers.put("png", BufferedImageReader::new);
+    readers.put("hwc", WaveletImageReader::new);
     return readers;
   }
 
@@ -129,9 +220,11 @@ public class TextController implements Controller {
   protected Map<String, Supplier<ImageWriter>> getDefaultImageWriters() {
     Map<String, Supplier<ImageWriter>> writers = new HashMap<>();
     writers.put("ppm", PpmImageWriter::new);
+    writers.put("pnm", BinaryPpmImageWriter::new);
     writers.put("jpeg", () -> new BufferedImageWriter("jpeg"));
     writers.put("jpg", () -> new BufferedImageWriter("jpg"));
     writers.put("png", () -> new BufferedImageWriter("png"));
+    writers.put("hwc", WaveletImageWriter::new);
     return writers;
   }
 
@@ -168,9 +261,128 @@ public class TextController implements Controller {
     }
   }
 
+  /**
+   * Get the number of commands that could not be parsed or executed during the last run.
+   *
+   * @return the number of failed commands.
+   */
+  public int getFailureCount() {
+    return failureCount;
+  }
+
+  /**
+   * Get the output log stream of this controller, which commands that report to an output, and
+   * scripts started with the run command, append to as well.
+   *
+   * @return the output, or null for no output.
+   */
+  protected Appendable getOutput() {
+    return output;
+  }
+
+  /**
+   * Get the maximum number of script commands this controller runs at the same time.
+   *
+   * @return the parallelism level.
+   */
+  protected int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Execute a single command against the session. Can be overridden to wrap every command this
+   * controller executes, and may be called from several threads at once for a script.
+   *
+   * @param command the command.
+   * @param session the session.
+   * @throws IllegalArgumentException if the command could not be executed.
+   */
+  protected void executeCommand(Command command, Session session)
+      throws IllegalArgumentException {
+    command.execute(session);
+  }
+
+  /**
+   * Execute a command against the session, logging it. Commands that fail are ignored.
+   *
+   * @param command the command.
+   * @param session the session.
+   */
+  private void execute(Command command, Session session) {
+    try {
+      executeCommand(command, session);
+      print(String.format("command executed: %s\n", command));
+    } catch (IllegalArgumentException e) {
+      // failure to execute command, ignore it and move on to the next command
+      failureCount += 1;
+    }
+  }
+
+  /**
+   * Parse every command of the script, fuse consecutive per-pixel operations, and then execute
+   * the commands, running independent ones at the same time when the parallelism is greater than
+   * 1. Lines that fail to parse are ignored.
+   *
+   * <p>Every "command parsed" line is logged before anything runs. In order, every command is
+   * logged as executed as soon as it finishes. Otherwise, the "command executed" lines are only
+   * logged once the whole script has finished, still in the order of the script.
+   *
+   * @param session the session.
+   */
+  private void runScript(Session session) {
+    List<Command> parsed = new ArrayList<>();
+    Scanner scanner = new Scanner(input);
+    while (scanner.hasNextLine()) {
+      String line = scanner.nextLine();
+      if (line.isBlank() || line.startsWith("#")) {
+        continue;
+      }
+
+      String[] arguments = line.split("\\s+");
+      if (Arrays.stream(arguments).anyMatch(TextController::isQuit)) {
+        print("quit\n");
+        break;
+      }
+
+      try {
+        Command command = parse(arguments);
+        print(String.format("command parsed: %s\n", command));
+        parsed.add(command);
+      } catch (IllegalArgumentException e) {
+        // failure to parse command, ignore it and try the next line
+        failureCount += 1;
+      }
+    }
+    scanner.close();
+
+    List<Command> fused = ScriptOptimizer.fuse(parsed);
+    if (parallelism == 1) {
+      for (Command command : fused) {
+        execute(command, session);
+      }
+      return;
+    }
+
+    boolean[] executed =
+        ScriptScheduler.execute(fused, session, parallelism, this::executeCommand);
+    for (int k = 0; k < fused.size(); k++) {
+      if (executed[k]) {
+        print(String.format("command executed: %s\n", fused.get(k)));
+      } else {
+        failureCount += 1;
+      }
+    }
+  }
+
   @Override
   public void run(Session session) {
     Objects.requireNonNull(session);
+    failureCount = 0;
+
+    if (script) {
+      runScript(session);
+      return;
+    }
 
     Scanner scanner = new Scanner(input);
     while (scanner.hasNextLine()) {
@@ -191,11 +403,12 @@ public class TextController implements Controller {
       try {
         command = parse(arguments);
         print(String.format("command parsed: %s\n", command));
-        command.execute(session);
+        executeCommand(command, session);
         print(String.format("command executed: %s\n", command));
       } catch (IllegalArgumentException e) {
         // failure to either parse or execute command, ignore it and try again
         // with a new command
+        failureCount += 1;
       }
     }
     scanner.close();
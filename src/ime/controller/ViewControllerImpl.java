@@ -16,6 +16,8 @@ import java.util.Optional;
 public class ViewControllerImpl implements ViewController {
   private final View view;
   private Session session;
+  private ReadOnlyImage histogramSource;
+  private ReadOnlyImage histogram;
 
   /**
    * Construct a new view controller object.
@@ -70,7 +72,12 @@ public class ViewControllerImpl implements ViewController {
     }
     try {
       ReadOnlyImage image = session.getImage("image");
-      return new GenerateHistogram().apply(image);
+      // images never change, so the histogram only has to be drawn again for a new image
+      if (image != histogramSource) {
+        histogram = new GenerateHistogram().apply(image);
+        histogramSource = image;
+      }
+      return histogram;
     } catch (IllegalArgumentException e) {
       throw new IllegalStateException("Controller is not working on an image.");
     }
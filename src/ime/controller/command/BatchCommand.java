@@ -0,0 +1,422 @@
+package ime.controller.command;
+
+import ime.controller.ExtendedTextController;
+import ime.controller.supplier.CommandSupplier;
+import ime.model.session.Session;
+import ime.model.session.SessionImpl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * This command runs a script template once for every file that matches a glob, each run in a new
+ * session from a session supplier, and reports how many files it processed per second and which
+ * ones failed. The template is a script where {path}, {dir}, {name}, {ext} and {index} stand for
+ * the path of the file, its directory, its name without extension, its extension and its position
+ * among the matching files, so "load {path} img" and "save out/{name}-sepia.{ext} img" process
+ * every file.
+ *
+ * <p>Every file is processed on its own virtual thread when the Java runtime has them, and on a
+ * fixed pool of platform threads otherwise. Loads and saves wait on files, so many of them may run
+ * at once, but at most a given number of image operations run at the same time, and at most a few
+ * times that many files are in flight, so only a few images are in memory at once. The stats
+ * reports of a file are appended to the output once the file is done, after its path.
+ */
+public class BatchCommand implements Command {
+  /** How many files may be in flight for every image operation that may run at once. */
+  private static final int FILES_PER_OPERATION = 4;
+
+  private final String templatePath;
+  private final String glob;
+  private final int operationLimit;
+  private final Appendable output;
+  private final java.util.function.Supplier<Session> sessions;
+
+  /**
+   * Construct a new batch command that processes every file in a new {@link SessionImpl}.
+   *
+   * @param templatePath the path of the script template.
+   * @param glob the glob the input files match, such as "photos/*.jpg".
+   * @param operationLimit the maximum number of image operations to run at the same time.
+   * @param output the output the summary and reports are appended to, or null for no output.
+   * @throws IllegalArgumentException if the operation limit is less than 1.
+   */
+  public BatchCommand(String templatePath, String glob, int operationLimit, Appendable output)
+      throws IllegalArgumentException {
+    this(templatePath, glob, operationLimit, output, SessionImpl::new);
+  }
+
+  /**
+   * Construct a new batch command that processes every file in a new session from the given
+   * supplier.
+   *
+   * @param templatePath the path of the script template.
+   * @param glob the glob the input files match, such as "photos/*.jpg".
+   * @param operationLimit the maximum number of image operations to run at the same time.
+   * @param output the output the summary and reports are appended to, or null for no output.
+   * @param sessions the supplier of the session of every file.
+   * @throws IllegalArgumentException if the operation limit is less than 1.
+   */
+  public BatchCommand(
+      String templatePath,
+      String glob,
+      int operationLimit,
+      Appendable output,
+      java.util.function.Supplier<Session> sessions)
+      throws IllegalArgumentException {
+    if (operationLimit < 1) {
+      throw new IllegalArgumentException("operation limit must be at least 1");
+    }
+    this.templatePath = Objects.requireNonNull(templatePath);
+    this.glob = Objects.requireNonNull(glob);
+    this.operationLimit = operationLimit;
+    this.output = output;
+    this.sessions = Objects.requireNonNull(sessions);
+  }
+
+  /**
+   * Find the regular files that match a glob, in order. The glob is matched against the path of
+   * every file below the part of the glob that has no wildcards, so "photos/*.jpg" matches the
+   * jpg files of the photos directory, and "photos/**.jpg" those of its subdirectories too.
+   *
+   * @param glob the glob.
+   * @return the paths of the matching files.
+   * @throws IOException if a directory could not be read.
+   */
+  public static List<Path> expand(String glob) throws IOException {
+    int wildcard = firstWildcard(glob);
+    if (wildcard == glob.length()) {
+      Path file = Path.of(glob);
+      return Files.isRegularFile(file) ? List.of(file) : List.of();
+    }
+
+    int slash = glob.lastIndexOf('/', wildcard);
+    Path base = slash < 0 ? Path.of("") : Path.of(slash == 0 ? "/" : glob.substring(0, slash));
+    String pattern = glob.substring(slash + 1);
+    PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+    int depth = pattern.contains("**") ? Integer.MAX_VALUE : pattern.split("/").length;
+
+    Path root = slash < 0 ? Path.of(".") : base;
+    if (!Files.isDirectory(root)) {
+      return List.of();
+    }
+    List<Path> files = new ArrayList<>();
+    try (Stream<Path> paths = Files.walk(root, depth)) {
+      paths
+          .filter(Files::isRegularFile)
+          .map(path -> root.relativize(path))
+          .filter(matcher::matches)
+          .sorted()
+          .forEach(path -> files.add(base.resolve(path)));
+    }
+    return files;
+  }
+
+  private static int firstWildcard(String glob) {
+    for (int k = 0; k < glob.length(); k++) {
+      if ("*?[{".indexOf(glob.charAt(k)) >= 0) {
+        return k;
+      }
+    }
+    return glob.length();
+  }
+
+  /**
+   * Fill in the template for one file.
+   *
+   * @param template the script template.
+   * @param file the path of the file.
+   * @param index the position of the file among the matching files.
+   * @return the script for the file.
+   */
+  public static String fillTemplate(String template, Path file, int index) {
+    String fileName = file.getFileName().toString();
+    int dot = fileName.lastIndexOf('.');
+    String name = dot > 0 ? fileName.substring(0, dot) : fileName;
+    String extension = dot > 0 ? fileName.substring(dot + 1) : "";
+    Path parent = file.getParent();
+    return template
+        .replace("{path}", file.toString())
+        .replace("{dir}", parent == null ? "." : parent.toString())
+        .replace("{name}", name)
+        .replace("{ext}", extension)
+        .replace("{index}", Integer.toString(index));
+  }
+
+  /**
+   * Check if this Java runtime has virtual threads.
+   *
+   * @return true if every file gets a virtual thread, false if they share platform threads.
+   */
+  public static boolean hasVirtualThreads() {
+    try {
+      Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Get an executor that starts a virtual thread for every task, or, on runtimes without virtual
+   * threads, a fixed pool of platform threads.
+   *
+   * @param threads the number of platform threads to fall back to.
+   * @return the executor.
+   */
+  private static ExecutorService newExecutor(int threads) {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(threads);
+    }
+  }
+
+  /**
+   * Run the template for every matching file, and append a summary to the output. The given
+   * session is not used, since every file is processed in a session of its own. A file fails if
+   * a command of its script could not be parsed or executed.
+   *
+   * @param session the session.
+   * @throws IllegalArgumentException if the template or the files could not be read, or no file
+   *     matches the glob.
+   * @throws IllegalStateException if the output could not be written to.
+   */
+  @Override
+  public void execute(Session session) throws IllegalArgumentException, IllegalStateException {
+    Objects.requireNonNull(session);
+
+    String template;
+    List<Path> files;
+    try {
+      template = Files.readString(Path.of(templatePath));
+      files = expand(glob);
+    } catch (IOException e) {
+      throw new IllegalArgumentException(e);
+    }
+    if (files.isEmpty()) {
+      throw new IllegalArgumentException("no files match the glob");
+    }
+
+    Semaphore operations = new Semaphore(operationLimit);
+    Semaphore inFlight = new Semaphore(operationLimit * FILES_PER_OPERATION);
+    String[] failures = new String[files.size()];
+    long start = System.nanoTime();
+    ExecutorService executor = newExecutor(operationLimit * FILES_PER_OPERATION);
+    try {
+      for (int k = 0; k < files.size(); k++) {
+        int index = k;
+        inFlight.acquireUninterruptibly();
+        executor.execute(
+            () -> {
+              try {
+                failures[index] = process(files.get(index), template, index, operations);
+              } finally {
+                inFlight.release();
+              }
+            });
+      }
+    } finally {
+      executor.shutdown();
+      awaitTermination(executor);
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+
+    int failed = 0;
+    StringBuilder summary = new StringBuilder();
+    for (int k = 0; k < files.size(); k++) {
+      if (failures[k] != null) {
+        failed += 1;
+        summary.append(String.format("failed: %s (%s)\n", files.get(k), failures[k]));
+      }
+    }
+    summary.insert(
+        0,
+        String.format(
+            "batch: %d files in %.3f s (%.1f files/s) on %s, %d succeeded, %d failed\n",
+            files.size(),
+            seconds,
+            files.size() / Math.max(seconds, 1e-9),
+            hasVirtualThreads() ? "virtual threads" : "platform threads",
+            files.size() - failed,
+            failed));
+    if (output == null) {
+      return;
+    }
+    try {
+      output.append(summary.toString());
+    } catch (IOException e) {
+      throw new IllegalStateException("cannot write to output");
+    }
+  }
+
+  /**
+   * Run the script of one file in a new session from the supplier, and append its reports to the
+   * output. Sessions that hold resources, such as the spill file of a
+   * {@link ime.model.session.BoundedSession}, are closed once the script has run.
+   *
+   * @param file the path of the file.
+   * @param template the script template.
+   * @param index the position of the file among the matching files.
+   * @param operations the permits of the image operations that may run at the same time.
+   * @return why the file failed, or null if it succeeded.
+   */
+  private String process(Path file, String template, int index, Semaphore operations) {
+    try {
+      StringBuilder reports = output == null ? null : new StringBuilder();
+      BatchController controller =
+          new BatchController(fillTemplate(template, file, index), operations, reports);
+      Session session = sessions.get();
+      try {
+        controller.run(session);
+      } finally {
+        if (session instanceof Closeable) {
+          ((Closeable) session).close();
+        }
+      }
+      if (reports != null && reports.length() > 0) {
+        // the files finish on many threads, and the reports of each stay together
+        synchronized (output) {
+          output.append(String.format("%s:\n", file)).append(reports);
+        }
+      }
+      int failed = controller.getFailureCount();
+      if (failed > 0) {
+        return String.format("%d command%s failed", failed, failed == 1 ? "" : "s");
+      }
+      return null;
+    } catch (RuntimeException | IOException e) {
+      return e.toString();
+    }
+  }
+
+  private static void awaitTermination(ExecutorService executor) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            return;
+          }
+        } catch (InterruptedException e) {
+          // keep waiting, since the files that are in flight cannot be abandoned halfway
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public Optional<Set<String>> getReadNames() {
+    return Optional.of(Set.of());
+  }
+
+  @Override
+  public Optional<Set<String>> getWriteNames() {
+    return Optional.of(Set.of());
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "<BatchCommand template=\"%s\" glob=\"%s\" operationLimit=\"%d\">",
+        templatePath, glob, operationLimit);
+  }
+
+  /**
+   * A script controller for one file, that runs its commands in order and holds a permit while
+   * it runs an image operation. Commands that use files, such as loads and saves, run without one.
+   * It has no log, but its stats reports are collected for the output of the batch.
+   */
+  private static final class BatchController extends ExtendedTextController {
+    private final Semaphore operations;
+
+    private BatchController(String script, Semaphore operations, StringBuilder reports) {
+      super(new StringReader(script), null, true, 1);
+      this.operations = operations;
+      commands.put("stats", new StatsCommand.Supplier(reports));
+    }
+
+    @Override
+    protected void executeCommand(Command command, Session session)
+        throws IllegalArgumentException {
+      if (!command.getFileNames().equals(Optional.of(Set.of()))) {
+        super.executeCommand(command, session);
+        return;
+      }
+      operations.acquireUninterruptibly();
+      try {
+        super.executeCommand(command, session);
+      } finally {
+        operations.release();
+      }
+    }
+  }
+
+  /**
+   * This class supplies batch commands, given the template path, the glob and an optional limit
+   * of image operations to run at the same time, which is the number of processors by default.
+   */
+  public static class Supplier implements CommandSupplier {
+    private final Appendable output;
+    private final java.util.function.Supplier<Session> sessions;
+
+    /**
+     * Construct a new batch command supplier.
+     *
+     * @param output the output summaries and reports are appended to, or null for no output.
+     */
+    public Supplier(Appendable output) {
+      this(output, SessionImpl::new);
+    }
+
+    /**
+     * Construct a new batch command supplier whose commands process every file in a new session
+     * from the given supplier.
+     *
+     * @param output the output summaries and reports are appended to, or null for no output.
+     * @param sessions the supplier of the session of every file.
+     */
+    public Supplier(Appendable output, java.util.function.Supplier<Session> sessions) {
+      this.output = output;
+      this.sessions = Objects.requireNonNull(sessions);
+    }
+
+    @Override
+    public Command get(String... args) throws IllegalArgumentException {
+      if (args.length != 2 && args.length != 3) {
+        throw new IllegalArgumentException("invalid number of arguments");
+      }
+      int operationLimit = Runtime.getRuntime().availableProcessors();
+      if (args.length == 3) {
+        try {
+          operationLimit = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException("invalid operation limit");
+        }
+      }
+      return new BatchCommand(args[0], args[1], operationLimit, output, sessions);
+    }
+  }
+}
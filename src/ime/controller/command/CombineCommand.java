@@ -5,7 +5,10 @@ import ime.model.image.ReadOnlyImage;
 import ime.model.operations.RGBCombine;
 import ime.model.session.Session;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 /** This command combines three red, green, and blue images into one color image. */
 public class CombineCommand implements Command {
@@ -51,6 +54,21 @@ public class CombineCommand implements Command {
     session.insertOrReplaceImage(destImageName, destImage);
   }
 
+  @Override
+  public Optional<Set<String>> getReadNames() {
+    return Optional.of(Set.copyOf(List.of(srcImageNameRed, srcImageNameGreen, srcImageNameBlue)));
+  }
+
+  @Override
+  public Optional<Set<String>> getWriteNames() {
+    return Optional.of(Set.of(destImageName));
+  }
+
+  @Override
+  public Optional<Set<String>> getFileNames() {
+    return Optional.of(Set.of());
+  }
+
   @Override
   public String toString() {
     return String.format(
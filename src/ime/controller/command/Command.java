@@ -2,6 +2,9 @@ package ime.controller.command;
 
 import ime.model.session.Session;
 
+import java.util.Optional;
+import java.util.Set;
+
 /**
  * This interface represents a command that interacts with a session. Commands interact with
  * sessions through side effects.
@@ -14,4 +17,34 @@ public interface Command {
    * @throws IllegalArgumentException if the command could not be executed.
    */
   void execute(Session session) throws IllegalArgumentException;
+
+  /**
+   * Get the names of the images this command reads from a session. Commands that cannot tell which
+   * images they read return an empty optional, and may read any image.
+   *
+   * @return the names of the images read, if known.
+   */
+  default Optional<Set<String>> getReadNames() {
+    return Optional.empty();
+  }
+
+  /**
+   * Get the names of the images this command inserts or replaces in a session. Commands that cannot
+   * tell which images they write return an empty optional, and may write any image.
+   *
+   * @return the names of the images written, if known.
+   */
+  default Optional<Set<String>> getWriteNames() {
+    return Optional.empty();
+  }
+
+  /**
+   * Get the paths of the files, and other outside resources, this command reads or writes.
+   * Commands that cannot tell which files they use return an empty optional, and may use any file.
+   *
+   * @return the paths of the files used, if known.
+   */
+  default Optional<Set<String>> getFileNames() {
+    return Optional.empty();
+  }
 }
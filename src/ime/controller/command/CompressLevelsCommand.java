@@ -0,0 +1,135 @@
+package ime.controller.command;
+
+import ime.controller.supplier.CommandSupplier;
+import ime.model.image.ReadOnlyImage;
+import ime.model.operations.HaarWaveletCompression;
+import ime.model.session.Session;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * This command compresses one image at several percentages, and saves every result under the
+ * destination prefix followed by a dash and the percentage. With the square or rectangular layout,
+ * the image is transformed once into a cache of this execution, and every percentage only
+ * thresholds and inverts the cached transform.
+ */
+public class CompressLevelsCommand implements Command {
+  private final String inputName;
+  private final String outputPrefix;
+  private final int[] percentages;
+  private final HaarWaveletCompression.Layout layout;
+
+  /**
+   * Construct a new compress levels command.
+   *
+   * @param inputName the name of the input image.
+   * @param outputPrefix the prefix of the output image names.
+   * @param layout how to lay the image out for the transform.
+   * @param percentages the compression percentages, each within the range [0, 100].
+   * @throws IllegalArgumentException if there are no percentages, or one is not valid.
+   */
+  public CompressLevelsCommand(
+      String inputName, String outputPrefix, HaarWaveletCompression.Layout layout,
+      int... percentages) throws IllegalArgumentException {
+    this.inputName = Objects.requireNonNull(inputName);
+    this.outputPrefix = Objects.requireNonNull(outputPrefix);
+    this.layout = Objects.requireNonNull(layout);
+    if (percentages.length == 0) {
+      throw new IllegalArgumentException("at least one percentage is required");
+    }
+    for (int percentage : percentages) {
+      if (percentage < 0 || percentage > 100) {
+        throw new IllegalArgumentException("percentage must be between 0 and 100");
+      }
+    }
+    this.percentages = percentages.clone();
+  }
+
+  /**
+   * Get the name of the image a percentage is saved under.
+   *
+   * @param percentage the percentage.
+   * @return the output image name.
+   */
+  public String getOutputName(int percentage) {
+    return outputPrefix + "-" + percentage;
+  }
+
+  /**
+   * Read the input image from the given session, compress it at every percentage, and save every
+   * result back into the session.
+   *
+   * @param session the session.
+   * @throws IllegalArgumentException if the image does not exist.
+   */
+  @Override
+  public void execute(Session session) throws IllegalArgumentException {
+    Objects.requireNonNull(session);
+
+    ReadOnlyImage input = session.getImage(inputName);
+    HaarWaveletCompression.TransformCache cache = new HaarWaveletCompression.TransformCache();
+    for (int percentage : percentages) {
+      ReadOnlyImage output = new HaarWaveletCompression(percentage, layout, cache).apply(input);
+      session.insertOrReplaceImage(getOutputName(percentage), output);
+    }
+  }
+
+  @Override
+  public Optional<Set<String>> getReadNames() {
+    return Optional.of(Set.of(inputName));
+  }
+
+  @Override
+  public Optional<Set<String>> getWriteNames() {
+    Set<String> names = new HashSet<>();
+    for (int percentage : percentages) {
+      names.add(getOutputName(percentage));
+    }
+    return Optional.of(Set.copyOf(names));
+  }
+
+  @Override
+  public Optional<Set<String>> getFileNames() {
+    return Optional.of(Set.of());
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder levels = new StringBuilder();
+    for (int percentage : percentages) {
+      levels.append(levels.length() == 0 ? "" : ",").append(percentage);
+    }
+    return String.format(
+        "<CompressLevelsCommand inputName=\"%s\" outputPrefix=\"%s\" percentages=\"%s\" "
+            + "layout=\"%s\">",
+        inputName, outputPrefix, levels, layout.name().toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * This class supplies compress levels commands. The percentages are given as one argument,
+   * separated by commas, followed by the image name, the destination prefix and an optional
+   * layout.
+   */
+  public static class Supplier implements CommandSupplier {
+    @Override
+    public Command get(String... args) throws IllegalArgumentException {
+      if (args.length != 3 && args.length != 4) {
+        throw new IllegalArgumentException("invalid number of arguments");
+      }
+      String[] values = args[0].split(",");
+      int[] percentages = new int[values.length];
+      for (int k = 0; k < values.length; k++) {
+        percentages[k] = Integer.parseInt(values[k].trim());
+      }
+      HaarWaveletCompression.Layout layout = HaarWaveletCompression.Layout.SQUARE;
+      if (args.length == 4) {
+        layout = HaarWaveletCompression.Layout.valueOf(args[3].toUpperCase(Locale.ROOT));
+      }
+      return new CompressLevelsCommand(args[1], args[2], layout, percentages);
+    }
+  }
+}
@@ -7,24 +7,90 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
 
-/** This run command enables script files to utilize the extended list of commands. */
+/**
+ * This run command enables script files to utilize the extended list of commands. The script
+ * logs to, and reports to, the output of the command, if it has one.
+ */
 public class ExtendedRunCommand extends RunCommand {
+  private final Appendable output;
+
   /**
-   * Construct a new run command.
+   * Construct a new run command with no output.
    *
    * @param scriptPath the path of the script file.
    */
   public ExtendedRunCommand(String scriptPath) {
     super(scriptPath);
+    this.output = null;
+  }
+
+  /**
+   * Construct a new run command, which runs at most the given number of independent commands of
+   * the script at the same time.
+   *
+   * @param scriptPath the path of the script file.
+   * @param parallelism the maximum number of script commands to run at the same time.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public ExtendedRunCommand(String scriptPath, int parallelism) throws IllegalArgumentException {
+    this(scriptPath, null, parallelism);
+  }
+
+  /**
+   * Construct a new run command, which runs at most the given number of independent commands of
+   * the script at the same time, and whose script appends to the given output.
+   *
+   * @param scriptPath the path of the script file.
+   * @param output the output of the script, or null for no output.
+   * @param parallelism the maximum number of script commands to run at the same time.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public ExtendedRunCommand(String scriptPath, Appendable output, int parallelism)
+      throws IllegalArgumentException {
+    super(scriptPath, parallelism);
+    this.output = output;
   }
 
   @Override
   protected Controller getScriptController(String scriptPath) throws FileNotFoundException {
-    return new ExtendedTextController(new InputStreamReader(new FileInputStream(scriptPath)));
+    return new ExtendedTextController(
+        new InputStreamReader(new FileInputStream(scriptPath)), output, true, getParallelism());
   }
 
   /** This class supplies run the extended commands. */
   public static class Supplier extends RunCommand.Supplier {
+    private final Appendable output;
+
+    /** Construct a new supplier of run commands that run their scripts in order. */
+    public Supplier() {
+      super();
+      this.output = null;
+    }
+
+    /**
+     * Construct a new supplier of run commands that run at most the given number of independent
+     * commands of their scripts at the same time.
+     *
+     * @param parallelism the maximum number of script commands to run at the same time.
+     * @throws IllegalArgumentException if the parallelism is less than 1.
+     */
+    public Supplier(int parallelism) throws IllegalArgumentException {
+      this(null, parallelism);
+    }
+
+    /**
+     * Construct a new supplier of run commands that run at most the given number of independent
+     * commands of their scripts at the same time, and whose scripts append to the given output.
+     *
+     * @param output the output of the scripts, or null for no output.
+     * @param parallelism the maximum number of script commands to run at the same time.
+     * @throws IllegalArgumentException if the parallelism is less than 1.
+     */
+    public Supplier(Appendable output, int parallelism) throws IllegalArgumentException {
+      super(parallelism);
+      this.output = output;
+    }
+
     /**
      * Get the run command, given the script path.
      *
@@ -33,7 +99,7 @@ public class ExtendedRunCommand extends RunCommand {
      */
     @Override
     protected Command getRunCommand(String scriptPath) {
-      return new ExtendedRunCommand(scriptPath);
+      return new ExtendedRunCommand(scriptPath, output, getParallelism());
     }
   }
 }
@@ -8,8 +8,13 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
-/** This command loads images from files. */
+/**
+ * This command loads images from files. When it is constructed from a file path alone, the file is
+ * only opened once the command executes, so a script can load a file that an earlier line saves.
+ */
 public class LoadCommand implements Command {
   private final String imagePath;
   private final String imageName;
@@ -39,7 +44,10 @@ public class LoadCommand implements Command {
    * @param reader the reader used to parse the image file.
    */
   public LoadCommand(String imagePath, String imageName, ImageReader reader) {
-    this(imagePath, imageName, reader, getFileInputStream(imagePath));
+    this.imagePath = Objects.requireNonNull(imagePath);
+    this.imageName = Objects.requireNonNull(imageName);
+    this.reader = Objects.requireNonNull(reader);
+    this.input = null;
   }
 
   /**
@@ -68,10 +76,34 @@ public class LoadCommand implements Command {
   public void execute(Session session) throws IllegalArgumentException {
     Objects.requireNonNull(session);
 
-    ReadOnlyImage image = reader.read(input);
+    ReadOnlyImage image;
+    if (input != null) {
+      image = reader.read(input);
+    } else {
+      try (InputStream fileInput = getFileInputStream(imagePath)) {
+        image = reader.read(fileInput);
+      } catch (IOException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
     session.insertOrReplaceImage(imageName, image);
   }
 
+  @Override
+  public Optional<Set<String>> getReadNames() {
+    return Optional.of(Set.of());
+  }
+
+  @Override
+  public Optional<Set<String>> getWriteNames() {
+    return Optional.of(Set.of(imageName));
+  }
+
+  @Override
+  public Optional<Set<String>> getFileNames() {
+    return Optional.of(Set.of(imagePath));
+  }
+
   @Override
   public String toString() {
     return String.format(
@@ -6,6 +6,8 @@ import ime.model.operations.ImageOperation;
 import ime.model.session.Session;
 
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Supplier;
 
 /** This command applies generic operations to images. */
@@ -44,6 +46,48 @@ public class MapCommand implements Command {
     session.insertOrReplaceImage(outputName, output);
   }
 
+  /**
+   * Get the name of the image this command reads.
+   *
+   * @return the input image name.
+   */
+  public String getInputName() {
+    return inputName;
+  }
+
+  /**
+   * Get the name of the image this command writes.
+   *
+   * @return the output image name.
+   */
+  public String getOutputName() {
+    return outputName;
+  }
+
+  /**
+   * Get the operation this command applies.
+   *
+   * @return the operation.
+   */
+  public ImageOperation getOperation() {
+    return operation;
+  }
+
+  @Override
+  public Optional<Set<String>> getReadNames() {
+    return Optional.of(Set.of(inputName));
+  }
+
+  @Override
+  public Optional<Set<String>> getWriteNames() {
+    return Optional.of(Set.of(outputName));
+  }
+
+  @Override
+  public Optional<Set<String>> getFileNames() {
+    return Optional.of(Set.of());
+  }
+
   @Override
   public String toString() {
     return String.format(
@@ -51,17 +95,20 @@ public class MapCommand implements Command {
         inputName, outputName, operation);
   }
 
-  /** This class supplies map commands. */
+  /**
+   * This class supplies map commands. Every command gets an operation of its own, so commands that
+   * run at the same time never share an operation's state.
+   */
   public static class MapCommandSupplier implements CommandSupplier {
-    private final ImageOperation operation;
+    private final Supplier<ImageOperation> operation;
 
     /**
      * Construct a new map command supplier.
      *
-     * @param operation the operation to outfit new map commands with.
+     * @param operation the supplier of the operation to outfit every new map command with.
      */
     public MapCommandSupplier(Supplier<ImageOperation> operation) {
-      this.operation = Objects.requireNonNull(operation.get());
+      this.operation = Objects.requireNonNull(operation);
     }
 
     @Override
@@ -71,7 +118,7 @@ public class MapCommand implements Command {
       }
       String input = args[0];
       String output = args[1];
-      return new MapCommand(input, output, operation);
+      return new MapCommand(input, output, Objects.requireNonNull(operation.get()));
     }
   }
 }
@@ -13,14 +13,40 @@ import java.util.Objects;
 /** This command iteratively runs a series of commands from a script file. */
 public class RunCommand implements Command {
   private final String scriptPath;
+  private final int parallelism;
 
   /**
-   * Construct a new run command.
+   * Construct a new run command, which runs the commands of the script in order.
    *
    * @param scriptPath the path of the script file.
    */
   public RunCommand(String scriptPath) {
+    this(scriptPath, 1);
+  }
+
+  /**
+   * Construct a new run command, which runs at most the given number of independent commands of
+   * the script at the same time.
+   *
+   * @param scriptPath the path of the script file.
+   * @param parallelism the maximum number of script commands to run at the same time.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public RunCommand(String scriptPath, int parallelism) throws IllegalArgumentException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism has to be at least 1!");
+    }
     this.scriptPath = Objects.requireNonNull(scriptPath);
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Get the maximum number of script commands the script controller runs at the same time.
+   *
+   * @return the parallelism level.
+   */
+  protected int getParallelism() {
+    return parallelism;
   }
 
   /**
@@ -31,12 +57,14 @@ public class RunCommand implements Command {
    * @throws FileNotFoundException if the script file is not found.
    */
   protected Controller getScriptController(String scriptPath) throws FileNotFoundException {
-    return new TextController(new InputStreamReader(new FileInputStream(scriptPath)));
+    return new TextController(
+        new InputStreamReader(new FileInputStream(scriptPath)), null, true, parallelism);
   }
 
   /**
    * Parse the script file, construct a new controller to accept the script as input, and run it
-   * against the given session.
+   * against the given session. The whole script is parsed first, and chains of per-pixel
+   * operations whose intermediate images the script never reads again run as a single pass.
    *
    * @param session the session.
    * @throws IllegalArgumentException if the script file could not be read.
@@ -60,6 +88,36 @@ public class RunCommand implements Command {
 
   /** This class supplies run commands. */
   public static class Supplier implements CommandSupplier {
+    private final int parallelism;
+
+    /** Construct a new supplier of run commands that run their scripts in order. */
+    public Supplier() {
+      this(1);
+    }
+
+    /**
+     * Construct a new supplier of run commands that run at most the given number of independent
+     * commands of their scripts at the same time.
+     *
+     * @param parallelism the maximum number of script commands to run at the same time.
+     * @throws IllegalArgumentException if the parallelism is less than 1.
+     */
+    public Supplier(int parallelism) throws IllegalArgumentException {
+      if (parallelism < 1) {
+        throw new IllegalArgumentException("Parallelism has to be at least 1!");
+      }
+      this.parallelism = parallelism;
+    }
+
+    /**
+     * Get the maximum number of script commands the supplied commands run at the same time.
+     *
+     * @return the parallelism level.
+     */
+    protected int getParallelism() {
+      return parallelism;
+    }
+
     /**
      * Get the run command, given the script path.
      *
@@ -67,7 +125,7 @@ public class RunCommand implements Command {
      * @return the command.
      */
     protected Command getRunCommand(String scriptPath) {
-      return new RunCommand(scriptPath);
+      return new RunCommand(scriptPath, parallelism);
     }
 
     @Override
@@ -7,12 +7,18 @@ import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 import ime.controller.io.ImageWriter;
 import ime.model.image.ReadOnlyImage;
 import ime.model.session.Session;
 
-/** This command saves images to output streams. */
+/**
+ * This command saves images to output streams. When it is constructed from a file path alone, the
+ * file is only created once the command executes, so a script can save over a file that an earlier
+ * line loads.
+ */
 public class SaveCommand implements Command {
   private final String imagePath;
   private final String imageName;
@@ -44,7 +50,10 @@ public class SaveCommand implements Command {
    */
   public SaveCommand(String imagePath, String imageName, ImageWriter writer)
       throws IllegalArgumentException {
-    this(imagePath, imageName, writer, getFileOutputStream(imagePath));
+    this.imagePath = Objects.requireNonNull(imagePath);
+    this.imageName = Objects.requireNonNull(imageName);
+    this.writer = Objects.requireNonNull(writer);
+    this.output = null;
   }
 
   /**
@@ -81,6 +90,18 @@ public class SaveCommand implements Command {
   public void execute(Session session) throws IllegalArgumentException {
     Objects.requireNonNull(session);
 
+    if (output == null) {
+      // nothing is created for images that don't exist
+      ReadOnlyImage image;
+      try {
+        image = session.getImage(imageName);
+      } catch (IllegalArgumentException e) {
+        return;
+      }
+      write(getFileOutputStream(imagePath), image);
+      return;
+    }
+
     try {
       ReadOnlyImage image = session.getImage(imageName);
       writer.write(output, image);
@@ -94,6 +115,40 @@ public class SaveCommand implements Command {
     }
   }
 
+  /**
+   * Write the image to a file stream this command opened, closing it afterwards, and deleting the
+   * file if the image could not be written.
+   *
+   * @param fileOutput the file stream.
+   * @param image the image.
+   */
+  private void write(OutputStream fileOutput, ReadOnlyImage image) {
+    try (fileOutput) {
+      writer.write(fileOutput, image);
+    } catch (IllegalArgumentException | IOException e) {
+      try {
+        Files.deleteIfExists(Path.of(imagePath));
+      } catch (IOException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+  }
+
+  @Override
+  public Optional<Set<String>> getReadNames() {
+    return Optional.of(Set.of(imageName));
+  }
+
+  @Override
+  public Optional<Set<String>> getWriteNames() {
+    return Optional.of(Set.of());
+  }
+
+  @Override
+  public Optional<Set<String>> getFileNames() {
+    return Optional.of(Set.of(imagePath));
+  }
+
   @Override
   public String toString() {
     return String.format(
@@ -7,7 +7,10 @@ import ime.model.operations.ExtractGreenComponent;
 import ime.model.operations.ExtractRedComponent;
 import ime.model.session.Session;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 /** This command splits a color image into three red, green, and blue images. */
 public class SplitCommand implements Command {
@@ -57,6 +60,22 @@ public class SplitCommand implements Command {
     session.insertOrReplaceImage(destImageNameBlue, blueImage);
   }
 
+  @Override
+  public Optional<Set<String>> getReadNames() {
+    return Optional.of(Set.of(srcImageName));
+  }
+
+  @Override
+  public Optional<Set<String>> getWriteNames() {
+    return Optional.of(
+        Set.copyOf(List.of(destImageNameRed, destImageNameGreen, destImageNameBlue)));
+  }
+
+  @Override
+  public Optional<Set<String>> getFileNames() {
+    return Optional.of(Set.of());
+  }
+
   @Override
   public String toString() {
     return String.format(
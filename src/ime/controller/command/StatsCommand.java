@@ -0,0 +1,160 @@
+package ime.controller.command;
+
+import ime.controller.supplier.CommandSupplier;
+import ime.model.image.ChannelHistogram;
+import ime.model.image.ImageStatistics;
+import ime.model.image.ReadOnlyImage;
+import ime.model.session.Session;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * This command reports the statistics of an image: its size, and the minimum, maximum, mean and
+ * most frequent value of each channel. The report is appended to an output stream, or written to
+ * a text file. The statistics are cached by the image, so reporting on the same image again costs
+ * nothing.
+ */
+public class StatsCommand implements Command {
+  private final String imageName;
+  private final String reportPath;
+  private final Appendable output;
+
+  /**
+   * Construct a new stats command that appends its report to the given output.
+   *
+   * @param imageName the name of the image.
+   * @param output the output the report is appended to.
+   */
+  public StatsCommand(String imageName, Appendable output) {
+    this.imageName = Objects.requireNonNull(imageName);
+    this.reportPath = null;
+    this.output = Objects.requireNonNull(output);
+  }
+
+  /**
+   * Construct a new stats command that writes its report to a text file. The file is only created
+   * once the command executes.
+   *
+   * @param imageName the name of the image.
+   * @param reportPath the path of the report file.
+   */
+  public StatsCommand(String imageName, String reportPath) {
+    this.imageName = Objects.requireNonNull(imageName);
+    this.reportPath = Objects.requireNonNull(reportPath);
+    this.output = null;
+  }
+
+  /**
+   * Format the report for an image.
+   *
+   * @param image the image.
+   * @return the report, one line for the size and one per channel.
+   */
+  public static String report(ReadOnlyImage image) {
+    ImageStatistics statistics = image.getStatistics();
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("size: %dx%d\n", image.getWidth(), image.getHeight()));
+    String[] names = {"red", "green", "blue"};
+    int[] channels = {ChannelHistogram.RED, ChannelHistogram.GREEN, ChannelHistogram.BLUE};
+    for (int k = 0; k < channels.length; k += 1) {
+      report.append(
+          String.format(
+              "%s: min=%d max=%d mean=%.3f peak=%d\n",
+              names[k],
+              statistics.getMin(channels[k]),
+              statistics.getMax(channels[k]),
+              statistics.getMean(channels[k]),
+              statistics.getPeak(channels[k])));
+    }
+    return report.toString();
+  }
+
+  /**
+   * Read the image from the session, and report its statistics.
+   *
+   * @param session the session.
+   * @throws IllegalArgumentException if the image does not exist in the session, or the report
+   *     file could not be written.
+   * @throws IllegalStateException if the output could not be written to.
+   */
+  @Override
+  public void execute(Session session) throws IllegalArgumentException, IllegalStateException {
+    Objects.requireNonNull(session);
+
+    String report = report(session.getImage(imageName));
+    if (output != null) {
+      try {
+        output.append(report);
+      } catch (IOException e) {
+        throw new IllegalStateException("cannot write to output");
+      }
+      return;
+    }
+
+    try (OutputStream file = SaveCommand.getFileOutputStream(reportPath)) {
+      file.write(report.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  @Override
+  public Optional<Set<String>> getReadNames() {
+    return Optional.of(Set.of(imageName));
+  }
+
+  @Override
+  public Optional<Set<String>> getWriteNames() {
+    return Optional.of(Set.of());
+  }
+
+  @Override
+  public Optional<Set<String>> getFileNames() {
+    // a report to the output stream is ordered against every command that may use it
+    return reportPath == null ? Optional.empty() : Optional.of(Set.of(reportPath));
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "<StatsCommand imageName=\"%s\" reportPath=\"%s\">",
+        imageName, reportPath == null ? "" : reportPath);
+  }
+
+  /**
+   * This class supplies stats commands. Given only an image name, the report goes to the
+   * supplier's output, which is usually the output of the controller that parses the command;
+   * given an image name and a path, it goes to that file.
+   */
+  public static class Supplier implements CommandSupplier {
+    private final Appendable output;
+
+    /**
+     * Construct a new stats command supplier.
+     *
+     * @param output the output reports without a file path are appended to, or null if they need
+     *     a file path.
+     */
+    public Supplier(Appendable output) {
+      this.output = output;
+    }
+
+    @Override
+    public Command get(String... args) throws IllegalArgumentException {
+      if (args.length == 1) {
+        if (output == null) {
+          throw new IllegalArgumentException("no output for the report");
+        }
+        return new StatsCommand(args[0], output);
+      } else if (args.length == 2) {
+        return new StatsCommand(args[0], args[1]);
+      }
+      throw new IllegalArgumentException("invalid number of arguments");
+    }
+  }
+}
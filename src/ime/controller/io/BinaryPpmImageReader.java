@@ -0,0 +1,163 @@
+package ime.controller.io;
+
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+
+import static ime.util.Colors.fromRgb;
+
+/**
+ * This class implements image reading for the binary (P6) PPM format. Files are memory-mapped
+ * through their FileChannel, and other streams are read into memory once. Either way, the samples
+ * are decoded a row at a time straight into packed pixels, without creating an object per value.
+ */
+public class BinaryPpmImageReader implements ImageReader {
+  @Override
+  public ReadOnlyImage read(InputStream input) throws IllegalArgumentException {
+    Objects.requireNonNull(input);
+
+    try {
+      if (input instanceof FileInputStream) {
+        FileChannel channel = ((FileInputStream) input).getChannel();
+        long position = channel.position();
+        ByteBuffer buffer =
+            channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position);
+        return read(buffer);
+      } else {
+        return read(ByteBuffer.wrap(input.readAllBytes()));
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("input could not be read");
+    }
+  }
+
+  /**
+   * Decode a whole P6 file from the buffer.
+   *
+   * @param buffer the contents of the file.
+   * @return the image.
+   * @throws IllegalArgumentException if the contents are not a valid P6 file.
+   */
+  private static ReadOnlyImage read(ByteBuffer buffer) throws IllegalArgumentException {
+    if (buffer.remaining() < 2 || buffer.get() != 'P' || buffer.get() != '6') {
+      throw new IllegalArgumentException("invalid PPM file: binary file should begin with P6");
+    }
+
+    try {
+      int width = readHeaderValue(buffer);
+      int height = readHeaderValue(buffer);
+      int maxValue = readHeaderValue(buffer);
+      if (width <= 0 || height <= 0 || maxValue <= 0 || maxValue > 65535) {
+        throw new IllegalArgumentException("invalid PPM header");
+      }
+      // exactly one whitespace byte separates the header from the samples
+      if (!isWhitespace(buffer.get())) {
+        throw new IllegalArgumentException("invalid PPM header");
+      }
+
+      int bytesPerSample = maxValue < 256 ? 1 : 2;
+      int rowBytes = 3 * bytesPerSample * width;
+      if ((long) rowBytes * height > buffer.remaining()) {
+        throw new IllegalArgumentException("missing values");
+      }
+
+      IReadOnlyImageBuilder image = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+      byte[] samples = new byte[rowBytes];
+      int[] row = new int[width];
+      for (int y = 0; y < height; y++) {
+        buffer.get(samples, 0, rowBytes);
+        if (bytesPerSample == 1 && maxValue == 255) {
+          for (int x = 0, k = 0; x < width; x++, k += 3) {
+            row[x] = fromRgb(samples[k] & 0xFF, samples[k + 1] & 0xFF, samples[k + 2] & 0xFF);
+          }
+        } else {
+          for (int x = 0, k = 0; x < width; x++, k += 3 * bytesPerSample) {
+            row[x] =
+                fromRgb(
+                    scale(samples, k, bytesPerSample, maxValue),
+                    scale(samples, k + bytesPerSample, bytesPerSample, maxValue),
+                    scale(samples, k + 2 * bytesPerSample, bytesPerSample, maxValue));
+          }
+        }
+        image.setRow(y, row, 0);
+      }
+
+      return image.build();
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("missing values");
+    }
+  }
+
+  /**
+   * Read one sample and scale it from the range 0 to maxValue to the range 0 to 255. Two byte
+   * samples are stored most significant byte first.
+   *
+   * @param samples the row of samples.
+   * @param index the index of the sample's first byte.
+   * @param bytesPerSample the number of bytes per sample.
+   * @param maxValue the maximum sample value.
+   * @return the 8-bit channel value.
+   */
+  private static int scale(byte[] samples, int index, int bytesPerSample, int maxValue) {
+    int value = samples[index] & 0xFF;
+    if (bytesPerSample == 2) {
+      value = (value << 8) | (samples[index + 1] & 0xFF);
+    }
+    return Math.min(255, (value * 255 + maxValue / 2) / maxValue);
+  }
+
+  /**
+   * Read the next decimal value of the header, skipping whitespace and comments before it.
+   *
+   * @param buffer the contents of the file.
+   * @return the value.
+   * @throws IllegalArgumentException if the next token is not a number.
+   */
+  private static int readHeaderValue(ByteBuffer buffer) throws IllegalArgumentException {
+    byte next = buffer.get();
+    while (isWhitespace(next) || next == '#') {
+      if (next == '#') {
+        while (next != '\n' && next != '\r') {
+          next = buffer.get();
+        }
+      }
+      next = buffer.get();
+    }
+
+    if (next < '0' || next > '9') {
+      throw new IllegalArgumentException("invalid PPM header");
+    }
+
+    int value = 0;
+    while (next >= '0' && next <= '9') {
+      value = 10 * value + (next - '0');
+      if (value > (1 << 24)) {
+        throw new IllegalArgumentException("invalid PPM header");
+      }
+      next = buffer.get();
+    }
+
+    // leave the whitespace that ends the value to the caller
+    buffer.position(buffer.position() - 1);
+    return value;
+  }
+
+  /**
+   * Check if the byte is PPM whitespace.
+   *
+   * @param value the byte.
+   * @return true if the byte is whitespace, false otherwise.
+   */
+  static boolean isWhitespace(byte value) {
+    return value == ' ' || value == '\t' || value == '\n' || value == '\r' || value == 0x0B
+        || value == '\f';
+  }
+}
@@ -0,0 +1,83 @@
+package ime.controller.io;
+
+import ime.model.image.ReadOnlyImage;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * This class implements image writing for the binary (P6) PPM format, with one byte per sample.
+ * Rows of packed pixels are encoded into a reusable buffer, which is written through the file's
+ * FileChannel when writing to a file, or in bulk to any other stream. The file is not mapped, since
+ * a channel opened for writing only cannot be mapped.
+ */
+public class BinaryPpmImageWriter implements ImageWriter {
+  /** The number of bytes encoded before they are written out. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  @Override
+  public void write(OutputStream output, ReadOnlyImage image) throws IllegalArgumentException {
+    Objects.requireNonNull(output);
+    Objects.requireNonNull(image);
+
+    int width = image.getWidth();
+    int height = image.getHeight();
+    byte[] header =
+        String.format("P6\n# Made by IME\n%d %d\n255\n", width, height)
+            .getBytes(StandardCharsets.US_ASCII);
+
+    FileChannel channel =
+        output instanceof FileOutputStream ? ((FileOutputStream) output).getChannel() : null;
+    byte[] buffer = new byte[Math.max(BUFFER_SIZE, Math.max(header.length, 3 * width))];
+
+    try {
+      System.arraycopy(header, 0, buffer, 0, header.length);
+      int length = header.length;
+      int[] row = new int[width];
+      for (int y = 0; y < height; y++) {
+        if (buffer.length - length < 3 * width) {
+          flush(buffer, length, channel, output);
+          length = 0;
+        }
+        image.copyRow(y, row, 0);
+        for (int pixel : row) {
+          buffer[length] = (byte) (pixel >> 16);
+          buffer[length + 1] = (byte) (pixel >> 8);
+          buffer[length + 2] = (byte) pixel;
+          length += 3;
+        }
+      }
+      flush(buffer, length, channel, output);
+      output.close();
+    } catch (IOException e) {
+      // could not write to the output stream
+      throw new IllegalArgumentException("image could not be written");
+    }
+  }
+
+  /**
+   * Write out the first bytes of the buffer.
+   *
+   * @param buffer the buffer being filled.
+   * @param length the number of bytes in the buffer.
+   * @param channel the file channel, or null to write to the output stream.
+   * @param output the output stream.
+   * @throws IOException if the bytes could not be written.
+   */
+  private static void flush(byte[] buffer, int length, FileChannel channel, OutputStream output)
+      throws IOException {
+    if (channel != null) {
+      ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    } else {
+      output.write(buffer, 0, length);
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package ime.controller.io;
+
+import ime.model.image.ReadOnlyImage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * This class implements high-throughput image writing for the plain (P3) PPM format. Rows of
+ * pixels are copied out of the image in bulk, their values are formatted into a reusable byte
+ * buffer from a table of digits, and the buffer is written to the output stream when it fills up.
+ * Values are separated by spaces, with as many on a line as fit in the 70 character limit of the
+ * format.
+ */
+public class BufferedPpmImageWriter implements ImageWriter {
+  /** The maximum number of characters on a line of a PPM file. */
+  private static final int LINE_LENGTH = 70;
+
+  /** The number of bytes formatted before they are written out. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The ASCII digits of every channel value. */
+  private static final byte[][] DIGITS = new byte[256][];
+
+  static {
+    for (int value = 0; value < DIGITS.length; value++) {
+      DIGITS[value] = Integer.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private int length;
+  private int column;
+
+  @Override
+  public void write(OutputStream output, ReadOnlyImage image) throws IllegalArgumentException {
+    Objects.requireNonNull(output);
+    Objects.requireNonNull(image);
+
+    int width = image.getWidth();
+    int height = image.getHeight();
+    length = 0;
+    column = 0;
+
+    try {
+      byte[] header =
+          String.format("P3\n# Made by IME\n%d %d\n255\n", width, height)
+              .getBytes(StandardCharsets.US_ASCII);
+      output.write(header);
+
+      int[] row = new int[width];
+      for (int y = 0; y < height; y++) {
+        image.copyRow(y, row, 0);
+        for (int pixel : row) {
+          append(output, (pixel >> 16) & 0xFF);
+          append(output, (pixel >> 8) & 0xFF);
+          append(output, pixel & 0xFF);
+        }
+      }
+      reserve(output, 1);
+      buffer[length++] = '\n';
+      output.write(buffer, 0, length);
+      output.close();
+    } catch (IOException e) {
+      // could not write to the output stream
+      throw new IllegalArgumentException("image could not be written");
+    }
+  }
+
+  /**
+   * Write out the buffer if fewer than the given number of bytes are left in it.
+   *
+   * @param output the output stream.
+   * @param bytes the number of bytes about to be added.
+   * @throws IOException if the buffer could not be written.
+   */
+  private void reserve(OutputStream output, int bytes) throws IOException {
+    if (length > buffer.length - bytes) {
+      output.write(buffer, 0, length);
+      length = 0;
+    }
+  }
+
+  /**
+   * Append a value to the buffer, starting a new line first if it would not fit on the current
+   * one.
+   *
+   * @param output the output stream, written to when the buffer fills up.
+   * @param value the channel value.
+   * @throws IOException if the buffer could not be written.
+   */
+  private void append(OutputStream output, int value) throws IOException {
+    byte[] digits = DIGITS[value];
+    // a separator and at most 3 digits
+    reserve(output, 1 + digits.length);
+    if (column > 0) {
+      if (column + 1 + digits.length > LINE_LENGTH) {
+        buffer[length++] = '\n';
+        column = 0;
+      } else {
+        buffer[length++] = ' ';
+        column++;
+      }
+    }
+    for (byte digit : digits) {
+      buffer[length++] = digit;
+    }
+    column += digits.length;
+  }
+}
@@ -1,76 +1,240 @@
 package ime.controller.io;
 
-import ime.model.color.ColorImpl;
 import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
 import ime.model.image.ReadOnlyImage;
-import ime.model.image.ReadOnlyImageImpl;
 
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Objects;
-import java.util.Scanner;
 
-/** This class implements image reading for the PPM format. */
+import static ime.util.Colors.clamp;
+import static ime.util.Colors.fromRgb;
+
+/**
+ * This class implements image reading for the PPM format. The magic number of the input decides
+ * whether it is read as a plain (P3) file, or handed to {@link BinaryPpmImageReader} as a binary
+ * (P6) file. Plain files are streamed through a fixed-size buffer and decoded a row at a time, so
+ * apart from the image itself the reader uses a constant amount of memory.
+ */
 public class PpmImageReader implements ImageReader {
   /**
-   * Read the input stream line-by-line, and return a string of the contents. This method throws
-   * away comment lines.
+   * Check if the input starts with the binary PPM magic number, without consuming it. File streams
+   * are peeked at through their channel, and other streams must support mark and reset.
    *
    * @param input the input stream.
-   * @return the contents.
+   * @return true if the input is a P6 file, false otherwise.
+   * @throws IllegalArgumentException if the input could not be read.
    */
-  private static String getInputStreamContents(InputStream input) {
-    Scanner scanner = new Scanner(input);
-    StringBuilder builder = new StringBuilder();
-    while (scanner.hasNextLine()) {
-      String line = scanner.nextLine();
-      if (line.charAt(0) != '#') {
-        builder.append(line).append(System.lineSeparator());
+  private static boolean isBinary(InputStream input) throws IllegalArgumentException {
+    byte[] magic = new byte[2];
+    try {
+      if (input instanceof FileInputStream) {
+        FileChannel channel = ((FileInputStream) input).getChannel();
+        ByteBuffer buffer = ByteBuffer.wrap(magic);
+        long position = channel.position();
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {
+          // keep reading until both bytes have been read or the file ends
+        }
+      } else {
+        input.mark(magic.length);
+        input.readNBytes(magic, 0, magic.length);
+        input.reset();
       }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("input could not be read");
     }
-    return builder.toString();
+    return magic[0] == 'P' && magic[1] == '6';
   }
 
   @Override
   public ReadOnlyImage read(InputStream input) throws IllegalArgumentException {
     Objects.requireNonNull(input);
 
-    String contents = getInputStreamContents(input);
-    String[] values = contents.split("\\s+");
+    if (!(input instanceof FileInputStream) && !input.markSupported()) {
+      input = new BufferedInputStream(input);
+    }
+    if (isBinary(input)) {
+      return new BinaryPpmImageReader().read(input);
+    }
+
+    Tokenizer tokens = new Tokenizer(input);
 
     // check if reading valid PPM file
-    if (values.length < 4 || !values[0].equals("P3")) {
+    if (!tokens.nextIsMagic('P', '3')) {
       throw new IllegalArgumentException("invalid PPM file: plain RAW file should begin with P3");
     }
 
-    int width = Integer.parseInt(values[1]);
-    int height = Integer.parseInt(values[2]);
-    IReadOnlyImageBuilder image = new ReadOnlyImageImpl.ReadOnlyImageBuilder(height, width);
-    int numPixels = 3 * width * height;
-    if (values.length - 4 != numPixels) {
-      throw new IllegalArgumentException("missing values");
+    int width = tokens.nextInt();
+    int height = tokens.nextInt();
+    // the maximum value is not used, values are clamped to 0-255 instead
+    tokens.nextInt();
+    if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE / 3) {
+      throw new IllegalArgumentException("invalid PPM header");
     }
 
-    int index = 4;
-    try {
-      for (int y = 0; y < height; y++) {
-        for (int x = 0; x < width; x++) {
-          if (index == values.length) {
-            break;
-          }
-
-          int r = Integer.parseInt(values[index]);
-          int g = Integer.parseInt(values[index + 1]);
-          int b = Integer.parseInt(values[index + 2]);
-          image.setPixel(y, x, new ColorImpl(r, g, b));
-          index += 3;
-        }
+    IReadOnlyImageBuilder image = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        int r = clamp(tokens.nextInt());
+        int g = clamp(tokens.nextInt());
+        int b = clamp(tokens.nextInt());
+        row[x] = fromRgb(r, g, b);
       }
-    } catch (NumberFormatException e) {
-      // values were malformed
-      throw new IllegalArgumentException(e);
+      image.setRow(y, row, 0);
+    }
+
+    if (tokens.hasNext()) {
+      throw new IllegalArgumentException("too many values");
     }
 
     // return the constructed image
     return image.build();
   }
+
+  /**
+   * This class reads the whitespace-separated tokens of a plain PPM file through a fixed-size byte
+   * buffer, parsing integers directly from the bytes. A '#' starts a comment that runs to the end
+   * of its line, wherever it appears.
+   */
+  private static final class Tokenizer {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream input;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    /**
+     * Construct a new tokenizer over the input stream.
+     *
+     * @param input the input stream.
+     */
+    private Tokenizer(InputStream input) {
+      this.input = input;
+      this.buffer = new byte[BUFFER_SIZE];
+      this.position = 0;
+      this.limit = 0;
+    }
+
+    /**
+     * Get the next byte of the input without consuming it, refilling the buffer if needed.
+     *
+     * @return the byte, or -1 at the end of the input.
+     * @throws IllegalArgumentException if the input could not be read.
+     */
+    private int peek() throws IllegalArgumentException {
+      if (position == limit) {
+        try {
+          limit = input.read(buffer, 0, buffer.length);
+        } catch (IOException e) {
+          throw new IllegalArgumentException("input could not be read");
+        }
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          return -1;
+        }
+      }
+      return buffer[position];
+    }
+
+    /**
+     * Skip whitespace and comments.
+     *
+     * @return the first byte of the next token without consuming it, or -1 at the end of the
+     *     input.
+     */
+    private int skipSeparators() {
+      int next = peek();
+      while (next != -1) {
+        if (next == '#') {
+          while (next != -1 && next != '\n' && next != '\r') {
+            position++;
+            next = peek();
+          }
+        } else if (BinaryPpmImageReader.isWhitespace((byte) next)) {
+          position++;
+          next = peek();
+        } else {
+          break;
+        }
+      }
+      return next;
+    }
+
+    /**
+     * Check if there are any tokens left.
+     *
+     * @return true if another token follows, false otherwise.
+     */
+    private boolean hasNext() {
+      return skipSeparators() != -1;
+    }
+
+    /**
+     * Consume the next token, and check that it is the given two-character magic number.
+     *
+     * @param first the first character.
+     * @param second the second character.
+     * @return true if the token is the magic number, false otherwise.
+     */
+    private boolean nextIsMagic(char first, char second) {
+      if (skipSeparators() != first) {
+        return false;
+      }
+      position++;
+      if (peek() != second) {
+        return false;
+      }
+      position++;
+      int next = peek();
+      return next == -1 || BinaryPpmImageReader.isWhitespace((byte) next) || next == '#';
+    }
+
+    /**
+     * Consume the next token as a decimal integer.
+     *
+     * @return the integer.
+     * @throws IllegalArgumentException if there are no tokens left or the token is not an
+     *     integer.
+     */
+    private int nextInt() throws IllegalArgumentException {
+      int next = skipSeparators();
+      if (next == -1) {
+        throw new IllegalArgumentException("missing values");
+      }
+
+      boolean negative = next == '-';
+      if (next == '-' || next == '+') {
+        position++;
+        next = peek();
+      }
+
+      if (next < '0' || next > '9') {
+        throw new IllegalArgumentException("malformed value");
+      }
+
+      long value = 0;
+      while (next >= '0' && next <= '9') {
+        value = 10 * value + (next - '0');
+        if (value > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("malformed value");
+        }
+        position++;
+        next = peek();
+      }
+
+      if (next != -1 && next != '#' && !BinaryPpmImageReader.isWhitespace((byte) next)) {
+        throw new IllegalArgumentException("malformed value");
+      }
+
+      return (int) (negative ? -value : value);
+    }
+  }
 }
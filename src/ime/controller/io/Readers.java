@@ -9,16 +9,19 @@ public class Readers {
   /**
    * Get the map of readers, from their extensions.
    *
-   * @param args the collection of file extensions (such as "ppm", "jpeg", "jpg", or "png").
+   * @param args the collection of file extensions (such as "ppm", "pnm", "jpeg", "jpg", "png" or
+   *     "hwc"). Both "ppm" and "pnm" files may be plain (P3) or binary (P6).
    * @return the reader supplier map.
    */
   public static Map<String, Supplier<ImageReader>> get(String... args) {
     Map<String, Supplier<ImageReader>> readers = new HashMap<>();
     for (String arg : args) {
-      if (arg.equals("ppm")) {
-        readers.put("ppm", PpmImageReader::new);
+      if (arg.equals("ppm") || arg.equals("pnm")) {
+        readers.put(arg, PpmImageReader::new);
       } else if (arg.equals("jpeg") || arg.equals("jpg") || arg.equals("png")) {
         readers.put(arg, BufferedImageReader::new);
+      } else if (arg.equals("hwc")) {
+        readers.put(arg, WaveletImageReader::new);
       }
     }
     return readers;
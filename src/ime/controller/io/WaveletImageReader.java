@@ -0,0 +1,157 @@
+package ime.controller.io;
+
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import ime.model.operations.HaarWaveletTransform;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static ime.util.Colors.clamp;
+import static ime.util.Colors.fromRgb;
+
+/**
+ * This class implements image reading for the Haar wavelet (HWC) format written by {@link
+ * WaveletImageWriter}. The stored coefficients are placed back into zeroed channels, which are then
+ * transformed back into pixels.
+ *
+ * <p>The coefficients are stored from coarse to fine, so a reader can be limited to the first
+ * groups of them. It then stops reading the input after those groups, and the finer details are
+ * left out of the image, which gives a blurrier preview of the image for less input.
+ */
+public class WaveletImageReader implements ImageReader {
+  private final int maxGroups;
+
+  /** Construct a reader that reads every group of coefficients. */
+  public WaveletImageReader() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /**
+   * Construct a reader that reads at most the given number of groups of coefficients, from coarse
+   * to fine. Group 0 is the average of the whole image, and every later group doubles the
+   * resolution of the groups before it.
+   *
+   * @param maxGroups the number of groups to read. Must be at least 1.
+   * @throws IllegalArgumentException if the number of groups is less than 1.
+   */
+  public WaveletImageReader(int maxGroups) throws IllegalArgumentException {
+    if (maxGroups < 1) {
+      throw new IllegalArgumentException("at least one group of coefficients must be read");
+    }
+    this.maxGroups = maxGroups;
+  }
+
+  @Override
+  public ReadOnlyImage read(InputStream input) throws IllegalArgumentException {
+    Objects.requireNonNull(input);
+
+    try {
+      DataInputStream data = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+      byte[] magic = new byte[WaveletFormat.MAGIC.length];
+      data.readFully(magic);
+      if (!Arrays.equals(magic, WaveletFormat.MAGIC)) {
+        throw new IllegalArgumentException("invalid HWC file: should begin with HWC1");
+      }
+
+      int width = data.readInt();
+      int height = data.readInt();
+      double step = data.readDouble();
+      int groupCount = data.readInt();
+      if (width <= 0 || height <= 0 || width > 1 << 30 || height > 1 << 30
+          || (long) WaveletFormat.nextPowerOfTwo(width) * WaveletFormat.nextPowerOfTwo(height)
+              > Integer.MAX_VALUE - 8
+          || !(step > 0) || Double.isInfinite(step)) {
+        throw new IllegalArgumentException("invalid HWC header");
+      }
+      int paddedWidth = WaveletFormat.nextPowerOfTwo(width);
+      int paddedHeight = WaveletFormat.nextPowerOfTwo(height);
+      int[][] groups =
+          WaveletFormat.groups(HaarWaveletTransform.getLevelSizes(paddedHeight, paddedWidth));
+      if (groupCount != groups.length) {
+        throw new IllegalArgumentException("invalid HWC header");
+      }
+
+      double[][] channels = new double[3][paddedHeight * paddedWidth];
+      for (int g = 0; g < Math.min(groups.length, maxGroups); g++) {
+        int length = data.readInt();
+        if (length < 0) {
+          throw new IllegalArgumentException("invalid HWC file: corrupt coefficients");
+        }
+        WaveletFormat.Decoder decoder =
+            new WaveletFormat.Decoder(WaveletFormat.inflate(data.readNBytes(length)));
+        readGroup(decoder, groups[g], paddedWidth, step, channels);
+      }
+
+      new HaarWaveletTransform().inverse(paddedHeight, paddedWidth, channels);
+      return combine(channels, paddedWidth, width, height);
+    } catch (EOFException e) {
+      throw new IllegalArgumentException("invalid HWC file: ended too early");
+    } catch (IOException e) {
+      throw new IllegalArgumentException("input could not be read");
+    }
+  }
+
+  /**
+   * Place the coefficients of one group of every channel.
+   *
+   * @param decoder the decoder of the group's bytes.
+   * @param group the region of the group.
+   * @param stride the number of columns of every channel.
+   * @param step the quantization step.
+   * @param channels the channels.
+   * @throws IllegalArgumentException if the group is not valid.
+   */
+  private static void readGroup(
+      WaveletFormat.Decoder decoder, int[] group, int stride, double step, double[][] channels)
+      throws IllegalArgumentException {
+    long size = WaveletFormat.size(group);
+    for (double[] channel : channels) {
+      long count = decoder.nextVarint();
+      if (count > size) {
+        throw new IllegalArgumentException("invalid HWC file: corrupt coefficients");
+      }
+      long index = -1;
+      for (long k = 0; k < count; k++) {
+        index += decoder.nextVarint() + 1;
+        if (index < 0 || index >= size) {
+          throw new IllegalArgumentException("invalid HWC file: corrupt coefficients");
+        }
+        channel[WaveletFormat.offset(group, (int) index, stride)] =
+            WaveletFormat.unzigzag(decoder.nextVarint()) * step;
+      }
+    }
+  }
+
+  /**
+   * Round the top-left part of the channels into an image.
+   *
+   * @param channels the red, green and blue channels.
+   * @param stride the number of columns of every channel.
+   * @param width the width of the image.
+   * @param height the height of the image.
+   * @return the image.
+   */
+  private static ReadOnlyImage combine(double[][] channels, int stride, int width, int height) {
+    IReadOnlyImageBuilder image = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      int offset = y * stride;
+      for (int x = 0; x < width; x++) {
+        row[x] =
+            fromRgb(
+                clamp((int) Math.round(channels[0][offset + x])),
+                clamp((int) Math.round(channels[1][offset + x])),
+                clamp((int) Math.round(channels[2][offset + x])));
+      }
+      image.setRow(y, row, 0);
+    }
+    return image.build();
+  }
+}
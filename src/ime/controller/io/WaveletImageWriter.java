@@ -0,0 +1,133 @@
+package ime.controller.io;
+
+import ime.model.image.ReadOnlyImage;
+import ime.model.operations.HaarWaveletCompression;
+import ime.model.operations.HaarWaveletTransform;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * This class implements image writing for the Haar wavelet (HWC) format. The image is transformed
+ * like the rectangular layout of {@link HaarWaveletCompression}, the given percentage of its
+ * coefficients is discarded, and the rest are quantized by a step. Only the non-zero quantized
+ * coefficients are stored, as the gap from the previous one and the value, in variable-length
+ * integers that are then deflated. The coefficients are stored from coarse to fine in groups, as
+ * described in {@link WaveletFormat}, so that {@link WaveletImageReader} can stop after the first
+ * groups.
+ *
+ * <p>The file starts with the magic number "HWC1", followed by the width and the height as ints,
+ * the quantization step as a double, and the number of groups as an int, all big-endian. Every group
+ * follows as the int length of its deflated bytes and the bytes. Before deflating, a group holds,
+ * for each of the red, green and blue channels, the number of non-zero coefficients and then a
+ * gap and a zigzag-encoded value for each of them.
+ *
+ * <p>The more coefficients are discarded, and the larger the step, the smaller the file. By
+ * default nothing is discarded and the step is {@link #LOSSLESS_STEP}, so the file reads back as
+ * exactly the image that was written. Images that were already compressed also make smaller files
+ * with nothing discarded, since most of their zeroed coefficients quantize back to zero.
+ */
+public class WaveletImageWriter implements ImageWriter {
+  /**
+   * A quantization step fine enough that the rounding of every coefficient moves no pixel by half
+   * a level, so that an image with nothing discarded reads back exactly.
+   */
+  public static final double LOSSLESS_STEP = 0.01;
+
+  private final HaarWaveletCompression compression;
+  private final double step;
+
+  /**
+   * Construct a writer that discards no coefficients, and quantizes them by the lossless step.
+   */
+  public WaveletImageWriter() {
+    this(0);
+  }
+
+  /**
+   * Construct a writer that discards the given percentage of coefficients, and quantizes the rest
+   * by the lossless step.
+   *
+   * @param percentage the compression percentage. Must be within the range [0, 100].
+   * @throws IllegalArgumentException if the percentage is not valid.
+   */
+  public WaveletImageWriter(int percentage) throws IllegalArgumentException {
+    this(percentage, LOSSLESS_STEP);
+  }
+
+  /**
+   * Construct a writer that discards the given percentage of coefficients, and quantizes the rest
+   * by the given step. Larger steps make smaller files, and lose more detail.
+   *
+   * @param percentage the compression percentage. Must be within the range [0, 100].
+   * @param step the quantization step. Must be positive and finite.
+   * @throws IllegalArgumentException if the percentage or step is not valid.
+   */
+  public WaveletImageWriter(int percentage, double step) throws IllegalArgumentException {
+    if (!(step > 0) || Double.isInfinite(step)) {
+      throw new IllegalArgumentException("quantization step must be positive");
+    }
+    this.compression =
+        new HaarWaveletCompression(percentage, HaarWaveletCompression.Layout.RECTANGULAR);
+    this.step = step;
+  }
+
+  @Override
+  public void write(OutputStream output, ReadOnlyImage image) throws IllegalArgumentException {
+    Objects.requireNonNull(output);
+    Objects.requireNonNull(image);
+
+    double[][] channels = compression.getCoefficients(image);
+    int paddedWidth = WaveletFormat.nextPowerOfTwo(image.getWidth());
+    int paddedHeight = channels[0].length / paddedWidth;
+    int[][] groups =
+        WaveletFormat.groups(HaarWaveletTransform.getLevelSizes(paddedHeight, paddedWidth));
+
+    try {
+      DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+      data.write(WaveletFormat.MAGIC);
+      data.writeInt(image.getWidth());
+      data.writeInt(image.getHeight());
+      data.writeDouble(step);
+      data.writeInt(groups.length);
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      long[] values = new long[WaveletFormat.size(groups[groups.length - 1])];
+      for (int[] group : groups) {
+        bytes.reset();
+        int size = WaveletFormat.size(group);
+        for (double[] channel : channels) {
+          int count = 0;
+          for (int index = 0; index < size; index++) {
+            values[index] =
+                Math.round(channel[WaveletFormat.offset(group, index, paddedWidth)] / step);
+            if (values[index] != 0) {
+              count++;
+            }
+          }
+          WaveletFormat.writeVarint(bytes, count);
+          int previous = -1;
+          for (int index = 0; index < size; index++) {
+            if (values[index] != 0) {
+              WaveletFormat.writeVarint(bytes, index - previous - 1);
+              WaveletFormat.writeVarint(bytes, WaveletFormat.zigzag(values[index]));
+              previous = index;
+            }
+          }
+        }
+        byte[] deflated = WaveletFormat.deflate(bytes.toByteArray());
+        data.writeInt(deflated.length);
+        data.write(deflated);
+      }
+      data.flush();
+      output.close();
+    } catch (IOException e) {
+      // could not write to the output stream
+      throw new IllegalArgumentException("image could not be written");
+    }
+  }
+}
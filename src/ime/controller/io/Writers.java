@@ -9,16 +9,21 @@ public class Writers {
   /**
    * Get the map of writers, from their extensions.
    *
-   * @param args the collection of file extensions (such as "ppm", "jpeg", "jpg", or "png").
+   * @param args the collection of file extensions (such as "ppm", "pnm", "jpeg", "jpg", "png" or
+   *     "hwc"). "ppm" files are written as plain (P3) files, and "pnm" files as binary (P6) files.
    * @return the writer supplier map.
    */
   public static Map<String, Supplier<ImageWriter>> get(String... args) {
     Map<String, Supplier<ImageWriter>> readers = new HashMap<>();
     for (String arg : args) {
       if (arg.equals("ppm")) {
-        readers.put("ppm", PpmImageWriter::new);
+        readers.put("ppm", BufferedPpmImageWriter::new);
+      } else if (arg.equals("pnm")) {
+        readers.put("pnm", BinaryPpmImageWriter::new);
       } else if (arg.equals("jpeg") || arg.equals("jpg") || arg.equals("png")) {
         readers.put(arg, () -> new BufferedImageWriter(arg));
+      } else if (arg.equals("hwc")) {
+        readers.put(arg, WaveletImageWriter::new);
       }
     }
     return readers;
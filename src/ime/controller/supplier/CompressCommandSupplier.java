@@ -5,20 +5,28 @@ import ime.controller.command.MapCommand;
 import ime.model.operations.ImageOperation;
 import ime.model.operations.HaarWaveletCompression;
 
+import java.util.Locale;
 import java.util.Objects;
 
-/** This class supplies compress commands. */
+/**
+ * This class supplies compress commands. An optional fourth argument picks the layout of the
+ * transform: square (the default), rectangular, or tiled.
+ */
 public class CompressCommandSupplier implements CommandSupplier {
   @Override
   public Command get(String... args) throws IllegalArgumentException {
-    if (args.length != 3) {
+    if (args.length != 3 && args.length != 4) {
       throw new IllegalArgumentException("invalid number of arguments");
     }
     Objects.requireNonNull(args[0]);
     int percentage = Integer.parseInt(args[0]);
     String inputName = args[1];
     String outputName = args[2];
-    ImageOperation operation = new HaarWaveletCompression(percentage);
+    HaarWaveletCompression.Layout layout = HaarWaveletCompression.Layout.SQUARE;
+    if (args.length == 4) {
+      layout = HaarWaveletCompression.Layout.valueOf(args[3].toUpperCase(Locale.ROOT));
+    }
+    ImageOperation operation = new HaarWaveletCompression(percentage, layout);
     return new MapCommand(inputName, outputName, operation);
   }
 }
@@ -0,0 +1,38 @@
+package ime.controller.supplier;
+
+import ime.controller.command.Command;
+import ime.controller.command.MapCommand;
+import ime.model.operations.GaussianBlur;
+import ime.model.operations.ImageOperation;
+import ime.model.operations.PreviewSplitOperation;
+
+import java.util.Objects;
+
+/**
+ * This class supplies Gaussian blur commands. The radius is limited to {@link #MAX_RADIUS}, since
+ * a script could otherwise ask for a kernel that takes far longer to apply than any image needs.
+ */
+public class GaussianBlurCommandSupplier implements CommandSupplier {
+  /** The largest radius a script can ask for. */
+  public static final int MAX_RADIUS = 1000;
+
+  @Override
+  public Command get(String... args) throws IllegalArgumentException {
+    if (args.length != 4 && !(args.length == 6 && "split".equals(args[4]))) {
+      throw new IllegalArgumentException("invalid number of arguments");
+    }
+    int radius = Integer.parseInt(Objects.requireNonNull(args[0]));
+    if (radius < 0 || radius > MAX_RADIUS) {
+      throw new IllegalArgumentException("invalid radius");
+    }
+    double sigma = Double.parseDouble(Objects.requireNonNull(args[1]));
+    String inputName = args[2];
+    String outputName = args[3];
+    ImageOperation operation = new GaussianBlur(radius, sigma);
+    if (args.length == 6) {
+      int percentage = Integer.parseInt(args[5]);
+      operation = new PreviewSplitOperation(operation, percentage);
+    }
+    return new MapCommand(inputName, outputName, operation);
+  }
+}
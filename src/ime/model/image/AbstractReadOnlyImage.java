@@ -0,0 +1,113 @@
+package ime.model.image;
+
+/**
+ * AbstractReadOnlyImage lets different ReadOnlyImage
+ * implementations share the same notion of equality.
+ * Two images are equal when they have the same height,
+ * width, and pixel values, no matter how each of them
+ * stores its pixels internally.
+ *
+ * <p>Since images never change, their statistics are computed
+ * the first time they are asked for and kept for later calls.
+ */
+public abstract class AbstractReadOnlyImage implements ReadOnlyImage {
+
+  private volatile ImageStatistics statistics;
+
+  @Override
+  public ImageStatistics getStatistics() {
+
+    // racing threads may both compute the statistics, but they compute equal values
+    ImageStatistics result = statistics;
+    if (result == null) {
+      result = ImageStatistics.of(this);
+      statistics = result;
+    }
+
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+
+    if (this == o) {
+      return true;
+    }
+
+    if (!(o instanceof AbstractReadOnlyImage)) {
+      return false;
+    }
+
+    AbstractReadOnlyImage that = (AbstractReadOnlyImage) o;
+
+    int height = getHeight();
+    int width = getWidth();
+    if ((that.getHeight() != height) || (that.getWidth() != width)) {
+      return false;
+    }
+
+    for (int i = 0; i < height; i += 1) {
+
+      for (int j = 0; j < width; j += 1) {
+
+        if (this.getPixel(i, j) != that.getPixel(i, j)) {
+          return false;
+        }
+
+      }
+
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+
+    int height = getHeight();
+    int width = getWidth();
+
+    int result = 31 * height + width;
+    for (int i = 0; i < height; i += 1) {
+
+      for (int j = 0; j < width; j += 1) {
+
+        result = 31 * result + getPixel(i, j);
+      }
+
+    }
+
+    return result;
+  }
+
+  /**
+   * Check that a rectangular region lies inside an image, and that an array
+   * of the given length can hold the region starting at the given offset.
+   *
+   * @param imageHeight  The height of the image.
+   * @param imageWidth   The width of the image.
+   * @param i            The first row of the region.
+   * @param j            The first column of the region.
+   * @param regionHeight The number of rows in the region.
+   * @param regionWidth  The number of columns in the region.
+   * @param arrayLength  The length of the array holding the region.
+   * @param offset       The index of the first pixel of the region in the array.
+   * @throws IllegalArgumentException if the region or array are invalid.
+   */
+  static void checkRegion(int imageHeight, int imageWidth, int i, int j,
+                          int regionHeight, int regionWidth, int arrayLength, int offset)
+          throws IllegalArgumentException {
+
+    if ((i < 0) || (j < 0) || (regionHeight < 0) || (regionWidth < 0)
+            || (i + regionHeight > imageHeight) || (j + regionWidth > imageWidth)) {
+
+      throw new IllegalArgumentException("Region is outside of the image!");
+    }
+
+    if ((offset < 0) || ((long) offset + (long) regionHeight * regionWidth > arrayLength)) {
+
+      throw new IllegalArgumentException("Array is too small for the region!");
+    }
+  }
+
+}
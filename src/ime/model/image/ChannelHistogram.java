@@ -0,0 +1,262 @@
+package ime.model.image;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import ime.util.Colors;
+
+/**
+ * A ChannelHistogram counts how many pixels of an image have each
+ * of the 256 values in the red, green and blue channels. All three
+ * channels are counted in a single pass over the image's rows, into
+ * plain int arrays.
+ *
+ * <p>Large images are split into at most parallelism bands of rows
+ * that are counted in parallel on the common fork-join pool. Every
+ * band counts into its own
+ * arrays, which are added together once both halves of a split are
+ * done, so the counts do not depend on the parallelism level.
+ */
+public final class ChannelHistogram {
+
+  /**
+   * The index of the red channel.
+   */
+  public static final int RED = 0;
+
+  /**
+   * The index of the green channel.
+   */
+  public static final int GREEN = 1;
+
+  /**
+   * The index of the blue channel.
+   */
+  public static final int BLUE = 2;
+
+  private static final int CHANNELS = 3;
+  private static final int VALUES = 256;
+
+  /**
+   * Bands with at most this many pixels are counted by a single
+   * task instead of being split further.
+   */
+  private static final int BAND_THRESHOLD = 1 << 16;
+
+  private final int[] counts;
+  private final int[] maxCounts;
+  private final long pixelCount;
+
+  private ChannelHistogram(int[] counts, long pixelCount) {
+
+    this.counts = counts;
+    this.pixelCount = pixelCount;
+    this.maxCounts = new int[CHANNELS];
+    for (int channel = 0; channel < CHANNELS; channel += 1) {
+
+      int start = channel * VALUES;
+      for (int value = 0; value < VALUES; value += 1) {
+
+        maxCounts[channel] = Math.max(maxCounts[channel], counts[start + value]);
+      }
+
+    }
+  }
+
+  /**
+   * Count the channel values of an image, using as many threads as
+   * there are available processors.
+   *
+   * @param image The image to count.
+   * @return histogram    The counts of every channel value.
+   */
+  public static ChannelHistogram of(ReadOnlyImage image) {
+
+    return of(image, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Count the channel values of an image, using at most the given
+   * number of threads. A parallelism level of 1 counts the whole
+   * image on the calling thread.
+   *
+   * @param image       The image to count.
+   * @param parallelism The maximum number of threads to use.
+   * @return histogram    The counts of every channel value.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public static ChannelHistogram of(ReadOnlyImage image, int parallelism)
+          throws IllegalArgumentException {
+
+    Objects.requireNonNull(image);
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism has to be at least 1!");
+    }
+
+    int height = image.getHeight();
+    int width = image.getWidth();
+
+    BandTask task = new BandTask(image, 0, height, parallelism);
+    int[] counts;
+    if ((parallelism == 1) || ((long) height * width <= BAND_THRESHOLD)) {
+
+      counts = task.countBand();
+
+    } else {
+
+      counts = ForkJoinPool.commonPool().invoke(task);
+
+    }
+
+    return new ChannelHistogram(counts, (long) height * width);
+  }
+
+  /**
+   * Get the number of pixels whose channel has the given value.
+   *
+   * @param channel The channel, one of RED, GREEN or BLUE.
+   * @param value   The channel value, from 0 to 255.
+   * @return count    The number of pixels with that value.
+   * @throws IllegalArgumentException if the channel or value is out of range.
+   */
+  public int getCount(int channel, int value) throws IllegalArgumentException {
+
+    checkChannel(channel);
+    if ((value < 0) || (value >= VALUES)) {
+      throw new IllegalArgumentException("Channel values go from 0 to 255!");
+    }
+
+    return counts[channel * VALUES + value];
+  }
+
+  /**
+   * Get a copy of the 256 counts of one channel.
+   *
+   * @param channel The channel, one of RED, GREEN or BLUE.
+   * @return counts   The number of pixels with each value.
+   * @throws IllegalArgumentException if the channel is out of range.
+   */
+  public int[] getCounts(int channel) throws IllegalArgumentException {
+
+    checkChannel(channel);
+    return Arrays.copyOfRange(counts, channel * VALUES, (channel + 1) * VALUES);
+  }
+
+  /**
+   * Get the largest count of any value of one channel.
+   *
+   * @param channel The channel, one of RED, GREEN or BLUE.
+   * @return maxCount   The count of the most frequent value.
+   * @throws IllegalArgumentException if the channel is out of range.
+   */
+  public int getMaxCount(int channel) throws IllegalArgumentException {
+
+    checkChannel(channel);
+    return maxCounts[channel];
+  }
+
+  /**
+   * Get the number of pixels that were counted.
+   *
+   * @return pixelCount   The height times the width of the image.
+   */
+  public long getPixelCount() {
+
+    return pixelCount;
+  }
+
+  private static void checkChannel(int channel) throws IllegalArgumentException {
+
+    if ((channel < 0) || (channel >= CHANNELS)) {
+      throw new IllegalArgumentException("Invalid channel: " + channel);
+    }
+  }
+
+  @Override
+  public boolean equals(Object other) {
+
+    if (this == other) {
+      return true;
+    }
+
+    if (!(other instanceof ChannelHistogram)) {
+      return false;
+    }
+
+    return Arrays.equals(counts, ((ChannelHistogram) other).counts);
+  }
+
+  @Override
+  public int hashCode() {
+
+    return Arrays.hashCode(counts);
+  }
+
+  /**
+   * Counts a band of rows of the image, splitting it in two and
+   * counting both halves in parallel while it is large and may
+   * still become more than one task.
+   */
+  private static final class BandTask extends RecursiveTask<int[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ReadOnlyImage image;
+    private final int startRow;
+    private final int endRow;
+    private final int tasks;
+
+    private BandTask(ReadOnlyImage image, int startRow, int endRow, int tasks) {
+
+      this.image = image;
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.tasks = tasks;
+    }
+
+    @Override
+    protected int[] compute() {
+
+      int rows = endRow - startRow;
+      if ((tasks < 2) || (rows < 2) || ((long) rows * image.getWidth() <= BAND_THRESHOLD)) {
+
+        return countBand();
+      }
+
+      int topTasks = tasks / 2;
+      int middleRow = startRow + (int) ((long) rows * topTasks / tasks);
+      BandTask top = new BandTask(image, startRow, middleRow, topTasks);
+      BandTask bottom = new BandTask(image, middleRow, endRow, tasks - topTasks);
+      top.fork();
+      int[] counts = bottom.compute();
+      int[] topCounts = top.join();
+      for (int k = 0; k < counts.length; k += 1) {
+
+        counts[k] += topCounts[k];
+      }
+
+      return counts;
+    }
+
+    private int[] countBand() {
+
+      int[] counts = new int[CHANNELS * VALUES];
+      int[] row = new int[image.getWidth()];
+      for (int i = startRow; i < endRow; i += 1) {
+
+        image.copyRow(i, row, 0);
+        for (int pixel : row) {
+
+          counts[Colors.redFrom(pixel)] += 1;
+          counts[VALUES + Colors.greenFrom(pixel)] += 1;
+          counts[2 * VALUES + Colors.blueFrom(pixel)] += 1;
+        }
+
+      }
+
+      return counts;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+package ime.model.image;
+
+import java.util.Objects;
+
+import ime.model.color.Color;
+import ime.model.color.ColorImpl;
+import ime.util.Colors;
+
+/**
+ * FlippedImage is a view of another image, flipped
+ * horizontally, vertically, or both. No pixels are
+ * copied: every read is mapped to the mirrored position
+ * of the source image, so flipping an image takes the
+ * same time and memory no matter how large it is.
+ *
+ * <p>Whole rows are read from the source in bulk and
+ * reversed in place when needed, so operations and
+ * writers that read an image a row at a time read a
+ * flipped image about as fast as its source. Flipping
+ * a flipped image, or a {@link MaskedImage}, flips the
+ * image underneath instead of stacking views.
+ */
+public final class FlippedImage extends AbstractReadOnlyImage implements ReadOnlyImage {
+
+  private final ReadOnlyImage source;
+  private final boolean horizontal;
+  private final boolean vertical;
+
+  private FlippedImage(ReadOnlyImage source, boolean horizontal, boolean vertical) {
+
+    this.source = source;
+    this.horizontal = horizontal;
+    this.vertical = vertical;
+  }
+
+  /**
+   * Get a view of the image flipped in the given directions.
+   *
+   * @param image      The image to flip.
+   * @param horizontal Whether to flip the columns.
+   * @param vertical   Whether to flip the rows.
+   * @return flipped    The flipped view, or the image itself if
+   *                    both flips cancel out.
+   */
+  public static ReadOnlyImage of(ReadOnlyImage image, boolean horizontal, boolean vertical) {
+
+    Objects.requireNonNull(image);
+
+    if (image instanceof MaskedImage) {
+      // masking and flipping commute, so keep the mask outermost
+      MaskedImage masked = (MaskedImage) image;
+      return MaskedImage.of(of(masked.getSource(), horizontal, vertical), masked.getMask());
+    }
+
+    if (image instanceof FlippedImage) {
+      FlippedImage flipped = (FlippedImage) image;
+      horizontal ^= flipped.horizontal;
+      vertical ^= flipped.vertical;
+      image = flipped.source;
+    }
+
+    if (!horizontal && !vertical) {
+      return image;
+    }
+
+    return new FlippedImage(image, horizontal, vertical);
+  }
+
+  @Override
+  public int getHeight() {
+
+    return source.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+
+    return source.getWidth();
+  }
+
+  @Override
+  public Color getColor(int i, int j) throws IllegalArgumentException {
+
+    int pixel = getPixel(i, j);
+
+    return new ColorImpl(Colors.redFrom(pixel), Colors.greenFrom(pixel), Colors.blueFrom(pixel));
+  }
+
+  @Override
+  public int getPixel(int i, int j) throws IllegalArgumentException {
+
+    checkRegion(getHeight(), getWidth(), i, j, 1, 1, 1, 0);
+
+    return source.getPixel(sourceRow(i), horizontal ? getWidth() - 1 - j : j);
+  }
+
+  @Override
+  public void copyRow(int i, int[] dest, int offset) throws IllegalArgumentException {
+
+    checkRegion(getHeight(), getWidth(), i, 0, 1, getWidth(), dest.length, offset);
+
+    source.copyRow(sourceRow(i), dest, offset);
+    if (horizontal) {
+      reverse(dest, offset, offset + getWidth() - 1);
+    }
+  }
+
+  @Override
+  public void copyRegion(int i, int j, int regionHeight, int regionWidth, int[] dest, int offset)
+          throws IllegalArgumentException {
+
+    checkRegion(getHeight(), getWidth(), i, j, regionHeight, regionWidth, dest.length, offset);
+
+    int sourceColumn = horizontal ? getWidth() - j - regionWidth : j;
+    for (int y = 0; y < regionHeight; y += 1) {
+
+      int start = offset + y * regionWidth;
+      source.copyRegion(sourceRow(i + y), sourceColumn, 1, regionWidth, dest, start);
+      if (horizontal) {
+        reverse(dest, start, start + regionWidth - 1);
+      }
+
+    }
+  }
+
+  private int sourceRow(int i) {
+
+    return vertical ? getHeight() - 1 - i : i;
+  }
+
+  private static void reverse(int[] pixels, int left, int right) {
+
+    for (; left < right; left += 1, right -= 1) {
+
+      int pixel = pixels[left];
+      pixels[left] = pixels[right];
+      pixels[right] = pixel;
+    }
+  }
+
+}
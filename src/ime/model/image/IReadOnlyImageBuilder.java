@@ -23,14 +23,39 @@ public interface IReadOnlyImageBuilder {
   IReadOnlyImageBuilder setPixel(int i, int j, Color color) throws IllegalArgumentException;
 
   /**
-   * Get this builder's pixel of specified value.
+   * Get this builder's pixel data as an integer at the specified position.
    *
    * @param i     the ith row of the pixel.
    * @param j     the jth column of the pixel.
+   * @return the pixel as a 24-bit RGB value.
    * @throws IllegalArgumentException if position are invalid for this builder.
    */
   int getPixel(int i, int j) throws IllegalArgumentException;
 
+  /**
+   * Set a whole row of this builder's pixels from the given array of 24-bit RGB values. Any bits
+   * above the lowest 24 bits of each value are ignored.
+   *
+   * @param i      the row to set.
+   * @param src    the array holding the new pixel values.
+   * @param offset the index of src that holds the first pixel of the row.
+   * @return this builder.
+   * @throws IllegalArgumentException if the row is invalid for this builder, or if src is too
+   *                                  small.
+   */
+  IReadOnlyImageBuilder setRow(int i, int[] src, int offset) throws IllegalArgumentException;
+
+  /**
+   * Copy a whole row of this builder's pixels into the given array as 24-bit RGB values.
+   *
+   * @param i      the row to copy.
+   * @param dest   the array to copy the row into.
+   * @param offset the index of dest at which the first pixel of the row is written.
+   * @throws IllegalArgumentException if the row is invalid for this builder, if dest is too small,
+   *                                  or if a pixel of the row has not been set.
+   */
+  void copyRow(int i, int[] dest, int offset) throws IllegalArgumentException;
+
   /**
    * Complete building the ReadOnlyImage object.
    *
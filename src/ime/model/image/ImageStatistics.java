@@ -0,0 +1,164 @@
+package ime.model.image;
+
+import java.util.Objects;
+
+/**
+ * ImageStatistics holds values derived from the pixels of an
+ * image: the histogram of every channel, and each channel's most
+ * frequent value, minimum, maximum and mean. Everything is found
+ * from a single ChannelHistogram, so computing the statistics costs
+ * one pass over the image.
+ *
+ * <p>Images are immutable, so the statistics of an image never
+ * change. AbstractReadOnlyImage computes them on first use and
+ * keeps them, so every later caller gets them for free.
+ */
+public final class ImageStatistics {
+
+  private static final int CHANNELS = 3;
+  private static final int VALUES = 256;
+
+  private final ChannelHistogram histogram;
+  private final int[] peaks;
+  private final int[] minimums;
+  private final int[] maximums;
+  private final double[] means;
+
+  /**
+   * Derive the statistics of an image from its histogram.
+   *
+   * @param histogram The counts of every channel value of the image.
+   */
+  public ImageStatistics(ChannelHistogram histogram) {
+
+    this.histogram = Objects.requireNonNull(histogram);
+    this.peaks = new int[CHANNELS];
+    this.minimums = new int[CHANNELS];
+    this.maximums = new int[CHANNELS];
+    this.means = new double[CHANNELS];
+
+    for (int channel = 0; channel < CHANNELS; channel += 1) {
+
+      int[] counts = histogram.getCounts(channel);
+      int minimum = -1;
+      int maximum = 0;
+      long sum = 0;
+      for (int value = 0; value < VALUES; value += 1) {
+
+        if (counts[value] == 0) {
+          continue;
+        }
+
+        if (minimum == -1) {
+          minimum = value;
+        }
+        maximum = value;
+        sum += (long) counts[value] * value;
+
+        if (counts[value] > counts[peaks[channel]]) {
+          peaks[channel] = value;
+        }
+
+      }
+
+      minimums[channel] = Math.max(minimum, 0);
+      maximums[channel] = maximum;
+      means[channel] = (histogram.getPixelCount() == 0)
+              ? 0 : (double) sum / histogram.getPixelCount();
+    }
+  }
+
+  /**
+   * Count the pixels of an image and derive its statistics.
+   *
+   * @param image The image.
+   * @return statistics   The statistics of the image.
+   */
+  public static ImageStatistics of(ReadOnlyImage image) {
+
+    return new ImageStatistics(ChannelHistogram.of(image));
+  }
+
+  /**
+   * Get the histogram the statistics were derived from.
+   *
+   * @return histogram    The counts of every channel value.
+   */
+  public ChannelHistogram getHistogram() {
+
+    return histogram;
+  }
+
+  /**
+   * Get the most frequent value of a channel. When several values
+   * are equally frequent, the smallest of them is returned.
+   *
+   * @param channel The channel, one of ChannelHistogram.RED, GREEN or BLUE.
+   * @return peak   The most frequent value.
+   * @throws IllegalArgumentException if the channel is out of range.
+   */
+  public int getPeak(int channel) throws IllegalArgumentException {
+
+    return peaks[checkChannel(channel)];
+  }
+
+  /**
+   * Get the smallest value of a channel.
+   *
+   * @param channel The channel, one of ChannelHistogram.RED, GREEN or BLUE.
+   * @return minimum    The smallest value, or 0 for an empty image.
+   * @throws IllegalArgumentException if the channel is out of range.
+   */
+  public int getMin(int channel) throws IllegalArgumentException {
+
+    return minimums[checkChannel(channel)];
+  }
+
+  /**
+   * Get the largest value of a channel.
+   *
+   * @param channel The channel, one of ChannelHistogram.RED, GREEN or BLUE.
+   * @return maximum    The largest value, or 0 for an empty image.
+   * @throws IllegalArgumentException if the channel is out of range.
+   */
+  public int getMax(int channel) throws IllegalArgumentException {
+
+    return maximums[checkChannel(channel)];
+  }
+
+  /**
+   * Get the mean value of a channel.
+   *
+   * @param channel The channel, one of ChannelHistogram.RED, GREEN or BLUE.
+   * @return mean   The mean value, or 0 for an empty image.
+   * @throws IllegalArgumentException if the channel is out of range.
+   */
+  public double getMean(int channel) throws IllegalArgumentException {
+
+    return means[checkChannel(channel)];
+  }
+
+  private static int checkChannel(int channel) throws IllegalArgumentException {
+
+    if ((channel < 0) || (channel >= CHANNELS)) {
+      throw new IllegalArgumentException("Invalid channel: " + channel);
+    }
+
+    return channel;
+  }
+
+  @Override
+  public String toString() {
+
+    return String.format(
+            "<ImageStatistics pixels=%d red=\"%s\" green=\"%s\" blue=\"%s\">",
+            histogram.getPixelCount(), describe(ChannelHistogram.RED),
+            describe(ChannelHistogram.GREEN), describe(ChannelHistogram.BLUE));
+  }
+
+  private String describe(int channel) {
+
+    return String.format("min=%d max=%d mean=%.3f peak=%d",
+            minimums[channel], maximums[channel], means[channel], peaks[channel]);
+  }
+}
@@ -0,0 +1,130 @@
+package ime.model.image;
+
+import java.util.Objects;
+
+import ime.model.color.Color;
+import ime.model.color.ColorImpl;
+import ime.util.Colors;
+
+/**
+ * MaskedImage is a view of another image that keeps
+ * only some bits of every pixel, such as the red, green
+ * or blue channel, and reads the rest as 0. No pixels
+ * are copied: the mask is applied as pixels are read, so
+ * extracting a channel takes the same time and memory no
+ * matter how large the image is.
+ *
+ * <p>Whole rows are read from the source in bulk and
+ * masked in place. Masking a masked image combines the
+ * two masks instead of stacking views.
+ */
+public final class MaskedImage extends AbstractReadOnlyImage implements ReadOnlyImage {
+
+  private final ReadOnlyImage source;
+  private final int mask;
+
+  private MaskedImage(ReadOnlyImage source, int mask) {
+
+    this.source = source;
+    this.mask = mask;
+  }
+
+  /**
+   * Get a view of the image that keeps only the given bits
+   * of every pixel.
+   *
+   * @param image The image to mask.
+   * @param mask  The bits of the packed RGB pixels to keep.
+   * @return masked   The masked view, or the image itself if
+   *                  the mask keeps every bit.
+   */
+  public static ReadOnlyImage of(ReadOnlyImage image, int mask) {
+
+    Objects.requireNonNull(image);
+    mask &= 0xFFFFFF;
+
+    if (image instanceof MaskedImage) {
+      MaskedImage masked = (MaskedImage) image;
+      mask &= masked.mask;
+      image = masked.source;
+    }
+
+    if (mask == 0xFFFFFF) {
+      return image;
+    }
+
+    return new MaskedImage(image, mask);
+  }
+
+  /**
+   * Get the image this view masks.
+   *
+   * @return source   The unmasked image.
+   */
+  ReadOnlyImage getSource() {
+
+    return source;
+  }
+
+  /**
+   * Get the bits of every pixel this view keeps.
+   *
+   * @return mask   The mask of the packed RGB pixels.
+   */
+  int getMask() {
+
+    return mask;
+  }
+
+  @Override
+  public int getHeight() {
+
+    return source.getHeight();
+  }
+
+  @Override
+  public int getWidth() {
+
+    return source.getWidth();
+  }
+
+  @Override
+  public Color getColor(int i, int j) throws IllegalArgumentException {
+
+    int pixel = getPixel(i, j);
+
+    return new ColorImpl(Colors.redFrom(pixel), Colors.greenFrom(pixel), Colors.blueFrom(pixel));
+  }
+
+  @Override
+  public int getPixel(int i, int j) throws IllegalArgumentException {
+
+    return source.getPixel(i, j) & mask;
+  }
+
+  @Override
+  public void copyRow(int i, int[] dest, int offset) throws IllegalArgumentException {
+
+    source.copyRow(i, dest, offset);
+
+    int end = offset + getWidth();
+    for (int k = offset; k < end; k += 1) {
+
+      dest[k] &= mask;
+    }
+  }
+
+  @Override
+  public void copyRegion(int i, int j, int regionHeight, int regionWidth, int[] dest, int offset)
+          throws IllegalArgumentException {
+
+    source.copyRegion(i, j, regionHeight, regionWidth, dest, offset);
+
+    int end = offset + regionHeight * regionWidth;
+    for (int k = offset; k < end; k += 1) {
+
+      dest[k] &= mask;
+    }
+  }
+
+}
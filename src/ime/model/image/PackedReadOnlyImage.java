@@ -0,0 +1,248 @@
+package ime.model.image;
+
+import java.util.Arrays;
+
+import ime.model.color.Color;
+import ime.model.color.ColorImpl;
+import ime.util.Colors;
+
+/**
+ * PackedReadOnlyImage stores every pixel of the image as a
+ * single 24-bit RGB integer (see {@link Colors}) in one flat,
+ * row-major int[] array. Compared to the Color[][] matrix of
+ * {@link ReadOnlyImageImpl}, this costs 4 bytes per pixel instead
+ * of a reference plus a whole ColorImpl object per pixel, and
+ * reading a pixel through getPixel does not allocate anything.
+ * This is the default image representation used by the loaders
+ * and operations of the program.
+ */
+public class PackedReadOnlyImage extends AbstractReadOnlyImage implements ReadOnlyImage {
+
+  private final int height;
+  private final int width;
+  private final int[] pixels;
+
+  /**
+   * Initialize the image's height, width, and
+   * packed pixel array.
+   *
+   * @param height The height of the image.
+   * @param width  The width of the image.
+   * @param pixels The row-major array of packed RGB pixels.
+   */
+  private PackedReadOnlyImage(int height, int width, int[] pixels) {
+
+    this.height = height;
+    this.width = width;
+    this.pixels = pixels;
+  }
+
+  @Override
+  public int getHeight() {
+
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+
+    return width;
+  }
+
+  @Override
+  public Color getColor(int i, int j) throws IllegalArgumentException {
+
+    int pixel = getPixel(i, j);
+
+    return new ColorImpl(Colors.redFrom(pixel), Colors.greenFrom(pixel), Colors.blueFrom(pixel));
+  }
+
+  @Override
+  public int getPixel(int i, int j) throws IllegalArgumentException {
+
+    checkPosition(i, j, height, width);
+
+    return pixels[i * width + j];
+  }
+
+  @Override
+  public void copyRow(int i, int[] dest, int offset) throws IllegalArgumentException {
+
+    checkRegion(height, width, i, 0, 1, width, dest.length, offset);
+
+    System.arraycopy(pixels, i * width, dest, offset, width);
+  }
+
+  @Override
+  public void copyRegion(int i, int j, int regionHeight, int regionWidth, int[] dest, int offset)
+          throws IllegalArgumentException {
+
+    checkRegion(height, width, i, j, regionHeight, regionWidth, dest.length, offset);
+
+    for (int y = 0; y < regionHeight; y += 1) {
+
+      System.arraycopy(pixels, (i + y) * width + j, dest, offset + y * regionWidth, regionWidth);
+    }
+  }
+
+  private static void checkPosition(int i, int j, int height, int width) {
+
+    if ((i < 0) || (i >= height) || (j < 0) || (j >= width)) {
+
+      throw new IllegalArgumentException(
+              String.format("Pixel (%d, %d) is outside of the image!", i, j));
+    }
+  }
+
+  /**
+   * Builds the PackedReadOnlyImage by filling in a flat array of
+   * packed pixels. Unset pixels are marked with -1, which can never
+   * be a valid 24-bit color, so no extra memory is needed to keep track
+   * of which pixels have been set. Building does not copy the pixel
+   * array; the builder only copies it if it is modified again afterwards.
+   */
+  public static class PackedImageBuilder implements IReadOnlyImageBuilder {
+
+    private static final int UNSET = -1;
+
+    private final int height;
+    private final int width;
+    private int setPixelCount;
+    private int[] pixels;
+    private boolean shared;
+
+    /**
+     * Initialize the height and width so that the pixel
+     * array can be initialized. Every pixel starts out unset.
+     *
+     * @param height The height of the image.
+     * @param width  The width of the image.
+     */
+    public PackedImageBuilder(int height, int width) {
+
+      this.height = height;
+      this.width = width;
+      this.pixels = new int[Math.max(height, 0) * Math.max(width, 0)];
+      Arrays.fill(pixels, UNSET);
+      this.setPixelCount = 0;
+      this.shared = false;
+    }
+
+    @Override
+    public IReadOnlyImageBuilder setPixel(int i, int j, Color color)
+            throws IllegalArgumentException {
+
+      if (color == null) {
+        throw new IllegalArgumentException("Color cannot be null!");
+      }
+
+      return setPixel(i, j, Colors.fromRgb(color.getRed(), color.getGreen(), color.getBlue()));
+    }
+
+    /**
+     * Set this builder's pixel to the specified packed RGB value.
+     *
+     * @param i     the ith row of the pixel.
+     * @param j     the jth column of the pixel.
+     * @param pixel the new 24-bit color value.
+     * @return this builder.
+     * @throws IllegalArgumentException if the position is invalid for this builder.
+     */
+    public IReadOnlyImageBuilder setPixel(int i, int j, int pixel)
+            throws IllegalArgumentException {
+
+      checkPosition(i, j, height, width);
+
+      if (shared) {
+        pixels = Arrays.copyOf(pixels, pixels.length);
+        shared = false;
+      }
+
+      int index = i * width + j;
+      if (pixels[index] == UNSET) {
+
+        setPixelCount += 1;
+      }
+
+      pixels[index] = pixel & 0xFFFFFF;
+      return this;
+    }
+
+    @Override
+    public int getPixel(int i, int j) throws IllegalArgumentException {
+
+      checkPosition(i, j, height, width);
+
+      int pixel = pixels[i * width + j];
+      if (pixel == UNSET) {
+        throw new IllegalArgumentException("Pixel has not been set yet!");
+      }
+
+      return pixel;
+    }
+
+    @Override
+    public IReadOnlyImageBuilder setRow(int i, int[] src, int offset)
+            throws IllegalArgumentException {
+
+      checkRegion(height, width, i, 0, 1, width, src.length, offset);
+
+      if (shared) {
+        pixels = Arrays.copyOf(pixels, pixels.length);
+        shared = false;
+      }
+
+      int start = i * width;
+      for (int j = 0; j < width; j += 1) {
+
+        if (pixels[start + j] == UNSET) {
+          setPixelCount += 1;
+        }
+
+        pixels[start + j] = src[offset + j] & 0xFFFFFF;
+      }
+
+      return this;
+    }
+
+    @Override
+    public void copyRow(int i, int[] dest, int offset) throws IllegalArgumentException {
+
+      checkRegion(height, width, i, 0, 1, width, dest.length, offset);
+
+      int start = i * width;
+      for (int j = 0; j < width; j += 1) {
+
+        if (pixels[start + j] == UNSET) {
+          throw new IllegalArgumentException("Pixel has not been set yet!");
+        }
+      }
+
+      System.arraycopy(pixels, start, dest, offset, width);
+    }
+
+    @Override
+    public ReadOnlyImage build() {
+
+      if (height <= 0) {
+
+        throw new IllegalStateException("Height has to be greater than 0!");
+      }
+
+      if (width <= 0) {
+
+        throw new IllegalStateException("Width has to be greater than 0!");
+      }
+
+      if (setPixelCount != (height * width)) {
+
+        throw new IllegalStateException("All pixels have to be set before building!");
+      }
+
+      shared = true;
+      return new PackedReadOnlyImage(height, width, pixels);
+    }
+
+  }
+
+}
@@ -42,4 +42,55 @@ public interface ReadOnlyImage {
    * @throws IllegalArgumentException if the position is invalid for this image.
    */
   int getPixel(int i, int j) throws IllegalArgumentException;
+
+  /**
+   * Get the statistics of this image's pixels: the histogram of every channel, and each channel's
+   * peak, minimum, maximum and mean. Images are immutable, so implementations may compute the
+   * statistics once and return the same object on every call; this default computes them anew.
+   *
+   * @return the statistics.
+   */
+  default ImageStatistics getStatistics() {
+    return ImageStatistics.of(this);
+  }
+
+  /**
+   * Copy one whole row of this image's pixel data into the given array. Each pixel is written as
+   * an integer in the same format returned by {@link #getPixel(int, int)}.
+   *
+   * @param i      the row to copy.
+   * @param dest   the array to copy the row into.
+   * @param offset the index of dest at which the first pixel of the row is written.
+   * @throws IllegalArgumentException if the row is invalid for this image, or if dest is too small.
+   */
+  default void copyRow(int i, int[] dest, int offset) throws IllegalArgumentException {
+    copyRegion(i, 0, 1, getWidth(), dest, offset);
+  }
+
+  /**
+   * Copy a rectangular region of this image's pixel data into the given array, row by row. The
+   * pixel at (i + y, j + x) is written to dest[offset + y * regionWidth + x].
+   *
+   * @param i            the first row of the region.
+   * @param j            the first column of the region.
+   * @param regionHeight the number of rows in the region.
+   * @param regionWidth  the number of columns in the region.
+   * @param dest         the array to copy the region into.
+   * @param offset       the index of dest at which the first pixel of the region is written.
+   * @throws IllegalArgumentException if the region is invalid for this image, or if dest is too
+   *                                  small.
+   */
+  default void copyRegion(int i, int j, int regionHeight, int regionWidth, int[] dest, int offset)
+          throws IllegalArgumentException {
+    AbstractReadOnlyImage.checkRegion(
+            getHeight(), getWidth(), i, j, regionHeight, regionWidth, dest.length, offset);
+
+    int index = offset;
+    for (int y = i; y < i + regionHeight; y += 1) {
+      for (int x = j; x < j + regionWidth; x += 1) {
+        dest[index] = getPixel(y, x);
+        index += 1;
+      }
+    }
+  }
 }
@@ -1,8 +1,5 @@
 package ime.model.image;
 
-import java.util.Arrays;
-import java.util.Objects;
-
 import ime.model.color.Color;
 import ime.model.color.ColorImpl;
 import ime.util.Colors;
@@ -17,7 +14,7 @@ import ime.util.Colors;
  * pixels can be set at any point, and its colors can only
  * be retrieved via getColor.
  */
-public class ReadOnlyImageImpl implements ReadOnlyImage {
+public class ReadOnlyImageImpl extends AbstractReadOnlyImage implements ReadOnlyImage {
 
   private final int height;
   private final int width;
@@ -76,76 +73,6 @@ public class ReadOnlyImageImpl implements ReadOnlyImage {
     return Colors.fromRgb(r, g, b);
   }
 
-  @Override
-  public boolean equals(Object o) {
-
-    if (this == o) {
-      return true;
-    }
-
-    if (!(o instanceof ReadOnlyImageImpl)) {
-      return false;
-    }
-
-    ReadOnlyImageImpl that = (ReadOnlyImageImpl) o;
-
-    if ((that.getHeight() != height) || (that.getWidth() != width)) {
-      return false;
-    }
-
-    Color thisPixel;
-    Color otherPixel;
-    for (int i = 0; i < height; i += 1) {
-
-      for (int j = 0; j < width; j += 1) {
-
-        thisPixel = this.getColor(i, j);
-        otherPixel = that.getColor(i, j);
-
-        if (!thisPixel.equals(otherPixel)) {
-          return false;
-        }
-
-      }
-
-    }
-
-    return true;
-  }
-
-  @Override
-  public int hashCode() {
-
-    return Objects.hash(
-            height,
-            width,
-            Arrays.deepHashCode(getImagePixelsForHash())
-    );
-  }
-
-  private int[][][] getImagePixelsForHash() {
-
-    int[][][] imagePixelRGBArray = new int[height][width][3];
-
-    int r;
-    int g;
-    int b;
-    for (int i = 0; i < height; i += 1) {
-
-      for (int j = 0; j < width; j += 1) {
-
-        r = getColor(i, j).getRed();
-        g = getColor(i, j).getGreen();
-        b = getColor(i, j).getBlue();
-
-        imagePixelRGBArray[i][j] = new int[]{r, g, b};
-
-      }
-    }
-
-    return imagePixelRGBArray;
-  }
-
   /**
    * Builds the ReadOnlyImageImpl by constructing the Color matrix, and initializing
    * the height and width. This builder returns an immutable version of the
@@ -192,9 +119,41 @@ public class ReadOnlyImageImpl implements ReadOnlyImage {
       Color currColor = imagePixels[i][j];
 
       int r = currColor.getRed();
+      int g = currColor.getGreen();
+      int b = currColor.getBlue();
+
+      return Colors.fromRgb(r, g, b);
+    }
+
+    @Override
+    public IReadOnlyImageBuilder setRow(int i, int[] src, int offset) {
+
+      checkRegion(height, width, i, 0, 1, width, src.length, offset);
 
+      int pixel;
+      for (int j = 0; j < width; j += 1) {
+
+        pixel = src[offset + j];
+        setPixel(i, j, new ColorImpl(
+                Colors.redFrom(pixel), Colors.greenFrom(pixel), Colors.blueFrom(pixel)));
+      }
+
+      return this;
+    }
+
+    @Override
+    public void copyRow(int i, int[] dest, int offset) {
+
+      checkRegion(height, width, i, 0, 1, width, dest.length, offset);
+
+      for (int j = 0; j < width; j += 1) {
 
-      return r;
+        if (imagePixels[i][j] == null) {
+          throw new IllegalArgumentException("Pixel has not been set yet!");
+        }
+
+        dest[offset + j] = getPixel(i, j);
+      }
     }
 
     @Override
@@ -2,9 +2,15 @@ package ime.model.operations;
 
 import ime.model.color.Color;
 import ime.model.color.ColorImpl;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
 import ime.model.image.ReadOnlyImage;
-import ime.model.image.ReadOnlyImageImpl;
 import ime.model.operations.ImageOperation;
+import ime.util.Colors;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The abstract filter applies a matrix filter to each pixel
@@ -12,30 +18,254 @@ import ime.model.operations.ImageOperation;
  * pixel in the image and applies the filter by multiplying
  * each channel of each pixel that overlaps, and then adding
  * together the sum of each channel's products.
+ *
+ * <p>The rows of the image are split into at most parallelism
+ * bands that are filtered in parallel on the common fork-join
+ * pool, so filters never start threads of their own. Every pixel is
+ * computed exactly as it would be sequentially, so the result
+ * does not depend on the parallelism level.
+ *
+ * <p>Filters whose kernel is the outer product of a column
+ * vector and a row vector can declare it by overriding
+ * provideSeparableKernel. Those are applied as a horizontal
+ * pass followed by a vertical pass, which costs
+ * O(kernel height + kernel width) per pixel instead of
+ * O(kernel height * kernel width).
  */
 public abstract class AbstractFilter implements ImageOperation {
 
+  /**
+   * Bands with at most this many pixels are filtered by a single
+   * task instead of being split further.
+   */
+  private static final int BAND_THRESHOLD = 1 << 15;
+
+  private final int parallelism;
+
+  /**
+   * Initialize the filter to use as many threads as there are
+   * available processors.
+   */
+  protected AbstractFilter() {
+
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Initialize the filter with the number of threads that may
+   * filter bands of the image at the same time. A parallelism
+   * level of 1 filters the whole image on the calling thread.
+   *
+   * @param parallelism The maximum number of threads to use.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  protected AbstractFilter(int parallelism) throws IllegalArgumentException {
+
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism has to be at least 1!");
+    }
+
+    this.parallelism = parallelism;
+  }
+
   @Override
   public ReadOnlyImage apply(ReadOnlyImage image) {
 
     int height = image.getHeight();
     int width = image.getWidth();
 
-    ReadOnlyImageImpl.ReadOnlyImageBuilder resImageBuilder =
-            new ReadOnlyImageImpl.ReadOnlyImageBuilder(height, width);
+    // the full kernel is only built when it is used, since a large separable one would not fit
+    float[][] separable = provideSeparableKernel();
+    float[][] filter = (separable == null) ? provideKernel() : null;
+    int[] kernelCenter = provideKernelCenterCoord();
+    int[] resPixels = new int[height * width];
+
+    BandTask task = new BandTask(image, filter, separable, kernelCenter, resPixels,
+            0, height, parallelism);
+    if ((parallelism == 1) || ((long) height * width <= BAND_THRESHOLD)) {
 
+      task.filterBand();
+
+    } else {
+
+      ForkJoinPool.commonPool().invoke(task);
+
+    }
+
+    IReadOnlyImageBuilder resImageBuilder =
+            new PackedReadOnlyImage.PackedImageBuilder(height, width);
     for (int i = 0; i < height; i += 1) {
 
-      for (int j = 0; j < width; j += 1) {
+      resImageBuilder.setRow(i, resPixels, i * width);
+    }
+
+    return resImageBuilder.build();
+  }
+
+  /**
+   * Get the maximum number of threads this filter uses.
+   *
+   * @return parallelism   The parallelism level.
+   */
+  public int getParallelism() {
+
+    return parallelism;
+  }
+
+  /**
+   * Filters a band of rows of the image, splitting it in two
+   * and filtering both halves in parallel while it is large and
+   * may still become more than one task.
+   */
+  private static final class BandTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
 
-        Color currColor = getColorFromFilter(i, j, image);
-        resImageBuilder.setPixel(i, j, currColor);
+    private final ReadOnlyImage image;
+    private final float[][] filter;
+    private final float[][] separable;
+    private final int[] kernelCenter;
+    private final int[] resPixels;
+    private final int startRow;
+    private final int endRow;
+    private final int tasks;
+
+    private BandTask(ReadOnlyImage image, float[][] filter, float[][] separable,
+                     int[] kernelCenter, int[] resPixels, int startRow, int endRow,
+                     int tasks) {
+
+      this.image = image;
+      this.filter = filter;
+      this.separable = separable;
+      this.kernelCenter = kernelCenter;
+      this.resPixels = resPixels;
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.tasks = tasks;
+    }
+
+    @Override
+    protected void compute() {
+
+      int rows = endRow - startRow;
+      int kernelHeight = (separable != null) ? separable[0].length : filter.length;
+      // every band re-reads the rows the kernel overlaps around it,
+      // so keep bands much taller than the kernel
+      if ((tasks < 2) || (rows < 4 * kernelHeight)
+              || ((long) rows * image.getWidth() <= BAND_THRESHOLD)) {
+
+        filterBand();
+        return;
+      }
+
+      // the halves share this band's tasks, so there are never more than parallelism bands
+      int topTasks = tasks / 2;
+      int middleRow = startRow + (int) ((long) rows * topTasks / tasks);
+      invokeAll(
+              new BandTask(image, filter, separable, kernelCenter, resPixels,
+                      startRow, middleRow, topTasks),
+              new BandTask(image, filter, separable, kernelCenter, resPixels,
+                      middleRow, endRow, tasks - topTasks));
+    }
+
+    private void filterBand() {
+
+      if (separable != null) {
+
+        filterSeparableBand();
+        return;
+      }
+
+      int width = image.getWidth();
+      int[][] window = new int[filter.length][width];
+      boolean[] validRows = new boolean[filter.length];
+      for (int i = startRow; i < endRow; i += 1) {
+
+        fillWindow(i, image, window, validRows, kernelCenter[0]);
+
+        int rowStart = i * width;
+        for (int j = 0; j < width; j += 1) {
+
+          resPixels[rowStart + j] =
+                  filterPixel(j, width, window, validRows, filter, kernelCenter[1]);
+        }
+
+      }
+
+    }
+
+    /**
+     * Filter the band in two passes. Each image row the kernel
+     * overlaps is filtered horizontally once and kept in a ring of
+     * kernel height rows, or image height rows for kernels taller
+     * than the image, which the vertical pass then combines.
+     */
+    private void filterSeparableBand() {
+
+      int width = image.getWidth();
+      int height = image.getHeight();
+      float[] column = separable[0];
+      float[] row = separable[1];
+
+      // a pixel never reads more rows than the kernel or the image has
+      int ringSize = Math.min(column.length, height);
+      float[][] ringRed = new float[ringSize][width];
+      float[][] ringGreen = new float[ringSize][width];
+      float[][] ringBlue = new float[ringSize][width];
+      int[] ringRows = new int[ringSize];
+      Arrays.fill(ringRows, -1);
+
+      int[] srcRow = new int[width];
+      float[] sumRed = new float[width];
+      float[] sumGreen = new float[width];
+      float[] sumBlue = new float[width];
+      for (int i = startRow; i < endRow; i += 1) {
+
+        Arrays.fill(sumRed, 0);
+        Arrays.fill(sumGreen, 0);
+        Arrays.fill(sumBlue, 0);
+
+        for (int y = 0; y < column.length; y += 1) {
+
+          int imageI = i - (kernelCenter[0] - y);
+          if ((imageI < 0) || (imageI >= height)) {
+            continue;
+          }
+
+          int slot = imageI % ringSize;
+          if (ringRows[slot] != imageI) {
+
+            image.copyRow(imageI, srcRow, 0);
+            filterRow(srcRow, row, kernelCenter[1],
+                    ringRed[slot], ringGreen[slot], ringBlue[slot]);
+            ringRows[slot] = imageI;
+          }
+
+          float weight = column[y];
+          float[] red = ringRed[slot];
+          float[] green = ringGreen[slot];
+          float[] blue = ringBlue[slot];
+          for (int j = 0; j < width; j += 1) {
+
+            sumRed[j] += weight * red[j];
+            sumGreen[j] += weight * green[j];
+            sumBlue[j] += weight * blue[j];
+          }
+
+        }
+
+        int rowStart = i * width;
+        for (int j = 0; j < width; j += 1) {
+
+          resPixels[rowStart + j] = Colors.fromRgb(Colors.clamp(Math.round(sumRed[j])),
+                                                   Colors.clamp(Math.round(sumGreen[j])),
+                                                   Colors.clamp(Math.round(sumBlue[j])));
+        }
 
       }
 
     }
 
-    return resImageBuilder.build();
   }
 
   /**
@@ -53,58 +283,152 @@ public abstract class AbstractFilter implements ImageOperation {
 
     float[][] filter = provideKernel();
     int[] kernelCenter = provideKernelCenterCoord();
-    int centerI = kernelCenter[0];
-    int centerJ = kernelCenter[1];
 
-    int distX;
-    int distY;
-    int imageJ;
+    int[][] window = new int[filter.length][image.getWidth()];
+    boolean[] validRows = new boolean[filter.length];
+    fillWindow(i, image, window, validRows, kernelCenter[0]);
+
+    int pixel = filterPixel(j, image.getWidth(), window, validRows, filter, kernelCenter[1]);
+
+    return new ColorImpl(Colors.redFrom(pixel), Colors.greenFrom(pixel), Colors.blueFrom(pixel));
+  }
+
+  protected abstract float[][] provideKernel();
+
+  /**
+   * Get the kernel as a column vector and a row vector whose
+   * outer product is the kernel returned by provideKernel, so
+   * that filter[y][x] equals column[y] * row[x]. Filters whose
+   * kernel is not separable return null, which is the default.
+   *
+   * @return kernels   The {column, row} pair, or null.
+   */
+  protected float[][] provideSeparableKernel() {
+
+    return null;
+  }
+
+  protected abstract int[] provideKernelCenterCoord();
+
+  /**
+   * Copy every image row that the kernel overlaps when its
+   * center is on the ith row into the window, one row of the
+   * window per row of the kernel. Rows of the kernel that fall
+   * outside of the image are marked as invalid.
+   *
+   * @param i         The row of the image the kernel is centered on.
+   * @param image     The current image being filtered.
+   * @param window    The rows of the image under the kernel.
+   * @param validRows Whether each row of the window is inside the image.
+   * @param centerI   The row of the kernel's center.
+   */
+  private static void fillWindow(int i, ReadOnlyImage image, int[][] window,
+                                 boolean[] validRows, int centerI) {
+
     int imageI;
+    for (int y = 0; y < window.length; y += 1) {
+
+      imageI = i - (centerI - y);
+      validRows[y] = (imageI >= 0) && (imageI < image.getHeight());
+
+      if (validRows[y]) {
+        image.copyRow(imageI, window[y], 0);
+      }
+
+    }
+
+  }
+
+  /**
+   * Apply the filter to the pixel in the jth column of the
+   * window's center row. Kernel positions that fall outside
+   * of the image are skipped.
+   *
+   * @param j         The column of the pixel being filtered.
+   * @param width     The width of the image.
+   * @param window    The rows of the image under the kernel.
+   * @param validRows Whether each row of the window is inside the image.
+   * @param filter    The kernel.
+   * @param centerJ   The column of the kernel's center.
+   * @return pixel    The new, clamped 24-bit color of the pixel.
+   */
+  private static int filterPixel(int j, int width, int[][] window, boolean[] validRows,
+                                 float[][] filter, int centerJ) {
+
+    int imageJ;
+    int pixel;
     float currSumRed = 0;
     float currSumGreen = 0;
     float currSumBlue = 0;
     for (int y = 0; y < filter.length; y += 1) {
 
+      if (!validRows[y]) {
+        continue;
+      }
+
+      int[] row = window[y];
       for (int x = 0; x < filter[y].length; x += 1) {
 
-        distX = centerJ - x;
-        distY = centerI - y;
-        imageJ = j - distX;
-        imageI = i - distY;
+        imageJ = j - (centerJ - x);
 
-        if (checkValidCoord(imageI, imageJ, image)) {
+        if ((imageJ >= 0) && (imageJ < width)) {
 
-          currSumRed += filter[y][x] * image.getColor(imageI, imageJ).getRed();
-          currSumGreen += filter[y][x] * image.getColor(imageI, imageJ).getGreen();
-          currSumBlue += filter[y][x] * image.getColor(imageI, imageJ).getBlue();
+          pixel = row[imageJ];
+          currSumRed += filter[y][x] * Colors.redFrom(pixel);
+          currSumGreen += filter[y][x] * Colors.greenFrom(pixel);
+          currSumBlue += filter[y][x] * Colors.blueFrom(pixel);
         }
 
       }
 
     }
 
-    return new ColorImpl(Math.round(currSumRed),
-                         Math.round(currSumGreen),
-                         Math.round(currSumBlue));
+    return Colors.fromRgb(Colors.clamp(Math.round(currSumRed)),
+                          Colors.clamp(Math.round(currSumGreen)),
+                          Colors.clamp(Math.round(currSumBlue)));
   }
 
-  protected abstract float[][] provideKernel();
+  /**
+   * Apply a 1D kernel to every pixel of an image row, splitting
+   * the result into one unrounded row per channel. Kernel positions
+   * that fall outside of the row are skipped.
+   *
+   * @param src     The packed pixels of the image row.
+   * @param kernel  The 1D kernel.
+   * @param centerJ The index of the kernel's center.
+   * @param red     The filtered red channel of the row.
+   * @param green   The filtered green channel of the row.
+   * @param blue    The filtered blue channel of the row.
+   */
+  private static void filterRow(int[] src, float[] kernel, int centerJ,
+                                float[] red, float[] green, float[] blue) {
 
-  protected abstract int[] provideKernelCenterCoord();
+    int imageJ;
+    int pixel;
+    for (int j = 0; j < src.length; j += 1) {
+
+      float currSumRed = 0;
+      float currSumGreen = 0;
+      float currSumBlue = 0;
+      for (int x = 0; x < kernel.length; x += 1) {
 
-  private boolean checkValidCoord(int i, int j, ReadOnlyImage image) {
+        imageJ = j - (centerJ - x);
 
-    int minX = 0;
-    int minY = 0;
-    int maxX = image.getWidth() - 1;
-    int maxY = image.getHeight() - 1;
+        if ((imageJ >= 0) && (imageJ < src.length)) {
 
-    if ((j > maxX) || (j < minX)) {
+          pixel = src[imageJ];
+          currSumRed += kernel[x] * Colors.redFrom(pixel);
+          currSumGreen += kernel[x] * Colors.greenFrom(pixel);
+          currSumBlue += kernel[x] * Colors.blueFrom(pixel);
+        }
+
+      }
 
-      return false;
+      red[j] = currSumRed;
+      green[j] = currSumGreen;
+      blue[j] = currSumBlue;
     }
 
-    return (i <= maxY) && (i >= minY);
   }
 
 }
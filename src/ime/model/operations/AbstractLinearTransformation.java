@@ -1,17 +1,20 @@
 package ime.model.operations;
 
-import ime.model.color.Color;
-import ime.model.color.ColorImpl;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
 import ime.model.image.ReadOnlyImage;
-import ime.model.image.ReadOnlyImageImpl;
 import ime.model.operations.ImageOperation;
+import ime.util.Colors;
 
 /**
  * AbstractLinearTransformation facilitates the retrieval of
  * colors for the three channels. The calculation of values for
- * the channels involves simple, linear operations.
+ * the channels involves simple, linear operations on a single
+ * pixel, so implementations only have to transform one packed
+ * pixel at a time. The image is processed a row at a time
+ * without allocating anything per pixel.
  */
-public abstract class AbstractLinearTransformation implements ImageOperation {
+public abstract class AbstractLinearTransformation implements PixelOperation, ImageOperation {
 
   @Override
   public ReadOnlyImage apply(ReadOnlyImage image) {
@@ -19,26 +22,22 @@ public abstract class AbstractLinearTransformation implements ImageOperation {
     int height = image.getHeight();
     int width = image.getWidth();
 
-    ReadOnlyImageImpl.ReadOnlyImageBuilder componentImageBuilder =
-            new ReadOnlyImageImpl.ReadOnlyImageBuilder(height, width);
+    IReadOnlyImageBuilder componentImageBuilder =
+            new PackedReadOnlyImage.PackedImageBuilder(height, width);
 
-    Color tempColor;
-    int r;
-    int g;
-    int b;
+    int[] row = new int[width];
     for (int i = 0; i < height; i += 1) {
 
-      for (int j = 0; j < width; j += 1) {
+      image.copyRow(i, row, 0);
 
-        r = findRed(i, j, image);
-        g = findGreen(i, j, image);
-        b = findBlue(i, j, image);
+      for (int j = 0; j < width; j += 1) {
 
-        tempColor = new ColorImpl(r, g, b);
-        componentImageBuilder.setPixel(i, j, tempColor);
+        row[j] = applyToPixel(row[j]);
 
       }
 
+      componentImageBuilder.setRow(i, row, 0);
+
     }
 
     return componentImageBuilder.build();
@@ -54,7 +53,10 @@ public abstract class AbstractLinearTransformation implements ImageOperation {
    * @return redValue   The new value for the red channel of
    *                    the pixel in this position.
    */
-  public abstract int findRed(int i, int j, ReadOnlyImage image);
+  public int findRed(int i, int j, ReadOnlyImage image) {
+
+    return Colors.redFrom(applyToPixel(image.getPixel(i, j)));
+  }
 
   /**
    * Find the new value of the green component
@@ -66,7 +68,10 @@ public abstract class AbstractLinearTransformation implements ImageOperation {
    * @return greenValue The new value for the green channel of
    *                    the pixel in this position.
    */
-  public abstract int findGreen(int i, int j, ReadOnlyImage image);
+  public int findGreen(int i, int j, ReadOnlyImage image) {
+
+    return Colors.greenFrom(applyToPixel(image.getPixel(i, j)));
+  }
 
   /**
    * Find the new value of the blue component
@@ -78,6 +83,9 @@ public abstract class AbstractLinearTransformation implements ImageOperation {
    * @return blueValue  The new value for the blue channel of
    *                    the pixel in this position.
    */
-  public abstract int findBlue(int i, int j, ReadOnlyImage image);
+  public int findBlue(int i, int j, ReadOnlyImage image) {
+
+    return Colors.blueFrom(applyToPixel(image.getPixel(i, j)));
+  }
 
 }
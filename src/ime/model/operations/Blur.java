@@ -4,7 +4,9 @@ package ime.model.operations;
  * Blur provides a 3x3 matrix to AbstractFilter in order to carry
  * out the blurring process. The matrix is initialized during
  * construction and cannot be changed. The kernel center of
- * (1, 1) is also provided by this class.
+ * (1, 1) is also provided by this class. The matrix is the
+ * outer product of [1/4, 1/2, 1/4] with itself, so it is
+ * applied as two 1D passes.
  */
 public class Blur extends AbstractFilter implements ImageOperation {
 
@@ -15,12 +17,31 @@ public class Blur extends AbstractFilter implements ImageOperation {
    */
   public Blur() {
 
-    filter = new float[][]{
+    filter = createFilter();
+
+  }
+
+  /**
+   * Instantiate the 3x3 blur filter, using at most the given
+   * number of threads to filter an image.
+   *
+   * @param parallelism The maximum number of threads to use.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public Blur(int parallelism) throws IllegalArgumentException {
+
+    super(parallelism);
+    filter = createFilter();
+
+  }
+
+  private static float[][] createFilter() {
+
+    return new float[][]{
             {1 / 16f, 1 / 8f, 1 / 16f},
             {1 / 8f, 1 / 4f, 1 / 8f},
             {1 / 16f, 1 / 8f, 1 / 16f}
     };
-
   }
 
   @Override
@@ -29,6 +50,13 @@ public class Blur extends AbstractFilter implements ImageOperation {
     return filter;
   }
 
+  @Override
+  protected float[][] provideSeparableKernel() {
+
+    float[] factor = new float[]{1 / 4f, 1 / 2f, 1 / 4f};
+    return new float[][]{factor, factor};
+  }
+
   @Override
   protected int[] provideKernelCenterCoord() {
 
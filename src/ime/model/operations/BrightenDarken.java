@@ -1,14 +1,15 @@
 package ime.model.operations;
 
-import ime.model.image.ReadOnlyImage;
-
 /**
  * Brightens or darkens the image by adding a constant factor (can be positive or negative) to each
- * pixel's channels.
+ * pixel's channels. The result for every channel value is precomputed into a lookup table.
  */
-public class BrightenDarken extends AbstractLinearTransformation implements ImageOperation {
+@PerPixel
+public class BrightenDarken extends AbstractLinearTransformation
+        implements PointOperation, ImageOperation {
 
   private final int factor;
+  private final LookupTable table;
 
   /**
    * Initialize the factor by which each pixel's three channels should be incremented/decremented.
@@ -18,30 +19,19 @@ public class BrightenDarken extends AbstractLinearTransformation implements Imag
   public BrightenDarken(int factor) {
 
     this.factor = factor;
+    this.table = new LookupTable(value -> value + factor);
   }
 
   @Override
-  public int findRed(int i, int j, ReadOnlyImage image) {
-
-    int r = image.getColor(i, j).getRed();
-
-    return r + factor;
-  }
-
-  @Override
-  public int findGreen(int i, int j, ReadOnlyImage image) {
+  public int applyToPixel(int pixel) {
 
-    int g = image.getColor(i, j).getGreen();
-
-    return g + factor;
+    return table.applyToPixel(pixel);
   }
 
   @Override
-  public int findBlue(int i, int j, ReadOnlyImage image) {
-
-    int b = image.getColor(i, j).getBlue();
+  public LookupTable toLookupTable() {
 
-    return b + factor;
+    return table;
   }
 
   @Override
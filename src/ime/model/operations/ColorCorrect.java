@@ -1,11 +1,8 @@
 package ime.model.operations;
 
-import java.util.List;
-import java.util.Map;
-
-import ime.model.color.ColorImpl;
+import ime.model.image.ChannelHistogram;
 import ime.model.image.ReadOnlyImage;
-import ime.model.image.ReadOnlyImageImpl;
+import ime.util.Colors;
 
 /**
  * This class adjusts the color values of each pixel by aligning
@@ -13,20 +10,20 @@ import ime.model.image.ReadOnlyImageImpl;
  * by first finding the maximum values of each channel and then
  * averaging them. Then, each value of each pixel is corrected
  * according to this average.
+ *
+ * <p>The peak of a channel is its most frequent value between
+ * 11 and 244. When several values are equally frequent, the peak
+ * is the one that reached that count first, scanning the image
+ * row by row. If no such value appears more than once, the value
+ * of the first pixel is used, unless it is itself in range.
  */
 public class ColorCorrect extends Histogram implements ImageOperation {
 
   private final int imageSize;
-  private Map<Integer, Integer> redMap;
-  private Map<Integer, Integer> greenMap;
-  private Map<Integer, Integer> blueMap;
-  private int[] redPeak;
-  private int[] greenPeak;
-  private int[] bluePeak;
 
   /**
-   * Initialize the imageSize to construct the
-   * HashMaps.
+   * Initialize the imageSize of the channel value
+   * range.
    */
   public ColorCorrect() {
 
@@ -36,127 +33,125 @@ public class ColorCorrect extends Histogram implements ImageOperation {
   @Override
   public ReadOnlyImage apply(ReadOnlyImage image) {
 
-    List<Map<Integer, Integer>> mapList = mapSetUp(imageSize);
-    this.redMap = mapList.get(0);
-    this.greenMap = mapList.get(1);
-    this.blueMap = mapList.get(2);
-
-    findColorCount(image);
-    return correctColor(image);
+    return correctColor(image, findPeaks(image));
 
   }
 
-  @Override
-  public void findColorCount(ReadOnlyImage image) {
+  /**
+   * Find the peak of every channel. The peaks are returned rather
+   * than kept, so that the operation can correct several images
+   * at the same time.
+   */
+  private int[] findPeaks(ReadOnlyImage image) {
 
-    int height = image.getHeight();
-    int width = image.getWidth();
+    ChannelHistogram colorCount = findColorCount(image);
+    int firstPixel = image.getPixel(0, 0);
 
-    int[] r = new int[2];
-    int[] g = new int[2];
-    int[] b = new int[2];
+    return new int[] {
+        findPeak(image, colorCount, ChannelHistogram.RED, Colors.redFrom(firstPixel)),
+        findPeak(image, colorCount, ChannelHistogram.GREEN, Colors.greenFrom(firstPixel)),
+        findPeak(image, colorCount, ChannelHistogram.BLUE, Colors.blueFrom(firstPixel))
+    };
+  }
 
-    redPeak = new int[]{-1, -1};
-    greenPeak = new int[]{-1, -1};
-    bluePeak = new int[]{-1, -1};
+  private int findPeak(ReadOnlyImage image, ChannelHistogram colorCount, int channel,
+                       int firstValue) {
 
-    for (int i = 0; i < height; i += 1) {
+    int[] counts = colorCount.getCounts(channel);
 
-      for (int j = 0; j < width; j += 1) {
+    int maxCount = 0;
+    int peak = -1;
+    int ties = 0;
+    for (int value = 0; value < imageSize; value += 1) {
 
-        r[0] = image.getColor(i, j).getRed();
-        g[0] = image.getColor(i, j).getGreen();
-        b[0] = image.getColor(i, j).getBlue();
+      if (!validPeak(value)) {
+        continue;
+      }
 
-        putRedInMap(r[0]);
-        putGreenInMap(g[0]);
-        putBlueInMap(b[0]);
+      if (counts[value] > maxCount) {
 
-        r[1] = redMap.get(r[0]);
-        g[1] = greenMap.get(g[0]);
-        b[1] = blueMap.get(b[0]);
+        maxCount = counts[value];
+        peak = value;
+        ties = 1;
 
-        findRedPeak(r);
-        findGreenPeak(g);
-        findBluePeak(b);
+      } else if ((counts[value] == maxCount) && (maxCount > 0)) {
 
+        ties += 1;
       }
 
     }
 
-  }
-
-  private void findRedPeak(int[] r) {
-
-    if (validPeak(r, redPeak) || (redPeak[1] == -1)) {
-
-      redPeak = new int[]{r[0], r[1]};
+    // the first pixel starts out as the peak with a count of 1,
+    // so only a value in range that is seen twice replaces it
+    if (!validPeak(firstValue) && (maxCount < 2)) {
+      return firstValue;
     }
 
-  }
-
-  private void findGreenPeak(int[] g) {
-
-    if (validPeak(g, greenPeak) || (greenPeak[1] == -1)) {
-
-      greenPeak = new int[]{g[0], g[1]};
+    if (ties == 1) {
+      return peak;
     }
 
+    return firstToReach(image, channel, maxCount);
   }
 
-  private void findBluePeak(int[] b) {
-
-    if (validPeak(b, bluePeak) || (bluePeak[1] == -1)) {
+  /**
+   * Scan the image again to find which of the equally frequent
+   * values reached the peak count first.
+   */
+  private int firstToReach(ReadOnlyImage image, int channel, int maxCount) {
 
-      bluePeak = new int[]{b[0], b[1]};
-    }
+    int width = image.getWidth();
+    int shift = 16 - 8 * channel;
+    int[] running = new int[imageSize];
+    int[] row = new int[width];
+    for (int i = 0; i < image.getHeight(); i += 1) {
 
-  }
+      image.copyRow(i, row, 0);
+      for (int j = 0; j < width; j += 1) {
 
-  private boolean validPeak(int[] newColor, int[] oldColor) {
+        int value = (row[j] >> shift) & 0xFF;
+        running[value] += 1;
+        if ((running[value] == maxCount) && validPeak(value)) {
+          return value;
+        }
 
-    if (newColor[1] <= oldColor[1]) {
+      }
 
-      return false;
     }
 
-    return (newColor[0] > 10) && (newColor[0] < 245);
+    throw new IllegalStateException("The peak count was never reached!");
   }
 
-  private ReadOnlyImage correctColor(ReadOnlyImage image) {
+  private boolean validPeak(int value) {
 
-    int height = image.getHeight();
-    int width = image.getWidth();
+    return (value > 10) && (value < 245);
+  }
 
-    ReadOnlyImageImpl.ReadOnlyImageBuilder resImageBuilder =
-            new ReadOnlyImageImpl.ReadOnlyImageBuilder(height, width);
+  private ReadOnlyImage correctColor(ReadOnlyImage image, int[] peaks) {
 
+    int redPeak = peaks[ChannelHistogram.RED];
+    int greenPeak = peaks[ChannelHistogram.GREEN];
+    int bluePeak = peaks[ChannelHistogram.BLUE];
     int average = Math.round(
-            (redPeak[0] + greenPeak[0] + bluePeak[0]) / 3f
+            (redPeak + greenPeak + bluePeak) / 3f
     );
 
-    int redDifference = average - redPeak[0];
-    int greenDifference = average - greenPeak[0];
-    int blueDifference = average - bluePeak[0];
-
-    int r;
-    int g;
-    int b;
-    for (int i = 0; i < height; i += 1) {
+    int redDifference = average - redPeak;
+    int greenDifference = average - greenPeak;
+    int blueDifference = average - bluePeak;
 
-      for (int j = 0; j < width; j += 1) {
-
-        r = image.getColor(i, j).getRed() + redDifference;
-        g = image.getColor(i, j).getGreen() + greenDifference;
-        b = image.getColor(i, j).getBlue() + blueDifference;
+    int[] redTable = new int[imageSize];
+    int[] greenTable = new int[imageSize];
+    int[] blueTable = new int[imageSize];
+    for (int value = 0; value < imageSize; value += 1) {
 
-        resImageBuilder.setPixel(i, j, new ColorImpl(r, g, b));
-
-      }
+      redTable[value] = value + redDifference;
+      greenTable[value] = value + greenDifference;
+      blueTable[value] = value + blueDifference;
 
     }
 
-    return resImageBuilder.build();
+    return new LookupTable(redTable, greenTable, blueTable).apply(image);
   }
 
-}
\ No newline at end of file
+}
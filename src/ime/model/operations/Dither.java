@@ -1,65 +1,85 @@
 package ime.model.operations;
 
-import ime.model.color.Color;
-import ime.model.color.ColorImpl;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
 import ime.model.image.ReadOnlyImage;
-import ime.model.image.ReadOnlyImageImpl;
+import ime.util.Colors;
 
 /**
- * Dither the image using intensity value.
+ * Dither the image using intensity value. The intensity of every
+ * pixel is found with the per-pixel intensity transformation, and
+ * the error of rounding each pixel to black or white is then spread
+ * to its neighbours (Floyd-Steinberg). The error only ever reaches
+ * the current and the next row, so only those two rows of intensities
+ * are kept while the image is processed. Error diffusion depends on
+ * the neighbours of every pixel, so dithering holds the intensity
+ * transformation instead of being a per-pixel operation itself.
  */
 
-public class Dither extends ExtractIntensityComponent implements ImageOperation {
-  int height;
-  int width;
+public class Dither implements ImageOperation {
+
+  private final ExtractIntensityComponent intensity = new ExtractIntensityComponent();
 
   @Override
   public ReadOnlyImage apply(ReadOnlyImage image) {
-    height = image.getHeight();
-    width = image.getWidth();
+    int height = image.getHeight();
+    int width = image.getWidth();
 
-    Color color;
+    IReadOnlyImageBuilder resImageBuilder =
+            new PackedReadOnlyImage.PackedImageBuilder(height, width);
 
-    ReadOnlyImageImpl.ReadOnlyImageBuilder resImageBuilder =
-            new ReadOnlyImageImpl.ReadOnlyImageBuilder(height, width);
+    int[] currRow = new int[width];
+    int[] nextRow = new int[width];
+    int[] tempRow;
+    findIntensities(image, 0, currRow);
 
     for (int i = 0; i < height; i += 1) {
-      for (int j = 0; j < width; j += 1) {
-        int intensity = findRed(i, j, image);
-        color = new ColorImpl(intensity, intensity, intensity);
-        resImageBuilder.setPixel(i, j, color);
+      if (i + 1 < height) {
+        findIntensities(image, i + 1, nextRow);
       }
-    }
 
-    for (int i = 0; i < height; i += 1) {
       for (int j = 0; j < width; j += 1) {
-        int old_color = resImageBuilder.getPixel(i, j);
+        int old_color = currRow[j];
         int new_color = 0;
         if (old_color >= 128) {
           new_color = 255;
         }
         double error = old_color - new_color;
-        color = new ColorImpl(new_color, new_color, new_color);
-        resImageBuilder.setPixel(i, j, color);
+        currRow[j] = new_color;
+
+        updateColor(currRow, j + 1, error * 7 / 16);
+        if (i + 1 < height) {
+          updateColor(nextRow, j - 1, error * 3 / 16);
+          updateColor(nextRow, j, error * 5 / 16);
+          updateColor(nextRow, j + 1, error * 1 / 16);
+        }
+      }
 
-        updateColor(resImageBuilder, i, j + 1, error * 7 / 16);
-        updateColor(resImageBuilder, i + 1, j - 1, error * 3 / 16);
-        updateColor(resImageBuilder, i + 1, j, error * 5 / 16);
-        updateColor(resImageBuilder, i + 1, j + 1, error * 1 / 16);
+      for (int j = 0; j < width; j += 1) {
+        currRow[j] = Colors.fromRgb(currRow[j], currRow[j], currRow[j]);
       }
+      resImageBuilder.setRow(i, currRow, 0);
+
+      tempRow = currRow;
+      currRow = nextRow;
+      nextRow = tempRow;
     }
 
     return resImageBuilder.build();
   }
 
-  private void updateColor(ReadOnlyImageImpl.ReadOnlyImageBuilder resImageBuilder,
-                           int i, int j, double update) {
-    if (i < 0 || i >= height || j < 0 || j >= width) {
+  private void findIntensities(ReadOnlyImage image, int i, int[] row) {
+    image.copyRow(i, row, 0);
+    for (int j = 0; j < row.length; j += 1) {
+      row[j] = Colors.redFrom(intensity.applyToPixel(row[j]));
+    }
+  }
+
+  private static void updateColor(int[] row, int j, double update) {
+    if (j < 0 || j >= row.length) {
       return;
     }
-    int value = resImageBuilder.getPixel(i, j) + (int) Math.round(update);
-    Color color = new ColorImpl(value, value, value);
-    resImageBuilder.setPixel(i, j, color);
+    row[j] = Colors.clamp(row[j] + (int) Math.round(update));
   }
 
 }
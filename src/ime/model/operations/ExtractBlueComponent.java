@@ -1,30 +1,28 @@
 package ime.model.operations;
 
+import ime.model.image.MaskedImage;
 import ime.model.image.ReadOnlyImage;
 
 /**
  * Extract the blue component of the current image by
  * returning 0 for the other channels and returning the
  * blue channel's current value for the new blue channel.
+ * Whole images are extracted as a {@link MaskedImage}
+ * view, so no pixels are copied.
  */
+@PerPixel
 public class ExtractBlueComponent extends AbstractLinearTransformation implements ImageOperation {
 
   @Override
-  public int findRed(int i, int j, ReadOnlyImage image) {
+  public ReadOnlyImage apply(ReadOnlyImage image) {
 
-    return 0;
+    return MaskedImage.of(image, 0x0000FF);
   }
 
   @Override
-  public int findGreen(int i, int j, ReadOnlyImage image) {
+  public int applyToPixel(int pixel) {
 
-    return 0;
-  }
-
-  @Override
-  public int findBlue(int i, int j, ReadOnlyImage image) {
-
-    return image.getColor(i, j).getBlue();
+    return pixel & 0x0000FF;
   }
 
 }
@@ -1,40 +1,26 @@
 package ime.model.operations;
 
-import ime.model.image.ReadOnlyImage;
+import ime.util.Colors;
 
 /**
  * Return the weighted sum of the pixel's current values and set this
  * weight sum to the new value of each channel.
  */
+@PerPixel
 public class ExtractLumaComponent extends AbstractLinearTransformation implements ImageOperation {
 
   @Override
-  public int findRed(int i, int j, ReadOnlyImage image) {
+  public int applyToPixel(int pixel) {
 
-    return weightedSum(i, j, image);
-  }
-
-  @Override
-  public int findGreen(int i, int j, ReadOnlyImage image) {
-
-    return weightedSum(i, j, image);
-  }
-
-  @Override
-  public int findBlue(int i, int j, ReadOnlyImage image) {
-
-    return weightedSum(i, j, image);
-  }
+    int r = Colors.redFrom(pixel);
+    int g = Colors.greenFrom(pixel);
+    int b = Colors.blueFrom(pixel);
 
-  private int weightedSum(int i, int j, ReadOnlyImage image) {
-
-    int r = image.getColor(i, j).getRed();
-    int g = image.getColor(i, j).getGreen();
-    int b = image.getColor(i, j).getBlue();
-
-    return Math.round((0.2126f * r)
+    int luma = Colors.clamp(Math.round((0.2126f * r)
             + (0.7152f * g)
-            + (0.0722f * b));
+            + (0.0722f * b)));
+
+    return Colors.fromRgb(luma, luma, luma);
   }
 
 }
@@ -0,0 +1,146 @@
+package ime.model.operations;
+
+/**
+ * GaussianBlur blurs an image with a square Gaussian kernel of
+ * a given radius and standard deviation. The kernel is
+ * normalized so that its weights add up to 1. Since a 2D
+ * Gaussian is the outer product of two 1D Gaussians, the
+ * kernel is applied as two 1D passes, so large radii cost
+ * O(radius) per pixel instead of O(radius^2).
+ */
+public class GaussianBlur extends AbstractFilter implements ImageOperation {
+
+  private final int radius;
+  private final double sigma;
+  private final float[] factor;
+
+  /**
+   * Instantiate the Gaussian blur filter.
+   *
+   * @param radius The number of pixels the kernel reaches on each side of its center.
+   * @param sigma  The standard deviation of the Gaussian, in pixels.
+   * @throws IllegalArgumentException if the radius is negative or sigma is not positive.
+   */
+  public GaussianBlur(int radius, double sigma) throws IllegalArgumentException {
+
+    checkArguments(radius, sigma);
+    this.radius = radius;
+    this.sigma = sigma;
+    this.factor = createFactor(radius, sigma);
+
+  }
+
+  /**
+   * Instantiate the Gaussian blur filter, using at most the
+   * given number of threads to filter an image.
+   *
+   * @param radius      The number of pixels the kernel reaches on each side of its center.
+   * @param sigma       The standard deviation of the Gaussian, in pixels.
+   * @param parallelism The maximum number of threads to use.
+   * @throws IllegalArgumentException if the radius is negative, sigma is not positive,
+   *                                  or the parallelism is less than 1.
+   */
+  public GaussianBlur(int radius, double sigma, int parallelism)
+          throws IllegalArgumentException {
+
+    super(parallelism);
+    checkArguments(radius, sigma);
+    this.radius = radius;
+    this.sigma = sigma;
+    this.factor = createFactor(radius, sigma);
+
+  }
+
+  private static void checkArguments(int radius, double sigma) {
+
+    if (radius < 0) {
+      throw new IllegalArgumentException("Radius cannot be negative!");
+    }
+
+    if (!(sigma > 0) || Double.isInfinite(sigma)) {
+      throw new IllegalArgumentException("Sigma has to be greater than 0!");
+    }
+  }
+
+  /**
+   * Sample the 1D Gaussian at every integer offset from -radius
+   * to radius and normalize the samples to add up to 1.
+   *
+   * @param radius The radius of the kernel.
+   * @param sigma  The standard deviation of the Gaussian.
+   * @return factor   The 1D kernel.
+   */
+  private static float[] createFactor(int radius, double sigma) {
+
+    double[] weights = new double[2 * radius + 1];
+    double sum = 0;
+    for (int x = -radius; x <= radius; x += 1) {
+
+      weights[x + radius] = Math.exp(-(x * x) / (2 * sigma * sigma));
+      sum += weights[x + radius];
+    }
+
+    float[] factor = new float[weights.length];
+    for (int x = 0; x < weights.length; x += 1) {
+
+      factor[x] = (float) (weights[x] / sum);
+    }
+
+    return factor;
+  }
+
+  /**
+   * Get the radius of the kernel.
+   *
+   * @return radius   The radius.
+   */
+  public int getRadius() {
+
+    return radius;
+  }
+
+  /**
+   * Get the standard deviation of the Gaussian.
+   *
+   * @return sigma   The standard deviation.
+   */
+  public double getSigma() {
+
+    return sigma;
+  }
+
+  @Override
+  protected float[][] provideKernel() {
+
+    float[][] filter = new float[factor.length][factor.length];
+    for (int y = 0; y < factor.length; y += 1) {
+
+      for (int x = 0; x < factor.length; x += 1) {
+
+        filter[y][x] = factor[y] * factor[x];
+      }
+
+    }
+
+    return filter;
+  }
+
+  @Override
+  protected float[][] provideSeparableKernel() {
+
+    return new float[][]{factor, factor};
+  }
+
+  @Override
+  protected int[] provideKernelCenterCoord() {
+
+    return new int[]{radius, radius};
+  }
+
+  @Override
+  public String toString() {
+
+    return String.format("<GaussianBlur radius=%d sigma=%.3f>", radius, sigma);
+  }
+
+}
@@ -1,11 +1,12 @@
 package ime.model.operations;
 
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
-import ime.model.color.ColorImpl;
+import ime.model.image.ChannelHistogram;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
 import ime.model.image.ReadOnlyImage;
-import ime.model.image.ReadOnlyImageImpl;
+import ime.util.Colors;
 
 /**
  * Create a histogram for any given image. Creating a histogram
@@ -16,73 +17,25 @@ import ime.model.image.ReadOnlyImageImpl;
 public class GenerateHistogram extends Histogram implements ImageOperation {
 
   private final int imageSize;
-  private Map<Integer, Integer> redMap;
-  private Map<Integer, Integer> greenMap;
-  private Map<Integer, Integer> blueMap;
-  private int maxRed;
-  private int maxGreen;
-  private int maxBlue;
 
   /**
    * Initialize the imageSize of the image that
    * will be a result of creating the histogram
    * of the image being operated on. The imageSize
-   * will be 256x256, and the maximum values for
-   * the three channels all start at 0 since the
-   * counting has not begun yet.
+   * will be 256x256.
    */
   public GenerateHistogram() {
 
     imageSize = 256;
-    maxRed = 0;
-    maxGreen = 0;
-    maxBlue = 0;
 
   }
 
   @Override
   public ReadOnlyImage apply(ReadOnlyImage image) {
 
-    List<Map<Integer, Integer>> mapList = mapSetUp(imageSize);
-    this.redMap = mapList.get(0);
-    this.greenMap = mapList.get(1);
-    this.blueMap = mapList.get(2);
-
-    findColorCount(image);
     return generateHistogram(image);
   }
 
-  @Override
-  public void findColorCount(ReadOnlyImage image) {
-
-    int height = image.getHeight();
-    int width = image.getWidth();
-
-    int r;
-    int g;
-    int b;
-    for (int i = 0; i < height; i += 1) {
-
-      for (int j = 0; j < width; j += 1) {
-
-        r = image.getColor(i, j).getRed();
-        g = image.getColor(i, j).getGreen();
-        b = image.getColor(i, j).getBlue();
-
-        putRedInMap(r);
-        putGreenInMap(g);
-        putBlueInMap(b);
-
-        maxRed = Math.max(redMap.get(r), maxRed);
-        maxGreen = Math.max(greenMap.get(g), maxGreen);
-        maxBlue = Math.max(blueMap.get(b), maxBlue);
-
-      }
-
-    }
-
-  }
-
   /**
    * Create a new image according to the imageSize
    * and fill it with white space to initialize it.
@@ -97,17 +50,17 @@ public class GenerateHistogram extends Histogram implements ImageOperation {
    */
   public ReadOnlyImage generateHistogram(ReadOnlyImage image) {
 
-    ReadOnlyImageImpl.ReadOnlyImageBuilder histImageBuilder =
-            new ReadOnlyImageImpl.ReadOnlyImageBuilder(imageSize, imageSize);
+    ChannelHistogram colorCount = findColorCount(image);
+    int[] redCount = colorCount.getCounts(ChannelHistogram.RED);
+    int[] greenCount = colorCount.getCounts(ChannelHistogram.GREEN);
+    int[] blueCount = colorCount.getCounts(ChannelHistogram.BLUE);
+    int maxRed = colorCount.getMaxCount(ChannelHistogram.RED);
+    int maxGreen = colorCount.getMaxCount(ChannelHistogram.GREEN);
+    int maxBlue = colorCount.getMaxCount(ChannelHistogram.BLUE);
 
     int brightValue = 255;
-    for (int i = 0; i < imageSize; i += 1) {
-
-      for (int j = 0; j < imageSize; j += 1) {
-
-        histImageBuilder.setPixel(i, j, new ColorImpl(brightValue, brightValue, brightValue));
-      }
-    }
+    int[] histPixels = new int[imageSize * imageSize];
+    Arrays.fill(histPixels, Colors.fromRgb(brightValue, brightValue, brightValue));
 
     int rI;
     int gI;
@@ -115,14 +68,21 @@ public class GenerateHistogram extends Histogram implements ImageOperation {
 
     for (int j = 0; j < imageSize; j += 1) {
 
-      rI = getScaledI(redMap.get(j), maxRed);
-      gI = getScaledI(greenMap.get(j), maxGreen);
-      bI = getScaledI(blueMap.get(j), maxBlue);
+      rI = getScaledI(redCount[j], maxRed);
+      gI = getScaledI(greenCount[j], maxGreen);
+      bI = getScaledI(blueCount[j], maxBlue);
+
+      histPixels[rI * imageSize + j] = Colors.fromRgb(brightValue, 0, 0);
+      histPixels[gI * imageSize + j] = Colors.fromRgb(0, brightValue, 0);
+      histPixels[bI * imageSize + j] = Colors.fromRgb(0, 0, brightValue);
 
-      histImageBuilder.setPixel(rI, j, new ColorImpl(brightValue, 0, 0));
-      histImageBuilder.setPixel(gI, j, new ColorImpl(0, brightValue, 0));
-      histImageBuilder.setPixel(bI, j, new ColorImpl(0, 0, brightValue));
+    }
+
+    IReadOnlyImageBuilder histImageBuilder =
+            new PackedReadOnlyImage.PackedImageBuilder(imageSize, imageSize);
+    for (int i = 0; i < imageSize; i += 1) {
 
+      histImageBuilder.setRow(i, histPixels, i * imageSize);
     }
 
     return histImageBuilder.build();
@@ -136,4 +96,4 @@ public class GenerateHistogram extends Histogram implements ImageOperation {
     return maxGridVal - Math.round(colorCount * fraction);
   }
 
-}
\ No newline at end of file
+}
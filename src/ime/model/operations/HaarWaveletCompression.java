@@ -2,19 +2,73 @@ package ime.model.operations;
 
 import ime.model.color.ColorImpl;
 import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
 import ime.model.image.ReadOnlyImage;
-import ime.model.image.ReadOnlyImageImpl;
 import ime.model.operations.ImageOperation;
 import ime.util.Colors;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-
-/** This class implements Haar wavelet compression on images. */
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class implements Haar wavelet compression on images. The channels are transformed in place
+ * by a {@link HaarWaveletTransform}, which runs the three channels, and the rows and columns within
+ * each of them, in parallel.
+ *
+ * <p>How the image is padded for the transform depends on the {@link Layout}. The default square
+ * layout is the original one, and pads the image to a square. The rectangular layout pads the
+ * height and width separately, and the tiled layout compresses tiles of the image independently.
+ *
+ * <p>Without a cache, the coefficients are thresholded in place and transformed back, so only one
+ * set of them is ever allocated. Operations can instead share a {@link TransformCache}, which holds
+ * the forward transform of the last image compressed with the square or rectangular layout.
+ * Compressing the same image again through the same cache, at any percentage, then only costs the
+ * threshold and the inverse transform, which is what the split preview and compressing at several
+ * percentages do.
+ */
 public class HaarWaveletCompression implements ImageOperation {
+  /** The ways an image can be laid out for the transform. */
+  public enum Layout {
+    /**
+     * Pad the image to a square whose side is the next power of two of its larger dimension, and
+     * transform it as a whole. This is the original layout.
+     */
+    SQUARE,
+
+    /** Pad the height and the width of the image to their own next powers of two. */
+    RECTANGULAR,
+
+    /**
+     * Split the image into tiles of TILE_SIZE x TILE_SIZE pixels, and compress every tile on its
+     * own, with its own threshold. Tiles at the right and bottom edges are padded like the
+     * rectangular layout. Tiles are compressed in parallel, and only the tiles being compressed
+     * need coefficient buffers.
+     */
+    TILED
+  }
+
+  /** The side of the tiles of the tiled layout. */
+  public static final int TILE_SIZE = 256;
+
+  /** Transforms single tiles, on the thread that compresses them. */
+  private static final HaarWaveletTransform TILE_TRANSFORM = new HaarWaveletTransform(1);
+
+  /** The number of bits of the magnitudes every selection pass counts by. */
+  private static final int RADIX_BITS = 16;
+
+  private static final int RADIX_MASK = (1 << RADIX_BITS) - 1;
+
+  /** Magnitudes are copied out for the last part of a selection once at most this many are left. */
+  private static final int SELECTION_BUFFER_SIZE = 1 << 16;
+
   private final double percentage;
+  private final Layout layout;
+  private final HaarWaveletTransform transform;
+  private final TransformCache cache;
 
   /**
    * Construct a new compression operation with the given compression percentage. A percentage of 0
@@ -25,10 +79,91 @@ public class HaarWaveletCompression implements ImageOperation {
    * @throws IllegalArgumentException if the percentage is not valid.
    */
   public HaarWaveletCompression(int percentage) throws IllegalArgumentException {
+    this(percentage, Layout.SQUARE);
+  }
+
+  /**
+   * Construct a new compression operation with the given compression percentage, that transforms
+   * the image with at most the given number of threads.
+   *
+   * @param percentage the compression percentage. Must be within the range [0, 100].
+   * @param parallelism the maximum number of threads to use.
+   * @throws IllegalArgumentException if the percentage or parallelism is not valid.
+   */
+  public HaarWaveletCompression(int percentage, int parallelism)
+      throws IllegalArgumentException {
+    this(percentage, Layout.SQUARE, parallelism);
+  }
+
+  /**
+   * Construct a new compression operation with the given compression percentage and layout.
+   *
+   * @param percentage the compression percentage. Must be within the range [0, 100].
+   * @param layout how to lay the image out for the transform.
+   * @throws IllegalArgumentException if the percentage is not valid.
+   */
+  public HaarWaveletCompression(int percentage, Layout layout) throws IllegalArgumentException {
+    this(percentage, layout, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Construct a new compression operation with the given compression percentage and layout, that
+   * uses at most the given number of threads.
+   *
+   * @param percentage the compression percentage. Must be within the range [0, 100].
+   * @param layout how to lay the image out for the transform.
+   * @param parallelism the maximum number of threads to use.
+   * @throws IllegalArgumentException if the percentage or parallelism is not valid.
+   */
+  public HaarWaveletCompression(int percentage, Layout layout, int parallelism)
+      throws IllegalArgumentException {
+    this(percentage, layout, parallelism, null);
+  }
+
+  /**
+   * Construct a new compression operation with the given compression percentage and layout, that
+   * keeps the forward transform of the images it compresses in the given cache.
+   *
+   * @param percentage the compression percentage. Must be within the range [0, 100].
+   * @param layout how to lay the image out for the transform.
+   * @param cache the cache of the forward transform, or null to not cache it.
+   * @throws IllegalArgumentException if the percentage is not valid.
+   */
+  public HaarWaveletCompression(int percentage, Layout layout, TransformCache cache)
+      throws IllegalArgumentException {
+    this(percentage, layout, Runtime.getRuntime().availableProcessors(), cache);
+  }
+
+  /**
+   * Construct a new compression operation with the given compression percentage and layout, that
+   * uses at most the given number of threads, and keeps the forward transform of the images it
+   * compresses in the given cache.
+   *
+   * @param percentage the compression percentage. Must be within the range [0, 100].
+   * @param layout how to lay the image out for the transform.
+   * @param parallelism the maximum number of threads to use.
+   * @param cache the cache of the forward transform, or null to not cache it.
+   * @throws IllegalArgumentException if the percentage or parallelism is not valid.
+   */
+  public HaarWaveletCompression(
+      int percentage, Layout layout, int parallelism, TransformCache cache)
+      throws IllegalArgumentException {
     if (percentage < 0 || percentage > 100) {
       throw new IllegalArgumentException("percentage must be between 0 and 100");
     }
     this.percentage = ((double) percentage) / 100.0;
+    this.layout = Objects.requireNonNull(layout);
+    this.transform = new HaarWaveletTransform(parallelism);
+    this.cache = cache;
+  }
+
+  /**
+   * Get the layout this operation transforms images in.
+   *
+   * @return the layout.
+   */
+  public Layout getLayout() {
+    return layout;
   }
 
   /**
@@ -56,26 +191,38 @@ public class HaarWaveletCompression implements ImageOperation {
   }
 
   /**
-   * Extract channel data from an image into a 2D matrix.
+   * Get the smallest power of two that is at least the given length.
    *
-   * @param image the image
-   * @param size the size of the output matrix. Should be a power of 2.
-   * @param extractor the channel extractor.
-   * @return the zero-rightbottom-padded channel matrix.
+   * @param length the length, at least 1.
+   * @return the padded length.
    */
-  static double[][] extractChannelData(
-      ReadOnlyImage image, int size, Function<Integer, Integer> extractor) {
-    double[][] out = new double[size][size];
+  static int nextPowerOfTwo(int length) {
+    int power = Integer.highestOneBit(length);
+    return power == length ? length : power * 2;
+  }
+
+  /**
+   * Extract the channels of an image into flat, row-major arrays with the given number of columns.
+   * The arrays are zero-padded to the right and bottom of the image.
+   *
+   * @param image the image.
+   * @param stride the number of columns of every channel array.
+   * @param red the red channel array.
+   * @param green the green channel array.
+   * @param blue the blue channel array.
+   */
+  static void extractChannels(
+      ReadOnlyImage image, int stride, double[] red, double[] green, double[] blue) {
+    int[] row = new int[image.getWidth()];
     for (int y = 0; y < image.getHeight(); y++) {
-      for (int x = 0; x < image.getWidth(); x++) {
-        if (x < size && y < size) {
-          out[y][x] = extractor.apply(image.getPixel(y, x));
-        } else {
-          out[y][x] = 0;
-        }
+      image.copyRow(y, row, 0);
+      int offset = y * stride;
+      for (int x = 0; x < row.length; x++) {
+        red[offset + x] = Colors.redFrom(row[x]);
+        green[offset + x] = Colors.greenFrom(row[x]);
+        blue[offset + x] = Colors.blueFrom(row[x]);
       }
     }
-    return out;
   }
 
   /**
@@ -90,7 +237,7 @@ public class HaarWaveletCompression implements ImageOperation {
    */
   static ReadOnlyImage combineChannelData(
       double[][] red, double[][] green, double[][] blue, int width, int height) {
-    IReadOnlyImageBuilder builder = new ReadOnlyImageImpl.ReadOnlyImageBuilder(height, width);
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(height, width);
     for (int y = 0; y < height; y++) {
       for (int x = 0; x < width; x++) {
         builder.setPixel(
@@ -106,150 +253,32 @@ public class HaarWaveletCompression implements ImageOperation {
   }
 
   /**
-   * Transforms the given channel data into averages and differences recursively until the matrix is
-   * mostly differences.
+   * Combines flat, row-major RGB channels back into one image, and removes any zero padding.
    *
-   * @param channels the array of channels.
-   */
-  static void transform(double[][]... channels) {
-    for (double[][] channel : channels) {
-      int c = channel.length;
-      while (c > 1) {
-        for (int i = 0; i < c; i++) {
-          double[] transformedRow = transformStepRow(channel, i, c);
-          for (int x = 0; x < c; x++) {
-            channel[i][x] = transformedRow[x];
-          }
-        }
-        for (int i = 0; i < c; i++) {
-          double[] transformedCol = transformStepCol(channel, i, c);
-          for (int y = 0; y < c; y++) {
-            channel[y][i] = transformedCol[y];
-          }
-        }
-
-        c /= 2;
-      }
-    }
-  }
-
-  /**
-   * Transform one row of the input matrix into averages and differences.
-   *
-   * @param input the input matrix.
-   * @param row the row to transform.
-   * @param c the length of the row to transform.
-   * @return the transformed row.
-   */
-  private static double[] transformStepRow(double[][] input, int row, int c) {
-    int half = c / 2;
-    double[] output = new double[c];
-    for (int i = 0; i < c; i += 2) {
-      double avg = (input[row][i] + input[row][i + 1]) / Math.sqrt(2);
-      double diff = (input[row][i] - input[row][i + 1]) / Math.sqrt(2);
-      output[i / 2] = avg;
-      output[i / 2 + half] = diff;
-    }
-    return output;
-  }
-
-  /**
-   * Transform one column of the input matrix into averages and differences.
-   *
-   * @param input the input matrix.
-   * @param col the column to transform.
-   * @param c the length of the column to transform.
-   * @return the transformed column.
-   */
-  private static double[] transformStepCol(double[][] input, int col, int c) {
-    int half = c / 2;
-    double[] output = new double[c];
-    for (int i = 0; i < c; i += 2) {
-      double avg = (input[i][col] + input[i + 1][col]) / Math.sqrt(2);
-      double diff = (input[i][col] - input[i + 1][col]) / Math.sqrt(2);
-      output[i / 2] = avg;
-      output[i / 2 + half] = diff;
-    }
-    return output;
-  }
-
-  /**
-   * Inverse the transform of averages/differences back into its original data.
-   *
-   * @param channels the array of channels.
+   * @param red the red channel.
+   * @param green the green channel.
+   * @param blue the blue channel.
+   * @param stride the number of columns of every channel array.
+   * @param width the width of the final image.
+   * @param height the height of the final image.
+   * @return the image object.
    */
-  static void inverse(double[][]... channels) {
-    for (double[][] channel : channels) {
-      int c = 2;
-      while (c <= channel.length) {
-        for (int i = 0; i < c; i++) {
-          double[] inversedRow = inverseStepRow(channel, i, c);
-          for (int x = 0; x < c; x++) {
-            channel[i][x] = inversedRow[x];
-          }
-        }
-        for (int i = 0; i < c; i++) {
-          double[] inversedCol = inverseStepCol(channel, i, c);
-          for (int y = 0; y < c; y++) {
-            channel[y][i] = inversedCol[y];
-          }
-        }
-
-        c *= 2;
+  static ReadOnlyImage combineChannels(
+      double[] red, double[] green, double[] blue, int stride, int width, int height) {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      int offset = y * stride;
+      for (int x = 0; x < width; x++) {
+        row[x] =
+            Colors.fromRgb(
+                Colors.clamp((int) Math.round(red[offset + x])),
+                Colors.clamp((int) Math.round(green[offset + x])),
+                Colors.clamp((int) Math.round(blue[offset + x])));
       }
+      builder.setRow(y, row, 0);
     }
-  }
-
-  /**
-   * Inverse transform one row of the input matrix.
-   *
-   * @param input the input matrix.
-   * @param row the row to invert.
-   * @param c the length of the row to invert.
-   * @return the inverted row.
-   */
-  private static double[] inverseStepRow(double[][] input, int row, int c) {
-    int half = c / 2;
-    double[] avgs = new double[half];
-    double[] diffs = new double[half];
-
-    for (int i = 0; i < half; i++) {
-      double a = input[row][i];
-      double b = input[row][i + half];
-
-      double avg = (a + b) / Math.sqrt(2);
-      double diff = (a - b) / Math.sqrt(2);
-      avgs[i] = avg;
-      diffs[i] = diff;
-    }
-
-    return interleave(avgs, diffs);
-  }
-
-  /**
-   * Inverse transform one column of the input matrix.
-   *
-   * @param input the input matrix.
-   * @param col the column to invert.
-   * @param c the length of the column to invert.
-   * @return the inverted column.
-   */
-  private static double[] inverseStepCol(double[][] input, int col, int c) {
-    int half = c / 2;
-    double[] avgs = new double[half];
-    double[] diffs = new double[half];
-
-    for (int i = 0; i < half; i++) {
-      double a = input[i][col];
-      double b = input[i + half][col];
-
-      double avg = (a + b) / Math.sqrt(2);
-      double diff = (a - b) / Math.sqrt(2);
-      avgs[i] = avg;
-      diffs[i] = diff;
-    }
-
-    return interleave(avgs, diffs);
+    return builder.build();
   }
 
   /**
@@ -272,38 +301,35 @@ public class HaarWaveletCompression implements ImageOperation {
   }
 
   /**
-   * Flatten the matrix into a list, row-by-row.
+   * Count the number of non-zero values in the given matrix.
    *
    * @param data the matrix.
-   * @return the flattened list.
+   * @return the number of non-zero values.
    */
-  static List<Double> flatten(double[][] data) {
+  static int countNonZero(double[][] data) {
     int size = data.length;
-    List<Double> output = new ArrayList<>();
+    int numNonZero = 0;
     for (int y = 0; y < size; y++) {
       for (int x = 0; x < size; x++) {
         if (data[y][x] != 0) {
-          output.add(Math.abs(data[y][x]));
+          numNonZero += 1;
         }
       }
     }
-    return output;
+    return numNonZero;
   }
 
   /**
-   * Count the number of non-zero values in the given matrix.
+   * Count the number of non-zero values in the given channel.
    *
-   * @param data the matrix.
+   * @param data the channel.
    * @return the number of non-zero values.
    */
-  static int countNonZero(double[][] data) {
-    int size = data.length;
+  static int countNonZero(double[] data) {
     int numNonZero = 0;
-    for (int y = 0; y < size; y++) {
-      for (int x = 0; x < size; x++) {
-        if (data[y][x] != 0) {
-          numNonZero += 1;
-        }
+    for (double value : data) {
+      if (value != 0) {
+        numNonZero += 1;
       }
     }
     return numNonZero;
@@ -315,14 +341,11 @@ public class HaarWaveletCompression implements ImageOperation {
    * @param threshold the threshold at which to set values to zero.
    * @param channels the array of channels.
    */
-  static void threshold(double threshold, double[][]... channels) {
-    for (double[][] channel : channels) {
-      int size = channel.length;
-      for (int y = 0; y < size; y++) {
-        for (int x = 0; x < size; x++) {
-          if (Math.abs(channel[y][x]) <= threshold) {
-            channel[y][x] = 0;
-          }
+  static void threshold(double threshold, double[]... channels) {
+    for (double[] channel : channels) {
+      for (int i = 0; i < channel.length; i++) {
+        if (Math.abs(channel[i]) <= threshold) {
+          channel[i] = 0;
         }
       }
     }
@@ -334,10 +357,10 @@ public class HaarWaveletCompression implements ImageOperation {
    * @param channels the array of channels.
    * @return the threshold value.
    */
-  double calculateThresholdValue(double[][]... channels) {
+  double calculateThresholdValue(double[]... channels) {
     // get the number of non-zero values to remove
     int numNonZeroInitial = 0;
-    for (double[][] channel : channels) {
+    for (double[] channel : channels) {
       numNonZeroInitial += countNonZero(channel);
     }
     int numNonZeroFinal = numNonZeroInitial - (int) Math.round(percentage * numNonZeroInitial);
@@ -353,35 +376,441 @@ public class HaarWaveletCompression implements ImageOperation {
       return Double.POSITIVE_INFINITY;
     }
 
-    // get a sorted list of all values in each channel
-    List<Double> flattenedValues = new ArrayList<>();
-    for (double[][] channel : channels) {
-      List<Double> values =
-          flatten(channel).stream()
-              .map(Math::abs)
-              .filter(value -> value > 0)
-              .collect(Collectors.toList());
-      flattenedValues.addAll(values);
+    return selectMagnitude(numNonZeroPixelsToRemove, channels);
+  }
+
+  /**
+   * Find the kth smallest non-zero magnitude in the channels, counting from 0, without copying
+   * every magnitude. The bit patterns of non-negative doubles sort in the same order as their
+   * values, so this selects on the bits 16 at a time: every pass counts the magnitudes that share
+   * the bits found so far by their next 16 bits, and keeps the bucket the kth magnitude falls in.
+   * Once few enough magnitudes are left, they are copied out and selected from directly.
+   *
+   * @param k the index of the magnitude in ascending order.
+   * @param channels the array of channels.
+   * @return the kth smallest non-zero magnitude.
+   * @throws IllegalArgumentException if there are not more than k non-zero values.
+   */
+  static double selectMagnitude(int k, double[]... channels) throws IllegalArgumentException {
+    int[] counts = new int[1 << RADIX_BITS];
+    long prefix = 0;
+    long prefixMask = 0;
+    for (int shift = Long.SIZE - RADIX_BITS; shift >= 0; shift -= RADIX_BITS) {
+      Arrays.fill(counts, 0);
+      for (double[] channel : channels) {
+        for (double value : channel) {
+          long bits = Double.doubleToRawLongBits(Math.abs(value));
+          if (value != 0 && (bits & prefixMask) == prefix) {
+            counts[(int) (bits >>> shift) & RADIX_MASK] += 1;
+          }
+        }
+      }
+
+      int bucket = 0;
+      while (bucket < counts.length && k >= counts[bucket]) {
+        k -= counts[bucket];
+        bucket += 1;
+      }
+      if (bucket == counts.length) {
+        throw new IllegalArgumentException("there are not enough non-zero values");
+      }
+      prefix |= ((long) bucket) << shift;
+      prefixMask |= ((long) RADIX_MASK) << shift;
+
+      // every value left has the same bits, or few enough are left to select from directly
+      if (shift == 0) {
+        return Double.longBitsToDouble(prefix);
+      }
+      if (counts[bucket] <= SELECTION_BUFFER_SIZE) {
+        double[] candidates = new double[counts[bucket]];
+        int length = 0;
+        for (double[] channel : channels) {
+          for (double value : channel) {
+            long bits = Double.doubleToRawLongBits(Math.abs(value));
+            if (value != 0 && (bits & prefixMask) == prefix) {
+              candidates[length] = Math.abs(value);
+              length += 1;
+            }
+          }
+        }
+        return select(candidates, length, k);
+      }
     }
-    flattenedValues.sort(Double::compare);
+    throw new IllegalStateException("unreachable");
+  }
 
-    return flattenedValues.get(numNonZeroPixelsToRemove);
+  /**
+   * Find the kth smallest of the first length values, counting from 0, by quickselect. The values
+   * are reordered.
+   *
+   * @param values the values.
+   * @param length the number of values to select from.
+   * @param k the index of the value in ascending order.
+   * @return the kth smallest value.
+   */
+  static double select(double[] values, int length, int k) {
+    int left = 0;
+    int right = length - 1;
+    while (left < right) {
+      double pivot = medianOfThree(values[left], values[(left + right) >>> 1], values[right]);
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (values[i] < pivot) {
+          i++;
+        }
+        while (values[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          double swap = values[i];
+          values[i] = values[j];
+          values[j] = swap;
+          i++;
+          j--;
+        }
+      }
+
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        // everything between j and i is equal to the pivot
+        return values[k];
+      }
+    }
+    return values[k];
+  }
+
+  private static double medianOfThree(double a, double b, double c) {
+    return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  }
+
+  /**
+   * Transform an image and discard its smallest coefficients like this operation does, but do not
+   * transform it back. The height and width are padded to their own next powers of two, like the
+   * rectangular layout, whatever the layout of this operation.
+   *
+   * @param image the image.
+   * @return the red, green and blue coefficients, each a row-major array of the padded height times
+   *     the padded width.
+   */
+  public double[][] getCoefficients(ReadOnlyImage image) {
+    int paddedHeight = nextPowerOfTwo(image.getHeight());
+    int paddedWidth = nextPowerOfTwo(image.getWidth());
+    if (cache == null) {
+      double[][] coefficients = forward(image, paddedHeight, paddedWidth);
+      threshold(calculateThresholdValue(coefficients), coefficients);
+      return coefficients;
+    }
+
+    double[][] coefficients = cache.transformed(this, image, paddedHeight, paddedWidth);
+    double[][] copies = new double[coefficients.length][coefficients[0].length];
+    thresholdInto(calculateThresholdValue(coefficients), coefficients, copies);
+    return copies;
+  }
+
+  /**
+   * Extract the channels of an image, padded to the given size, and transform them forward.
+   *
+   * @param image the image.
+   * @param paddedHeight the padded height.
+   * @param paddedWidth the padded width.
+   * @return the red, green and blue coefficients.
+   */
+  private double[][] forward(ReadOnlyImage image, int paddedHeight, int paddedWidth) {
+    double[] red = new double[paddedHeight * paddedWidth];
+    double[] green = new double[paddedHeight * paddedWidth];
+    double[] blue = new double[paddedHeight * paddedWidth];
+    extractChannels(image, paddedWidth, red, green, blue);
+    transform.forward(paddedHeight, paddedWidth, red, green, blue);
+    return new double[][] {red, green, blue};
+  }
+
+  /**
+   * Copy the channels into the given buffers, setting the values at or below the threshold to zero
+   * like {@link #threshold} does, without changing the channels themselves.
+   *
+   * @param threshold the threshold at which to set values to zero.
+   * @param channels the channels.
+   * @param buffers the buffers, one as long as every channel.
+   */
+  private static void thresholdInto(double threshold, double[][] channels, double[][] buffers) {
+    for (int k = 0; k < channels.length; k++) {
+      double[] channel = channels[k];
+      double[] buffer = buffers[k];
+      for (int i = 0; i < channel.length; i++) {
+        buffer[i] = Math.abs(channel[i]) <= threshold ? 0 : channel[i];
+      }
+    }
+  }
+
+  /**
+   * Check if the forward transform of an image is in this operation's cache, at the size this
+   * operation's layout pads it to.
+   *
+   * @param image the image.
+   * @return true if compressing the image would reuse its cached transform.
+   */
+  boolean isTransformCached(ReadOnlyImage image) {
+    if (cache == null || layout == Layout.TILED) {
+      return false;
+    }
+    int[] padded = paddedSize(image);
+    return cache.get(image, padded[0], padded[1]) != null;
+  }
+
+  /**
+   * Get the size the square or rectangular layout pads an image to.
+   *
+   * @param image the image.
+   * @return the padded {height, width}.
+   */
+  private int[] paddedSize(ReadOnlyImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if (layout == Layout.SQUARE) {
+      int dimension = getTransformDimension(width, height);
+      return new int[] {dimension, dimension};
+    }
+    return new int[] {nextPowerOfTwo(height), nextPowerOfTwo(width)};
   }
 
   @Override
   public ReadOnlyImage apply(ReadOnlyImage image) {
     int width = image.getWidth();
     int height = image.getHeight();
-    int size = getTransformDimension(width, height);
+    if (layout == Layout.TILED) {
+      return applyTiled(image);
+    }
+
+    int[] padded = paddedSize(image);
+    int paddedHeight = padded[0];
+    int paddedWidth = padded[1];
+    if (cache == null) {
+      double[][] channels = forward(image, paddedHeight, paddedWidth);
+      threshold(calculateThresholdValue(channels), channels);
+      transform.inverse(paddedHeight, paddedWidth, channels);
+      return combineChannels(channels[0], channels[1], channels[2], paddedWidth, width, height);
+    }
+
+    // the buffers are shared by everything that uses the cache, so they are used under its lock
+    synchronized (cache) {
+      double[][] coefficients = cache.transformed(this, image, paddedHeight, paddedWidth);
+      double[][] channels = cache.buffers(coefficients[0].length);
+      thresholdInto(calculateThresholdValue(coefficients), coefficients, channels);
+      transform.inverse(paddedHeight, paddedWidth, channels);
+      return combineChannels(channels[0], channels[1], channels[2], paddedWidth, width, height);
+    }
+  }
+
+  /**
+   * Compress every tile of the image on its own, in parallel on the common fork-join pool, with
+   * the tiles split into at most as many tasks as the transform's parallelism.
+   *
+   * @param image the image.
+   * @return the compressed image.
+   */
+  private ReadOnlyImage applyTiled(ReadOnlyImage image) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] pixels = new int[height * width];
+    int tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE;
+    int tilesDown = (height + TILE_SIZE - 1) / TILE_SIZE;
+
+    int parallelism = transform.getParallelism();
+    TileTask task =
+        new TileTask(image, pixels, tilesAcross, 0, tilesAcross * tilesDown, parallelism);
+    if (parallelism == 1 || tilesAcross * tilesDown == 1) {
+      task.compressTiles();
+    } else {
+      ForkJoinPool.commonPool().invoke(task);
+    }
+
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    for (int y = 0; y < height; y++) {
+      builder.setRow(y, pixels, y * width);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Compresses a range of tiles, splitting it in two and compressing both halves in parallel while
+   * it may still become more than one task.
+   */
+  private final class TileTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final ReadOnlyImage image;
+    private final int[] pixels;
+    private final int tilesAcross;
+    private final int start;
+    private final int end;
+    private final int tasks;
+
+    /**
+     * Construct a new tile task. Tiles are numbered row by row.
+     *
+     * @param image the image.
+     * @param pixels the pixels of the compressed image, row by row.
+     * @param tilesAcross the number of tiles in every row of tiles.
+     * @param start the first tile to compress.
+     * @param end the tile after the last one to compress.
+     * @param tasks the most tasks this range may be split into.
+     */
+    private TileTask(
+        ReadOnlyImage image, int[] pixels, int tilesAcross, int start, int end, int tasks) {
+      this.image = image;
+      this.pixels = pixels;
+      this.tilesAcross = tilesAcross;
+      this.start = start;
+      this.end = end;
+      this.tasks = tasks;
+    }
 
-    double[][] red = extractChannelData(image, size, Colors::redFrom);
-    double[][] green = extractChannelData(image, size, Colors::greenFrom);
-    double[][] blue = extractChannelData(image, size, Colors::blueFrom);
-    transform(red, green, blue);
-    double thresholdValue = calculateThresholdValue(red, green, blue);
-    threshold(thresholdValue, red, green, blue);
-    inverse(red, green, blue);
+    @Override
+    protected void compute() {
+      int count = end - start;
+      if (tasks < 2 || count < 2) {
+        compressTiles();
+        return;
+      }
+      int startTasks = tasks / 2;
+      int middle = start + Math.max(1, (int) ((long) count * startTasks / tasks));
+      invokeAll(
+          new TileTask(image, pixels, tilesAcross, start, middle, startTasks),
+          new TileTask(image, pixels, tilesAcross, middle, end, tasks - startTasks));
+    }
 
-    return combineChannelData(red, green, blue, image.getWidth(), image.getHeight());
+    /** Compress every tile of this task's range, reusing the same buffers for all of them. */
+    private void compressTiles() {
+      int width = image.getWidth();
+      int[] tile = new int[TILE_SIZE * TILE_SIZE];
+      double[] red = new double[TILE_SIZE * TILE_SIZE];
+      double[] green = new double[TILE_SIZE * TILE_SIZE];
+      double[] blue = new double[TILE_SIZE * TILE_SIZE];
+      for (int index = start; index < end; index++) {
+        int top = (index / tilesAcross) * TILE_SIZE;
+        int left = (index % tilesAcross) * TILE_SIZE;
+        int tileHeight = Math.min(TILE_SIZE, image.getHeight() - top);
+        int tileWidth = Math.min(TILE_SIZE, width - left);
+        int paddedHeight = nextPowerOfTwo(tileHeight);
+        int paddedWidth = nextPowerOfTwo(tileWidth);
+
+        image.copyRegion(top, left, tileHeight, tileWidth, tile, 0);
+        Arrays.fill(red, 0);
+        Arrays.fill(green, 0);
+        Arrays.fill(blue, 0);
+        for (int y = 0; y < tileHeight; y++) {
+          for (int x = 0; x < tileWidth; x++) {
+            int pixel = tile[y * tileWidth + x];
+            red[y * paddedWidth + x] = Colors.redFrom(pixel);
+            green[y * paddedWidth + x] = Colors.greenFrom(pixel);
+            blue[y * paddedWidth + x] = Colors.blueFrom(pixel);
+          }
+        }
+
+        // values past the padded tile are left at zero, so they never count for the threshold
+        TILE_TRANSFORM.forward(paddedHeight, paddedWidth, red, green, blue);
+        double thresholdValue = calculateThresholdValue(red, green, blue);
+        threshold(thresholdValue, red, green, blue);
+        TILE_TRANSFORM.inverse(paddedHeight, paddedWidth, red, green, blue);
+
+        for (int y = 0; y < tileHeight; y++) {
+          int offset = (top + y) * width + left;
+          for (int x = 0; x < tileWidth; x++) {
+            pixels[offset + x] =
+                Colors.fromRgb(
+                    Colors.clamp((int) Math.round(red[y * paddedWidth + x])),
+                    Colors.clamp((int) Math.round(green[y * paddedWidth + x])),
+                    Colors.clamp((int) Math.round(blue[y * paddedWidth + x])));
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "<HaarWaveletCompression percentage=%.0f layout=%s>",
+        percentage * 100, layout.name().toLowerCase());
+  }
+
+  /**
+   * Holds the forward transform of a single image, for the compression operations it is given to,
+   * and the buffers they threshold it into. The image is only held weakly, and the coefficients and
+   * buffers softly, so the cache never keeps an image alive, and its arrays are dropped before the
+   * heap runs out. Images never change, so they are matched by identity.
+   */
+  public static final class TransformCache {
+    private WeakReference<ReadOnlyImage> image = new WeakReference<>(null);
+    private int paddedHeight;
+    private int paddedWidth;
+    private SoftReference<double[][]> coefficients = new SoftReference<>(null);
+    private SoftReference<double[][]> buffers = new SoftReference<>(null);
+
+    /**
+     * Get the cached coefficients of an image padded to the given size.
+     *
+     * @param image the image.
+     * @param paddedHeight the padded height.
+     * @param paddedWidth the padded width.
+     * @return the coefficients, or null if they are not cached.
+     */
+    private synchronized double[][] get(ReadOnlyImage image, int paddedHeight, int paddedWidth) {
+      if (this.image.get() != image
+          || this.paddedHeight != paddedHeight
+          || this.paddedWidth != paddedWidth) {
+        return null;
+      }
+      return coefficients.get();
+    }
+
+    /**
+     * Get the forward transform of an image padded to the given size, from the cache if it holds
+     * it, and otherwise transformed by the given operation in place of anything cached. The
+     * coefficients must not be changed.
+     *
+     * @param compression the operation that transforms the image.
+     * @param image the image.
+     * @param paddedHeight the padded height.
+     * @param paddedWidth the padded width.
+     * @return the red, green and blue coefficients.
+     */
+    private synchronized double[][] transformed(
+        HaarWaveletCompression compression, ReadOnlyImage image, int paddedHeight,
+        int paddedWidth) {
+      double[][] cached = get(image, paddedHeight, paddedWidth);
+      if (cached != null) {
+        return cached;
+      }
+      // drop the old coefficients before transforming, so both are never held at once
+      this.coefficients = new SoftReference<>(null);
+      cached = compression.forward(image, paddedHeight, paddedWidth);
+      this.image = new WeakReference<>(image);
+      this.paddedHeight = paddedHeight;
+      this.paddedWidth = paddedWidth;
+      this.coefficients = new SoftReference<>(cached);
+      return cached;
+    }
+
+    /**
+     * Get red, green and blue buffers of the given length, reusing the last ones if they are still
+     * held and as long.
+     *
+     * @param length the length of every buffer.
+     * @return the buffers.
+     */
+    private synchronized double[][] buffers(int length) {
+      double[][] reused = buffers.get();
+      if (reused == null || reused[0].length != length) {
+        buffers = new SoftReference<>(null);
+        reused = new double[3][length];
+        buffers = new SoftReference<>(reused);
+      }
+      return reused;
+    }
   }
 }
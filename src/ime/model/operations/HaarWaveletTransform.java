@@ -0,0 +1,440 @@
+package ime.model.operations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class implements the 2D Haar wavelet transform and its inverse on channels stored as flat,
+ * row-major double arrays. Only the first height * width values of each array are used, so buffers
+ * can be reused for smaller channels. Channels are transformed in place: every step writes its
+ * averages and differences into a small scratch buffer and copies them back, so no arrays are
+ * allocated per row or column. Column steps work on blocks of adjacent columns at a time, so that
+ * they read whole cache lines of every row instead of one value per row.
+ *
+ * <p>The channels, and the bands of rows and blocks of columns within each step, are transformed in
+ * parallel on the common fork-join pool, split into at most parallelism tasks at a time. Each value
+ * is computed exactly as the sequential transform would, so the result does not depend on the
+ * parallelism level.
+ */
+public final class HaarWaveletTransform {
+  private static final double SQRT_2 = Math.sqrt(2);
+
+  /** The number of adjacent columns each column step works on at once. */
+  private static final int BLOCK_WIDTH = 64;
+
+  /** Parts of a step with at most this many values are done by one task. */
+  private static final int TASK_THRESHOLD = 1 << 15;
+
+  private final int parallelism;
+
+  /** Construct a new transform that uses as many threads as there are available processors. */
+  public HaarWaveletTransform() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Construct a new transform that uses at most the given number of threads. A parallelism level
+   * of 1 transforms on the calling thread.
+   *
+   * @param parallelism the maximum number of threads to use.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public HaarWaveletTransform(int parallelism) throws IllegalArgumentException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be at least 1");
+    }
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Transform the channels into averages and differences, level by level, until the top left value
+   * is the only average left. Every level transforms the rows and then the columns of the top left
+   * part of the channel that still holds averages.
+   *
+   * @param height the number of rows of each channel. Must be a power of 2.
+   * @param width the number of columns of each channel. Must be a power of 2.
+   * @param channels the channels, each starting with its height * width values.
+   * @throws IllegalArgumentException if the dimensions or channels are invalid.
+   */
+  public void forward(int height, int width, double[]... channels)
+      throws IllegalArgumentException {
+    run(true, height, width, channels);
+  }
+
+  /**
+   * Inverse the transform of averages and differences back into the original data. Levels are
+   * undone in the opposite order to {@link #forward}, each one rows first and then columns.
+   *
+   * @param height the number of rows of each channel. Must be a power of 2.
+   * @param width the number of columns of each channel. Must be a power of 2.
+   * @param channels the channels, each starting with its height * width values.
+   * @throws IllegalArgumentException if the dimensions or channels are invalid.
+   */
+  public void inverse(int height, int width, double[]... channels)
+      throws IllegalArgumentException {
+    run(false, height, width, channels);
+  }
+
+  /**
+   * Get the maximum number of threads this transform uses.
+   *
+   * @return the parallelism level.
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Check the arguments, and transform every channel.
+   *
+   * @param forward whether to run the forward transform rather than the inverse.
+   * @param height the number of rows of each channel.
+   * @param width the number of columns of each channel.
+   * @param channels the channels.
+   */
+  private void run(boolean forward, int height, int width, double[]... channels) {
+    if (height < 1 || width < 1 || Integer.bitCount(height) != 1 || Integer.bitCount(width) != 1) {
+      throw new IllegalArgumentException("dimensions must be powers of 2");
+    }
+    for (double[] channel : Objects.requireNonNull(channels)) {
+      if (channel == null || channel.length < height * width) {
+        throw new IllegalArgumentException("channels must hold height * width values");
+      }
+    }
+
+    // channels share the parallelism, and run a few at a time when there are more of them
+    List<ChannelTask> tasks = new ArrayList<>();
+    for (int k = 0; k < channels.length; k++) {
+      int share = parallelism / channels.length + (k < parallelism % channels.length ? 1 : 0);
+      tasks.add(new ChannelTask(forward, channels[k], height, width, Math.max(1, share)));
+    }
+
+    if (parallelism == 1 || (long) height * width <= TASK_THRESHOLD) {
+      for (ChannelTask task : tasks) {
+        task.transformSequentially();
+      }
+    } else {
+      ForkJoinPool.commonPool().invoke(new AllTask(tasks, parallelism));
+    }
+  }
+
+  /**
+   * Get the size of every level of the forward transform, as {rows, columns} of the part that
+   * still holds averages before the level. Each level halves every dimension greater than 1, so
+   * after the last level only the single average at the top left is left.
+   *
+   * @param height the number of rows, a power of 2.
+   * @param width the number of columns, a power of 2.
+   * @return the level sizes, from the first level of the forward transform to the last.
+   * @throws IllegalArgumentException if a dimension is not a power of 2.
+   */
+  public static int[][] getLevelSizes(int height, int width) throws IllegalArgumentException {
+    if (height < 1 || width < 1 || Integer.bitCount(height) != 1 || Integer.bitCount(width) != 1) {
+      throw new IllegalArgumentException("dimensions must be powers of 2");
+    }
+    return levels(height, width).toArray(new int[0][]);
+  }
+
+  /**
+   * Get the size of every level of the forward transform, as {rows, columns} of the part that
+   * still holds averages. Each level halves every dimension greater than 1.
+   *
+   * @param height the number of rows.
+   * @param width the number of columns.
+   * @return the level sizes, in forward order.
+   */
+  private static List<int[]> levels(int height, int width) {
+    List<int[]> levels = new ArrayList<>();
+    int rows = height;
+    int columns = width;
+    while (rows > 1 || columns > 1) {
+      levels.add(new int[] {rows, columns});
+      rows = Math.max(1, rows / 2);
+      columns = Math.max(1, columns / 2);
+    }
+    return levels;
+  }
+
+  /** Runs the channel tasks in parallel, at most the given number of them at a time. */
+  private static final class AllTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final List<ChannelTask> tasks;
+    private final int parallelism;
+
+    private AllTask(List<ChannelTask> tasks, int parallelism) {
+      this.tasks = tasks;
+      this.parallelism = parallelism;
+    }
+
+    @Override
+    protected void compute() {
+      for (int k = 0; k < tasks.size(); k += parallelism) {
+        invokeAll(tasks.subList(k, Math.min(k + parallelism, tasks.size())));
+      }
+    }
+  }
+
+  /** Transforms one channel, level by level, splitting every step into parallel parts. */
+  private static final class ChannelTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean forward;
+    private final double[] data;
+    private final int height;
+    private final int width;
+    private final int tasks;
+
+    private ChannelTask(boolean forward, double[] data, int height, int width, int tasks) {
+      this.forward = forward;
+      this.data = data;
+      this.height = height;
+      this.width = width;
+      this.tasks = tasks;
+    }
+
+    @Override
+    protected void compute() {
+      for (int[] level : orderedLevels()) {
+        if (level[1] > 1) {
+          rowStep(level).invoke();
+        }
+        if (level[0] > 1) {
+          columnStep(level).invoke();
+        }
+      }
+    }
+
+    /** Transform the channel on the calling thread. */
+    private void transformSequentially() {
+      for (int[] level : orderedLevels()) {
+        if (level[1] > 1) {
+          rowStep(level).stepPart();
+        }
+        if (level[0] > 1) {
+          columnStep(level).stepPart();
+        }
+      }
+    }
+
+    /**
+     * Create the task that steps every row of a level.
+     *
+     * @param level the {rows, columns} of the level.
+     * @return the task.
+     */
+    private StepTask rowStep(int[] level) {
+      return new StepTask(forward, false, data, width, level[1], level[1], 0, level[0], tasks);
+    }
+
+    /**
+     * Create the task that steps every column of a level.
+     *
+     * @param level the {rows, columns} of the level.
+     * @return the task.
+     */
+    private StepTask columnStep(int[] level) {
+      int blocks = (level[1] + BLOCK_WIDTH - 1) / BLOCK_WIDTH;
+      return new StepTask(forward, true, data, width, level[0], level[1], 0, blocks, tasks);
+    }
+
+    private List<int[]> orderedLevels() {
+      List<int[]> levels = levels(height, width);
+      if (!forward) {
+        Collections.reverse(levels);
+      }
+      return levels;
+    }
+  }
+
+  /**
+   * Does one step of one level on a range of rows, or on a range of column blocks, splitting the
+   * range in two while it is large and may still become more than one task.
+   */
+  private static final class StepTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean forward;
+    private final boolean columns;
+    private final double[] data;
+    private final int stride;
+    private final int length;
+    private final int extent;
+    private final int start;
+    private final int end;
+    private final int tasks;
+
+    /**
+     * Construct a new step task.
+     *
+     * @param forward whether to run the forward step rather than the inverse.
+     * @param columns whether to step columns rather than rows.
+     * @param data the channel.
+     * @param stride the number of values in every row of the channel.
+     * @param length the number of values of every row or column to step.
+     * @param extent the number of columns to step, when stepping columns.
+     * @param start the first row, or column block, to step.
+     * @param end the row, or column block, after the last one to step.
+     * @param tasks the most tasks this range may be split into.
+     */
+    private StepTask(
+        boolean forward, boolean columns, double[] data, int stride, int length, int extent,
+        int start, int end, int tasks) {
+      this.forward = forward;
+      this.columns = columns;
+      this.data = data;
+      this.stride = stride;
+      this.length = length;
+      this.extent = extent;
+      this.start = start;
+      this.end = end;
+      this.tasks = tasks;
+    }
+
+    @Override
+    protected void compute() {
+      int count = end - start;
+      long values = (long) count * length * (columns ? BLOCK_WIDTH : 1);
+      if (tasks < 2 || count < 2 || values <= TASK_THRESHOLD) {
+        stepPart();
+        return;
+      }
+      int startTasks = tasks / 2;
+      int middle = start + Math.max(1, (int) ((long) count * startTasks / tasks));
+      invokeAll(
+          new StepTask(forward, columns, data, stride, length, extent, start, middle, startTasks),
+          new StepTask(
+              forward, columns, data, stride, length, extent, middle, end, tasks - startTasks));
+    }
+
+    /** Step every row or column block of this task's range. */
+    private void stepPart() {
+      if (!columns) {
+        double[] scratch = new double[length];
+        for (int row = start; row < end; row++) {
+          if (forward) {
+            forwardRow(data, row * stride, length, scratch);
+          } else {
+            inverseRow(data, row * stride, length, scratch);
+          }
+        }
+        return;
+      }
+
+      double[] scratch = new double[length * BLOCK_WIDTH];
+      for (int block = start; block < end; block++) {
+        int column = block * BLOCK_WIDTH;
+        int blockWidth = Math.min(BLOCK_WIDTH, extent - column);
+        if (forward) {
+          forwardColumns(data, stride, column, blockWidth, length, scratch);
+        } else {
+          inverseColumns(data, stride, column, blockWidth, length, scratch);
+        }
+      }
+    }
+  }
+
+  /**
+   * Transform the first c values of a row into averages followed by differences.
+   *
+   * @param data the channel.
+   * @param offset the index of the first value of the row.
+   * @param c the number of values to transform.
+   * @param scratch a buffer of at least c values.
+   */
+  private static void forwardRow(double[] data, int offset, int c, double[] scratch) {
+    int half = c / 2;
+    for (int i = 0; i < half; i++) {
+      double a = data[offset + 2 * i];
+      double b = data[offset + 2 * i + 1];
+      scratch[i] = (a + b) / SQRT_2;
+      scratch[i + half] = (a - b) / SQRT_2;
+    }
+    System.arraycopy(scratch, 0, data, offset, c);
+  }
+
+  /**
+   * Inverse transform the first c values of a row, interleaving the recovered pairs.
+   *
+   * @param data the channel.
+   * @param offset the index of the first value of the row.
+   * @param c the number of values to invert.
+   * @param scratch a buffer of at least c values.
+   */
+  private static void inverseRow(double[] data, int offset, int c, double[] scratch) {
+    int half = c / 2;
+    for (int i = 0; i < half; i++) {
+      double a = data[offset + i];
+      double b = data[offset + i + half];
+      scratch[2 * i] = (a + b) / SQRT_2;
+      scratch[2 * i + 1] = (a - b) / SQRT_2;
+    }
+    System.arraycopy(scratch, 0, data, offset, c);
+  }
+
+  /**
+   * Transform the first c values of a block of adjacent columns into averages followed by
+   * differences. The scratch buffer holds the block row by row.
+   *
+   * @param data the channel.
+   * @param stride the number of values in every row of the channel.
+   * @param column the first column of the block.
+   * @param blockWidth the number of columns in the block.
+   * @param c the number of values of every column to transform.
+   * @param scratch a buffer of at least c * BLOCK_WIDTH values.
+   */
+  private static void forwardColumns(
+      double[] data, int stride, int column, int blockWidth, int c, double[] scratch) {
+    int half = c / 2;
+    for (int i = 0; i < half; i++) {
+      int top = 2 * i * stride + column;
+      int bottom = top + stride;
+      int avg = i * BLOCK_WIDTH;
+      int diff = (i + half) * BLOCK_WIDTH;
+      for (int x = 0; x < blockWidth; x++) {
+        double a = data[top + x];
+        double b = data[bottom + x];
+        scratch[avg + x] = (a + b) / SQRT_2;
+        scratch[diff + x] = (a - b) / SQRT_2;
+      }
+    }
+    for (int y = 0; y < c; y++) {
+      System.arraycopy(scratch, y * BLOCK_WIDTH, data, y * stride + column, blockWidth);
+    }
+  }
+
+  /**
+   * Inverse transform the first c values of a block of adjacent columns, interleaving the
+   * recovered pairs. The scratch buffer holds the block row by row.
+   *
+   * @param data the channel.
+   * @param stride the number of values in every row of the channel.
+   * @param column the first column of the block.
+   * @param blockWidth the number of columns in the block.
+   * @param c the number of values of every column to invert.
+   * @param scratch a buffer of at least c * BLOCK_WIDTH values.
+   */
+  private static void inverseColumns(
+      double[] data, int stride, int column, int blockWidth, int c, double[] scratch) {
+    int half = c / 2;
+    for (int i = 0; i < half; i++) {
+      int top = i * stride + column;
+      int bottom = (i + half) * stride + column;
+      int first = 2 * i * BLOCK_WIDTH;
+      int second = first + BLOCK_WIDTH;
+      for (int x = 0; x < blockWidth; x++) {
+        double a = data[top + x];
+        double b = data[bottom + x];
+        scratch[first + x] = (a + b) / SQRT_2;
+        scratch[second + x] = (a - b) / SQRT_2;
+      }
+    }
+    for (int y = 0; y < c; y++) {
+      System.arraycopy(scratch, y * BLOCK_WIDTH, data, y * stride + column, blockWidth);
+    }
+  }
+}
@@ -1,16 +1,18 @@
 package ime.model.operations;
 
-import ime.model.image.ReadOnlyImage;
-
 /**
  * Adjusts the levels of each pixel by applying a quadratic equation, a(x^2) + bx + c, to each
- * channel of each pixel in the image being processed.
+ * channel of each pixel in the image being processed. The result for every channel value is
+ * precomputed into a lookup table, so the equation is only evaluated 256 times per operation.
  */
-public class LevelsAdjustment extends AbstractLinearTransformation implements ImageOperation {
+@PerPixel
+public class LevelsAdjustment extends AbstractLinearTransformation
+        implements PointOperation, ImageOperation {
 
   private final float a;
   private final float b;
   private final float c;
+  private final LookupTable table;
 
   /**
    * Find the a, b, and c values for the quadratic equation in order to be able to find the adjusted
@@ -30,27 +32,24 @@ public class LevelsAdjustment extends AbstractLinearTransformation implements Im
     this.a = aSubA / bigA;
     this.b = aSubB / bigA;
     this.c = aSubC / bigA;
+    this.table = new LookupTable(this::adjust);
   }
 
   @Override
-  public int findRed(int i, int j, ReadOnlyImage image) {
+  public int applyToPixel(int pixel) {
 
-    int red = image.getColor(i, j).getRed();
-    return Math.round((a * red * red) + (b * red) + c);
+    return table.applyToPixel(pixel);
   }
 
   @Override
-  public int findGreen(int i, int j, ReadOnlyImage image) {
+  public LookupTable toLookupTable() {
 
-    int green = image.getColor(i, j).getGreen();
-    return Math.round((a * green * green) + (b * green) + c);
+    return table;
   }
 
-  @Override
-  public int findBlue(int i, int j, ReadOnlyImage image) {
+  private int adjust(int value) {
 
-    int blue = image.getColor(i, j).getBlue();
-    return Math.round((a * blue * blue) + (b * blue) + c);
+    return Math.round((a * value * value) + (b * value) + c);
   }
 
   @Override
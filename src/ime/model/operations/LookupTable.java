@@ -0,0 +1,177 @@
+package ime.model.operations;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntUnaryOperator;
+
+import ime.util.Colors;
+
+/**
+ * A LookupTable performs a point operation by looking up the new
+ * value of every channel in a precomputed table of 256 entries, one
+ * table per channel. Lookup tables can be composed, so any number of
+ * point operations in a row still cost only three array lookups per
+ * pixel.
+ */
+@PerPixel
+public final class LookupTable extends AbstractLinearTransformation implements PointOperation {
+
+  private static final int TABLE_SIZE = 256;
+
+  private final int[] redTable;
+  private final int[] greenTable;
+  private final int[] blueTable;
+
+  /**
+   * Compile a function of a single channel value into a lookup
+   * table. The same function is used for all three channels, and
+   * its results are clamped to the range 0 to 255.
+   *
+   * @param channelFunction The function from an old channel value to
+   *                        its new value.
+   */
+  public LookupTable(IntUnaryOperator channelFunction) {
+
+    Objects.requireNonNull(channelFunction);
+
+    int[] table = new int[TABLE_SIZE];
+    for (int value = 0; value < TABLE_SIZE; value += 1) {
+
+      table[value] = Colors.clamp(channelFunction.applyAsInt(value));
+    }
+
+    this.redTable = table;
+    this.greenTable = table;
+    this.blueTable = table;
+  }
+
+  /**
+   * Create a lookup table from one table of 256 entries per
+   * channel. The tables are copied, and their values are clamped to
+   * the range 0 to 255.
+   *
+   * @param redTable   The new values of the red channel.
+   * @param greenTable The new values of the green channel.
+   * @param blueTable  The new values of the blue channel.
+   * @throws IllegalArgumentException if a table does not have 256 entries.
+   */
+  public LookupTable(int[] redTable, int[] greenTable, int[] blueTable)
+          throws IllegalArgumentException {
+
+    this.redTable = copyTable(redTable);
+    this.greenTable = copyTable(greenTable);
+    this.blueTable = copyTable(blueTable);
+  }
+
+  private static int[] copyTable(int[] table) throws IllegalArgumentException {
+
+    if ((table == null) || (table.length != TABLE_SIZE)) {
+      throw new IllegalArgumentException("Lookup tables must have 256 entries!");
+    }
+
+    int[] copy = new int[TABLE_SIZE];
+    for (int value = 0; value < TABLE_SIZE; value += 1) {
+
+      copy[value] = Colors.clamp(table[value]);
+    }
+
+    return copy;
+  }
+
+  /**
+   * Compose a sequence of point operations into a single lookup
+   * table that has the same effect as applying them one after the
+   * other, in order.
+   *
+   * @param operations The point operations, in the order they are applied.
+   * @return table     The composed lookup table.
+   * @throws IllegalArgumentException if there are no operations.
+   */
+  public static LookupTable compose(List<? extends PointOperation> operations)
+          throws IllegalArgumentException {
+
+    if ((operations == null) || operations.isEmpty()) {
+      throw new IllegalArgumentException("There must be at least one operation to compose!");
+    }
+
+    LookupTable table = operations.get(0).toLookupTable();
+    for (int k = 1; k < operations.size(); k += 1) {
+
+      table = table.andThen(operations.get(k));
+    }
+
+    return table;
+  }
+
+  /**
+   * Compose this lookup table with a point operation that is
+   * applied after it.
+   *
+   * @param next The point operation applied after this one.
+   * @return table    The composed lookup table.
+   */
+  public LookupTable andThen(PointOperation next) {
+
+    LookupTable nextTable = Objects.requireNonNull(next).toLookupTable();
+
+    int[] red = new int[TABLE_SIZE];
+    int[] green = new int[TABLE_SIZE];
+    int[] blue = new int[TABLE_SIZE];
+    for (int value = 0; value < TABLE_SIZE; value += 1) {
+
+      red[value] = nextTable.redTable[redTable[value]];
+      green[value] = nextTable.greenTable[greenTable[value]];
+      blue[value] = nextTable.blueTable[blueTable[value]];
+    }
+
+    return new LookupTable(red, green, blue);
+  }
+
+  @Override
+  public int applyToPixel(int pixel) {
+
+    return Colors.fromRgb(
+            redTable[Colors.redFrom(pixel)],
+            greenTable[Colors.greenFrom(pixel)],
+            blueTable[Colors.blueFrom(pixel)]);
+  }
+
+  @Override
+  public LookupTable toLookupTable() {
+
+    return this;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+
+    if (this == o) {
+      return true;
+    }
+
+    if (!(o instanceof LookupTable)) {
+      return false;
+    }
+
+    LookupTable that = (LookupTable) o;
+
+    return Arrays.equals(redTable, that.redTable)
+            && Arrays.equals(greenTable, that.greenTable)
+            && Arrays.equals(blueTable, that.blueTable);
+  }
+
+  @Override
+  public int hashCode() {
+
+    return Objects.hash(
+            Arrays.hashCode(redTable),
+            Arrays.hashCode(greenTable),
+            Arrays.hashCode(blueTable));
+  }
+
+  @Override
+  public String toString() {
+    return "<LookupTable>";
+  }
+}
@@ -1,52 +1,59 @@
 package ime.model.operations;
 
-import ime.model.color.ColorImpl;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
 import ime.model.image.ReadOnlyImage;
-import ime.model.image.ReadOnlyImageImpl;
 import ime.model.operations.ImageOperation;
+import ime.util.Colors;
 
 /**
  * Takes in a matrix and multiplies it by the channels of each pixel
  * of the image. The new resultant matrix represents the new values
  * of the image pixel's colors.
  */
-public abstract class MatrixMultiplication implements ImageOperation {
+public abstract class MatrixMultiplication implements PixelOperation, ImageOperation {
 
   @Override
   public ReadOnlyImage apply(ReadOnlyImage image) {
 
     int height = image.getHeight();
     int width = image.getWidth();
-    ReadOnlyImageImpl.ReadOnlyImageBuilder resImageBuilder =
-            new ReadOnlyImageImpl.ReadOnlyImageBuilder(height, width);
+    IReadOnlyImageBuilder resImageBuilder =
+            new PackedReadOnlyImage.PackedImageBuilder(height, width);
 
-    int r;
-    int g;
-    int b;
-    int[] newColors;
+    int[] row = new int[width];
     for (int i = 0; i < height; i += 1) {
 
-      for (int j = 0; j < width; j += 1) {
-
-        r = image.getColor(i, j).getRed();
-        g = image.getColor(i, j).getGreen();
-        b = image.getColor(i, j).getBlue();
-
-        newColors = multiplyMatrices(r, g, b);
+      image.copyRow(i, row, 0);
 
-        r = newColors[0];
-        g = newColors[1];
-        b = newColors[2];
+      for (int j = 0; j < width; j += 1) {
 
-        resImageBuilder.setPixel(i, j, new ColorImpl(r, g, b));
+        row[j] = applyToPixel(row[j]);
 
       }
 
+      resImageBuilder.setRow(i, row, 0);
+
     }
 
     return resImageBuilder.build();
   }
 
+  @Override
+  public int applyToPixel(int pixel) {
+
+    float[][] transformMatrix = getTransformationMatrix();
+
+    int r = Colors.redFrom(pixel);
+    int g = Colors.greenFrom(pixel);
+    int b = Colors.blueFrom(pixel);
+
+    return Colors.fromRgb(
+            Colors.clamp(multiplyRow(transformMatrix[0], r, g, b)),
+            Colors.clamp(multiplyRow(transformMatrix[1], r, g, b)),
+            Colors.clamp(multiplyRow(transformMatrix[2], r, g, b)));
+  }
+
   /**
    * Take in a 3x3 matrix and multiply it by the RGB values
    * of the current pixel. The new resultant matrix represents
@@ -67,16 +74,29 @@ public abstract class MatrixMultiplication implements ImageOperation {
 
     for (int i = 0; i < height; i += 1) {
 
-      resMatrix[i] = Math.round(
-              (transformMatrix[i][0] * r)
-                      + (transformMatrix[i][1] * g)
-                      + (transformMatrix[i][2] * b));
+      resMatrix[i] = multiplyRow(transformMatrix[i], r, g, b);
 
     }
 
     return resMatrix;
   }
 
+  private static int multiplyRow(float[] matrixRow, int r, int g, int b) {
+
+    return Math.round(
+            (matrixRow[0] * r)
+                    + (matrixRow[1] * g)
+                    + (matrixRow[2] * b));
+  }
+
+  /**
+   * Provide the 3x3 matrix that is multiplied by the RGB
+   * values of every pixel. This is called once per pixel,
+   * so implementations should return the same matrix every
+   * time instead of creating a new one.
+   *
+   * @return matrix   The 3x3 transformation matrix.
+   */
   protected abstract float[][] getTransformationMatrix();
 
 }
@@ -0,0 +1,20 @@
+package ime.model.operations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link PixelOperation} whose apply gives exactly the image
+ * that applyToPixel gives on every pixel, so that it can run as one
+ * stage of a {@link PixelPipeline} instead. The mark is not inherited:
+ * a subclass may change apply, so it is only per-pixel if it is
+ * marked itself.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface PerPixel {
+}
@@ -0,0 +1,25 @@
+package ime.model.operations;
+
+/**
+ * A PixelOperation is an image operation where the new
+ * value of every pixel depends only on the old value of
+ * that same pixel. Such operations can transform a single
+ * packed 24-bit RGB pixel at a time, without looking at the
+ * rest of the image and without allocating any objects.
+ *
+ * <p>Implementing this interface does not make apply per-pixel:
+ * only operations marked {@link PerPixel} are fused into a
+ * {@link PixelPipeline}.
+ */
+public interface PixelOperation extends ImageOperation {
+
+  /**
+   * Transform one pixel of an image.
+   *
+   * @param pixel The current pixel as a 24-bit RGB value.
+   * @return newPixel     The transformed pixel as a 24-bit RGB
+   *                      value, with every channel clamped to
+   *                      the range 0 to 255.
+   */
+  public int applyToPixel(int pixel);
+}
@@ -0,0 +1,136 @@
+package ime.model.operations;
+
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A PixelPipeline applies several pixel operations one after
+ * the other in a single pass over the image, so none of the
+ * intermediate images are ever built. Every run of consecutive
+ * point operations is first composed into a single
+ * {@link LookupTable}. The result is exactly the same as applying
+ * each operation to the whole image in turn.
+ */
+@PerPixel
+public final class PixelPipeline extends AbstractLinearTransformation implements PixelOperation {
+
+  private final PixelOperation[] stages;
+
+  /**
+   * Build the pipeline for the given operations.
+   *
+   * @param operations The pixel operations, in the order they are applied.
+   * @throws IllegalArgumentException if there are no operations.
+   */
+  public PixelPipeline(List<? extends PixelOperation> operations)
+          throws IllegalArgumentException {
+
+    if ((operations == null) || operations.isEmpty()) {
+      throw new IllegalArgumentException("There must be at least one operation to fuse!");
+    }
+
+    List<PixelOperation> fused = new ArrayList<>();
+    List<PointOperation> points = new ArrayList<>();
+    for (PixelOperation operation : operations) {
+
+      if (operation instanceof PointOperation) {
+
+        points.add((PointOperation) operation);
+        continue;
+      }
+
+      if (!points.isEmpty()) {
+        fused.add(LookupTable.compose(points));
+        points.clear();
+      }
+
+      fused.add(operation);
+    }
+
+    if (!points.isEmpty()) {
+      fused.add(LookupTable.compose(points));
+    }
+
+    this.stages = fused.toArray(new PixelOperation[0]);
+  }
+
+  /**
+   * Get the number of passes this pipeline makes over every pixel,
+   * after point operations have been composed.
+   *
+   * @return stages   The number of stages.
+   */
+  public int getStageCount() {
+
+    return stages.length;
+  }
+
+  /**
+   * Apply every stage to one row of the image at a time. The row
+   * stays in cache while each stage runs over it in its own loop.
+   *
+   * @param image The image to transform.
+   * @return result   The transformed image.
+   */
+  @Override
+  public ReadOnlyImage apply(ReadOnlyImage image) {
+
+    int height = image.getHeight();
+    int width = image.getWidth();
+
+    IReadOnlyImageBuilder resImageBuilder =
+            new PackedReadOnlyImage.PackedImageBuilder(height, width);
+
+    int[] row = new int[width];
+    for (int i = 0; i < height; i += 1) {
+
+      image.copyRow(i, row, 0);
+
+      for (PixelOperation stage : stages) {
+
+        for (int j = 0; j < width; j += 1) {
+
+          row[j] = stage.applyToPixel(row[j]);
+        }
+
+      }
+
+      resImageBuilder.setRow(i, row, 0);
+
+    }
+
+    return resImageBuilder.build();
+  }
+
+  @Override
+  public int applyToPixel(int pixel) {
+
+    for (PixelOperation stage : stages) {
+
+      pixel = stage.applyToPixel(pixel);
+    }
+
+    return pixel;
+  }
+
+  @Override
+  public String toString() {
+
+    StringBuilder builder = new StringBuilder("<PixelPipeline stages=\"");
+    for (int k = 0; k < stages.length; k += 1) {
+
+      if (k > 0) {
+        builder.append(", ");
+      }
+
+      builder.append(stages[k]);
+    }
+
+    return builder.append("\">").toString();
+  }
+
+}
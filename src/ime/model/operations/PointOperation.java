@@ -0,0 +1,19 @@
+package ime.model.operations;
+
+/**
+ * A PointOperation is a pixel operation where the new value of
+ * every channel depends only on the old value of that same
+ * channel. Since a channel can only hold 256 different values,
+ * every point operation can be compiled into a {@link LookupTable},
+ * and several point operations in a row can be composed into one.
+ */
+public interface PointOperation extends PixelOperation {
+
+  /**
+   * Get the lookup table that performs this operation.
+   *
+   * @return table    The lookup table that maps every old channel
+   *                  value to its new value.
+   */
+  public LookupTable toLookupTable();
+}
@@ -2,8 +2,9 @@ package ime.model.operations;
 
 import java.util.Objects;
 
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
 import ime.model.image.ReadOnlyImage;
-import ime.model.image.ReadOnlyImageImpl;
 import ime.model.operations.ImageOperation;
 
 /**
@@ -35,18 +36,18 @@ public class PreviewSplitOperation implements ImageOperation {
     Objects.requireNonNull(image); // make sure image ain't null
 
     ReadOnlyImage previewImage = operation.apply(image);
-    ReadOnlyImageImpl.ReadOnlyImageBuilder outputImageBuilder =
-            new ReadOnlyImageImpl.ReadOnlyImageBuilder(image.getHeight(), image.getWidth());
+    IReadOnlyImageBuilder outputImageBuilder =
+            new PackedReadOnlyImage.PackedImageBuilder(image.getHeight(), image.getWidth());
 
-    int boundaryX = (int) Math.round(image.getWidth() * percentage);
+    int width = image.getWidth();
+    int boundaryX = (int) Math.round(width * percentage);
+    int[] row = new int[width];
+    int[] previewRow = new int[width];
     for (int y = 0; y < image.getHeight(); y++) {
-      for (int x = 0; x < image.getWidth(); x++) {
-        if (x < boundaryX) {
-          outputImageBuilder.setPixel(y, x, previewImage.getColor(y, x));
-        } else {
-          outputImageBuilder.setPixel(y, x, image.getColor(y, x));
-        }
-      }
+      image.copyRow(y, row, 0);
+      previewImage.copyRow(y, previewRow, 0);
+      System.arraycopy(previewRow, 0, row, 0, boundaryX);
+      outputImageBuilder.setRow(y, row, 0);
     }
 
     return outputImageBuilder.build();
@@ -1,9 +1,8 @@
 package ime.model.operations;
 
-import ime.model.color.Color;
-import ime.model.color.ColorImpl;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
 import ime.model.image.ReadOnlyImage;
-import ime.model.image.ReadOnlyImageImpl;
 import ime.model.operations.ThreeImageOperation;
 
 /**
@@ -28,25 +27,28 @@ public class RGBCombine implements ThreeImageOperation {
     int height = firstImage.getHeight();
     int width = firstImage.getWidth();
 
-    ReadOnlyImageImpl.ReadOnlyImageBuilder combinedImageBuilder =
-            new ReadOnlyImageImpl.ReadOnlyImageBuilder(height, width);
+    IReadOnlyImageBuilder combinedImageBuilder =
+            new PackedReadOnlyImage.PackedImageBuilder(height, width);
 
-    Color tempColor;
-    int r;
-    int g;
-    int b;
+    // rows are read in bulk, which is also how channel views are read cheaply
+    int[] firstRow = new int[width];
+    int[] secondRow = new int[width];
+    int[] thirdRow = new int[width];
     for (int i = 0; i < height; i += 1) {
 
-      for (int j = 0; j < width; j += 1) {
+      firstImage.copyRow(i, firstRow, 0);
+      secondImage.copyRow(i, secondRow, 0);
+      thirdImage.copyRow(i, thirdRow, 0);
 
-        r = firstImage.getColor(i, j).getRed();
-        g = secondImage.getColor(i, j).getGreen();
-        b = thirdImage.getColor(i, j).getBlue();
+      for (int j = 0; j < width; j += 1) {
 
-        tempColor = new ColorImpl(r, g, b);
-        combinedImageBuilder.setPixel(i, j, tempColor);
+        firstRow[j] = (firstRow[j] & 0xFF0000)
+                | (secondRow[j] & 0x00FF00)
+                | (thirdRow[j] & 0x0000FF);
       }
 
+      combinedImageBuilder.setRow(i, firstRow, 0);
+
     }
 
     return combinedImageBuilder.build();
@@ -5,16 +5,18 @@ package ime.model.operations;
  * class in order to transform the image into a sepia filtered
  * image.
  */
+@PerPixel
 public class SepiaTone extends MatrixMultiplication implements ImageOperation {
 
+  private static final float[][] SEPIA_MATRIX = new float[][]{
+          {0.393f, 0.769f, 0.189f},
+          {0.349f, 0.686f, 0.168f},
+          {0.272f, 0.534f, 0.131f}
+  };
+
   @Override
   protected float[][] getTransformationMatrix() {
-    return new float[][]{
-            {0.393f, 0.769f, 0.189f},
-            {0.349f, 0.686f, 0.168f},
-            {0.272f, 0.534f, 0.131f}
-
-    };
+    return SEPIA_MATRIX;
   }
 
 }
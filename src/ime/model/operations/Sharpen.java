@@ -15,7 +15,27 @@ public class Sharpen extends AbstractFilter implements ImageOperation {
    */
   public Sharpen() {
 
-    filter = new float[][]{
+    filter = createFilter();
+
+  }
+
+  /**
+   * Instantiate the 5x5 Sharpen filter, using at most the given
+   * number of threads to filter an image.
+   *
+   * @param parallelism The maximum number of threads to use.
+   * @throws IllegalArgumentException if the parallelism is less than 1.
+   */
+  public Sharpen(int parallelism) throws IllegalArgumentException {
+
+    super(parallelism);
+    filter = createFilter();
+
+  }
+
+  private static float[][] createFilter() {
+
+    return new float[][]{
 
             {-1 / 8f, -1 / 8f, -1 / 8f, -1 / 8f, -1 / 8f},
             {-1 / 8f, 1 / 4f, 1 / 4f, 1 / 4f, -1 / 8f},
@@ -24,7 +44,6 @@ public class Sharpen extends AbstractFilter implements ImageOperation {
             {-1 / 8f, -1 / 8f, -1 / 8f, -1 / 8f, -1 / 8f}
 
     };
-
   }
 
   @Override
@@ -0,0 +1,417 @@
+package ime.model.session;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import ime.model.image.FlippedImage;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.MaskedImage;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+
+/**
+ * A session that keeps at most a given number of bytes of images in memory. Once the images in
+ * memory go over the budget, the least recently used ones are spilled to a file as packed pixels,
+ * and read back the next time they are asked for. Every image is counted as 4 bytes per pixel,
+ * the size of a {@link PackedReadOnlyImage}. Views such as a {@link FlippedImage} or a {@link
+ * MaskedImage} are copied into packed pixels when they are inserted, since they keep their source
+ * alive: counted as they are, spilling a source would free nothing while its views are in memory.
+ *
+ * <p>Images are written to and read from the spill file through memory-mapped buffers. An image
+ * that is read back keeps its place in the file until it is replaced, so spilling it again does not
+ * write anything. The places of replaced images are reused for later spills.
+ *
+ * <p>The session counts its hits, the images that were asked for while in memory, its misses, the
+ * images that had to be read back from the file, and its spills, the images written to the file.
+ */
+public class BoundedSession implements Session, Closeable {
+  /** The most bytes mapped at once when spilling or reading back an image. */
+  private static final int MAP_SIZE = 1 << 26;
+
+  private final long memoryBudget;
+  private final Path spillPath;
+  private final boolean deleteOnClose;
+  private final FileChannel spill;
+
+  /** The images by name, from the least to the most recently used. */
+  private final LinkedHashMap<String, Entry> entries;
+
+  /** The free places of the spill file, as {offset, length}, sorted by offset. */
+  private final List<long[]> free;
+
+  private long spillEnd;
+  private long memoryUsed;
+  private long hits;
+  private long misses;
+  private long spills;
+
+  /**
+   * Construct a new session with the given memory budget, that spills to a temporary file. The file
+   * is deleted when the session is closed, or when the program exits.
+   *
+   * @param memoryBudget the most bytes of images to keep in memory. Must be positive.
+   * @throws IllegalArgumentException if the budget is not positive.
+   * @throws UncheckedIOException if the spill file could not be created.
+   */
+  public BoundedSession(long memoryBudget) throws IllegalArgumentException {
+    this(memoryBudget, createTemporaryFile(), true);
+  }
+
+  /**
+   * Construct a new session with the given memory budget, that spills to the given file. Anything
+   * in the file is overwritten, and the file is left in place when the session is closed.
+   *
+   * @param memoryBudget the most bytes of images to keep in memory. Must be positive.
+   * @param spillPath the path of the spill file.
+   * @throws IllegalArgumentException if the budget is not positive.
+   * @throws UncheckedIOException if the spill file could not be opened.
+   */
+  public BoundedSession(long memoryBudget, Path spillPath) throws IllegalArgumentException {
+    this(memoryBudget, spillPath, false);
+  }
+
+  private BoundedSession(long memoryBudget, Path spillPath, boolean deleteOnClose)
+      throws IllegalArgumentException {
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("memory budget must be positive");
+    }
+    this.memoryBudget = memoryBudget;
+    this.spillPath = Objects.requireNonNull(spillPath);
+    this.deleteOnClose = deleteOnClose;
+    try {
+      this.spill =
+          FileChannel.open(
+              spillPath,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.READ,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException("spill file could not be opened", e);
+    }
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.free = new ArrayList<>();
+  }
+
+  private static Path createTemporaryFile() {
+    try {
+      Path path = Files.createTempFile("ime-session", ".spill");
+      path.toFile().deleteOnExit();
+      return path;
+    } catch (IOException e) {
+      throw new UncheckedIOException("spill file could not be created", e);
+    }
+  }
+
+  @Override
+  public ReadOnlyImage getImage(String name) throws IllegalArgumentException {
+    Entry entry = entries.get(name);
+    if (entry == null) {
+      throw new IllegalArgumentException("Image has not been loaded into the session!");
+    }
+
+    if (entry.image != null) {
+      hits += 1;
+      return entry.image;
+    }
+
+    misses += 1;
+    entry.image = readBack(entry);
+    memoryUsed += entry.bytes();
+    evict(entry);
+    return entry.image;
+  }
+
+  @Override
+  public void insertOrReplaceImage(String name, ReadOnlyImage image) {
+    Objects.requireNonNull(image);
+    Entry entry = new Entry(ownPixels(image));
+    Entry old = entries.put(name, entry);
+    if (old != null) {
+      if (old.image != null) {
+        memoryUsed -= old.bytes();
+      }
+      release(old);
+    }
+    memoryUsed += entry.bytes();
+    evict(entry);
+  }
+
+  /**
+   * Get the most bytes of images this session keeps in memory.
+   *
+   * @return the memory budget.
+   */
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /**
+   * Get the bytes of the images in memory. This can only be over the budget while a single image
+   * is larger than the budget on its own.
+   *
+   * @return the bytes in memory.
+   */
+  public long getMemoryUsed() {
+    return memoryUsed;
+  }
+
+  /**
+   * Get the number of images that were asked for while in memory.
+   *
+   * @return the hit count.
+   */
+  public long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Get the number of images that had to be read back from the spill file.
+   *
+   * @return the miss count.
+   */
+  public long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Get the number of images that were written to the spill file.
+   *
+   * @return the spill count.
+   */
+  public long getSpillCount() {
+    return spills;
+  }
+
+  /**
+   * Close the spill file, and delete it if it was a temporary file. The session cannot be used
+   * afterwards.
+   *
+   * @throws IOException if the file could not be closed or deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    spill.close();
+    if (deleteOnClose) {
+      Files.deleteIfExists(spillPath);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "<BoundedSession budget=%d used=%d hits=%d misses=%d spills=%d>",
+        memoryBudget, memoryUsed, hits, misses, spills);
+  }
+
+  /**
+   * Spill the least recently used images until the images in memory fit the budget again. The
+   * given image stays in memory even if it does not fit on its own.
+   *
+   * @param keep the entry that was just used.
+   * @throws UncheckedIOException if an image could not be spilled.
+   */
+  private void evict(Entry keep) {
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (memoryUsed > memoryBudget && iterator.hasNext()) {
+      Entry entry = iterator.next();
+      if (entry == keep || entry.image == null) {
+        continue;
+      }
+      if (entry.offset < 0) {
+        write(entry);
+        spills += 1;
+      }
+      entry.image = null;
+      memoryUsed -= entry.bytes();
+    }
+  }
+
+  /**
+   * Get an image that holds its own pixels, copying views of other images into packed pixels.
+   *
+   * @param image the image.
+   * @return the image itself, or its copy if it is a view.
+   */
+  private static ReadOnlyImage ownPixels(ReadOnlyImage image) {
+    if (!(image instanceof FlippedImage) && !(image instanceof MaskedImage)) {
+      return image;
+    }
+    IReadOnlyImageBuilder copy =
+        new PackedReadOnlyImage.PackedImageBuilder(image.getHeight(), image.getWidth());
+    int[] row = new int[image.getWidth()];
+    for (int y = 0; y < image.getHeight(); y++) {
+      image.copyRow(y, row, 0);
+      copy.setRow(y, row, 0);
+    }
+    return copy.build();
+  }
+
+  /**
+   * Write the pixels of an image to a free place of the spill file.
+   *
+   * @param entry the entry of the image.
+   * @throws UncheckedIOException if the image could not be written.
+   */
+  private void write(Entry entry) {
+    ReadOnlyImage image = entry.image;
+    entry.offset = allocate(entry.bytes());
+    int width = image.getWidth();
+    int[] row = new int[width];
+    try {
+      for (Chunk chunk : chunks(entry)) {
+        MappedByteBuffer buffer =
+            spill.map(FileChannel.MapMode.READ_WRITE, chunk.offset, chunk.bytes);
+        IntBuffer pixels = buffer.asIntBuffer();
+        for (int y = chunk.startRow; y < chunk.endRow; y++) {
+          image.copyRow(y, row, 0);
+          pixels.put(row);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("image could not be spilled", e);
+    }
+  }
+
+  /**
+   * Read the pixels of a spilled image back from the spill file.
+   *
+   * @param entry the entry of the image.
+   * @return the image.
+   * @throws UncheckedIOException if the image could not be read.
+   */
+  private ReadOnlyImage readBack(Entry entry) {
+    IReadOnlyImageBuilder image =
+        new PackedReadOnlyImage.PackedImageBuilder(entry.height, entry.width);
+    int[] row = new int[entry.width];
+    try {
+      for (Chunk chunk : chunks(entry)) {
+        MappedByteBuffer buffer =
+            spill.map(FileChannel.MapMode.READ_ONLY, chunk.offset, chunk.bytes);
+        IntBuffer pixels = buffer.asIntBuffer();
+        for (int y = chunk.startRow; y < chunk.endRow; y++) {
+          pixels.get(row);
+          image.setRow(y, row, 0);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("image could not be read back", e);
+    }
+    return image.build();
+  }
+
+  /**
+   * Split the rows of an image into chunks of at most MAP_SIZE bytes, or a single row if a row is
+   * larger than that.
+   *
+   * @param entry the entry of the image.
+   * @return the chunks.
+   */
+  private static List<Chunk> chunks(Entry entry) {
+    long rowBytes = 4L * entry.width;
+    int rowsPerChunk = (int) Math.max(1, MAP_SIZE / Math.max(1, rowBytes));
+    List<Chunk> chunks = new ArrayList<>();
+    for (int y = 0; y < entry.height; y += rowsPerChunk) {
+      int endRow = Math.min(entry.height, y + rowsPerChunk);
+      chunks.add(new Chunk(entry.offset + y * rowBytes, (endRow - y) * rowBytes, y, endRow));
+    }
+    return chunks;
+  }
+
+  /**
+   * Find a place for the given number of bytes in the spill file, reusing the first free place
+   * that is large enough, or growing the file otherwise.
+   *
+   * @param bytes the number of bytes.
+   * @return the offset of the place.
+   */
+  private long allocate(long bytes) {
+    for (int k = 0; k < free.size(); k++) {
+      long[] place = free.get(k);
+      if (place[1] >= bytes) {
+        long offset = place[0];
+        place[0] += bytes;
+        place[1] -= bytes;
+        if (place[1] == 0) {
+          free.remove(k);
+        }
+        return offset;
+      }
+    }
+    long offset = spillEnd;
+    spillEnd += bytes;
+    return offset;
+  }
+
+  /**
+   * Give the place of a replaced image in the spill file back, merging it with the free places
+   * next to it.
+   *
+   * @param entry the entry of the replaced image.
+   */
+  private void release(Entry entry) {
+    if (entry.offset < 0 || entry.bytes() == 0) {
+      return;
+    }
+    int k = 0;
+    while (k < free.size() && free.get(k)[0] < entry.offset) {
+      k += 1;
+    }
+    long[] place = {entry.offset, entry.bytes()};
+    free.add(k, place);
+    if (k + 1 < free.size() && place[0] + place[1] == free.get(k + 1)[0]) {
+      place[1] += free.remove(k + 1)[1];
+    }
+    if (k > 0 && free.get(k - 1)[0] + free.get(k - 1)[1] == place[0]) {
+      free.get(k - 1)[1] += place[1];
+      free.remove(k);
+    }
+  }
+
+  /** An image of the session, in memory, in the spill file, or both. */
+  private static final class Entry {
+    private final int height;
+    private final int width;
+    private ReadOnlyImage image;
+    private long offset;
+
+    private Entry(ReadOnlyImage image) {
+      this.height = image.getHeight();
+      this.width = image.getWidth();
+      this.image = image;
+      this.offset = -1;
+    }
+
+    private long bytes() {
+      return 4L * height * width;
+    }
+  }
+
+  /** A range of rows of a spilled image, and where they are in the spill file. */
+  private static final class Chunk {
+    private final long offset;
+    private final long bytes;
+    private final int startRow;
+    private final int endRow;
+
+    private Chunk(long offset, long bytes, int startRow, int endRow) {
+      this.offset = offset;
+      this.bytes = bytes;
+      this.startRow = startRow;
+      this.endRow = endRow;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package ime.model.session;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import ime.model.image.ReadOnlyImage;
+
+/**
+ * A session that can be used by many threads at once. Images are kept in a ConcurrentHashMap, so
+ * getting an image never locks, and inserting or replacing an image only locks the map bin of
+ * its name, for as long as it takes to store a reference.
+ *
+ * <p>Every name maps to a future of its image. An image that is computed with {@link
+ * #getOrCompute} is computed outside the map, once, by the first thread that asks for it; threads
+ * that ask for the same name meanwhile wait for that computation, and threads that use other names
+ * are never held up by it. {@link #update} replaces an image with a function of itself by comparing
+ * and swapping, without locking.
+ */
+public class ConcurrentSession implements Session {
+  private final ConcurrentMap<String, Future<ReadOnlyImage>> images;
+
+  /** Construct a new, empty concurrent session. */
+  public ConcurrentSession() {
+    images = new ConcurrentHashMap<>();
+  }
+
+  @Override
+  public ReadOnlyImage getImage(String name) throws IllegalArgumentException {
+    Future<ReadOnlyImage> image = images.get(Objects.requireNonNull(name));
+    if (image == null) {
+      throw new IllegalArgumentException("Image has not been loaded into the session!");
+    }
+    return await(name, image);
+  }
+
+  @Override
+  public void insertOrReplaceImage(String name, ReadOnlyImage image) {
+    images.put(Objects.requireNonNull(name),
+        CompletableFuture.completedFuture(Objects.requireNonNull(image)));
+  }
+
+  /**
+   * Get the image with the given name, computing and inserting it first if there is none. The
+   * image is computed at most once, on the calling thread, even if many threads ask for it at the
+   * same time. If the computation fails, the name is left without an image.
+   *
+   * @param name the image name.
+   * @param compute the function that computes the image from its name.
+   * @return the image.
+   * @throws IllegalArgumentException if the computation failed or computed no image.
+   */
+  public ReadOnlyImage getOrCompute(
+      String name, Function<? super String, ? extends ReadOnlyImage> compute)
+      throws IllegalArgumentException {
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(compute);
+
+    Future<ReadOnlyImage> image = images.get(name);
+    if (image == null) {
+      FutureTask<ReadOnlyImage> task =
+          new FutureTask<>(() -> Objects.requireNonNull(compute.apply(name)));
+      image = images.putIfAbsent(name, task);
+      if (image == null) {
+        image = task;
+        task.run();
+      }
+    }
+    return await(name, image);
+  }
+
+  /**
+   * Replace the image with the given name by a function of itself, atomically. If another thread
+   * replaces the image in the meantime, the function is applied again to the new image, so it may
+   * be applied more than once and should not have side effects.
+   *
+   * @param name the image name.
+   * @param update the function from the current image to its replacement.
+   * @return the replacement.
+   * @throws IllegalArgumentException if there is no image with the given name.
+   */
+  public ReadOnlyImage update(String name, UnaryOperator<ReadOnlyImage> update)
+      throws IllegalArgumentException {
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(update);
+
+    while (true) {
+      Future<ReadOnlyImage> current = images.get(name);
+      if (current == null) {
+        throw new IllegalArgumentException("Image has not been loaded into the session!");
+      }
+      ReadOnlyImage image = Objects.requireNonNull(update.apply(await(name, current)));
+      if (images.replace(name, current, CompletableFuture.completedFuture(image))) {
+        return image;
+      }
+    }
+  }
+
+  /**
+   * Remove the image with the given name, if there is one.
+   *
+   * @param name the image name.
+   * @return true if an image was removed.
+   */
+  public boolean removeImage(String name) {
+    return images.remove(Objects.requireNonNull(name)) != null;
+  }
+
+  /**
+   * Get the number of names that have an image, or one being computed.
+   *
+   * @return the number of images.
+   */
+  public int size() {
+    return images.size();
+  }
+
+  /**
+   * Wait for the image of a name. If it could not be computed, the name is left without an image.
+   *
+   * @param name the image name.
+   * @param image the future of the image.
+   * @return the image.
+   * @throws IllegalArgumentException if the image could not be computed.
+   */
+  private ReadOnlyImage await(String name, Future<ReadOnlyImage> image)
+      throws IllegalArgumentException {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return image.get();
+        } catch (InterruptedException e) {
+          // keep waiting, since the computation cannot be abandoned halfway
+          interrupted = true;
+        } catch (ExecutionException e) {
+          images.remove(name, image);
+          Throwable cause = e.getCause();
+          if (cause instanceof IllegalArgumentException) {
+            throw (IllegalArgumentException) cause;
+          }
+          throw new IllegalArgumentException("Image could not be computed!", cause);
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
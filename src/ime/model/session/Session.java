@@ -5,6 +5,9 @@ import ime.model.image.ReadOnlyImage;
 /**
  * This interface represents a working session in the IME program, where users can insert,
  * manipulate, and read images.
+ *
+ * <p>Sessions are only safe to use from one thread at a time, unless an implementation says
+ * otherwise. {@link ConcurrentSession} can be shared by many threads.
  */
 public interface Session {
   /**
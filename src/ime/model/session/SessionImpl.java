@@ -8,6 +8,7 @@ import ime.model.image.ReadOnlyImage;
 /**
  * Store and save images by their name so that
  * they can be accessed later on in the program.
+ * This session is not thread safe.
  */
 public class SessionImpl implements Session {
 
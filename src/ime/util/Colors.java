@@ -17,6 +17,16 @@ public class Colors {
     return ((r & 0xFF) << 16) + ((g & 0xFF) << 8) + (b & 0xFF);
   }
 
+  /**
+   * Clamp a channel value so that it stays within the valid range of 0 to 255.
+   *
+   * @param value channel value.
+   * @return the clamped channel value.
+   */
+  public static int clamp(int value) {
+    return Math.max(0, Math.min(255, value));
+  }
+
   /**
    * Get the red byte from a 24-bit color value.
    *
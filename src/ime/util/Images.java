@@ -1,41 +1,118 @@
 package ime.util;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.util.Objects;
 
-import ime.model.color.ColorImpl;
 import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
 import ime.model.image.ReadOnlyImage;
-import ime.model.image.ReadOnlyImageImpl;
-
-import static ime.util.Colors.blueFrom;
-import static ime.util.Colors.greenFrom;
-import static ime.util.Colors.redFrom;
 
 /**
  * Images provides methods to convert a BufferedImage
  * to a ReadOnly image, and vice versa. This facilitates
  * performing operations on an image's pixels and then
  * displaying it to the user.
+ *
+ * <p>For the common TYPE_INT_RGB, TYPE_INT_ARGB,
+ * TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR and TYPE_BYTE_GRAY
+ * images, the pixels are copied straight to or from the
+ * raster's data buffer a row at a time, without going
+ * through the ColorModel. Any other type of image falls
+ * back to getRGB and setRGB. Gray images are read as their
+ * raw sample values, the same way they are written.
  */
 public class Images {
 
   /**
-   * Convert a ReadOnlyImage to a BufferedImage.
+   * Convert a ReadOnlyImage to a TYPE_INT_RGB BufferedImage.
    *
    * @param image The ReadOnlyImage to be converted.
    * @return BufferedImage    The BufferedImage that can be passed
    *                          to the client/user.
    */
   public static BufferedImage fromReadOnlyImage(ReadOnlyImage image) {
+    return fromReadOnlyImage(image, BufferedImage.TYPE_INT_RGB);
+  }
+
+  /**
+   * Convert a ReadOnlyImage to a BufferedImage of the given type.
+   * Gray images get the luma of every pixel.
+   *
+   * @param image     The ReadOnlyImage to be converted.
+   * @param imageType The BufferedImage type, such as TYPE_INT_RGB.
+   * @return BufferedImage    The BufferedImage that can be passed
+   *                          to the client/user.
+   * @throws IllegalArgumentException if the type is not a predefined image type.
+   */
+  public static BufferedImage fromReadOnlyImage(ReadOnlyImage image, int imageType)
+          throws IllegalArgumentException {
     Objects.requireNonNull(image);
-    BufferedImage buffer =
-            new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
-    for (int y = 0; y < image.getHeight(); y++) {
-      for (int x = 0; x < image.getWidth(); x++) {
-        buffer.setRGB(x, y, image.getPixel(y, x));
+    int width = image.getWidth();
+    int height = image.getHeight();
+    BufferedImage buffer = new BufferedImage(width, height, imageType);
+    WritableRaster raster = buffer.getRaster();
+    DataBuffer dataBuffer = raster.getDataBuffer();
+    SampleModel sampleModel = raster.getSampleModel();
+
+    int[] row = new int[width];
+    if (isPackedInt(buffer, sampleModel, dataBuffer)) {
+
+      int[] data = ((DataBufferInt) dataBuffer).getData();
+      int stride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+      int alpha = (imageType == BufferedImage.TYPE_INT_ARGB) ? 0xFF000000 : 0;
+      for (int y = 0; y < height; y++) {
+        int start = dataBuffer.getOffset() + y * stride;
+        image.copyRow(y, data, start);
+        if (alpha != 0) {
+          for (int x = start; x < start + width; x++) {
+            data[x] |= alpha;
+          }
+        }
       }
+
+    } else if (isInterleavedByte(buffer, sampleModel, dataBuffer)) {
+
+      byte[] data = ((DataBufferByte) dataBuffer).getData();
+      ComponentSampleModel components = (ComponentSampleModel) sampleModel;
+      int[] offsets = components.getBandOffsets();
+      int pixelStride = components.getPixelStride();
+      for (int y = 0; y < height; y++) {
+        image.copyRow(y, row, 0);
+        int index = dataBuffer.getOffset() + y * components.getScanlineStride();
+        for (int x = 0; x < width; x++, index += pixelStride) {
+          int pixel = row[x];
+          if (offsets.length == 1) {
+            data[index + offsets[0]] = (byte) luma(pixel);
+            continue;
+          }
+          data[index + offsets[0]] = (byte) Colors.redFrom(pixel);
+          data[index + offsets[1]] = (byte) Colors.greenFrom(pixel);
+          data[index + offsets[2]] = (byte) Colors.blueFrom(pixel);
+          if (offsets.length == 4) {
+            data[index + offsets[3]] = (byte) 0xFF;
+          }
+        }
+      }
+
+    } else {
+
+      for (int y = 0; y < height; y++) {
+        image.copyRow(y, row, 0);
+        for (int x = 0; x < width; x++) {
+          row[x] |= 0xFF000000;
+        }
+        buffer.setRGB(0, y, width, 1, row, 0, width);
+      }
+
     }
+
     return buffer;
   }
 
@@ -48,16 +125,106 @@ public class Images {
    */
   public static ReadOnlyImage fromBufferedImage(BufferedImage buffer) {
     Objects.requireNonNull(buffer);
-    IReadOnlyImageBuilder image =
-            new ReadOnlyImageImpl.ReadOnlyImageBuilder(buffer.getHeight(), buffer.getWidth());
-    for (int x = 0; x < buffer.getWidth(); x++) {
-      for (int y = 0; y < buffer.getHeight(); y++) {
-        int b = buffer.getRGB(x, y);
-        image.setPixel(y, x, new ColorImpl(redFrom(b), greenFrom(b), blueFrom(b)));
+    int width = buffer.getWidth();
+    int height = buffer.getHeight();
+    IReadOnlyImageBuilder image = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    WritableRaster raster = buffer.getRaster();
+    DataBuffer dataBuffer = raster.getDataBuffer();
+    SampleModel sampleModel = raster.getSampleModel();
+    int translateX = raster.getSampleModelTranslateX();
+    int translateY = raster.getSampleModelTranslateY();
+
+    int[] row = new int[width];
+    if (isPackedInt(buffer, sampleModel, dataBuffer)) {
+
+      // the packed ARGB pixels are already in our format, and setRow drops the alpha byte
+      int[] data = ((DataBufferInt) dataBuffer).getData();
+      int stride = ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride();
+      for (int y = 0; y < height; y++) {
+        image.setRow(y, data, dataBuffer.getOffset() + (y - translateY) * stride - translateX);
+      }
+
+    } else if (isInterleavedByte(buffer, sampleModel, dataBuffer)) {
+
+      byte[] data = ((DataBufferByte) dataBuffer).getData();
+      ComponentSampleModel components = (ComponentSampleModel) sampleModel;
+      int[] offsets = components.getBandOffsets();
+      int pixelStride = components.getPixelStride();
+      int red = offsets[0];
+      int green = offsets[offsets.length == 1 ? 0 : 1];
+      int blue = offsets[offsets.length == 1 ? 0 : 2];
+      for (int y = 0; y < height; y++) {
+        int index = dataBuffer.getOffset() + (y - translateY) * components.getScanlineStride()
+                - translateX * pixelStride;
+        for (int x = 0; x < width; x++, index += pixelStride) {
+          row[x] = Colors.fromRgb(data[index + red] & 0xFF,
+                                  data[index + green] & 0xFF,
+                                  data[index + blue] & 0xFF);
+        }
+        image.setRow(y, row, 0);
+      }
+
+    } else {
+
+      for (int y = 0; y < height; y++) {
+        // getRGB returns ARGB pixels, and setRow drops the alpha byte
+        buffer.getRGB(0, y, width, 1, row, 0, width);
+        image.setRow(y, row, 0);
       }
+
     }
 
     // return the final image
     return image.build();
   }
+
+  /**
+   * Check if the image stores one packed, non-premultiplied RGB
+   * int per pixel, laid out like our own packed pixels.
+   *
+   * @param buffer      The image.
+   * @param sampleModel The sample model of its raster.
+   * @param dataBuffer  The data buffer of its raster.
+   * @return isPackedInt    Whether the pixels can be copied directly.
+   */
+  private static boolean isPackedInt(BufferedImage buffer, SampleModel sampleModel,
+                                     DataBuffer dataBuffer) {
+    int type = buffer.getType();
+    return (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+            && sampleModel instanceof SinglePixelPackedSampleModel
+            && dataBuffer instanceof DataBufferInt
+            && dataBuffer.getNumBanks() == 1;
+  }
+
+  /**
+   * Check if the image stores one byte per channel, interleaved,
+   * with the red, green and blue (or gray) bands first.
+   *
+   * @param buffer      The image.
+   * @param sampleModel The sample model of its raster.
+   * @param dataBuffer  The data buffer of its raster.
+   * @return isInterleavedByte    Whether the bytes can be copied directly.
+   */
+  private static boolean isInterleavedByte(BufferedImage buffer, SampleModel sampleModel,
+                                           DataBuffer dataBuffer) {
+    int type = buffer.getType();
+    return (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR
+            || type == BufferedImage.TYPE_BYTE_GRAY)
+            && sampleModel instanceof ComponentSampleModel
+            && dataBuffer instanceof DataBufferByte
+            && dataBuffer.getNumBanks() == 1;
+  }
+
+  /**
+   * Find the luma of a pixel, the gray value used for gray images.
+   * This is the same value the luma-component operation gives.
+   *
+   * @param pixel The packed RGB pixel.
+   * @return luma   The luma, from 0 to 255.
+   */
+  private static int luma(int pixel) {
+    return Colors.clamp(Math.round((0.2126f * Colors.redFrom(pixel))
+            + (0.7152f * Colors.greenFrom(pixel))
+            + (0.0722f * Colors.blueFrom(pixel))));
+  }
 }
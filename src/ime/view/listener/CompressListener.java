@@ -48,9 +48,13 @@ public class CompressListener
 
     frame.dispose();
 
+    // the preview compresses the image again on every slider move, so it keeps the transform
     new SplitViewListener(
             controller,
-            new HaarWaveletCompression(valuesInputted[0]))
+            new HaarWaveletCompression(
+                    valuesInputted[0],
+                    HaarWaveletCompression.Layout.SQUARE,
+                    new HaarWaveletCompression.TransformCache()))
             .actionPerformed(null);
   }
 
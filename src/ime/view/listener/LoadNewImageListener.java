@@ -56,7 +56,7 @@ public class LoadNewImageListener implements ActionListener {
     if (picker.showOpenDialog(parentFrame) == JFileChooser.APPROVE_OPTION) {
       String filePath = picker.getSelectedFile().getAbsolutePath();
       LoadCommandSupplier supplier =
-          new LoadCommandSupplier(Readers.get("ppm", "jpeg", "jpg", "png"));
+          new LoadCommandSupplier(Readers.get("ppm", "pnm", "jpeg", "jpg", "png", "hwc"));
       Command command = supplier.get(filePath, "image");
       controller.execute(command);
     }
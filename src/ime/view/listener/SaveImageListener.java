@@ -45,7 +45,7 @@ public class SaveImageListener implements ActionListener {
     if (picker.showSaveDialog(parentFrame) == JFileChooser.APPROVE_OPTION) {
       String filePath = picker.getSelectedFile().getAbsolutePath();
       SaveCommandSupplier supplier =
-          new SaveCommandSupplier(Writers.get("ppm", "jpeg", "jpg", "png"));
+          new SaveCommandSupplier(Writers.get("ppm", "pnm", "jpeg", "jpg", "png", "hwc"));
       Command command = supplier.get(filePath, "image");
       controller.execute(command);
     }
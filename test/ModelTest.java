@@ -24,6 +24,7 @@ import ime.model.operations.Histogram;
 import ime.model.operations.HorizontalFlip;
 import ime.model.operations.ImageOperation;
 import ime.model.operations.LevelsAdjustment;
+import ime.model.operations.PixelOperation;
 import ime.model.operations.PreviewSplitOperation;
 import ime.model.operations.RGBCombine;
 import ime.model.operations.SepiaTone;
@@ -33,6 +34,7 @@ import ime.util.Colors;
 
 import static ime.util.Colors.fromRgb;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 /**
  * Test whether the model part of the MVC architecture
@@ -1961,4 +1963,10 @@ public class ModelTest {
     }
 
   }
+
+  @Test
+  public void testDitherIsNotPerPixel() {
+    // error diffusion reads the neighbours of every pixel, so it must never be fused per pixel
+    assertFalse(new Dither() instanceof PixelOperation);
+  }
 }
\ No newline at end of file
@@ -7,6 +7,8 @@ import ime.controller.command.MapCommand;
 import ime.controller.command.RunCommand;
 import ime.controller.command.SplitCommand;
 import ime.controller.supplier.CommandSupplier;
+import ime.controller.supplier.CompressCommandSupplier;
+import ime.controller.supplier.GaussianBlurCommandSupplier;
 import ime.controller.supplier.LevelsCommandSupplier;
 import ime.controller.supplier.PreviewSplitMapCommandSupplier;
 import ime.controller.supplier.io.LoadCommandSupplier;
@@ -110,6 +112,84 @@ public abstract class AbstractSupplierTest {
     }
   }
 
+  /** This class tests the compress command supplier. */
+  public static class CompressCommandSupplierTest extends AbstractSupplierTest {
+    /** Construct a new test object. */
+    public CompressCommandSupplierTest() {
+      super(3);
+    }
+
+    @Override
+    protected CommandSupplier supplier() {
+      return new CompressCommandSupplier();
+    }
+
+    @Test
+    public void testDefaultLayout() {
+      Command command = supplier().get("50", "src", "dest");
+      assertEquals(
+          "<MapCommand inputName=\"src\" outputName=\"dest\" "
+              + "operation=\"<HaarWaveletCompression percentage=50 layout=square>\">",
+          command.toString());
+    }
+
+    @Test
+    public void testTiledLayout() {
+      Command command = supplier().get("20", "src", "dest", "Tiled");
+      assertEquals(
+          "<MapCommand inputName=\"src\" outputName=\"dest\" "
+              + "operation=\"<HaarWaveletCompression percentage=20 layout=tiled>\">",
+          command.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLayout() {
+      supplier().get("20", "src", "dest", "round");
+    }
+  }
+
+  /** This class tests the Gaussian blur command supplier. */
+  public static class GaussianBlurCommandSupplierTest extends AbstractSupplierTest {
+    /** Construct a new test object. */
+    public GaussianBlurCommandSupplierTest() {
+      super(4);
+    }
+
+    @Override
+    protected CommandSupplier supplier() {
+      return new GaussianBlurCommandSupplier();
+    }
+
+    @Test
+    public void testSupplierWithoutSplit() {
+      Command command = supplier().get("20", "6.5", "src", "dest");
+      assertEquals(
+          "<MapCommand inputName=\"src\" outputName=\"dest\" "
+              + "operation=\"<GaussianBlur radius=20 sigma=6.500>\">",
+          command.toString());
+    }
+
+    @Test
+    public void testSupplierWithSplit() {
+      Command command = supplier().get("2", "1", "src", "dest", "split", "50");
+      assertEquals(
+          "<MapCommand inputName=\"src\" outputName=\"dest\" "
+              + "operation=\"<PreviewSplit op=\"<GaussianBlur radius=2 sigma=1.000>\" "
+              + "percentage=\"0.50\">\">",
+          command.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSigma() {
+      supplier().get("2", "0", "src", "dest");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRadiusTooLarge() {
+      supplier().get("20000", "6.5", "src", "dest");
+    }
+  }
+
   /** This class tests the levels command supplier. */
   public static class LevelsCommandSupplierTest {
     @Test
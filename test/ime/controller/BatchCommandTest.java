@@ -0,0 +1,223 @@
+package ime.controller;
+
+import ime.controller.command.BatchCommand;
+import ime.controller.io.BinaryPpmImageWriter;
+import ime.controller.io.PpmImageReader;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import ime.model.operations.HorizontalFlip;
+import ime.model.operations.SepiaTone;
+import ime.model.session.BoundedSession;
+import ime.model.session.SessionImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** This class defines tests for the {@link BatchCommand} class. */
+public class BatchCommandTest {
+  private Path directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("ime-batch");
+    Files.createDirectory(directory.resolve("nested"));
+    for (int k = 0; k < 5; k++) {
+      writeImage(directory.resolve("photo" + k + ".pnm"), makeImage(k));
+    }
+    writeImage(directory.resolve("nested").resolve("photo5.pnm"), makeImage(5));
+    Files.writeString(directory.resolve("notes.txt"), "not an image");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Build a small image where every pixel depends on its position and the seed.
+   *
+   * @param seed the seed.
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage(int seed) {
+    PackedReadOnlyImage.PackedImageBuilder builder =
+        new PackedReadOnlyImage.PackedImageBuilder(6, 9);
+    for (int i = 0; i < 6; i++) {
+      for (int j = 0; j < 9; j++) {
+        builder.setPixel(i, j, fromRgb(i * 40, j * 25, seed * 50));
+      }
+    }
+    return builder.build();
+  }
+
+  private static void writeImage(Path path, ReadOnlyImage image) throws IOException {
+    try (OutputStream output = Files.newOutputStream(path)) {
+      new BinaryPpmImageWriter().write(output, image);
+    }
+  }
+
+  private static ReadOnlyImage readImage(Path path) throws IOException {
+    try (InputStream input = Files.newInputStream(path)) {
+      return new PpmImageReader().read(input);
+    }
+  }
+
+  /**
+   * Run a batch with the given template, and return its summary.
+   *
+   * @param template the script template.
+   * @param glob the glob of the input files.
+   * @return the summary.
+   */
+  private String runBatch(String template, String glob) throws IOException {
+    Path templatePath = directory.resolve("template.txt");
+    Files.writeString(templatePath, template);
+    StringBuilder summary = new StringBuilder();
+    new BatchCommand.Supplier(summary)
+        .get(templatePath.toString(), glob, "2")
+        .execute(new SessionImpl());
+    return summary.toString();
+  }
+
+  @Test
+  public void testProcessesEveryFile() throws IOException {
+    String summary =
+        runBatch(
+            "load {path} img\nsepia img img\nhorizontal-flip img img\n"
+                + "save {dir}/out-{name}.{ext} img\n",
+            directory + "/photo*.pnm");
+
+    assertTrue(summary, summary.startsWith("batch: 5 files in "));
+    assertTrue(summary, summary.endsWith(", 5 succeeded, 0 failed\n"));
+    for (int k = 0; k < 5; k++) {
+      ReadOnlyImage expected = new HorizontalFlip().apply(new SepiaTone().apply(makeImage(k)));
+      assertEquals(expected, readImage(directory.resolve("out-photo" + k + ".pnm")));
+    }
+  }
+
+  @Test
+  public void testReportsFailures() throws IOException {
+    Files.writeString(directory.resolve("photo9.pnm"), "P6 broken");
+    String summary =
+        runBatch("load {path} img\nsave {dir}/{index}.pnm img\n", directory + "/*.pnm");
+
+    assertTrue(summary, summary.contains("6 files"));
+    assertTrue(summary, summary.contains(", 5 succeeded, 1 failed\n"));
+    assertTrue(
+        summary,
+        summary.endsWith("failed: " + directory.resolve("photo9.pnm") + " (1 command failed)\n"));
+    assertTrue(Files.exists(directory.resolve("4.pnm")));
+  }
+
+  @Test
+  public void testReportsOfEveryFile() throws IOException {
+    String output = runBatch("load {path} img\nstats img\n", directory + "/photo*.pnm");
+
+    for (int k = 0; k < 5; k++) {
+      Path file = directory.resolve("photo" + k + ".pnm");
+      assertTrue(output, output.contains(file + ":\nsize: 9x6\n"));
+    }
+    assertTrue(output, output.contains("batch: 5 files in "));
+    assertTrue(output, output.endsWith(", 5 succeeded, 0 failed\n"));
+  }
+
+  @Test
+  public void testSummaryToControllerOutput() throws IOException {
+    Path templatePath = directory.resolve("template.txt");
+    Files.writeString(templatePath, "load {path} img\nstats img\n");
+    StringBuilder log = new StringBuilder();
+    new ExtendedTextController(
+            new StringReader(String.format("batch %s %s/photo*.pnm 2\n", templatePath, directory)),
+            log,
+            true,
+            1)
+        .run(new SessionImpl());
+
+    assertTrue(log.toString(), log.toString().contains(directory.resolve("photo3.pnm") + ":\n"));
+    assertTrue(log.toString(), log.toString().contains(", 5 succeeded, 0 failed\n"));
+  }
+
+  @Test
+  public void testExpand() throws IOException {
+    assertEquals(5, BatchCommand.expand(directory + "/*.pnm").size());
+    assertEquals(6, BatchCommand.expand(directory + "/**.pnm").size());
+    assertEquals(
+        List.of(directory.resolve("nested").resolve("photo5.pnm")),
+        BatchCommand.expand(directory + "/*/photo?.pnm"));
+    assertEquals(
+        List.of(directory.resolve("notes.txt")),
+        BatchCommand.expand(directory.resolve("notes.txt").toString()));
+    assertEquals(List.of(), BatchCommand.expand(directory + "/missing/*.pnm"));
+  }
+
+  @Test
+  public void testFillTemplate() {
+    assertEquals(
+        "load in/a.b.png x\nsave in/a.b-7.png x",
+        BatchCommand.fillTemplate(
+            "load {path} x\nsave {dir}/{name}-{index}.{ext} x", Path.of("in", "a.b.png"), 7));
+    assertEquals("./noext", BatchCommand.fillTemplate("{dir}/{name}{ext}", Path.of("noext"), 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoMatches() throws IOException {
+    runBatch("load {path} img\n", directory + "/*.jpg");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidLimit() {
+    new BatchCommand.Supplier(new StringBuilder()).get("template.txt", "*.png", "0");
+  }
+
+  @Test
+  public void testLimitThatIsNotANumber() {
+    try {
+      new BatchCommand.Supplier(new StringBuilder()).get("template.txt", "*.png", "two");
+      fail("the limit is not a number");
+    } catch (IllegalArgumentException e) {
+      assertEquals("invalid operation limit", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testEveryFileGetsASessionFromTheSupplier() throws IOException {
+    Path templatePath = directory.resolve("template.txt");
+    Files.writeString(templatePath, "load {path} img\nsepia img img\n");
+    List<BoundedSession> sessions = Collections.synchronizedList(new ArrayList<>());
+    new BatchCommand.Supplier(
+            new StringBuilder(),
+            () -> {
+              BoundedSession session = new BoundedSession(1 << 20);
+              sessions.add(session);
+              return session;
+            })
+        .get(templatePath.toString(), directory + "/photo*.pnm", "2")
+        .execute(new SessionImpl());
+
+    assertEquals(5, sessions.size());
+    for (BoundedSession session : sessions) {
+      assertEquals(6 * 9 * 4, session.getMemoryUsed());
+    }
+  }
+}
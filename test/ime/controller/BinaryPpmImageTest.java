@@ -0,0 +1,150 @@
+package ime.controller;
+
+import ime.controller.io.BinaryPpmImageReader;
+import ime.controller.io.BinaryPpmImageWriter;
+import ime.controller.io.PpmImageReader;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/** This class defines tests for the binary (P6) PPM reader and writer. */
+public class BinaryPpmImageTest {
+  private static final Path FILE = Path.of("temp-binary-image.pnm");
+
+  /**
+   * Build a small image with distinct channel values.
+   *
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage() {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(3, 5);
+    int[] row = new int[5];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 5; j++) {
+        row[j] = fromRgb(i * 50 + j, 255 - j * 40, (i * 97 + j * 31) & 0xFF);
+      }
+      builder.setRow(i, row, 0);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Concatenate an ASCII header with binary samples.
+   *
+   * @param header the header.
+   * @param samples the samples.
+   * @return the stream of the file contents.
+   */
+  private static InputStream file(String header, int... samples) {
+    byte[] head = header.getBytes(StandardCharsets.US_ASCII);
+    byte[] bytes = new byte[head.length + samples.length];
+    System.arraycopy(head, 0, bytes, 0, head.length);
+    for (int k = 0; k < samples.length; k++) {
+      bytes[head.length + k] = (byte) samples[k];
+    }
+    return new ByteArrayInputStream(bytes);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(FILE);
+  }
+
+  @Test
+  public void testWriter() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ReadOnlyImage image =
+        new PackedReadOnlyImage.PackedImageBuilder(1, 2)
+            .setRow(0, new int[] {fromRgb(1, 2, 3), fromRgb(250, 128, 0)}, 0)
+            .build();
+    new BinaryPpmImageWriter().write(output, image);
+
+    byte[] header = "P6\n# Made by IME\n2 1\n255\n".getBytes(StandardCharsets.US_ASCII);
+    byte[] expected = new byte[header.length + 6];
+    System.arraycopy(header, 0, expected, 0, header.length);
+    System.arraycopy(
+        new byte[] {1, 2, 3, (byte) 250, (byte) 128, 0}, 0, expected, header.length, 6);
+    assertArrayEquals(expected, output.toByteArray());
+  }
+
+  @Test
+  public void testStreamRoundTrip() {
+    ReadOnlyImage image = makeImage();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new BinaryPpmImageWriter().write(output, image);
+
+    InputStream input = new ByteArrayInputStream(output.toByteArray());
+    assertEquals(image, new BinaryPpmImageReader().read(input));
+  }
+
+  @Test
+  public void testFileRoundTrip() throws IOException {
+    ReadOnlyImage image = makeImage();
+    new BinaryPpmImageWriter().write(new FileOutputStream(FILE.toFile()), image);
+
+    try (InputStream input = new FileInputStream(FILE.toFile())) {
+      assertEquals(image, new BinaryPpmImageReader().read(input));
+    }
+    try (InputStream input = new FileInputStream(FILE.toFile())) {
+      assertEquals(image, new PpmImageReader().read(input));
+    }
+  }
+
+  @Test
+  public void testPpmReaderSniffsMagicNumber() {
+    ReadOnlyImage expected =
+        new PackedReadOnlyImage.PackedImageBuilder(1, 1).setRow(0, new int[] {0x0A0B0C}, 0).build();
+
+    assertEquals(expected, new PpmImageReader().read(file("P6 1 1 255\n", 10, 11, 12)));
+    assertEquals(expected, new PpmImageReader().read(file("P3\n1 1\n255\n10\n11\n12\n")));
+  }
+
+  @Test
+  public void testHeaderComments() {
+    ReadOnlyImage image =
+        new BinaryPpmImageReader()
+            .read(file("P6\n# comment\n1 # inline\n1\n#\n255\n", 7, 8, 9));
+    assertEquals(fromRgb(7, 8, 9), image.getPixel(0, 0));
+  }
+
+  @Test
+  public void testScalesMaxValue() {
+    ReadOnlyImage small = new BinaryPpmImageReader().read(file("P6 1 1 15\n", 15, 0, 5));
+    assertEquals(fromRgb(255, 0, 85), small.getPixel(0, 0));
+
+    ReadOnlyImage wide =
+        new BinaryPpmImageReader().read(file("P6 1 1 65535\n", 0xFF, 0xFF, 0x80, 0x00, 0, 0));
+    assertEquals(fromRgb(255, 128, 0), wide.getPixel(0, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotP6() {
+    new BinaryPpmImageReader().read(file("P3\n1 1\n255\n1\n2\n3\n"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingSamples() {
+    new BinaryPpmImageReader().read(file("P6 2 1 255\n", 1, 2, 3, 4, 5));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTruncatedHeader() {
+    new BinaryPpmImageReader().read(file("P6 2 "));
+  }
+}
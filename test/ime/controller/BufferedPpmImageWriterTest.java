@@ -0,0 +1,92 @@
+package ime.controller;
+
+import ime.controller.io.BufferedPpmImageWriter;
+import ime.controller.io.PpmImageReader;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This class defines tests for the {@link BufferedPpmImageWriter} class. */
+public class BufferedPpmImageWriterTest {
+  /**
+   * Build an image with values of every length.
+   *
+   * @param height the height of the image.
+   * @param width the width of the image.
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage(int height, int width) {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    int[] row = new int[width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        row[j] = fromRgb((i * 31 + j) & 0xFF, (j * 7) & 0xFF, (i * j) & 0xFF);
+      }
+      builder.setRow(i, row, 0);
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testWriter() {
+    ReadOnlyImage image =
+        new PackedReadOnlyImage.PackedImageBuilder(2, 2)
+            .setRow(0, new int[] {fromRgb(1, 2, 3), fromRgb(4, 5, 6)}, 0)
+            .setRow(1, new int[] {fromRgb(7, 8, 9), fromRgb(10, 11, 255)}, 0)
+            .build();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new BufferedPpmImageWriter().write(output, image);
+
+    assertEquals(
+        "P3\n# Made by IME\n2 2\n255\n1 2 3 4 5 6 7 8 9 10 11 255\n",
+        output.toString(StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testLineLengthAndRoundTrip() {
+    ReadOnlyImage image = makeImage(150, 333);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new BufferedPpmImageWriter().write(output, image);
+
+    for (String line : output.toString(StandardCharsets.US_ASCII).split("\n")) {
+      assertTrue(line.length() <= 70);
+    }
+    assertEquals(image, new PpmImageReader().read(new ByteArrayInputStream(output.toByteArray())));
+  }
+
+  @Test
+  public void testValuesFillBuffer() {
+    // 10 + 7 bytes for the first two pixels, then 12 for each white one, less the first separator
+    int width = 5462;
+    int[] row = new int[width];
+    row[0] = fromRgb(255, 255, 0);
+    row[1] = fromRgb(10, 0, 0);
+    for (int j = 2; j < width; j++) {
+      row[j] = fromRgb(255, 255, 255);
+    }
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(1, width);
+    builder.setRow(0, row, 0);
+    ReadOnlyImage image = builder.build();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new BufferedPpmImageWriter().write(output, image);
+
+    // the values take exactly the 65536 bytes of the buffer, followed by the final newline
+    int header = "P3\n# Made by IME\n5462 1\n255\n".length();
+    assertEquals(header + (1 << 16) + 1, output.size());
+    assertEquals(image, new PpmImageReader().read(new ByteArrayInputStream(output.toByteArray())));
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testNullImage() {
+    new BufferedPpmImageWriter().write(new ByteArrayOutputStream(), null);
+  }
+}
@@ -0,0 +1,91 @@
+package ime.controller;
+
+import ime.controller.command.Command;
+import ime.controller.command.CompressLevelsCommand;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import ime.model.operations.HaarWaveletCompression;
+import ime.model.session.Session;
+import ime.model.session.SessionImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+
+/** This class defines tests for the {@link CompressLevelsCommand} class. */
+public class CompressLevelsCommandTest {
+  private Session session;
+  private ReadOnlyImage image;
+
+  @Before
+  public void setUp() {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(12, 20);
+    int[] row = new int[20];
+    for (int i = 0; i < 12; i++) {
+      for (int j = 0; j < 20; j++) {
+        row[j] = fromRgb(i * 20, j * 12, (i * j * 7) & 0xFF);
+      }
+      builder.setRow(i, row, 0);
+    }
+    image = builder.build();
+    session = new SessionImpl();
+    session.insertOrReplaceImage("image", image);
+  }
+
+  @Test
+  public void testEveryLevelMatchesCompress() {
+    Command command = new CompressLevelsCommand.Supplier().get("10,50, 90", "image", "small");
+    command.execute(session);
+    for (int percentage : new int[] {10, 50, 90}) {
+      assertEquals(
+          new HaarWaveletCompression(percentage).apply(image),
+          session.getImage("small-" + percentage));
+    }
+    assertEquals(Optional.of(Set.of("image")), command.getReadNames());
+    assertEquals(
+        Optional.of(Set.of("small-10", "small-50", "small-90")), command.getWriteNames());
+  }
+
+  @Test
+  public void testLayout() {
+    new CompressLevelsCommand.Supplier().get("20,70", "image", "tile", "tiled").execute(session);
+    assertEquals(
+        new HaarWaveletCompression(70, HaarWaveletCompression.Layout.TILED).apply(image),
+        session.getImage("tile-70"));
+  }
+
+  @Test
+  public void testToString() {
+    assertEquals(
+        "<CompressLevelsCommand inputName=\"image\" outputPrefix=\"small\" "
+            + "percentages=\"10,50\" layout=\"rectangular\">",
+        new CompressLevelsCommand.Supplier()
+            .get("10,50", "image", "small", "rectangular")
+            .toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPercentage() {
+    new CompressLevelsCommand.Supplier().get("10,101", "image", "small");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotANumber() {
+    new CompressLevelsCommand.Supplier().get("10,,20", "image", "small");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooFewArguments() {
+    new CompressLevelsCommand.Supplier().get("10", "image");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingImage() {
+    new CompressLevelsCommand.Supplier().get("10", "other", "small").execute(session);
+  }
+}
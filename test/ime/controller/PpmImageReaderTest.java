@@ -0,0 +1,84 @@
+package ime.controller;
+
+import ime.controller.io.PpmImageReader;
+import ime.controller.io.PpmImageWriter;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+
+/** This class defines tests for the streaming plain (P3) PPM reader. */
+public class PpmImageReaderTest {
+  /**
+   * Create an input stream from a string.
+   *
+   * @param contents the contents.
+   * @return the input stream.
+   */
+  private static InputStream stream(String contents) {
+    return new ByteArrayInputStream(contents.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testCommentsAnywhere() {
+    ReadOnlyImage image =
+        new PpmImageReader()
+            .read(
+                stream(
+                    "# leading comment\nP3 # magic\n2#width\n1\n# max value next\n255\n"
+                        + "1 2 3 # first pixel\n\n# a whole line\n4 5 6\n"));
+    assertEquals(fromRgb(1, 2, 3), image.getPixel(0, 0));
+    assertEquals(fromRgb(4, 5, 6), image.getPixel(0, 1));
+  }
+
+  @Test
+  public void testValuesAreClamped() {
+    ReadOnlyImage image = new PpmImageReader().read(stream("P3 1 1 255 300 -4 +7"));
+    assertEquals(fromRgb(255, 0, 7), image.getPixel(0, 0));
+  }
+
+  @Test
+  public void testRoundTripAcrossBufferBoundaries() {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(120, 200);
+    int[] row = new int[200];
+    for (int i = 0; i < 120; i++) {
+      for (int j = 0; j < 200; j++) {
+        row[j] = fromRgb((i * 7 + j) & 0xFF, (i + j * 3) & 0xFF, (i * j) & 0xFF);
+      }
+      builder.setRow(i, row, 0);
+    }
+    ReadOnlyImage image = builder.build();
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    new PpmImageWriter().write(output, image);
+    assertEquals(image, new PpmImageReader().read(new ByteArrayInputStream(output.toByteArray())));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyValues() {
+    new PpmImageReader().read(stream("P3 1 1 255 1 2 3 4"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingValues() {
+    new PpmImageReader().read(stream("P3 1 2 255 1 2 3 4 5"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMalformedValue() {
+    new PpmImageReader().read(stream("P3 1 1 255 1 2x 3"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongMagicNumber() {
+    new PpmImageReader().read(stream("P33 1 1 255 1 2 3"));
+  }
+}
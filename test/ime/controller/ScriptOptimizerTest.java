@@ -0,0 +1,194 @@
+package ime.controller;
+
+import ime.controller.command.Command;
+import ime.controller.command.ExtendedRunCommand;
+import ime.controller.command.MapCommand;
+import ime.controller.command.RunCommand;
+import ime.controller.command.SaveCommand;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import ime.model.operations.Blur;
+import ime.model.operations.BrightenDarken;
+import ime.model.operations.Dither;
+import ime.model.operations.ExtractLumaComponent;
+import ime.model.operations.PixelPipeline;
+import ime.model.operations.SepiaTone;
+import ime.model.session.Session;
+import ime.model.session.SessionImpl;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** This class defines tests for the {@link ScriptOptimizer} class. */
+public class ScriptOptimizerTest {
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(Path.of("fuse-script.txt"));
+    Files.deleteIfExists(Path.of("fuse-image.ppm"));
+  }
+
+  @Test
+  public void testFusesDeadIntermediates() {
+    List<Command> fused =
+        ScriptOptimizer.fuse(
+            List.of(
+                new MapCommand("a", "b", new SepiaTone()),
+                new MapCommand("b", "c", new BrightenDarken(10)),
+                new MapCommand("c", "d", new ExtractLumaComponent())));
+
+    assertEquals(1, fused.size());
+    MapCommand command = (MapCommand) fused.get(0);
+    assertEquals("a", command.getInputName());
+    assertEquals("d", command.getOutputName());
+    assertEquals(3, ((PixelPipeline) command.getOperation()).getStageCount());
+  }
+
+  @Test
+  public void testKeepsLiveIntermediates() {
+    Command save = new SaveCommand("unused.ppm", "b", new MockImageWriter());
+    List<Command> fused =
+        ScriptOptimizer.fuse(
+            List.of(
+                new MapCommand("a", "b", new SepiaTone()),
+                new MapCommand("b", "c", new BrightenDarken(10)),
+                new MapCommand("c", "d", new BrightenDarken(20)),
+                save));
+
+    assertEquals(3, fused.size());
+    assertEquals("b", ((MapCommand) fused.get(0)).getOutputName());
+    MapCommand command = (MapCommand) fused.get(1);
+    assertEquals("b", command.getInputName());
+    assertEquals("d", command.getOutputName());
+    // both brightens compose into a single lookup table
+    assertEquals(1, ((PixelPipeline) command.getOperation()).getStageCount());
+    assertSame(save, fused.get(2));
+  }
+
+  @Test
+  public void testIntermediateOverwrittenBeforeRead() {
+    List<Command> fused =
+        ScriptOptimizer.fuse(
+            List.of(
+                new MapCommand("a", "b", new SepiaTone()),
+                new MapCommand("b", "c", new BrightenDarken(10)),
+                new MapCommand("a", "b", new ExtractLumaComponent()),
+                new MapCommand("b", "e", new Blur())));
+
+    assertEquals(3, fused.size());
+    assertEquals("c", ((MapCommand) fused.get(0)).getOutputName());
+  }
+
+  @Test
+  public void testUnknownCommandKeepsEverythingLive() {
+    StringBuilder log = new StringBuilder();
+    List<Command> commands =
+        List.of(
+            new MapCommand("a", "b", new SepiaTone()),
+            new MapCommand("b", "c", new BrightenDarken(10)),
+            new MockCommand("mock", log));
+    assertEquals(commands, ScriptOptimizer.fuse(commands));
+  }
+
+  @Test
+  public void testNonPixelOperationBreaksChain() {
+    List<Command> commands =
+        List.of(
+            new MapCommand("a", "b", new SepiaTone()),
+            new MapCommand("b", "c", new Blur()),
+            new MapCommand("c", "d", new BrightenDarken(10)));
+    assertEquals(commands, ScriptOptimizer.fuse(commands));
+  }
+
+  @Test
+  public void testUnmarkedSubclassBreaksChain() {
+    // the subclass inherits applyToPixel, but applies something else to the whole image
+    SepiaTone notPerPixel =
+        new SepiaTone() {
+          @Override
+          public ReadOnlyImage apply(ReadOnlyImage image) {
+            return new Blur().apply(image);
+          }
+        };
+    List<Command> commands =
+        List.of(
+            new MapCommand("a", "b", notPerPixel),
+            new MapCommand("b", "c", new BrightenDarken(10)));
+    assertEquals(commands, ScriptOptimizer.fuse(commands));
+  }
+
+  @Test
+  public void testDitherIsNotFused() throws IOException {
+    ReadOnlyImage image = makeImage();
+    ReadOnlyImage expected = new BrightenDarken(0).apply(new Dither().apply(image));
+
+    Files.writeString(
+        Path.of("fuse-script.txt"), "dither a b\nbrighten 0 b c\nsave fuse-image.ppm c\n");
+    Session session = new SessionImpl();
+    session.insertOrReplaceImage("a", image);
+    new ExtendedRunCommand("fuse-script.txt").execute(session);
+
+    ReadOnlyImage actual = session.getImage("c");
+    assertEquals(expected, actual);
+    for (int i = 0; i < actual.getHeight(); i++) {
+      for (int j = 0; j < actual.getWidth(); j++) {
+        int pixel = actual.getPixel(i, j);
+        assertTrue(pixel == 0 || pixel == 0xFFFFFF);
+      }
+    }
+  }
+
+  /**
+   * Build a 16x16 image with varied colors.
+   *
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage() {
+    PackedReadOnlyImage.PackedImageBuilder builder =
+        new PackedReadOnlyImage.PackedImageBuilder(16, 16);
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        builder.setPixel(i, j, i * 4099 + j * 77777);
+      }
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testFusedScriptMatchesSequential() throws IOException {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(16, 16);
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        ((PackedReadOnlyImage.PackedImageBuilder) builder).setPixel(i, j, i * 4099 + j * 77777);
+      }
+    }
+    ReadOnlyImage image = builder.build();
+    ReadOnlyImage expected =
+        new ExtractLumaComponent().apply(new BrightenDarken(10).apply(new SepiaTone().apply(image)));
+
+    Files.writeString(
+        Path.of("fuse-script.txt"),
+        "sepia a b\nbrighten 10 b c\nluma-component c d\nsave fuse-image.ppm d\n");
+    Session session = new SessionImpl();
+    session.insertOrReplaceImage("a", image);
+    new RunCommand("fuse-script.txt").execute(session);
+
+    assertEquals(expected, session.getImage("d"));
+    assertTrue(Files.exists(Path.of("fuse-image.ppm")));
+    try {
+      session.getImage("b");
+      fail("intermediate image was materialized");
+    } catch (IllegalArgumentException e) {
+      // expected, b was never needed
+    }
+  }
+}
@@ -0,0 +1,335 @@
+package ime.controller;
+
+import ime.controller.command.Command;
+import ime.controller.command.LoadCommand;
+import ime.controller.command.MapCommand;
+import ime.controller.command.RunCommand;
+import ime.controller.command.SaveCommand;
+import ime.controller.command.SplitCommand;
+import ime.controller.supplier.CommandSupplier;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import ime.model.operations.Blur;
+import ime.model.operations.BrightenDarken;
+import ime.model.operations.ColorCorrect;
+import ime.model.operations.GenerateHistogram;
+import ime.model.operations.HorizontalFlip;
+import ime.model.operations.SepiaTone;
+import ime.model.session.Session;
+import ime.model.session.SessionImpl;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This class defines tests for the {@link ScriptScheduler} class. */
+public class ScriptSchedulerTest {
+  /**
+   * Build an image where every pixel depends on its position and the seed.
+   *
+   * @param seed the seed.
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage(int seed) {
+    PackedReadOnlyImage.PackedImageBuilder builder =
+        new PackedReadOnlyImage.PackedImageBuilder(40, 60);
+    for (int i = 0; i < 40; i++) {
+      for (int j = 0; j < 60; j++) {
+        builder.setPixel(i, j, fromRgb((i * 7 + seed) % 256, (j * 5 + seed) % 256, (i + j) % 256));
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Build a session with three images, a, b and c.
+   *
+   * @return the session.
+   */
+  private static Session makeSession() {
+    Session session = new SessionImpl();
+    session.insertOrReplaceImage("a", makeImage(1));
+    session.insertOrReplaceImage("b", makeImage(2));
+    session.insertOrReplaceImage("c", makeImage(3));
+    return session;
+  }
+
+  @Test
+  public void testIndependentChains() {
+    List<Command> commands =
+        List.of(
+            new LoadCommand("a.png", "a", new MockImageReader("image", new StringBuilder())),
+            new LoadCommand("b.png", "b", new MockImageReader("image", new StringBuilder())),
+            new MapCommand("a", "a2", new SepiaTone()),
+            new MapCommand("b", "b2", new SepiaTone()),
+            new SaveCommand("a2.png", "a2", new MockImageWriter()),
+            new SaveCommand("b2.png", "b2", new MockImageWriter()));
+
+    List<List<Integer>> dependencies = ScriptScheduler.getDependencies(commands);
+    assertEquals(List.of(), dependencies.get(0));
+    assertEquals(List.of(), dependencies.get(1));
+    assertEquals(List.of(0), dependencies.get(2));
+    assertEquals(List.of(1), dependencies.get(3));
+    assertEquals(List.of(2), dependencies.get(4));
+    assertEquals(List.of(3), dependencies.get(5));
+  }
+
+  @Test
+  public void testReadThenOverwrite() {
+    List<Command> commands =
+        List.of(
+            new MapCommand("a", "b", new SepiaTone()),
+            new MapCommand("c", "a", new SepiaTone()),
+            new MapCommand("c", "b", new SepiaTone()),
+            new SplitCommand("c", "r", "g", "b"));
+
+    List<List<Integer>> dependencies = ScriptScheduler.getDependencies(commands);
+    // a is overwritten after it is read, and b is written three times
+    assertEquals(List.of(0), dependencies.get(1));
+    assertEquals(List.of(0), dependencies.get(2));
+    assertEquals(List.of(0, 2), dependencies.get(3));
+  }
+
+  @Test
+  public void testSameFile() {
+    List<Command> commands =
+        List.of(
+            new SaveCommand("out.png", "a", new MockImageWriter()),
+            new LoadCommand("./out.png", "b", new MockImageReader("image", new StringBuilder())),
+            new LoadCommand("other.png", "c", new MockImageReader("image", new StringBuilder())));
+
+    List<List<Integer>> dependencies = ScriptScheduler.getDependencies(commands);
+    assertEquals(List.of(0), dependencies.get(1));
+    assertEquals(List.of(), dependencies.get(2));
+  }
+
+  @Test
+  public void testUnknownCommandIsBarrier() {
+    List<Command> commands =
+        List.of(
+            new MapCommand("a", "a2", new SepiaTone()),
+            new MapCommand("b", "b2", new SepiaTone()),
+            new RunCommand("script.txt"),
+            new MapCommand("c", "c2", new SepiaTone()));
+
+    List<List<Integer>> dependencies = ScriptScheduler.getDependencies(commands);
+    assertEquals(List.of(0, 1), dependencies.get(2));
+    assertEquals(List.of(2), dependencies.get(3));
+  }
+
+  @Test
+  public void testMatchesSequentialResults() {
+    List<Command> commands =
+        List.of(
+            new MapCommand("a", "a", new Blur(1)),
+            new MapCommand("b", "b2", new SepiaTone()),
+            new MapCommand("a", "c", new BrightenDarken(30)),
+            new MapCommand("c", "d", new HorizontalFlip()),
+            new MapCommand("missing", "e", new SepiaTone()),
+            new MapCommand("b2", "a", new BrightenDarken(-20)),
+            new SplitCommand("d", "r", "g", "b"),
+            new MapCommand("b", "e", new HorizontalFlip()));
+
+    Session sequential = makeSession();
+    boolean[] expected = ScriptScheduler.execute(commands, sequential, 1);
+    assertEquals(
+        "[true, true, true, true, false, true, true, true]", Arrays.toString(expected));
+
+    for (int parallelism = 2; parallelism <= 4; parallelism++) {
+      Session parallel = makeSession();
+      assertEquals(
+          Arrays.toString(expected),
+          Arrays.toString(ScriptScheduler.execute(commands, parallel, parallelism)));
+      for (String name : List.of("a", "b", "b2", "c", "d", "e", "r", "g")) {
+        assertEquals(name, sequential.getImage(name), parallel.getImage(name));
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentColorCorrectMatchesSequential() {
+    // both chains share one instance of each operation, like commands from one supplier could
+    ColorCorrect colorCorrect = new ColorCorrect();
+    GenerateHistogram histogram = new GenerateHistogram();
+    List<Command> commands =
+        List.of(
+            new MapCommand("a", "a2", colorCorrect),
+            new MapCommand("c", "c2", colorCorrect),
+            new MapCommand("a2", "a3", histogram),
+            new MapCommand("c2", "c3", histogram));
+
+    Session sequential = makeSession();
+    ScriptScheduler.execute(commands, sequential, 1);
+    assertTrue(!sequential.getImage("a2").equals(sequential.getImage("c2")));
+
+    for (int run = 0; run < 50; run++) {
+      Session parallel = makeSession();
+      assertEquals(
+          "[true, true, true, true]",
+          Arrays.toString(ScriptScheduler.execute(commands, parallel, 2)));
+      for (String name : List.of("a2", "a3", "c2", "c3")) {
+        assertEquals(name, sequential.getImage(name), parallel.getImage(name));
+      }
+    }
+  }
+
+  @Test
+  public void testIndependentCommandsOverlap() {
+    CountDownLatch started = new CountDownLatch(2);
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    List<Command> commands =
+        List.of(
+            new TimedCommand("first", Set.of(), Set.of("a"), started, events),
+            new TimedCommand("second", Set.of(), Set.of("b"), started, events),
+            new TimedCommand("third", Set.of("a", "b"), Set.of("c"), null, events));
+
+    boolean[] executed = ScriptScheduler.execute(commands, new SessionImpl(), 2);
+    // both independent commands waited for each other, so they ran at the same time
+    assertEquals("[true, true, true]", Arrays.toString(executed));
+    assertEquals(6, events.size());
+    assertEquals(List.of("start third", "end third"), events.subList(4, 6));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testOtherExceptionsAreThrown() {
+    Command failing =
+        session -> {
+          throw new IllegalStateException("cannot write to output");
+        };
+    ScriptScheduler.execute(
+        List.of(new MapCommand("a", "a2", new SepiaTone()), failing), makeSession(), 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    ScriptScheduler.execute(List.of(), new SessionImpl(), 0);
+  }
+
+  @Test
+  public void testControllerLogsInScriptOrder() {
+    Map<String, CommandSupplier> commands = new HashMap<>();
+    commands.put("sepia", new MapCommand.MapCommandSupplier(SepiaTone::new));
+    commands.put("horizontal-flip", new MapCommand.MapCommandSupplier(HorizontalFlip::new));
+    String script = "sepia a a2\nhorizontal-flip b b2\nsepia missing m\nhorizontal-flip a2 a3\n";
+
+    StringBuilder sequential = new StringBuilder();
+    new TextController(new StringReader(script), sequential, commands, true, 1)
+        .run(makeSession());
+    StringBuilder parallel = new StringBuilder();
+    Session session = makeSession();
+    new TextController(new StringReader(script), parallel, commands, true, 3).run(session);
+
+    // every command has an operation of its own, so only the identity hashes differ
+    assertEquals(
+        sequential.toString().replaceAll("@[0-9a-f]+", ""),
+        parallel.toString().replaceAll("@[0-9a-f]+", ""));
+    // the failed command is not logged, and the others are logged in the order of the script
+    String[] lines = parallel.toString().split("\n");
+    assertEquals(7, lines.length);
+    assertTrue(lines[6].startsWith("command executed: <MapCommand inputName=\"a2\""));
+    assertEquals(
+        new HorizontalFlip().apply(new SepiaTone().apply(makeImage(1))), session.getImage("a3"));
+  }
+
+  @Test
+  public void testControllerRunsScriptsInOrderByDefault() {
+    List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+    Map<String, CommandSupplier> commands = new HashMap<>();
+    // the commands are independent, so only the default parallelism keeps them on this thread
+    commands.put(
+        "record",
+        args ->
+            new Command() {
+              @Override
+              public void execute(Session session) {
+                threads.add(Thread.currentThread());
+              }
+
+              @Override
+              public Optional<Set<String>> getReadNames() {
+                return Optional.of(Set.of());
+              }
+
+              @Override
+              public Optional<Set<String>> getWriteNames() {
+                return Optional.of(Set.of(args[0]));
+              }
+
+              @Override
+              public Optional<Set<String>> getFileNames() {
+                return Optional.of(Set.of());
+              }
+            });
+
+    new TextController(new StringReader("record a\nrecord b\nrecord c\n"), null, commands, true)
+        .run(new SessionImpl());
+    assertEquals(List.of(Thread.currentThread(), Thread.currentThread(), Thread.currentThread()),
+        threads);
+  }
+
+  /** A command that records when it starts and ends, and can wait for other commands to start. */
+  private static final class TimedCommand implements Command {
+    private final String name;
+    private final Set<String> reads;
+    private final Set<String> writes;
+    private final CountDownLatch started;
+    private final List<String> events;
+
+    private TimedCommand(
+        String name,
+        Set<String> reads,
+        Set<String> writes,
+        CountDownLatch started,
+        List<String> events) {
+      this.name = name;
+      this.reads = reads;
+      this.writes = writes;
+      this.started = started;
+      this.events = events;
+    }
+
+    @Override
+    public void execute(Session session) {
+      events.add("start " + name);
+      if (started != null) {
+        started.countDown();
+        try {
+          if (!started.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalArgumentException("commands did not overlap");
+          }
+        } catch (InterruptedException e) {
+          throw new IllegalArgumentException(e);
+        }
+      }
+      events.add("end " + name);
+    }
+
+    @Override
+    public Optional<Set<String>> getReadNames() {
+      return Optional.of(reads);
+    }
+
+    @Override
+    public Optional<Set<String>> getWriteNames() {
+      return Optional.of(writes);
+    }
+
+    @Override
+    public Optional<Set<String>> getFileNames() {
+      return Optional.of(Set.of());
+    }
+  }
+}
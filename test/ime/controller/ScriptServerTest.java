@@ -0,0 +1,265 @@
+package ime.controller;
+
+import ime.controller.io.BinaryPpmImageWriter;
+import ime.controller.io.PpmImageReader;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import ime.model.operations.SepiaTone;
+import ime.model.session.SessionImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** This class defines tests for the {@link ScriptServer} and {@link ScriptClient} classes. */
+public class ScriptServerTest {
+  private static final String TOKEN = "0123456789abcdef";
+
+  private Path directory;
+  private ScriptServer server;
+  private Thread serving;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("ime-server");
+    PackedReadOnlyImage.PackedImageBuilder builder =
+        new PackedReadOnlyImage.PackedImageBuilder(5, 7);
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 7; j++) {
+        builder.setPixel(i, j, fromRgb(i * 50, j * 30, 90));
+      }
+    }
+    try (OutputStream output = Files.newOutputStream(directory.resolve("in.pnm"))) {
+      new BinaryPpmImageWriter().write(output, builder.build());
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (server != null) {
+      server.close();
+      serving.join(10000);
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Start a server on the given address, serving on a thread of its own. A server on a port needs
+   * the test token.
+   *
+   * @param address the address.
+   */
+  private void start(SocketAddress address) throws IOException {
+    start(address, 2, ScriptServer.READ_TIMEOUT_MILLIS, ScriptServer.MAX_SCRIPT_BYTES);
+  }
+
+  /**
+   * Start a server on the given address with the given limits, serving on a thread of its own. A
+   * server on a port needs the test token.
+   *
+   * @param address the address.
+   * @param connections the maximum number of connections to serve at the same time.
+   * @param readTimeoutMillis how long a connection may take to send its script.
+   * @param maxScriptBytes the most bytes of script a connection may send.
+   */
+  private void start(
+      SocketAddress address, int connections, long readTimeoutMillis, int maxScriptBytes)
+      throws IOException {
+    String token = address instanceof UnixDomainSocketAddress ? null : TOKEN;
+    server =
+        new ScriptServer(
+            address, connections, SessionImpl::new, token, readTimeoutMillis, maxScriptBytes);
+    serving =
+        new Thread(
+            () -> {
+              try {
+                server.serve();
+              } catch (IOException e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    serving.start();
+  }
+
+  private String script() {
+    Path input = directory.resolve("in.pnm");
+    Path output = directory.resolve("out.pnm");
+    return String.format("load %s img\nsepia img img\nsave %s img\n", input, output);
+  }
+
+  private void assertSaved() throws IOException {
+    ReadOnlyImage input;
+    ReadOnlyImage output;
+    try (InputStream stream = Files.newInputStream(directory.resolve("in.pnm"))) {
+      input = new PpmImageReader().read(stream);
+    }
+    try (InputStream stream = Files.newInputStream(directory.resolve("out.pnm"))) {
+      output = new PpmImageReader().read(stream);
+    }
+    assertEquals(new SepiaTone().apply(input), output);
+  }
+
+  @Test
+  public void testRunsScriptOverLoopback() throws IOException {
+    start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+    StringBuilder log = new StringBuilder();
+    int failures =
+        ScriptClient.send(server.getAddress(), TOKEN, new StringReader(script()), log);
+    assertEquals(0, failures);
+    assertTrue(log.toString(), log.toString().contains("command executed: <SaveCommand"));
+    assertSaved();
+  }
+
+  @Test
+  public void testRunsScriptOverUnixSocket() throws IOException {
+    Path socket = directory.resolve("ime.sock");
+    start(ScriptServer.parseAddress(socket.toString()));
+
+    StringBuilder log = new StringBuilder();
+    assertEquals(0, ScriptClient.send(server.getAddress(), new StringReader(script()), log));
+    assertSaved();
+
+    server.close();
+    assertFalse(Files.exists(socket));
+  }
+
+  @Test
+  public void testSessionPerConnection() throws IOException {
+    start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    SocketAddress address = server.getAddress();
+
+    String load = String.format("load %s img\n", directory.resolve("in.pnm"));
+    assertEquals(
+        0, ScriptClient.send(address, TOKEN, new StringReader(load), new StringBuilder()));
+    // the image loaded by the first connection is gone, and the typo cannot be parsed
+    StringBuilder log = new StringBuilder();
+    String script = "sepia img img2\nsepai img2 img3\n";
+    assertEquals(2, ScriptClient.send(address, TOKEN, new StringReader(script), log));
+    assertEquals("command parsed: ", log.substring(0, "command parsed: ".length()));
+  }
+
+  @Test
+  public void testStatsGoBackToClient() throws IOException {
+    start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+    StringBuilder log = new StringBuilder();
+    String script = String.format("load %s img\nstats img\n", directory.resolve("in.pnm"));
+    assertEquals(
+        0, ScriptClient.send(server.getAddress(), TOKEN, new StringReader(script), log));
+    assertTrue(log.toString(), log.toString().contains("size: 7x5\n"));
+  }
+
+  @Test
+  public void testStatsInRunScriptGoBackToClient() throws IOException {
+    start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    Path stats = directory.resolve("stats.txt");
+    Files.writeString(
+        stats, String.format("load %s img\nstats img\n", directory.resolve("in.pnm")));
+
+    StringBuilder log = new StringBuilder();
+    String script = String.format("run %s\n", stats);
+    assertEquals(
+        0, ScriptClient.send(server.getAddress(), TOKEN, new StringReader(script), log));
+    assertTrue(log.toString(), log.toString().contains("size: 7x5\n"));
+  }
+
+  @Test
+  public void testParseAddress() {
+    assertEquals(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 7000),
+        ScriptServer.parseAddress("7000"));
+    assertEquals(UnixDomainSocketAddress.of("/tmp/ime.sock"), ScriptServer.parseAddress(
+        "/tmp/ime.sock"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsOtherAddresses() throws IOException {
+    new ScriptServer(new InetSocketAddress(0), 1, SessionImpl::new, TOKEN);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPortNeedsToken() throws IOException {
+    new ScriptServer(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, SessionImpl::new);
+  }
+
+  @Test
+  public void testRejectsWrongToken() throws IOException {
+    start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+    for (String token : new String[] {null, "", "0123456789abcdeg", TOKEN + "0"}) {
+      StringBuilder log = new StringBuilder();
+      assertEquals(
+          1, ScriptClient.send(server.getAddress(), token, new StringReader(script()), log));
+      assertEquals("error: invalid token\n", log.toString());
+    }
+    assertFalse(Files.exists(directory.resolve("out.pnm")));
+  }
+
+  @Test
+  public void testUnixSocketIsOwnerOnly() throws IOException {
+    Path socket = directory.resolve("ime.sock");
+    start(ScriptServer.parseAddress(socket.toString()));
+
+    if (Files.getFileAttributeView(socket, PosixFileAttributeView.class) != null) {
+      assertEquals(
+          PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(socket));
+    }
+  }
+
+  @Test
+  public void testRejectsLargeScript() throws IOException {
+    start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, 10000, 64);
+
+    StringBuilder log = new StringBuilder();
+    String script = "# a comment that makes the script too long\n" + script();
+    assertEquals(
+        1, ScriptClient.send(server.getAddress(), TOKEN, new StringReader(script), log));
+    assertEquals("error: the script is over 64 bytes\n", log.toString());
+    assertFalse(Files.exists(directory.resolve("out.pnm")));
+  }
+
+  @Test
+  public void testClosesSlowConnection() throws IOException {
+    // with a single connection at a time, the next client is only served once the slow one is shut
+    start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, 200, 1 << 20);
+
+    try (SocketChannel slow = SocketChannel.open(server.getAddress())) {
+      slow.write(ByteBuffer.wrap((TOKEN + "\n").getBytes(StandardCharsets.UTF_8)));
+      // never shuts down its output, so the server only stops waiting at the timeout
+      assertEquals(-1, slow.read(ByteBuffer.allocate(64)));
+    }
+
+    StringBuilder log = new StringBuilder();
+    assertEquals(
+        0, ScriptClient.send(server.getAddress(), TOKEN, new StringReader(script()), log));
+    assertSaved();
+  }
+}
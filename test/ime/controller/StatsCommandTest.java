@@ -0,0 +1,95 @@
+package ime.controller;
+
+import ime.controller.command.Command;
+import ime.controller.command.StatsCommand;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.session.Session;
+import ime.model.session.SessionImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This class defines tests for the {@link StatsCommand} class. */
+public class StatsCommandTest {
+  private static final String REPORT =
+      "size: 2x1\n"
+          + "red: min=10 max=30 mean=20.000 peak=10\n"
+          + "green: min=0 max=0 mean=0.000 peak=0\n"
+          + "blue: min=255 max=255 mean=255.000 peak=255\n";
+
+  private Session session;
+
+  @Before
+  public void setUp() {
+    session = new SessionImpl();
+    session.insertOrReplaceImage(
+        "image",
+        new PackedReadOnlyImage.PackedImageBuilder(1, 2)
+            .setRow(0, new int[] {fromRgb(10, 0, 255), fromRgb(30, 0, 255)}, 0)
+            .build());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(Path.of("temp-stats.txt"));
+    Files.deleteIfExists(Path.of("temp-stats-script.txt"));
+  }
+
+  @Test
+  public void statsToOutput() {
+    StringBuilder log = new StringBuilder();
+    Command command = new StatsCommand.Supplier(log).get("image");
+    command.execute(session);
+    assertEquals(REPORT, log.toString());
+    assertEquals(Optional.of(Set.of("image")), command.getReadNames());
+    assertEquals(Optional.of(Set.of()), command.getWriteNames());
+  }
+
+  @Test
+  public void statsToFile() throws IOException {
+    new StatsCommand.Supplier(new StringBuilder()).get("image", "temp-stats.txt").execute(session);
+    assertEquals(REPORT, Files.readString(Path.of("temp-stats.txt")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void statsMissingImage() {
+    new StatsCommand("missing", new StringBuilder()).execute(session);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void statsTooManyArguments() {
+    new StatsCommand.Supplier(new StringBuilder()).get("image", "a", "b");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void statsWithoutOutput() {
+    new StatsCommand.Supplier(null).get("image");
+  }
+
+  @Test
+  public void statsToControllerOutput() {
+    StringBuilder log = new StringBuilder();
+    new ExtendedTextController(new StringReader("stats image\n"), log, true, 1).run(session);
+    assertTrue(log.toString().contains(REPORT));
+  }
+
+  @Test
+  public void statsInRunScriptToControllerOutput() throws IOException {
+    Files.writeString(Path.of("temp-stats-script.txt"), "stats image\n");
+    StringBuilder log = new StringBuilder();
+    new ExtendedTextController(new StringReader("run temp-stats-script.txt\n"), log, true, 1)
+        .run(session);
+    assertTrue(log.toString().contains(REPORT));
+  }
+}
@@ -0,0 +1,194 @@
+package ime.controller;
+
+import ime.controller.io.WaveletImageReader;
+import ime.controller.io.WaveletImageWriter;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import ime.model.operations.HaarWaveletCompression;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static ime.util.Colors.blueFrom;
+import static ime.util.Colors.fromRgb;
+import static ime.util.Colors.greenFrom;
+import static ime.util.Colors.redFrom;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This class defines tests for the Haar wavelet (HWC) reader and writer. */
+public class WaveletImageTest {
+  /**
+   * Build an image with smooth gradients and some noise, of a size that is not a power of two.
+   *
+   * @param height the height.
+   * @param width the width.
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage(int height, int width) {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    int[] row = new int[width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        row[j] = fromRgb((i * 4 + j) % 256, (j * 3) % 256, ((i * 37) ^ (j * 11)) & 0xFF);
+      }
+      builder.setRow(i, row, 0);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Write an image to bytes.
+   *
+   * @param writer the writer.
+   * @param image the image.
+   * @return the bytes.
+   */
+  private static byte[] write(WaveletImageWriter writer, ReadOnlyImage image) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    writer.write(output, image);
+    return output.toByteArray();
+  }
+
+  /**
+   * Read an image from bytes.
+   *
+   * @param reader the reader.
+   * @param bytes the bytes.
+   * @return the image.
+   */
+  private static ReadOnlyImage read(WaveletImageReader reader, byte[] bytes) {
+    return reader.read(new ByteArrayInputStream(bytes));
+  }
+
+  /**
+   * Check that every channel of every pixel of two images is within a tolerance.
+   *
+   * @param expected the expected image.
+   * @param actual the actual image.
+   * @param tolerance the largest difference allowed.
+   */
+  private static void assertClose(ReadOnlyImage expected, ReadOnlyImage actual, int tolerance) {
+    assertEquals(expected.getHeight(), actual.getHeight());
+    assertEquals(expected.getWidth(), actual.getWidth());
+    for (int i = 0; i < expected.getHeight(); i++) {
+      for (int j = 0; j < expected.getWidth(); j++) {
+        int a = expected.getPixel(i, j);
+        int b = actual.getPixel(i, j);
+        assertTrue(Math.abs(redFrom(a) - redFrom(b)) <= tolerance);
+        assertTrue(Math.abs(greenFrom(a) - greenFrom(b)) <= tolerance);
+        assertTrue(Math.abs(blueFrom(a) - blueFrom(b)) <= tolerance);
+      }
+    }
+  }
+
+  @Test
+  public void testFineStepIsLossless() {
+    ReadOnlyImage image = makeImage(37, 50);
+    byte[] bytes = write(new WaveletImageWriter(0, 0.01), image);
+    assertEquals(image, read(new WaveletImageReader(), bytes));
+  }
+
+  @Test
+  public void testDefaultStepIsLossless() {
+    ReadOnlyImage image = makeImage(37, 50);
+    assertEquals(image, read(new WaveletImageReader(), write(new WaveletImageWriter(), image)));
+  }
+
+  @Test
+  public void testMatchesCompression() {
+    ReadOnlyImage image = makeImage(20, 33);
+    for (int percentage : new int[] {0, 50, 90, 100}) {
+      ReadOnlyImage expected =
+          new HaarWaveletCompression(percentage, HaarWaveletCompression.Layout.RECTANGULAR)
+              .apply(image);
+      // a fine step only moves pixels that were rounded from exactly halfway
+      byte[] bytes = write(new WaveletImageWriter(percentage, 0.001), image);
+      assertClose(expected, read(new WaveletImageReader(), bytes), 1);
+    }
+  }
+
+  @Test
+  public void testSizeFallsWithPercentage() {
+    ReadOnlyImage image = makeImage(64, 64);
+    int previous = Integer.MAX_VALUE;
+    for (int percentage : new int[] {0, 50, 90, 99}) {
+      int size = write(new WaveletImageWriter(percentage), image).length;
+      assertTrue(size < previous);
+      previous = size;
+    }
+  }
+
+  @Test
+  public void testCompressedImagesStaySmall() {
+    ReadOnlyImage image = makeImage(64, 64);
+    int previous = Integer.MAX_VALUE;
+    for (int percentage : new int[] {50, 90, 99}) {
+      ReadOnlyImage compressed =
+          new HaarWaveletCompression(percentage, HaarWaveletCompression.Layout.RECTANGULAR)
+              .apply(image);
+      int size = write(new WaveletImageWriter(), compressed).length;
+      assertTrue(size < previous);
+      previous = size;
+    }
+  }
+
+  @Test
+  public void testProgressiveDecoding() {
+    ReadOnlyImage image = makeImage(16, 16);
+    byte[] bytes = write(new WaveletImageWriter(0, 0.01), image);
+
+    // the first group is the average of the whole image
+    ReadOnlyImage average = read(new WaveletImageReader(1), bytes);
+    int pixel = average.getPixel(0, 0);
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        assertEquals(pixel, average.getPixel(i, j));
+      }
+    }
+
+    // every group doubles the resolution, so the second one has 2x2 blocks
+    ReadOnlyImage blocks = read(new WaveletImageReader(2), bytes);
+    assertEquals(blocks.getPixel(0, 0), blocks.getPixel(7, 7));
+    assertEquals(blocks.getPixel(8, 8), blocks.getPixel(15, 15));
+
+    // a 16x16 image has a group for every one of its 4 levels, after the average
+    assertEquals(image, read(new WaveletImageReader(5), bytes));
+    assertEquals(image, read(new WaveletImageReader(100), bytes));
+  }
+
+  @Test
+  public void testSinglePixel() {
+    ReadOnlyImage image =
+        new PackedReadOnlyImage.PackedImageBuilder(1, 1)
+            .setRow(0, new int[] {fromRgb(1, 128, 255)}, 0)
+            .build();
+    assertEquals(image, read(new WaveletImageReader(), write(new WaveletImageWriter(), image)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadMagicNumber() {
+    byte[] bytes = write(new WaveletImageWriter(), makeImage(4, 4));
+    bytes[3] = '2';
+    read(new WaveletImageReader(), bytes);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTruncatedFile() {
+    byte[] bytes = write(new WaveletImageWriter(), makeImage(8, 8));
+    read(new WaveletImageReader(), Arrays.copyOf(bytes, bytes.length - 3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidStep() {
+    new WaveletImageWriter(10, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidGroups() {
+    new WaveletImageReader(0);
+  }
+}
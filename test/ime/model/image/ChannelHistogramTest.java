@@ -0,0 +1,105 @@
+package ime.model.image;
+
+import ime.model.operations.ColorCorrect;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/** This class tests the {@link ChannelHistogram} counting engine. */
+public class ChannelHistogramTest {
+  /**
+   * Build a random image.
+   *
+   * @param height the height of the image.
+   * @param width the width of the image.
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage(int height, int width) {
+    Random random = new Random(7);
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    int[] row = new int[width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        row[j] = fromRgb(random.nextInt(256), random.nextInt(64), random.nextInt(256) / 3);
+      }
+      builder.setRow(i, row, 0);
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testCountsMatchPixels() {
+    ReadOnlyImage image = makeImage(40, 30);
+    int[][] expected = new int[3][256];
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        int pixel = image.getPixel(i, j);
+        expected[0][(pixel >> 16) & 0xFF]++;
+        expected[1][(pixel >> 8) & 0xFF]++;
+        expected[2][pixel & 0xFF]++;
+      }
+    }
+
+    ChannelHistogram histogram = ChannelHistogram.of(image, 1);
+    assertArrayEquals(expected[0], histogram.getCounts(ChannelHistogram.RED));
+    assertArrayEquals(expected[1], histogram.getCounts(ChannelHistogram.GREEN));
+    assertArrayEquals(expected[2], histogram.getCounts(ChannelHistogram.BLUE));
+    assertEquals(expected[1][5], histogram.getCount(ChannelHistogram.GREEN, 5));
+    assertEquals(1200, histogram.getPixelCount());
+
+    int maxGreen = 0;
+    for (int count : expected[1]) {
+      maxGreen = Math.max(maxGreen, count);
+    }
+    assertEquals(maxGreen, histogram.getMaxCount(ChannelHistogram.GREEN));
+  }
+
+  @Test
+  public void testParallelMatchesSequential() {
+    ReadOnlyImage image = makeImage(700, 300);
+    ChannelHistogram sequential = ChannelHistogram.of(image, 1);
+    assertEquals(sequential, ChannelHistogram.of(image, 4));
+    assertEquals(sequential, ChannelHistogram.of(image));
+  }
+
+  @Test
+  public void testCountsAreCopied() {
+    ChannelHistogram histogram = ChannelHistogram.of(makeImage(2, 2));
+    int before = histogram.getCount(ChannelHistogram.RED, 0);
+    histogram.getCounts(ChannelHistogram.RED)[0] += 10;
+    assertEquals(before, histogram.getCount(ChannelHistogram.RED, 0));
+  }
+
+  @Test
+  public void testColorCorrectTieUsesFirstToReachPeak() {
+    // 50 and 60 both appear twice in red, but 60 gets there first
+    int[] reds = {60, 50, 60, 50};
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(1, 4);
+    int[] row = new int[4];
+    for (int j = 0; j < 4; j++) {
+      row[j] = fromRgb(reds[j], 90, 90);
+    }
+    ReadOnlyImage result = new ColorCorrect().apply(builder.setRow(0, row, 0).build());
+    // peaks 60, 90, 90 average to 80
+    assertEquals(fromRgb(80, 80, 80), result.getPixel(0, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    ChannelHistogram.of(makeImage(1, 1), 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidChannel() {
+    ChannelHistogram.of(makeImage(1, 1)).getCounts(3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidValue() {
+    ChannelHistogram.of(makeImage(1, 1)).getCount(ChannelHistogram.RED, 256);
+  }
+}
@@ -0,0 +1,110 @@
+package ime.model.image;
+
+import org.junit.Test;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** This class tests the {@link FlippedImage} view. */
+public class FlippedImageTest {
+  private static final int HEIGHT = 3;
+  private static final int WIDTH = 5;
+
+  /**
+   * Build a small image where every pixel is distinct.
+   *
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage() {
+    PackedReadOnlyImage.PackedImageBuilder builder =
+        new PackedReadOnlyImage.PackedImageBuilder(HEIGHT, WIDTH);
+    for (int i = 0; i < HEIGHT; i++) {
+      for (int j = 0; j < WIDTH; j++) {
+        builder.setPixel(i, j, fromRgb(i * 10, j * 10, i + j));
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Copy a flipped image pixel by pixel, the way the flip operations used to.
+   *
+   * @param image the image.
+   * @param horizontal whether to flip the columns.
+   * @param vertical whether to flip the rows.
+   * @return the flipped copy.
+   */
+  private static ReadOnlyImage flipCopy(ReadOnlyImage image, boolean horizontal, boolean vertical) {
+    PackedReadOnlyImage.PackedImageBuilder builder =
+        new PackedReadOnlyImage.PackedImageBuilder(HEIGHT, WIDTH);
+    for (int i = 0; i < HEIGHT; i++) {
+      for (int j = 0; j < WIDTH; j++) {
+        builder.setPixel(
+            i, j, image.getPixel(vertical ? HEIGHT - 1 - i : i, horizontal ? WIDTH - 1 - j : j));
+      }
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testFlipsMatchCopies() {
+    ReadOnlyImage image = makeImage();
+    boolean[] flags = {false, true};
+    for (boolean horizontal : flags) {
+      for (boolean vertical : flags) {
+        ReadOnlyImage view = FlippedImage.of(image, horizontal, vertical);
+        ReadOnlyImage expected = flipCopy(image, horizontal, vertical);
+        assertEquals(expected, view);
+        assertEquals(expected.hashCode(), view.hashCode());
+        assertEquals(expected.getColor(1, 1).getBlue(), view.getColor(1, 1).getBlue());
+
+        int[] row = new int[WIDTH + 1];
+        view.copyRow(2, row, 1);
+        int[] expectedRow = new int[WIDTH + 1];
+        expected.copyRow(2, expectedRow, 1);
+        assertArrayEquals(expectedRow, row);
+
+        int[] region = new int[6];
+        view.copyRegion(1, 1, 2, 3, region, 0);
+        int[] expectedRegion = new int[6];
+        expected.copyRegion(1, 1, 2, 3, expectedRegion, 0);
+        assertArrayEquals(expectedRegion, region);
+      }
+    }
+  }
+
+  @Test
+  public void testFlipsDoNotStack() {
+    ReadOnlyImage image = makeImage();
+    ReadOnlyImage horizontal = FlippedImage.of(image, true, false);
+    assertSame(image, FlippedImage.of(image, false, false));
+    assertSame(image, FlippedImage.of(horizontal, true, false));
+
+    ReadOnlyImage both = FlippedImage.of(horizontal, false, true);
+    assertEquals(flipCopy(image, true, true), both);
+    assertSame(image, FlippedImage.of(FlippedImage.of(both, true, false), false, true));
+  }
+
+  @Test
+  public void testFlippedMaskKeepsMaskOutside() {
+    ReadOnlyImage image = makeImage();
+    ReadOnlyImage masked = MaskedImage.of(image, 0x00FF00);
+    ReadOnlyImage flipped = FlippedImage.of(masked, true, true);
+    assertTrue(flipped instanceof MaskedImage);
+    assertEquals(flipCopy(masked, true, true), flipped);
+    assertSame(image, ((MaskedImage) FlippedImage.of(flipped, true, true)).getSource());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPixelOutside() {
+    FlippedImage.of(makeImage(), true, false).getPixel(0, WIDTH);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRegionOutside() {
+    FlippedImage.of(makeImage(), true, false).copyRegion(0, 1, 1, WIDTH, new int[WIDTH], 0);
+  }
+}
@@ -0,0 +1,82 @@
+package ime.model.image;
+
+import org.junit.Test;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/** This class tests the {@link ImageStatistics} derived from images, and their caching. */
+public class ImageStatisticsTest {
+  /**
+   * Build a small image with known channel values.
+   *
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage() {
+    return new PackedReadOnlyImage.PackedImageBuilder(2, 2)
+        .setRow(0, new int[] {fromRgb(10, 0, 255), fromRgb(20, 0, 255)}, 0)
+        .setRow(1, new int[] {fromRgb(20, 100, 255), fromRgb(30, 100, 0)}, 0)
+        .build();
+  }
+
+  @Test
+  public void testStatistics() {
+    ImageStatistics statistics = makeImage().getStatistics();
+
+    assertEquals(10, statistics.getMin(ChannelHistogram.RED));
+    assertEquals(30, statistics.getMax(ChannelHistogram.RED));
+    assertEquals(20.0, statistics.getMean(ChannelHistogram.RED), 1e-9);
+    assertEquals(20, statistics.getPeak(ChannelHistogram.RED));
+
+    // 0 and 100 are equally frequent, so the smaller one is the peak
+    assertEquals(0, statistics.getPeak(ChannelHistogram.GREEN));
+    assertEquals(50.0, statistics.getMean(ChannelHistogram.GREEN), 1e-9);
+
+    assertEquals(0, statistics.getMin(ChannelHistogram.BLUE));
+    assertEquals(255, statistics.getPeak(ChannelHistogram.BLUE));
+    assertEquals(3, statistics.getHistogram().getCount(ChannelHistogram.BLUE, 255));
+  }
+
+  @Test
+  public void testStatisticsAreCached() {
+    ReadOnlyImage image = makeImage();
+    assertSame(image.getStatistics(), image.getStatistics());
+    assertNotSame(image.getStatistics(), makeImage().getStatistics());
+  }
+
+  @Test
+  public void testDefaultComputesStatistics() {
+    ReadOnlyImage packed = makeImage();
+    ReadOnlyImage wrapper =
+        new ReadOnlyImage() {
+          @Override
+          public int getWidth() {
+            return packed.getWidth();
+          }
+
+          @Override
+          public int getHeight() {
+            return packed.getHeight();
+          }
+
+          @Override
+          public ime.model.color.Color getColor(int i, int j) {
+            return packed.getColor(i, j);
+          }
+
+          @Override
+          public int getPixel(int i, int j) {
+            return packed.getPixel(i, j);
+          }
+        };
+
+    assertEquals(packed.getStatistics().getHistogram(), wrapper.getStatistics().getHistogram());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidChannel() {
+    makeImage().getStatistics().getMean(-1);
+  }
+}
@@ -0,0 +1,72 @@
+package ime.model.image;
+
+import org.junit.Test;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/** This class tests the {@link MaskedImage} view. */
+public class MaskedImageTest {
+  /**
+   * Build a small image where every pixel is distinct.
+   *
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage() {
+    PackedReadOnlyImage.PackedImageBuilder builder =
+        new PackedReadOnlyImage.PackedImageBuilder(2, 3);
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 3; j++) {
+        builder.setPixel(i, j, fromRgb(100 + i, 50 + j, i * 3 + j));
+      }
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testMasksPixels() {
+    ReadOnlyImage image = makeImage();
+    ReadOnlyImage red = MaskedImage.of(image, 0xFF0000);
+    assertEquals(fromRgb(101, 0, 0), red.getPixel(1, 2));
+    assertEquals(0, red.getColor(1, 2).getGreen());
+
+    int[] row = new int[4];
+    red.copyRow(1, row, 1);
+    assertArrayEquals(
+        new int[] {0, fromRgb(101, 0, 0), fromRgb(101, 0, 0), fromRgb(101, 0, 0)}, row);
+
+    int[] region = new int[2];
+    MaskedImage.of(image, 0x0000FF).copyRegion(0, 1, 2, 1, region, 0);
+    assertArrayEquals(new int[] {1, 4}, region);
+
+    PackedReadOnlyImage.PackedImageBuilder expected =
+        new PackedReadOnlyImage.PackedImageBuilder(2, 3);
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 3; j++) {
+        expected.setPixel(i, j, fromRgb(100 + i, 0, 0));
+      }
+    }
+    assertEquals(expected.build(), red);
+  }
+
+  @Test
+  public void testMasksCombine() {
+    ReadOnlyImage image = makeImage();
+    assertSame(image, MaskedImage.of(image, 0xFFFFFF));
+
+    ReadOnlyImage redGreen = MaskedImage.of(image, 0xFFFF00);
+    MaskedImage green = (MaskedImage) MaskedImage.of(redGreen, 0x00FFFF);
+    assertSame(image, green.getSource());
+    assertEquals(0x00FF00, green.getMask());
+
+    MaskedImage none = (MaskedImage) MaskedImage.of(green, 0xFF0000);
+    assertEquals(0, none.getPixel(1, 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPixelOutside() {
+    MaskedImage.of(makeImage(), 0xFF0000).getPixel(2, 0);
+  }
+}
@@ -0,0 +1,145 @@
+package ime.model.image;
+
+import ime.model.color.Color;
+import ime.model.color.ColorImpl;
+import org.junit.Test;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This class tests the {@link PackedReadOnlyImage} image and its builder. */
+public class PackedReadOnlyImageTest {
+  @Test
+  public void testGetColorAndPixel() {
+    ReadOnlyImage image =
+        new PackedReadOnlyImage.PackedImageBuilder(2, 1)
+            .setPixel(0, 0, new ColorImpl(1, 2, 3))
+            .setPixel(1, 0, new ColorImpl(4, 5, 6))
+            .build();
+
+    assertEquals(2, image.getHeight());
+    assertEquals(1, image.getWidth());
+
+    Color color = image.getColor(1, 0);
+    assertEquals(4, color.getRed());
+    assertEquals(5, color.getGreen());
+    assertEquals(6, color.getBlue());
+    assertEquals(fromRgb(1, 2, 3), image.getPixel(0, 0));
+  }
+
+  @Test
+  public void testEqualsAcrossImplementations() {
+    ReadOnlyImage packed =
+        new PackedReadOnlyImage.PackedImageBuilder(1, 2)
+            .setPixel(0, 0, new ColorImpl(1, 2, 3))
+            .setPixel(0, 1, new ColorImpl(4, 5, 6))
+            .build();
+    ReadOnlyImage matrix =
+        new ReadOnlyImageImpl.ReadOnlyImageBuilder(1, 2)
+            .setPixel(0, 0, new ColorImpl(1, 2, 3))
+            .setPixel(0, 1, new ColorImpl(4, 5, 6))
+            .build();
+
+    assertEquals(matrix, packed);
+    assertEquals(packed, matrix);
+    assertEquals(matrix.hashCode(), packed.hashCode());
+  }
+
+  @Test
+  public void testBuilderReuseDoesNotChangeBuiltImage() {
+    IReadOnlyImageBuilder builder =
+        new PackedReadOnlyImage.PackedImageBuilder(1, 1).setPixel(0, 0, new ColorImpl(1, 1, 1));
+    ReadOnlyImage first = builder.build();
+
+    builder.setPixel(0, 0, new ColorImpl(9, 9, 9));
+    ReadOnlyImage second = builder.build();
+
+    assertEquals(fromRgb(1, 1, 1), first.getPixel(0, 0));
+    assertEquals(fromRgb(9, 9, 9), second.getPixel(0, 0));
+    assertTrue(!first.equals(second));
+  }
+
+  @Test
+  public void testBuilderGetPixel() {
+    IReadOnlyImageBuilder builder =
+        new PackedReadOnlyImage.PackedImageBuilder(1, 1).setPixel(0, 0, new ColorImpl(7, 8, 9));
+    assertEquals(fromRgb(7, 8, 9), builder.getPixel(0, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidColumn() {
+    ReadOnlyImage image =
+        new PackedReadOnlyImage.PackedImageBuilder(2, 1)
+            .setPixel(0, 0, new ColorImpl(1, 2, 3))
+            .setPixel(1, 0, new ColorImpl(4, 5, 6))
+            .build();
+    image.getPixel(0, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetInvalidPosition() {
+    new PackedReadOnlyImage.PackedImageBuilder(1, 1).setPixel(-1, 0, new ColorImpl(0, 0, 0));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testBuildMissingPixels() {
+    new PackedReadOnlyImage.PackedImageBuilder(1, 2)
+        .setPixel(0, 0, new ColorImpl(1, 2, 3))
+        .build();
+  }
+
+  @Test
+  public void testCopyRowAndRegion() {
+    int[] pixels = new int[] {1, 2, 3, 4, 5, 6};
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(2, 3);
+    builder.setRow(0, pixels, 0);
+    builder.setRow(1, pixels, 3);
+    ReadOnlyImage image = builder.build();
+
+    int[] row = new int[4];
+    image.copyRow(1, row, 1);
+    assertArrayEquals(new int[] {0, 4, 5, 6}, row);
+
+    int[] region = new int[4];
+    image.copyRegion(0, 1, 2, 2, region, 0);
+    assertArrayEquals(new int[] {2, 3, 5, 6}, region);
+  }
+
+  @Test
+  public void testDefaultCopyRegionMatchesPacked() {
+    IReadOnlyImageBuilder packedBuilder = new PackedReadOnlyImage.PackedImageBuilder(2, 2);
+    IReadOnlyImageBuilder matrixBuilder = new ReadOnlyImageImpl.ReadOnlyImageBuilder(2, 2);
+    int[] pixels = new int[] {fromRgb(1, 2, 3), fromRgb(4, 5, 6), fromRgb(7, 8, 9), 0xFF0A0B0C};
+    for (int i = 0; i < 2; i++) {
+      packedBuilder.setRow(i, pixels, 2 * i);
+      matrixBuilder.setRow(i, pixels, 2 * i);
+    }
+
+    int[] packedRegion = new int[4];
+    int[] matrixRegion = new int[4];
+    packedBuilder.build().copyRegion(0, 0, 2, 2, packedRegion, 0);
+    matrixBuilder.build().copyRegion(0, 0, 2, 2, matrixRegion, 0);
+    assertArrayEquals(packedRegion, matrixRegion);
+    assertEquals(fromRgb(10, 11, 12), packedRegion[3]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCopyRegionOutsideImage() {
+    ReadOnlyImage image =
+        new PackedReadOnlyImage.PackedImageBuilder(1, 1)
+            .setPixel(0, 0, new ColorImpl(1, 2, 3))
+            .build();
+    image.copyRegion(0, 0, 1, 2, new int[2], 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCopyRowArrayTooSmall() {
+    ReadOnlyImage image =
+        new PackedReadOnlyImage.PackedImageBuilder(1, 2)
+            .setRow(0, new int[] {1, 2}, 0)
+            .build();
+    image.copyRow(0, new int[2], 1);
+  }
+}
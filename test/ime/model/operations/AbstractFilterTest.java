@@ -0,0 +1,167 @@
+package ime.model.operations;
+
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static ime.util.Colors.blueFrom;
+import static ime.util.Colors.greenFrom;
+import static ime.util.Colors.redFrom;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** This class tests the parallel execution of {@link AbstractFilter} convolutions. */
+public class AbstractFilterTest {
+  /**
+   * Build a random image that is large enough to be split into several bands.
+   *
+   * @param height the height of the image.
+   * @param width the width of the image.
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage(int height, int width) {
+    Random random = new Random(5010);
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    int[] row = new int[width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        row[j] = random.nextInt(1 << 24);
+      }
+      builder.setRow(i, row, 0);
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testParallelBlurMatchesSequential() {
+    ReadOnlyImage image = makeImage(517, 389);
+    ReadOnlyImage sequential = new Blur(1).apply(image);
+    assertEquals(sequential, new Blur(3).apply(image));
+    assertEquals(sequential, new Blur(8).apply(image));
+    assertEquals(sequential, new Blur().apply(image));
+  }
+
+  @Test
+  public void testParallelSharpenMatchesSequential() {
+    ReadOnlyImage image = makeImage(433, 211);
+    ReadOnlyImage sequential = new Sharpen(1).apply(image);
+    assertEquals(sequential, new Sharpen(2).apply(image));
+    assertEquals(sequential, new Sharpen(16).apply(image));
+  }
+
+  @Test
+  public void testParallelFilterMatchesGetColorFromFilter() {
+    ReadOnlyImage image = makeImage(300, 250);
+    Sharpen sharpen = new Sharpen(4);
+    ReadOnlyImage result = sharpen.apply(image);
+    for (int i = 0; i < image.getHeight(); i += 37) {
+      for (int j = 0; j < image.getWidth(); j += 23) {
+        assertEquals(sharpen.getColorFromFilter(i, j, image), result.getColor(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testSeparableBlurMatchesFullKernel() {
+    ReadOnlyImage image = makeImage(211, 173);
+    AbstractFilter full =
+        new Blur(1) {
+          @Override
+          protected float[][] provideSeparableKernel() {
+            return null;
+          }
+        };
+    assertEquals(full.apply(image), new Blur(1).apply(image));
+    assertEquals(full.apply(image), new Blur(4).apply(image));
+  }
+
+  @Test
+  public void testSeparableGaussianMatchesFullKernel() {
+    ReadOnlyImage image = makeImage(97, 83);
+    GaussianBlur separable = new GaussianBlur(7, 3, 1);
+    AbstractFilter full =
+        new GaussianBlur(7, 3, 1) {
+          @Override
+          protected float[][] provideSeparableKernel() {
+            return null;
+          }
+        };
+
+    ReadOnlyImage expected = full.apply(image);
+    ReadOnlyImage actual = separable.apply(image);
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        int a = expected.getPixel(i, j);
+        int b = actual.getPixel(i, j);
+        // the two passes round differently, but only ever by one step
+        assertTrue(Math.abs(redFrom(a) - redFrom(b)) <= 1);
+        assertTrue(Math.abs(greenFrom(a) - greenFrom(b)) <= 1);
+        assertTrue(Math.abs(blueFrom(a) - blueFrom(b)) <= 1);
+      }
+    }
+    assertEquals(separable.apply(image), new GaussianBlur(7, 3, 8).apply(image));
+  }
+
+  @Test
+  public void testSeparableKernelTallerThanImage() {
+    ReadOnlyImage image = makeImage(21, 17);
+    AbstractFilter separable =
+        new GaussianBlur(40, 10, 1) {
+          @Override
+          protected float[][] provideKernel() {
+            throw new IllegalStateException("the full kernel should not be built");
+          }
+        };
+    AbstractFilter full =
+        new GaussianBlur(40, 10, 1) {
+          @Override
+          protected float[][] provideSeparableKernel() {
+            return null;
+          }
+        };
+
+    ReadOnlyImage expected = full.apply(image);
+    ReadOnlyImage actual = separable.apply(image);
+    for (int i = 0; i < image.getHeight(); i++) {
+      for (int j = 0; j < image.getWidth(); j++) {
+        int a = expected.getPixel(i, j);
+        int b = actual.getPixel(i, j);
+        assertTrue(Math.abs(redFrom(a) - redFrom(b)) <= 1);
+        assertTrue(Math.abs(greenFrom(a) - greenFrom(b)) <= 1);
+        assertTrue(Math.abs(blueFrom(a) - blueFrom(b)) <= 1);
+      }
+    }
+  }
+
+  @Test
+  public void testGaussianKernelIsNormalized() {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(64, 64);
+    int[] row = new int[64];
+    Arrays.fill(row, 0x808080);
+    for (int i = 0; i < 64; i++) {
+      builder.setRow(i, row, 0);
+    }
+    ReadOnlyImage result = new GaussianBlur(20, 8).apply(builder.build());
+    assertEquals(0x808080, result.getPixel(32, 32));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeGaussianRadius() {
+    new GaussianBlur(-1, 1);
+  }
+
+  @Test
+  public void testGetParallelism() {
+    assertEquals(6, new Blur(6).getParallelism());
+    assertEquals(Runtime.getRuntime().availableProcessors(), new Sharpen().getParallelism());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    new Blur(0);
+  }
+}
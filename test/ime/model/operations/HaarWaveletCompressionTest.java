@@ -1,12 +1,20 @@
 package ime.model.operations;
 
 import ime.model.color.ColorImpl;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
 import ime.model.image.ReadOnlyImage;
 import ime.model.image.ReadOnlyImageImpl;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 /** This class tests the {@link HaarWaveletCompression} image operation. */
 public class HaarWaveletCompressionTest {
@@ -130,4 +138,244 @@ public class HaarWaveletCompressionTest {
     data[0][0] = 2;
     assertEquals(1, HaarWaveletCompression.countNonZero(data));
   }
+
+  /**
+   * Find the kth smallest non-zero magnitude by sorting, the way compression used to.
+   *
+   * @param k the index of the magnitude.
+   * @param channels the channels.
+   * @return the kth smallest non-zero magnitude.
+   */
+  private static double sortedMagnitude(int k, double[]... channels) {
+    double[] all = Arrays.stream(channels)
+        .flatMapToDouble(Arrays::stream)
+        .filter(value -> value != 0)
+        .map(Math::abs)
+        .sorted()
+        .toArray();
+    return all[k];
+  }
+
+  @Test
+  public void testSelectMagnitudeMatchesSort() {
+    Random random = new Random(11);
+    double[] red = new double[5000];
+    double[] green = new double[3000];
+    for (int i = 0; i < red.length; i++) {
+      red[i] = random.nextInt(4) == 0 ? 0 : random.nextGaussian() * 100;
+    }
+    for (int i = 0; i < green.length; i++) {
+      green[i] = random.nextInt(20) - 10;
+    }
+
+    int nonZero = HaarWaveletCompression.countNonZero(red)
+        + HaarWaveletCompression.countNonZero(green);
+    for (int k : new int[] {0, 1, 17, nonZero / 2, nonZero - 2, nonZero - 1}) {
+      assertEquals(sortedMagnitude(k, red, green),
+          HaarWaveletCompression.selectMagnitude(k, red, green), 0);
+    }
+  }
+
+  @Test
+  public void testSelectMagnitudeManyCandidates() {
+    // more values share their leading bits than fit in the selection buffer
+    double[] channel = new double[200000];
+    for (int i = 0; i < channel.length; i++) {
+      channel[i] = (i % 2 == 0 ? 1 : -1) * (1 + (i % 1000) * 1e-12);
+    }
+    for (int k : new int[] {0, 99999, 199999}) {
+      assertEquals(sortedMagnitude(k, channel),
+          HaarWaveletCompression.selectMagnitude(k, channel), 0);
+    }
+
+    double[] same = new double[100000];
+    Arrays.fill(same, -2.5);
+    assertEquals(2.5, HaarWaveletCompression.selectMagnitude(5000, same), 0);
+  }
+
+  @Test
+  public void testSelect() {
+    Random random = new Random(5);
+    for (int length = 1; length < 60; length++) {
+      double[] values = new double[length];
+      for (int i = 0; i < length; i++) {
+        values[i] = random.nextInt(8);
+      }
+      double[] sorted = values.clone();
+      Arrays.sort(sorted);
+      for (int k = 0; k < length; k++) {
+        assertEquals(sorted[k], HaarWaveletCompression.select(values.clone(), length, k), 0);
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSelectMagnitudeTooFewValues() {
+    HaarWaveletCompression.selectMagnitude(2, new double[] {0, 1, -1});
+  }
+
+  /**
+   * Build a smooth image with some noise.
+   *
+   * @param height the height of the image.
+   * @param width the width of the image.
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage(int height, int width) {
+    Random random = new Random(height * 31L + width);
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    int[] row = new int[width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int value = (i + j + random.nextInt(30)) & 0xFF;
+        row[j] = ime.util.Colors.fromRgb(value, (value * 3) & 0xFF, 255 - value);
+      }
+      builder.setRow(i, row, 0);
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testNextPowerOfTwo() {
+    assertEquals(1, HaarWaveletCompression.nextPowerOfTwo(1));
+    assertEquals(2, HaarWaveletCompression.nextPowerOfTwo(2));
+    assertEquals(8, HaarWaveletCompression.nextPowerOfTwo(5));
+    assertEquals(1024, HaarWaveletCompression.nextPowerOfTwo(1000));
+  }
+
+  @Test
+  public void testSquareLayoutIsDefault() {
+    ReadOnlyImage image = makeImage(20, 50);
+    assertEquals(
+        new HaarWaveletCompression(60).apply(image),
+        new HaarWaveletCompression(60, HaarWaveletCompression.Layout.SQUARE, 1).apply(image));
+  }
+
+  @Test
+  public void testLayoutsWithoutCompression() {
+    ReadOnlyImage image = makeImage(300, 70);
+    for (HaarWaveletCompression.Layout layout : HaarWaveletCompression.Layout.values()) {
+      assertEquals(image, new HaarWaveletCompression(0, layout).apply(image));
+    }
+  }
+
+  @Test
+  public void testRectangularMatchesSquareForSquareImages() {
+    ReadOnlyImage image = makeImage(64, 64);
+    assertEquals(
+        new HaarWaveletCompression(70, HaarWaveletCompression.Layout.SQUARE).apply(image),
+        new HaarWaveletCompression(70, HaarWaveletCompression.Layout.RECTANGULAR).apply(image));
+  }
+
+  @Test
+  public void testSingleTileMatchesRectangular() {
+    ReadOnlyImage image = makeImage(100, 200);
+    assertEquals(
+        new HaarWaveletCompression(70, HaarWaveletCompression.Layout.RECTANGULAR).apply(image),
+        new HaarWaveletCompression(70, HaarWaveletCompression.Layout.TILED).apply(image));
+  }
+
+  @Test
+  public void testTiledParallelMatchesSequential() {
+    ReadOnlyImage image = makeImage(300, 600);
+    ReadOnlyImage sequential =
+        new HaarWaveletCompression(80, HaarWaveletCompression.Layout.TILED, 1).apply(image);
+    ReadOnlyImage parallel =
+        new HaarWaveletCompression(80, HaarWaveletCompression.Layout.TILED, 4).apply(image);
+    assertEquals(sequential, parallel);
+    assertNotEquals(image, sequential);
+    assertEquals(300, sequential.getHeight());
+    assertEquals(600, sequential.getWidth());
+  }
+
+  @Test
+  public void testTiledFullCompression() {
+    ReadOnlyImage image = makeImage(260, 300);
+    ReadOnlyImage result =
+        new HaarWaveletCompression(100, HaarWaveletCompression.Layout.TILED).apply(image);
+    for (int i = 0; i < result.getHeight(); i += 7) {
+      for (int j = 0; j < result.getWidth(); j += 7) {
+        assertEquals(0, result.getPixel(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testCachedTransformMatchesFresh() {
+    ReadOnlyImage image = makeImage(90, 130);
+    HaarWaveletCompression.TransformCache cache = new HaarWaveletCompression.TransformCache();
+    new HaarWaveletCompression(30, HaarWaveletCompression.Layout.RECTANGULAR, cache).apply(image);
+    for (int percentage : new int[] {0, 55, 90, 100}) {
+      HaarWaveletCompression compression =
+          new HaarWaveletCompression(percentage, HaarWaveletCompression.Layout.RECTANGULAR, cache);
+      assertTrue(compression.isTransformCached(image));
+      // an equal image that is not the same object does not hit the cache
+      assertEquals(
+          new HaarWaveletCompression(percentage, HaarWaveletCompression.Layout.RECTANGULAR)
+              .apply(image),
+          compression.apply(image));
+      assertEquals(compression.apply(makeImage(90, 130)), compression.apply(image));
+    }
+  }
+
+  @Test
+  public void testTransformIsCached() {
+    ReadOnlyImage first = makeImage(40, 40);
+    ReadOnlyImage second = makeImage(40, 40);
+    HaarWaveletCompression.TransformCache cache = new HaarWaveletCompression.TransformCache();
+    HaarWaveletCompression square =
+        new HaarWaveletCompression(50, HaarWaveletCompression.Layout.SQUARE, cache);
+    HaarWaveletCompression tiled =
+        new HaarWaveletCompression(50, HaarWaveletCompression.Layout.TILED, cache);
+
+    square.apply(first);
+    assertTrue(square.isTransformCached(first));
+    assertFalse(square.isTransformCached(second));
+    assertFalse(tiled.isTransformCached(first));
+
+    // the rectangular layout pads the 40x40 image to the same 64x64 as the square layout
+    assertTrue(
+        new HaarWaveletCompression(10, HaarWaveletCompression.Layout.RECTANGULAR, cache)
+            .isTransformCached(first));
+
+    square.apply(second);
+    assertFalse(square.isTransformCached(first));
+    assertTrue(square.isTransformCached(second));
+  }
+
+  @Test
+  public void testTransformIsOnlyCachedInItsCache() {
+    ReadOnlyImage image = makeImage(40, 40);
+    HaarWaveletCompression.TransformCache cache = new HaarWaveletCompression.TransformCache();
+    new HaarWaveletCompression(50, HaarWaveletCompression.Layout.SQUARE, cache).apply(image);
+
+    HaarWaveletCompression uncached = new HaarWaveletCompression(50);
+    uncached.apply(image);
+    assertFalse(uncached.isTransformCached(image));
+    assertFalse(
+        new HaarWaveletCompression(
+                50,
+                HaarWaveletCompression.Layout.SQUARE,
+                new HaarWaveletCompression.TransformCache())
+            .isTransformCached(image));
+  }
+
+  @Test
+  public void testCoefficientsDoNotChangeTheCache() {
+    ReadOnlyImage image = makeImage(30, 50);
+    HaarWaveletCompression.TransformCache cache = new HaarWaveletCompression.TransformCache();
+    HaarWaveletCompression cached =
+        new HaarWaveletCompression(80, HaarWaveletCompression.Layout.RECTANGULAR, cache);
+    HaarWaveletCompression uncached =
+        new HaarWaveletCompression(80, HaarWaveletCompression.Layout.RECTANGULAR);
+
+    double[][] expected = uncached.getCoefficients(image);
+    double[][] actual = cached.getCoefficients(image);
+    for (int k = 0; k < 3; k++) {
+      assertArrayEquals(expected[k], actual[k], 0);
+      // the caller owns the coefficients, and changing them leaves the cached transform alone
+      Arrays.fill(actual[k], 0);
+    }
+    assertEquals(uncached.apply(image), cached.apply(image));
+  }
 }
@@ -0,0 +1,87 @@
+package ime.model.operations;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/** This class tests the {@link HaarWaveletTransform} engine. */
+public class HaarWaveletTransformTest {
+  /**
+   * Build a channel of random values.
+   *
+   * @param length the number of values.
+   * @param seed the random seed.
+   * @return the channel.
+   */
+  private static double[] makeChannel(int length, long seed) {
+    Random random = new Random(seed);
+    double[] channel = new double[length];
+    for (int i = 0; i < length; i++) {
+      channel[i] = random.nextInt(256);
+    }
+    return channel;
+  }
+
+  @Test
+  public void testTwoByTwo() {
+    double[] channel = new double[] {1, 4, 7, 8};
+    new HaarWaveletTransform(1).forward(2, 2, channel);
+    // rows become {5, -3} / sqrt(2) and {15, -1} / sqrt(2), then columns are combined
+    assertArrayEquals(new double[] {10, -2, -5, -1}, channel, 1e-9);
+
+    new HaarWaveletTransform(1).inverse(2, 2, channel);
+    assertArrayEquals(new double[] {1, 4, 7, 8}, channel, 1e-9);
+  }
+
+  @Test
+  public void testRoundTrip() {
+    int[][] sizes = {{1, 1}, {1, 8}, {16, 1}, {32, 32}, {64, 256}, {256, 4}};
+    for (int[] size : sizes) {
+      double[] original = makeChannel(size[0] * size[1], size[0]);
+      double[] channel = original.clone();
+      HaarWaveletTransform transform = new HaarWaveletTransform(1);
+      transform.forward(size[0], size[1], channel);
+      transform.inverse(size[0], size[1], channel);
+      assertArrayEquals(original, channel, 1e-9);
+    }
+  }
+
+  @Test
+  public void testParallelMatchesSequential() {
+    int size = 512;
+    double[] red = makeChannel(size * size, 1);
+    double[] green = makeChannel(size * size, 2);
+    double[] blue = makeChannel(size * size, 3);
+    double[] sequentialRed = red.clone();
+    double[] sequentialGreen = green.clone();
+    double[] sequentialBlue = blue.clone();
+
+    new HaarWaveletTransform(1).forward(size, size, sequentialRed, sequentialGreen, sequentialBlue);
+    new HaarWaveletTransform(4).forward(size, size, red, green, blue);
+    assertArrayEquals(sequentialRed, red, 0);
+    assertArrayEquals(sequentialGreen, green, 0);
+    assertArrayEquals(sequentialBlue, blue, 0);
+
+    new HaarWaveletTransform(1).inverse(size, size, sequentialRed, sequentialGreen, sequentialBlue);
+    new HaarWaveletTransform(4).inverse(size, size, red, green, blue);
+    assertArrayEquals(sequentialRed, red, 0);
+    assertArrayEquals(sequentialBlue, blue, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotPowerOfTwo() {
+    new HaarWaveletTransform(1).forward(3, 4, new double[12]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongChannelLength() {
+    new HaarWaveletTransform(1).forward(4, 4, new double[15]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidParallelism() {
+    new HaarWaveletTransform(0);
+  }
+}
@@ -0,0 +1,78 @@
+package ime.model.operations;
+
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import org.junit.Test;
+
+import java.util.List;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+
+/** This class tests the {@link LookupTable} point operation engine. */
+public class LookupTableTest {
+  /**
+   * Build an image that contains every channel value.
+   *
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage() {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(16, 16);
+    int[] row = new int[16];
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 16; j++) {
+        int value = i * 16 + j;
+        row[j] = fromRgb(value, 255 - value, (value * 7) & 0xFF);
+      }
+      builder.setRow(i, row, 0);
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testComposeMatchesSequentialApply() {
+    ReadOnlyImage image = makeImage();
+    List<PointOperation> operations =
+        List.of(new BrightenDarken(40), new LevelsAdjustment(20, 100, 230), new BrightenDarken(-25));
+
+    ReadOnlyImage expected = image;
+    for (PointOperation operation : operations) {
+      expected = operation.apply(expected);
+    }
+
+    ReadOnlyImage actual = LookupTable.compose(operations).apply(image);
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void testPerChannelTables() {
+    int[] red = new int[256];
+    int[] green = new int[256];
+    int[] blue = new int[256];
+    for (int value = 0; value < 256; value++) {
+      red[value] = value + 300;
+      green[value] = value;
+      blue[value] = value - 300;
+    }
+    LookupTable table = new LookupTable(red, green, blue);
+    assertEquals(fromRgb(255, 20, 0), table.applyToPixel(fromRgb(10, 20, 30)));
+  }
+
+  @Test
+  public void testBrightenTable() {
+    LookupTable table = new BrightenDarken(10).toLookupTable();
+    assertEquals(fromRgb(11, 255, 10), table.applyToPixel(fromRgb(1, 250, 0)));
+    assertEquals(new LookupTable(value -> value + 10), table);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongTableSize() {
+    new LookupTable(new int[256], new int[255], new int[256]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testComposeNothing() {
+    LookupTable.compose(List.of());
+  }
+}
@@ -0,0 +1,113 @@
+package ime.model.operations;
+
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class checks that the per-pixel operations do not allocate anything per pixel, by measuring
+ * the bytes allocated by the current thread while an operation runs.
+ */
+public class PixelOperationAllocationTest {
+  private static final int SIZE = 256;
+
+  /**
+   * Build a deterministic test image.
+   *
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage() {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(SIZE, SIZE);
+    int[] row = new int[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      for (int j = 0; j < SIZE; j++) {
+        row[j] = fromRgb(i, j, (i * 7 + j * 13) & 0xFF);
+      }
+      builder.setRow(i, row, 0);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Measure the number of bytes the current thread allocates while applying the operation, after
+   * warming it up.
+   *
+   * @param operation the operation.
+   * @param image the input image.
+   * @return the allocated bytes, or -1 if allocation can't be measured on this JVM.
+   */
+  private static long allocatedBytes(ImageOperation operation, ReadOnlyImage image) {
+    if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean bean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+
+    for (int k = 0; k < 5; k++) {
+      operation.apply(image);
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long before = bean.getThreadAllocatedBytes(threadId);
+    operation.apply(image);
+    return bean.getThreadAllocatedBytes(threadId) - before;
+  }
+
+  @Test
+  public void testNoPerPixelAllocation() {
+    ReadOnlyImage image = makeImage();
+    ImageOperation[] operations =
+        new ImageOperation[] {
+          new BrightenDarken(20),
+          new LevelsAdjustment(20, 100, 230),
+          new ExtractRedComponent(),
+          new ExtractGreenComponent(),
+          new ExtractBlueComponent(),
+          new ExtractValueComponent(),
+          new ExtractIntensityComponent(),
+          new ExtractLumaComponent(),
+          new SepiaTone(),
+          new Dither()
+        };
+
+    // the output image alone needs 4 bytes per pixel; a single Color per pixel would need 24 more
+    long pixelBytes = 4L * SIZE * SIZE;
+    for (ImageOperation operation : operations) {
+      long allocated = allocatedBytes(operation, image);
+      if (allocated < 0) {
+        return;
+      }
+      assertTrue(
+          operation.getClass().getSimpleName() + " allocated " + allocated + " bytes",
+          allocated < 2 * pixelBytes);
+    }
+  }
+
+  @Test
+  public void testApplyToPixelMatchesApply() {
+    ReadOnlyImage image = makeImage();
+    PixelOperation[] operations =
+        new PixelOperation[] {
+          new BrightenDarken(-30), new LevelsAdjustment(0, 128, 255), new ExtractLumaComponent()
+        };
+
+    for (PixelOperation operation : operations) {
+      ReadOnlyImage result = operation.apply(image);
+      for (int i = 0; i < SIZE; i += 17) {
+        for (int j = 0; j < SIZE; j += 13) {
+          assertEquals(operation.applyToPixel(image.getPixel(i, j)), result.getPixel(i, j));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package ime.model.session;
+
+import ime.model.image.FlippedImage;
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.MaskedImage;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** This class tests the {@link BoundedSession} class. */
+public class BoundedSessionTest {
+  private static final Path SPILL = Path.of("temp-session.spill");
+
+  /** Each 10x10 test image is 400 bytes of packed pixels. */
+  private static final long IMAGE_BYTES = 400;
+
+  private BoundedSession session;
+
+  /**
+   * Build a 10x10 image whose pixels depend on a seed.
+   *
+   * @param seed the seed.
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage(int seed) {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(10, 10);
+    int[] row = new int[10];
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        row[j] = fromRgb((seed * 31 + i) & 0xFF, (seed + j * 7) & 0xFF, (i * j + seed) & 0xFF);
+      }
+      builder.setRow(i, row, 0);
+    }
+    return builder.build();
+  }
+
+  @Before
+  public void setUp() {
+    session = new BoundedSession(2 * IMAGE_BYTES, SPILL);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    session.close();
+    Files.deleteIfExists(SPILL);
+  }
+
+  @Test
+  public void testHitsInMemory() {
+    ReadOnlyImage image = makeImage(1);
+    session.insertOrReplaceImage("a", image);
+    assertSame(image, session.getImage("a"));
+    assertSame(image, session.getImage("a"));
+    assertEquals(2, session.getHitCount());
+    assertEquals(0, session.getMissCount());
+    assertEquals(0, session.getSpillCount());
+    assertEquals(IMAGE_BYTES, session.getMemoryUsed());
+  }
+
+  @Test
+  public void testSpillsLeastRecentlyUsed() {
+    session.insertOrReplaceImage("a", makeImage(1));
+    session.insertOrReplaceImage("b", makeImage(2));
+    session.getImage("a");
+    session.insertOrReplaceImage("c", makeImage(3));
+
+    // b was used least recently, so it was spilled
+    assertEquals(1, session.getSpillCount());
+    assertEquals(2 * IMAGE_BYTES, session.getMemoryUsed());
+    session.getImage("a");
+    session.getImage("c");
+    assertEquals(0, session.getMissCount());
+
+    assertEquals(makeImage(2), session.getImage("b"));
+    assertEquals(1, session.getMissCount());
+    assertEquals(2 * IMAGE_BYTES, session.getMemoryUsed());
+  }
+
+  @Test
+  public void testViewsAreCopied() {
+    ReadOnlyImage image = makeImage(1);
+    ReadOnlyImage flipped = FlippedImage.of(image, true, false);
+    ReadOnlyImage masked = MaskedImage.of(image, 0xFF0000);
+    session.insertOrReplaceImage("a", image);
+    session.insertOrReplaceImage("b", flipped);
+    session.insertOrReplaceImage("c", masked);
+
+    // a was spilled, and with it the only pixels that were not copied
+    assertEquals(1, session.getSpillCount());
+    assertEquals(2 * IMAGE_BYTES, session.getMemoryUsed());
+    assertFalse(session.getImage("b") instanceof FlippedImage);
+    assertFalse(session.getImage("c") instanceof MaskedImage);
+    assertEquals(flipped, session.getImage("b"));
+    assertEquals(masked, session.getImage("c"));
+  }
+
+  @Test
+  public void testReadBackImagesAreNotWrittenAgain() {
+    for (int k = 0; k < 5; k++) {
+      session.insertOrReplaceImage("image" + k, makeImage(k));
+    }
+    assertEquals(3, session.getSpillCount());
+    for (int round = 0; round < 3; round++) {
+      for (int k = 0; k < 5; k++) {
+        assertEquals(makeImage(k), session.getImage("image" + k));
+      }
+    }
+    assertEquals(5, session.getSpillCount());
+    assertTrue(session.getMissCount() > 0);
+    assertEquals(15, session.getHitCount() + session.getMissCount());
+  }
+
+  @Test
+  public void testReplacedImagesReuseTheFile() throws IOException {
+    for (int round = 0; round < 10; round++) {
+      for (int k = 0; k < 4; k++) {
+        session.insertOrReplaceImage("image" + k, makeImage(round * 4 + k));
+      }
+    }
+    for (int k = 0; k < 4; k++) {
+      assertEquals(makeImage(36 + k), session.getImage("image" + k));
+    }
+    assertTrue(Files.size(SPILL) <= 4 * IMAGE_BYTES);
+  }
+
+  @Test
+  public void testImageLargerThanBudgetStays() {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(30, 30);
+    for (int i = 0; i < 30; i++) {
+      builder.setRow(i, new int[30], 0);
+    }
+    ReadOnlyImage large = builder.build();
+    session.insertOrReplaceImage("a", makeImage(1));
+    session.insertOrReplaceImage("large", large);
+    assertSame(large, session.getImage("large"));
+    assertEquals(4 * 900, session.getMemoryUsed());
+    assertEquals(makeImage(1), session.getImage("a"));
+    assertEquals(IMAGE_BYTES, session.getMemoryUsed());
+  }
+
+  @Test
+  public void testTemporarySpillFile() throws IOException {
+    BoundedSession temporary = new BoundedSession(IMAGE_BYTES);
+    temporary.insertOrReplaceImage("a", makeImage(1));
+    temporary.insertOrReplaceImage("b", makeImage(2));
+    assertEquals(makeImage(1), temporary.getImage("a"));
+    temporary.close();
+    assertFalse(temporary.toString().isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingImage() {
+    session.getImage("missing");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBudget() {
+    new BoundedSession(0, SPILL);
+  }
+}
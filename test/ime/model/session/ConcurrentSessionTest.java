@@ -0,0 +1,190 @@
+package ime.model.session;
+
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** This class tests the {@link ConcurrentSession} class. */
+public class ConcurrentSessionTest {
+  /**
+   * Build a 1x1 image holding a number.
+   *
+   * @param value the number, from 0 to 2^24 - 1.
+   * @return the image.
+   */
+  private static ReadOnlyImage number(int value) {
+    return new PackedReadOnlyImage.PackedImageBuilder(1, 1)
+        .setRow(0, new int[] {value}, 0)
+        .build();
+  }
+
+  /**
+   * Run a task on many threads, all started at once, and wait for them to finish.
+   *
+   * @param threads the number of threads.
+   * @param task the task, given the index of its thread.
+   * @return the first failure of any thread, or null.
+   * @throws InterruptedException if the calling thread is interrupted.
+   */
+  private static Throwable runConcurrently(int threads, IndexedTask task)
+      throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int index = t;
+      Thread worker =
+          new Thread(
+              () -> {
+                try {
+                  start.await();
+                  task.run(index);
+                } catch (Throwable e) {
+                  failure.compareAndSet(null, e);
+                }
+              });
+      worker.start();
+      workers.add(worker);
+    }
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    return failure.get();
+  }
+
+  /** A task run by one of many threads. */
+  private interface IndexedTask {
+    void run(int index) throws Exception;
+  }
+
+  @Test
+  public void testInsertAndGet() {
+    ConcurrentSession session = new ConcurrentSession();
+    ReadOnlyImage image = number(5);
+    session.insertOrReplaceImage("a", image);
+    assertSame(image, session.getImage("a"));
+    session.insertOrReplaceImage("a", number(6));
+    assertEquals(number(6), session.getImage("a"));
+    assertEquals(1, session.size());
+    assertTrue(session.removeImage("a"));
+    assertFalse(session.removeImage("a"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingImage() {
+    new ConcurrentSession().getImage("missing");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUpdateMissingImage() {
+    new ConcurrentSession().update("missing", image -> image);
+  }
+
+  @Test
+  public void testGetOrComputeOnlyComputesOnce() throws InterruptedException {
+    ConcurrentSession session = new ConcurrentSession();
+    AtomicInteger computations = new AtomicInteger();
+    List<ReadOnlyImage> results = new ArrayList<>();
+    Throwable failure =
+        runConcurrently(
+            8,
+            index -> {
+              ReadOnlyImage image =
+                  session.getOrCompute(
+                      "shared",
+                      name -> {
+                        computations.incrementAndGet();
+                        return number(42);
+                      });
+              synchronized (results) {
+                results.add(image);
+              }
+            });
+
+    assertNull(failure);
+    assertEquals(1, computations.get());
+    assertEquals(8, results.size());
+    for (ReadOnlyImage image : results) {
+      assertSame(results.get(0), image);
+    }
+    assertSame(results.get(0), session.getImage("shared"));
+  }
+
+  @Test
+  public void testFailedComputationLeavesNoImage() {
+    ConcurrentSession session = new ConcurrentSession();
+    try {
+      session.getOrCompute(
+          "a",
+          name -> {
+            throw new IllegalStateException("failed");
+          });
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    assertEquals(0, session.size());
+    assertEquals(number(1), session.getOrCompute("a", name -> number(1)));
+  }
+
+  @Test
+  public void testUpdateLosesNothing() throws InterruptedException {
+    ConcurrentSession session = new ConcurrentSession();
+    session.insertOrReplaceImage("counter", number(0));
+    Throwable failure =
+        runConcurrently(
+            8,
+            index -> {
+              for (int k = 0; k < 1000; k++) {
+                session.update("counter", image -> number(image.getPixel(0, 0) + 1));
+              }
+            });
+
+    assertNull(failure);
+    assertEquals(8000, session.getImage("counter").getPixel(0, 0));
+  }
+
+  @Test
+  public void testStress() throws InterruptedException {
+    ConcurrentSession session = new ConcurrentSession();
+    session.insertOrReplaceImage("shared", number(0));
+    int operations = 20_000;
+    for (int threads = 1; threads <= 8; threads *= 2) {
+      int count = threads;
+      Throwable failure =
+          runConcurrently(
+              threads,
+              index -> {
+                // every thread writes its own names, and reads and computes shared ones
+                for (int k = 0; k < operations / count; k++) {
+                  String name = "thread" + index + "-" + (k % 64);
+                  session.insertOrReplaceImage(name, number(k));
+                  assertEquals(number(k), session.getImage(name));
+                  assertEquals(number(0), session.getImage("shared"));
+                  ReadOnlyImage computed =
+                      session.getOrCompute("computed" + (k % 128), key -> number(7));
+                  assertEquals(number(7), computed);
+                }
+              });
+      assertNull(failure);
+    }
+
+    int last = operations / 8 - 1;
+    for (int index = 0; index < 8; index++) {
+      assertEquals(number(last), session.getImage("thread" + index + "-" + (last % 64)));
+    }
+    assertEquals(1 + 8 * 64 + 128, session.size());
+  }
+}
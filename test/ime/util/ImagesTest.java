@@ -0,0 +1,103 @@
+package ime.util;
+
+import ime.model.image.IReadOnlyImageBuilder;
+import ime.model.image.PackedReadOnlyImage;
+import ime.model.image.ReadOnlyImage;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+
+import static ime.util.Colors.fromRgb;
+import static org.junit.Assert.assertEquals;
+
+/** This class tests the conversions between BufferedImages and ReadOnlyImages in {@link Images}. */
+public class ImagesTest {
+  private static final int[] TYPES = {
+    BufferedImage.TYPE_INT_RGB,
+    BufferedImage.TYPE_INT_ARGB,
+    BufferedImage.TYPE_3BYTE_BGR,
+    BufferedImage.TYPE_4BYTE_ABGR,
+    BufferedImage.TYPE_INT_BGR,
+    BufferedImage.TYPE_USHORT_565_RGB
+  };
+
+  /**
+   * Build an image with distinct channel values.
+   *
+   * @param height the height of the image.
+   * @param width the width of the image.
+   * @param gray whether every pixel should be gray.
+   * @return the image.
+   */
+  private static ReadOnlyImage makeImage(int height, int width, boolean gray) {
+    IReadOnlyImageBuilder builder = new PackedReadOnlyImage.PackedImageBuilder(height, width);
+    int[] row = new int[width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        int value = (i * 37 + j * 11) & 0xFF;
+        row[j] = gray ? fromRgb(value, value, value) : fromRgb(value, (j * 29) & 0xFF, i & 0xFF);
+      }
+      builder.setRow(i, row, 0);
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void testMatchesGetRgb() {
+    ReadOnlyImage image = makeImage(13, 17, false);
+    for (int type : TYPES) {
+      BufferedImage buffer = Images.fromReadOnlyImage(image, type);
+      assertEquals(type, buffer.getType());
+      ReadOnlyImage converted = Images.fromBufferedImage(buffer);
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          assertEquals(buffer.getRGB(j, i) & 0xFFFFFF, converted.getPixel(i, j));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTrip() {
+    ReadOnlyImage image = makeImage(20, 31, false);
+    for (int type : new int[] {TYPES[0], TYPES[1], TYPES[2], TYPES[3], TYPES[4]}) {
+      assertEquals(image, Images.fromBufferedImage(Images.fromReadOnlyImage(image, type)));
+    }
+    assertEquals(image, Images.fromBufferedImage(Images.fromReadOnlyImage(image)));
+  }
+
+  @Test
+  public void testGrayUsesRawSamples() {
+    ReadOnlyImage image = makeImage(9, 8, true);
+    BufferedImage buffer = Images.fromReadOnlyImage(image, BufferedImage.TYPE_BYTE_GRAY);
+    assertEquals(
+        image.getPixel(3, 5) & 0xFF, buffer.getRaster().getSample(5, 3, 0));
+    assertEquals(image, Images.fromBufferedImage(buffer));
+  }
+
+  @Test
+  public void testGrayUsesLuma() {
+    ReadOnlyImage image =
+        new PackedReadOnlyImage.PackedImageBuilder(1, 1)
+            .setRow(0, new int[] {fromRgb(200, 100, 50)}, 0)
+            .build();
+    BufferedImage buffer = Images.fromReadOnlyImage(image, BufferedImage.TYPE_BYTE_GRAY);
+    assertEquals(118, buffer.getRaster().getSample(0, 0, 0));
+  }
+
+  @Test
+  public void testSubimage() {
+    ReadOnlyImage image = makeImage(30, 40, false);
+    for (int type : new int[] {TYPES[0], TYPES[2], TYPES[3]}) {
+      BufferedImage sub = Images.fromReadOnlyImage(image, type).getSubimage(5, 7, 20, 10);
+      ReadOnlyImage converted = Images.fromBufferedImage(sub);
+      assertEquals(10, converted.getHeight());
+      assertEquals(20, converted.getWidth());
+      for (int i = 0; i < 10; i++) {
+        for (int j = 0; j < 20; j++) {
+          assertEquals(image.getPixel(i + 7, j + 5), converted.getPixel(i, j));
+        }
+      }
+    }
+  }
+}